@@ -14,16 +14,28 @@
 package de.weAut;
 
 import static de.weAut.PiGpioDdefs.*; // pigpio library defines
+import java.io.EOFException;
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.NoSuchElementException;
 import java.util.PrimitiveIterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.IntConsumer;
+import javax.management.JMException;
 import de.frame4j.text.TextHelper;
 import de.frame4j.util.ComVar;
 
@@ -61,6 +73,25 @@ import de.frame4j.util.ComVar;
 //           V.  42 (29.04.2021) : overhaul (Frame4J)
 //           V.  46 (09.05.2021) : threadsafe cmd and response buffers
 //           V.  48 (15.05.2021) : BC1 BS1 bug
+//           V.  61 (16.10.2026) : pipelined asynchronous commands
+//           V.  62 (16.10.2026) : batched commands
+//           V.  63 (16.10.2026) : NIO channel transport option
+//           V.  65 (16.10.2026) : input process image
+//           V.  70 (16.10.2026) : latency histograms and IO counters
+//           V.  74 (16.10.2026) : extended commands (I2C, SPI, serial)
+//           V.  75 (16.10.2026) : waveforms
+//           V.  76 (16.10.2026) : scripts
+//           V.  77 (16.10.2026) : GPIO shadow state
+//           V.  78 (16.10.2026) : automatic reconnect
+//           V.  80 (16.10.2026) : IO lock instead of synchronized
+//           V.  81 (16.10.2026) : command traffic recorder
+//           V.  88 (16.10.2026) : pipelined responses logged
+//           V.  93 (16.10.2026) : shadow recorded in the IO lock
+//           V. 106 (17.10.2026) : pipe timeout by the oldest command's age
+//           V. 107 (17.10.2026) : batch keeps its pipe if the reader dies
+//           V. 108 (17.10.2026) : no reconnect over an explicit disconnect
+//           V. 111 (17.10.2026) : NIO doc: CmdState still recorded
+//           V. 112 (17.10.2026) : isTransportError(int)
 public class ClientPigpiod {
 
 /** The socket. <br />
@@ -75,6 +106,48 @@ public class ClientPigpiod {
 
 /** The socket output stream. <br /> */
    OutputStream sockOut;
+
+/** Use the NIO channel transport. <br />
+ *  <br />
+ *  false: classic socket streams; true: {@link #chan} with direct
+ *  buffers, TCP_NODELAY and no per command buffer handling or garbage.
+ *  <br />
+ *  Both transports record the command in the calling thread's
+ *  {@link CmdState} (one {@link #lastCmdState} lookup per command) for
+ *  {@linkplain #logCommand(int) logging}; NIO just does not use its
+ *  byte arrays.
+ *  @see #ClientPigpiod(ThePi, Object, boolean)
+ */
+   public final boolean nio;
+
+/** The socket channel. <br />
+ *  <br />
+ *  When {@link #nio} is set and connected this is the socket's channel,
+ *  else null. In this case {@link #sockIn} and {@link #sockOut} are null.
+ */
+   SocketChannel chan;
+
+/** Command buffer of the NIO transport. <br />
+ *  <br />
+ *  Direct, little endian, {@link #NIO_BUF_LEN} bytes; used under this
+ *  object's lock.
+ */
+   ByteBuffer cmdBuf;
+
+/** Response buffer of the NIO transport. <br /> */
+   ByteBuffer respBuf;
+
+/** Length of the NIO transport's buffers. <br /> */
+   static final int NIO_BUF_LEN = 1024; // 64 responses or 51 num. ext. cmds
+
+/** Start of the NIO transport's current wait for a response. <br />
+ *  <br />
+ *  In ns ({@link System#nanoTime()}); 0: no wait. A NIO channel in blocking
+ *  mode has no timeout. Hence, a watchdog thread closes the channel when
+ *  waiting longer than {@link ThePi#timeout()}. For the classic transport
+ *  the socket's timeout does it.
+ */
+   volatile long ioSince;
    
 /** The output for logging. <br /> */
    PrintWriter out;
@@ -127,23 +200,126 @@ public class ClientPigpiod {
  *  @throws IOException if the connecting
  *          to {@link ThePi#host() host}.{@link ThePi#sockP() port} fails
  */
-   public synchronized Socket connect() throws IOException {
+   public Socket connect() throws IOException {
+     ioLock.lock();
      try {
-         if (sock == null) {
-            sock = new Socket(thePi.host(), thePi.sockP());        
-            sock.setSoTimeout(thePi.timeout()); // default 10 s
-            sock.setReceiveBufferSize(260);
-            sockIn = sock.getInputStream();
-            sockOut = sock.getOutputStream();
-         }
+       final Reconnector rc = reconnector;
+       if (rc != null) rc.halted = false;
+       if (sock != null) return sock;
+       try {
+         install(open(thePi.timeout()));
          return sock;
-      } catch (IOException ex) {
-         try {
-            disconnect();
-         } catch (Exception e){} // silently ignore disconnect exception
-         throw ex; // but throw all others
-      }
+       } catch (IOException ex) {
+         drop(); // partly built up
+         throw ex;
+       }
+     } finally {
+       ioLock.unlock();
+     }
    } // connect()
+
+/** Open a new socket connection to pigpiod. <br />
+ *  <br />
+ *  The connection is made but not yet used (see
+ *  {@link #install(Socket)}). The caller need not hold this object's
+ *  lock; so a reconnect does not block commands (failing fast meanwhile).
+ *
+ *  @param connTmo the connect timeout in ms (0: none)
+ *  @return the connected socket (with channel if {@link #nio})
+ *  @throws IOException if the connecting fails
+ */
+   final Socket open(final int connTmo) throws IOException {
+     final InetSocketAddress addr = new InetSocketAddress(
+                      InetAddress.getByName(thePi.host()), thePi.sockP());
+     if (nio) {
+       final SocketChannel ch = SocketChannel.open();
+       try {
+         ch.socket().setTcpNoDelay(true); // (very) small commands: no Nagle
+         ch.socket().connect(addr, connTmo);
+       } catch (IOException e) {
+         ch.close();
+         throw e;
+       }
+       return ch.socket();
+     } // NIO
+     final Socket s = new Socket();
+     try {
+       s.connect(addr, connTmo);
+       s.setSoTimeout(thePi.timeout()); // default 10 s
+       s.setReceiveBufferSize(260);
+     } catch (IOException e) {
+       s.close();
+       throw e;
+     }
+     return s;
+   } // open(int)
+
+/** Use a socket connection made by {@link #open(int)}. <br />
+ *  <br />
+ *  The streams respectively buffers will be provided; a shadow, if used,
+ *  is cleared (the daemon may have been restarted).
+ *
+ *  @param s the socket connected
+ *  @return true: s is used; false: connected meanwhile, s closed
+ *  @throws IOException if getting the streams fails
+ */
+   final boolean install(final Socket s) throws IOException {
+     ioLock.lock();
+     try {
+       if (sock != null) { // connected meanwhile
+         s.close();
+         return false;
+       }
+       final GpioShadow sh = shadow;
+       if (sh != null) sh.clear();
+       sock = s;
+       final SocketChannel ch = s.getChannel();
+       if (ch != null) {
+         if (cmdBuf == null) {
+           cmdBuf = ByteBuffer.allocateDirect(NIO_BUF_LEN)
+                                             .order(ByteOrder.LITTLE_ENDIAN);
+           respBuf = ByteBuffer.allocateDirect(NIO_BUF_LEN)
+                                             .order(ByteOrder.LITTLE_ENDIAN);
+         }
+         chan = ch;
+         ioSince = 0;
+         startWatchdog(ch);
+       } else {
+         sockIn = s.getInputStream();
+         sockOut = s.getOutputStream();
+       }
+       return true;
+     } finally {
+       ioLock.unlock();
+     }
+   } // install(Socket)
+
+/** Reconnect by {@link Reconnector}. <br />
+ *  <br />
+ *  The connection made is not used if rc was stopped meanwhile (by
+ *  {@link #disconnect()} or switched off) or another connection was made;
+ *  so a reconnect blocked in connecting won't undo an explicit
+ *  disconnect.
+ *
+ *  @param rc the reconnect engine calling
+ *  @param connTmo the connect timeout in ms
+ *  @return true: reconnected; false: stopped or connected meanwhile
+ *  @throws IOException if connecting fails
+ */
+   final boolean reopen(final Reconnector rc, final int connTmo)
+                                                       throws IOException {
+     final Socket s = open(connTmo);
+     ioLock.lock();
+     try {
+       if (rc.halted || rc.off || reconnector != rc) {
+         s.close();
+         return false;
+       }
+       return install(s);
+     } finally {
+       ioLock.unlock();
+     }
+   } // reopen(Reconnector, int)
    
 /** The Raspberry Pi used for IO. <br />
  *  <br />
@@ -154,6 +330,37 @@ public class ClientPigpiod {
  *  {@link Pi2} (with two IO connectors). 
  */
    public final ThePi thePi;
+
+/** IO statistics. <br />
+ *  <br />
+ *  The latency of every command answered is recorded by command number
+ *  as well as error responses, timeouts and short reads.
+ *  @see #regStatsMBean()
+ */
+   public final CmdStats stats = new CmdStats();
+
+/** The lock serialising IO. <br />
+ *  <br />
+ *  All commands' socket IO (and connecting) is done holding this lock.
+ *  It's a {@link ReentrantLock} instead of {@code synchronized}: a
+ *  virtual thread blocked in socket IO (or waiting for the lock) so
+ *  doesn't pin its carrier thread. Hence, (very) many virtual thread
+ *  control tasks may share one {@link ClientPigpiod}. <br />
+ *  In pipelined mode the lock is held for sending only.
+ */
+   final ReentrantLock ioLock = new ReentrantLock();
+
+/** Register the IO statistics as MBean. <br />
+ *  <br />
+ *  The name is {@code de.weAut:type=CmdStats,name="host:port"}.
+ *
+ *  @return the registered object name
+ *  @throws JMException if the registering fails
+ */
+   public String regStatsMBean() throws JMException {
+     return stats.regAsMBean((thePi.host() != null ? thePi.host()
+                                : "localhost") + ":" + thePi.sockP());
+   } // regStatsMBean()
    
 /** Make and connect to a new Pi. <br />
  *  <br />
@@ -200,10 +407,13 @@ public class ClientPigpiod {
     final String host = app.argHost();
     final int port = app.argPort();
     final int timeout = app.argTimeout();
-    if (type == 1) return new ClientPigpiod(Pi1.make(host, port, timeout), app);
-    if (type == 2) return new ClientPigpiod(Pi2.make(host, port, timeout), app);
-    return new ClientPigpiod(Pi3.make(host, port, timeout, type), app);
-  } // make(String, 3*int, Object)
+    final boolean nio = app.argNio();
+    if (type == 1) return new ClientPigpiod(Pi1.make(host, port, timeout),
+                                                                  app, nio);
+    if (type == 2) return new ClientPigpiod(Pi2.make(host, port, timeout),
+                                                                  app, nio);
+    return new ClientPigpiod(Pi3.make(host, port, timeout, type), app, nio);
+  } // make(PiUtil)
 
 /** Construct and connect to a given Pi. <br />
  *
@@ -213,10 +423,24 @@ public class ClientPigpiod {
  *  @see #make(String, int, int, int, Object) {@link #setOut(Object)}
  */
    public ClientPigpiod(final ThePi thePi, Object app) throws IOException {
+     this(thePi, app, false);
+   } // ClientPigpiod(CharSequence, 2 * int) 
+
+/** Construct and connect to a given Pi choosing the transport. <br />
+ *
+ *  @param thePi if null a default {@link Pi3} is made and used
+ *  @param app the application using the ClientPigpiod object to be made
+ *  @param nio true: use the NIO channel transport; false: classic 
+ *  @throws IOException when connecting to the pigpiod server fails
+ *  @see #nio
+ */
+   public ClientPigpiod(final ThePi thePi, Object app, final boolean nio)
+                                                        throws IOException {
      this.thePi = thePi != null ? thePi : Pi3.make(null, 0, 0, 3);
+     this.nio = nio;
      sock = connect();
      setOut(app); // helper method
-   } // ClientPigpiod(CharSequence, 2 * int) 
+   } // ClientPigpiod(ThePi, Object, boolean) 
    
 /** Disconnecting. <br />
  *  <br />
@@ -230,15 +454,127 @@ public class ClientPigpiod {
  *
  *  @throws IOException on closing problems
  */
-   public synchronized void disconnect() throws IOException {
-      if (sock != null) {
-        sock.close();
-        sock    = null;
-        sockIn  = null;
-        sockOut = null;
-      }
+   public void disconnect() throws IOException {
+     ioLock.lock();
+     try {
+        final Reconnector rc = reconnector;
+        if (rc != null) rc.halted = true; // no automatic reconnect
+        drop();
+     } finally {
+       ioLock.unlock();
+     }
    } // disconnect()
 
+/** Drop the connection. <br />
+ *  <br />
+ *  This is {@link #disconnect()} ignoring close problems and not stopping
+ *  a {@link Reconnector}. Commands fail fast afterwards.
+ */
+   final void drop(){
+     ioLock.lock();
+     try {
+        final Socket s = sock;
+        if (s != null) {
+          sock    = null;
+          sockIn  = null;
+          sockOut = null;
+          chan    = null; // ends the watchdog
+          pipe    = null; // back to blocking mode (on re-connect)
+          try {
+            s.close(); // a pipeline reader will end by read error
+          } catch (IOException e) {} // ignore; it's gone anyway
+        }
+     } finally {
+       ioLock.unlock();
+     }
+   } // drop()
+
+/** Automatic reconnect; null: off (default). <br /> */
+   volatile Reconnector reconnector;
+
+/** The automatic reconnect engine. <br />
+ *  @return the engine; null if not used
+ *  @see #autoReconnect(int, int)
+ */
+   public final Reconnector reconnector(){ return reconnector; }
+
+/** Switch automatic reconnect on or off. <br />
+ *  <br />
+ *  With a {@link Reconnector} a lost connection is closed at once (so
+ *  commands fail fast) and re-made in the background with exponential
+ *  backoff; then outputs and pads are {@linkplain #replay() replayed}.
+ *
+ *  @param minMs first backoff in ms; &lt;= 0: switch off
+ *  @param maxMs maximum backoff in ms
+ *  @return the engine; null if switched off
+ */
+   public Reconnector autoReconnect(final int minMs, final int maxMs){
+     final Reconnector old = reconnector;
+     if (old != null) old.off = true;
+     return reconnector = minMs <= 0 ? null
+                                     : new Reconnector(this, minMs, maxMs);
+   } // autoReconnect(2*int)
+
+/** A transport error. <br />
+ *  <br />
+ *  The socket errors a command returns when it got no response: write or
+ *  read failure (including timeout and not connected) and end of stream.
+ *  So a command returning uint32 values (like BR1's levels) can tell them
+ *  from a result; pigpiod never returns them.
+ *
+ *  @param ret a command's return value
+ *  @return true if ret is a transport error
+ */
+   public static boolean isTransportError(final int ret){
+     return ret == PI_SOCK_WRIT_FAILED || ret == PI_SOCK_READ_FAILED
+                                       || ret == PI_SOCK_READ_LEN;
+   } // isTransportError(int)
+
+/** Record a transport failure. <br />
+ *  <br />
+ *  It is recorded in {@link #stats}. A lost connection (write or read
+ *  failure, end of stream, timeout) is handed to the {@link Reconnector}
+ *  if used.
+ *
+ *  @param err the error
+ *  @param e the exception; may be null
+ */
+   final void failed(final int err, final Throwable e){
+     stats.failed(err, e);
+     final Reconnector rc = reconnector;
+     if (rc != null && isTransportError(err)) {
+       rc.lost(e);
+     }
+   } // failed(int, Throwable)
+
+/** Start the NIO transport's watchdog. <br />
+ *  <br />
+ *  The watchdog thread closes the channel when a response is waited for
+ *  longer than {@link ThePi#timeout()} (see {@link #ioSince}). It ends
+ *  when the channel is closed or replaced.
+ */
+   final void startWatchdog(final SocketChannel ch){
+     final int timeout = thePi.timeout();
+     if (timeout <= 0) return; // no timeout
+     final long tmoNs = timeout * 1000000L;
+     final int tick = timeout < 80 ? 10 : timeout / 8;
+     Thread wd = new Thread(() -> {
+       while (chan == ch && ch.isOpen()) {
+         try {
+           Thread.sleep(tick);
+         } catch (InterruptedException e) { return; }
+         final long since = ioSince;
+         if (since != 0 && System.nanoTime() - since > tmoNs) {
+           try {
+             ch.close(); // blocked IO gets an AsynchronousCloseException
+           } catch (IOException e) {} // ignore
+         }
+       } // while
+     }, "pigpiod-wd " + thePi.host());
+     wd.setDaemon(true);
+     wd.start();
+   } // startWatchdog(SocketChannel)
+
 /** The connection's settings as String. <br /> */
    @Override public String toString() {
       return "pigpiod: " + thePi.host() + (sock != null ? ":" : "-")
@@ -373,12 +709,17 @@ public class ClientPigpiod {
         out.println("  ERR ioCmd(" + lastCmd + ", " + lastP1
                  + ", " + lastP2 +") -> " + ret + " " + cmdNam[lastCmd]);
      }
+     if (chan != null) { // NIO: buffers per connection, not per thread
+        if (cmdExecStage >= 1) out.println("   request : [" + lastCmd
+             + ", " + lastP1 + ", " + lastP2 + ", " + cmdSt.lastP3 + "]");
+     } else { // classic
      if (cmdExecStage >= 1) { // request used //  logRequest &&
         out.println("   request : " + Arrays.toString(cmdSt.command));
      } // request used
      if (cmdExecStage >= 16) { // request used //  logResponse &&
         out.println("   respons : " + Arrays.toString(cmdSt.response));
      } // request used
+     } // classic
      if (cmdSt.lastException != null) 
         out.println("      " + cmdSt.lastException.getMessage());
         out.flush();
@@ -529,7 +870,56 @@ public class ClientPigpiod {
      CmdState cmdSt = lastCmdState.get();
      cmdSt.lastP1 = p1; cmdSt.lastP2 = p2; cmdSt.lastCmd = cmd; // enable log
      cmdSt.cmdExecStage = 0; cmdSt.lastException = null;
-     
+     final int chk = stdChk(cmd, p1, p2);
+     if (chk != GO) return chk; // error or nothing to do
+
+      int ret = 0;
+      // prepare and execute command - sync with this ClientPigpiod needed
+      CompletableFuture<Integer> piped = null;
+      ioLock.lock();
+      try {
+        final int sc = shadowChk(cmd, p1, p2); // in wire order
+        if (sc != GO) return sc; // redundant
+        cmdSt.cmdExecStage = 1;
+        if (pipe != null) { // pipelined mode: reader thread gets response
+          putCmd(cmdSt.command, cmd, p1, p2, 0);
+          piped = pipeSend(cmdSt, 16);
+        } else { // the whole method is quasi sync as cmdSt is threadlocal
+          ret = roundTrip(cmdSt, cmd, p1, p2, 0, 0, false);
+        }
+      } finally {
+        ioLock.unlock();
+      } // locked
+      if (piped != null) ret = joined(cmdSt, piped); // wait outside lock
+      final GpioShadow sh = shadow;
+      if (sh != null) sh.done(cmd, p1, ret);
+      return ret;
+   } // stdCmd(3*int)
+
+/** Pre-checks result: no error found; go on and execute the command. <br />
+ *  <br />
+ *  All other results of {@link #stdChk(int, int, int)} are final: either
+ *  an error (&lt; 0) or 0 for nothing to do.
+ */
+   static final int GO = 1;
+
+/** Pre-checks for two parameter (standard) commands. <br />
+ *  <br />
+ *  This is the common part of {@link #stdCmd(int, int, int)} and
+ *  {@link #stdCmdAsync(int, int, int)} checking command (cmd) and
+ *  parameter combinations to save the pains of socket communication for
+ *  just getting an error. It also does the bookkeeping of outputs set
+ *  ({@link #areOut}). The {@link #shadow() shadow}, if used, is asked
+ *  afterwards by {@link #shadowChk(int, int, int)}.
+ *
+ *  @param cmd the command number
+ *  @param p1 first parameter, mostly GPIO number
+ *  @param p2 optional second parameter
+ *  @return {@link #GO} to execute the command; else error (&lt; 0) or
+ *          0 (OK, nothing to do) as the command's final result (or a
+ *          redundant PFS' known frequency)
+ */
+   final int stdChk(final int cmd, final int p1, final int p2){
      // pre checks with own return (inside thread) - no sync needed
       if (cmd < 0 || cmd > 117
                   || hasExtension[cmd] || hasRespExt[cmd]) return PI_CMD_BAD;
@@ -561,48 +951,43 @@ public class ClientPigpiod {
         }  // set or clear bits in bank 0
       } else if (par1Sem == PAD) { // (bank) bitmask (set or clear) else pad
         if (p1 < 0 || p1 > 2) return PI_BAD_PAD;
-        if (cmd == PI_CMD_PADS 
-                         && (p2 < 1 || p2 > 16)) return  PI_BAD_STRENGTH; 
+        if (cmd == PI_CMD_PADS) {
+          if (p2 < 1 || p2 > 16) return  PI_BAD_STRENGTH;
+          padsSet[p1] = p2; // for replay
+        }
       } // command is a pad command
-      int ret = 0;
-      // prepare and execute command - sync with this ClientPigpiod needed
+      return GO;
+   } // stdChk(3*int)
 
-      Arrays.fill(cmdSt.command, (byte) 0); // init all 0
-      cmdSt.command[0] = (byte)cmd;
-      cmdSt.command[4] = (byte)p1;
-      if ((p1 & 0xFFFFFF00) != 0) {
-        cmdSt.command[5] = (byte)(p1 >> 8);
-        cmdSt.command[6] = (byte)(p1 >> 16);
-        cmdSt.command[7] = (byte)(p1 >> 24);
-      }
-      cmdSt.command[8] = (byte)p2;
-      if ((p2 & 0xFFFFFF00) != 0) {
-        cmdSt.command[ 9] = (byte)(p2 >> 8);
-        cmdSt.command[10] = (byte)(p2 >> 16);
-        cmdSt.command[11] = (byte)(p2 >> 24);
-      }
-      cmdSt.cmdExecStage = 1;
-      synchronized (this) {
-      try { // the whole method is quasi sync as cmdSt is threadlocal
-         sockOut.write(cmdSt.command, 0, 16);
-         try {
-            int bRead = sockIn.available();
-            bRead = sockIn.read(cmdSt.response, 0, 16);
-            cmdSt.cmdExecStage = 16;
-            ret = bRead != 16 ?  PI_SOCK_READ_LEN
-                       : cmdSt.response[12] | cmdSt.response[13] << 8
-                 | cmdSt.response[14] << 16 | cmdSt.response[15] << 24;
-         } catch (IOException e) {
-           cmdSt.lastException = e;
-            ret =  PI_SOCK_READ_FAILED;
-         }
-      } catch (IOException e) {
-         cmdSt.lastException = e;
-         ret = PI_SOCK_WRIT_FAILED;
-      } // try
-      } // synchronized 
-      return ret;
-   } // stdCmd(3*int)
+/** Shadow check and record of a (pre-checked) command. <br />
+ *  <br />
+ *  The caller must hold the {@link #ioLock} and send the command in the
+ *  same critical section. So the shadow records the commands in the order
+ *  they go over the wire, also when threads set the same GPIO.
+ *
+ *  @param cmd the command number
+ *  @param p1 first parameter
+ *  @param p2 second parameter
+ *  @return {@link #GO} to send; else the result without sending
+ *  @see GpioShadow#check(int, int, int)
+ */
+   final int shadowChk(final int cmd, final int p1, final int p2){
+     final GpioShadow sh = shadow;
+     return sh == null ? GO : sh.check(cmd, p1, p2);
+   } // shadowChk(3*int)
+
+/** Forget a GPIO in the shadow for an untracked command. <br />
+ *  <br />
+ *  The caller must hold the {@link #ioLock} (see
+ *  {@link #shadowChk(int, int, int)}).
+ *
+ *  @param cmd the command number
+ *  @param p1 first parameter; a GPIO if its {@link #p1Kind} is GPIO
+ */
+   final void shadowForget(final int cmd, final int p1){
+     final GpioShadow sh = shadow;
+     if (sh != null && p1Kind[cmd] == GPIO) sh.forget(p1); // TRIG, HP ..
+   } // shadowForget(2*int)
    
 /** Implementation of three parameter (numerical extension) commands. <br />
  *  <br />
@@ -632,12 +1017,8 @@ public class ClientPigpiod {
      cmdSt.lastP1 = p1; cmdSt.lastP2 = p2; cmdSt.lastCmd = cmd; // enable log
      cmdSt.cmdExecStage = 0; cmdSt.lastException = null;
      cmdSt.lastP3 = pNum;
-     final int par1Sem = p1Kind[cmd]; // parameter 1 sematic
-     if (par1Sem == GPIO) { // a Command for a specific gpio
-        if (p1 < 0 || p1 > 31) return PI_BAD_USER_GPIO;
-     } else if (par1Sem == HANDLE) { // p1  is handle >= 0
-        if (p1 < 0) return PI_BAD_HANDLE;
-     }
+     final int chk = numChk(cmd, p1);
+     if (chk != GO) return chk; // error
      int ret = 0;
      
     /* command     p1 (sem)   extension
@@ -654,66 +1035,62 @@ public class ClientPigpiod {
     108 FS         HANDLE     extNumNoR
        command     p1 (sem)   extension    */
       // prepare and execute command - sync with this ClientPigpiod needed
-      Arrays.fill(cmdSt.command, (byte) 0); // init all 0
-      cmdSt.command[0] = (byte)cmd;
-      cmdSt.command[4] = (byte)p1;
-      if ((p1 & 0xFFFFFF00) != 0) {
-        cmdSt.command[5] = (byte)(p1 >> 8);
-        cmdSt.command[6] = (byte)(p1 >> 16);
-        cmdSt.command[7] = (byte)(p1 >> 24);
-      }
-      cmdSt.command[8] = (byte)p2;
-      if ((p2 & 0xFFFFFF00) != 0) {
-        cmdSt.command[ 9] = (byte)(p2 >> 8);
-        cmdSt.command[10] = (byte)(p2 >> 16);
-        cmdSt.command[11] = (byte)(p2 >> 24);
-      }
-      cmdSt.command[12] = 4; // fixed command extension length 4
-      cmdSt.command[16] = (byte)pNum;
-      if ((pNum & 0xFFFFFF00) != 0) {
-         cmdSt.command[17] = (byte)(pNum >> 8);
-         cmdSt.command[18] = (byte)(pNum >> 16);
-         cmdSt.command[19] = (byte)(pNum >> 24);
-      }
       cmdSt.cmdExecStage = 1;
-      synchronized (this) {
-      try { // the whole method is quasi sync as cmdSt is threadlocal
-         sockOut.write(cmdSt.command, 0, 20); // command 16 + 4 ext in 1 step
-         try {
-            int bRead = sockIn.available();
-            bRead = sockIn.read(cmdSt.response, 0, 16);
-            cmdSt.cmdExecStage = 16;
-            ret = bRead != 16 ?  PI_SOCK_READ_LEN
-                       : cmdSt.response[12] | cmdSt.response[13] << 8
-                 | cmdSt.response[14] << 16 | cmdSt.response[15] << 24;
-         } catch (IOException e) {
-           cmdSt.lastException = e;
-            ret =  PI_SOCK_READ_FAILED;
-         }
-      } catch (IOException e) {
-         cmdSt.lastException = e;
-         ret = PI_SOCK_WRIT_FAILED;
-      } // try
-      } // synchronized 
+      CompletableFuture<Integer> piped = null;
+      ioLock.lock();
+      try {
+        shadowForget(cmd, p1); // TRIG HP etc. not tracked
+        if (pipe != null) { // pipelined mode: reader thread gets response
+          putCmd(cmdSt.command, cmd, p1, p2, 4); // fixed extension length 4
+          putInt(cmdSt.command, 16, pNum);
+          piped = pipeSend(cmdSt, 20);
+        } else { // command 16 + 4 ext in 1 step
+          ret = roundTrip(cmdSt, cmd, p1, p2, 4, pNum, true);
+        }
+      } finally {
+        ioLock.unlock();
+      } // locked
+      if (piped != null) return joined(cmdSt, piped); // wait outside lock
       return ret;
    } // stdCmd(4*int)  // since 15.07.2021
+
+/** Pre-checks for three parameter (numerical extension) commands. <br />
+ *  <br />
+ *  This is the common part of {@link #stdCmd(int, int, int, int)} and
+ *  {@link #stdCmdAsync(int, int, int, int)} checking p1 according to its
+ *  {@link #p1Kind semantic}. 
+ *
+ *  @param cmd the command number (one with numerical extension)
+ *  @param p1 first parameter, mostly GPIO number
+ *  @return {@link #GO} to execute the command; else error (&lt; 0)
+ */
+   final int numChk(final int cmd, final int p1){
+     final int par1Sem = p1Kind[cmd]; // parameter 1 sematic
+     if (par1Sem == GPIO) { // a Command for a specific gpio
+        if (p1 < 0 || p1 > 31) return PI_BAD_USER_GPIO;
+     } else if (par1Sem == HANDLE) { // p1  is handle >= 0
+        if (p1 < 0) return PI_BAD_HANDLE;
+     }
+     return GO;
+   } // numChk(2*int)
    
 /** Implementation of the commands with extensions. <br />
  *  <br />
- *  This method handles (is the swiss army knife for) all (31) socket
+ *  This method handles (is the swiss army knife for) all (32) socket
  *  interface commands with a byte array as command extension or response
  *  or both but not none. <br />
  *  If {@code cmd} is one of the 11 with a numerical command extension 
  *  (fixed length 4) and no extended response use better 
  *  {@link #stdCmd(int, int, int, int) stdCmd(cmd, p1, p2, intBuffc)}
  *  directly instead of letting this method delegate.<br />
- *  <br />
- *  Some of these 31 extended commands are rarely used in most applications
- *  and are (as of 15.07.2021) not implemented yet.<br />
  *  <br /> 
  *  If {@code cmd} is one of the 75 non extended command (and for the
  *  most trivial errors) this method delegated to
- *  {@link #stdCmd(int, int, int)}. 
+ *  {@link #stdCmd(int, int, int)}. <br />
+ *  <br />
+ *  This is the (older) form of
+ *  {@link #extCmd(int, int, int, byte[], int, int, byte[], int, int)}
+ *  with both buffers used from index 0.
  * 
  *  @param cmd the command number 
  *  @param p1 first parameter, mostly GPIO number
@@ -726,8 +1103,79 @@ public class ClientPigpiod {
  */
    public int extCmd(final int cmd, final int p1, final int p2,
                     final int p3, final byte[] buffC, byte[] buffR){
+     return extCmd(cmd, p1, p2, buffC, 0, p3,
+                            buffR, 0, buffR == null ? 0 : buffR.length);
+   } // extCmd(4*int, 2*byte[])
+
+/** Implementation of the commands with extensions. <br />
+ *  <br />
+ *  The command extension {@code ext[extOff .. extOff+extLen-1]} is sent
+ *  after the command; an extended response is read directly into 
+ *  {@code resp[respOff ..]} (no intermediate copies). <br />
+ *  If the response is longer than {@code respLen} the surplus is read and
+ *  dropped (keeping the connection in sync); the return value is
+ *  pigpiod's length anyway. <br />
+ *  <br /> 
+ *  @param cmd the command number 
+ *  @param p1 first parameter, mostly a handle
+ *  @param p2 second parameter, often a register or count
+ *  @param ext the command extension buffer; may be null if extLen is 0
+ *  @param extOff start of the command extension in ext
+ *  @param extLen the length of the command extension (p3)
+ *  @param resp the response buffer; may be null if respLen is 0
+ *  @param respOff start of the response in resp
+ *  @param respLen the maximum response length to store
+ *  @return commands return value &gt;= 0, i.e. the length of an extended
+ *          response in bytes; or error number (&lt;0)
+ *  @see #extCmd(int, int, int, ByteBuffer, ByteBuffer)
+ */
+   public int extCmd(final int cmd, final int p1, final int p2,
+                final byte[] ext, final int extOff, final int extLen,
+                final byte[] resp, final int respOff, final int respLen){
+     if (extLen < 0 || extLen > 0 && (ext == null || extOff < 0
+                    || extOff + extLen > ext.length)) return PI_BAD_PARAM;
+     if (respLen < 0 || respLen > 0 && (resp == null || respOff < 0
+                || respOff + respLen > resp.length)) return PI_BAD_PARAM;
+     return extCmd(cmd, p1, p2,
+                   extLen == 0 ? null : ByteBuffer.wrap(ext, extOff, extLen),
+             respLen == 0 ? null : ByteBuffer.wrap(resp, respOff, respLen));
+   } // extCmd(3*int, byte[], 2*int, byte[], 2*int)
+
+/** Implementation of the commands with extensions. <br />
+ *  <br />
+ *  The command extension is {@code ext}'s remaining bytes (position to
+ *  limit); they are sent after the command and ext's position is set to
+ *  its limit. An extended response is read directly into {@code resp}
+ *  at its position; the position is advanced by the number of bytes
+ *  stored. If the response is longer than {@code resp.remaining()} the
+ *  surplus is read and dropped. <br />
+ *  <br />
+ *  The NIO transport ({@link #nio}) transfers direct buffers without any
+ *  copying in Java; small extensions are sent together with the command
+ *  in one write. The classic transport uses heap buffers' arrays 
+ *  directly. <br />
+ *  <br />
+ *  In pipelined mode ({@link #isPipelined()}) the command is sent in
+ *  order with the other threads' commands and the response (extension)
+ *  is read by the pipeline's reader; this method waits for it. <br />
+ *  <br />
+ *  The pre-checks, the delegation of non extended and numerically
+ *  extended commands and the logging support ({@link #lastCmdState}) are
+ *  as with {@link #extCmd(int, int, int, int, byte[], byte[])}.
+ *
+ *  @param cmd the command number 
+ *  @param p1 first parameter, mostly a handle
+ *  @param p2 second parameter, often a register or count
+ *  @param ext the command extension; null: none
+ *  @param resp the buffer for an extended response; null: none (drop)
+ *  @return commands return value &gt;= 0, i.e. the length of an extended
+ *          response in bytes; or error number (&lt;0)
+ */
+   public int extCmd(final int cmd, final int p1, final int p2,
+                               final ByteBuffer ext, final ByteBuffer resp){
      if (cmd < 0 || cmd > 117 || // handle errors and not extended
          !(hasExtension[cmd] || hasRespExt[cmd])) return stdCmd(cmd, p1, p2); 
+     final int p3 = ext == null ? 0 : ext.remaining();
      CmdState cmdSt = lastCmdState.get();
      cmdSt.lastP1 = p1; cmdSt.lastP2 = p2; cmdSt.lastCmd = cmd; // enable log
      cmdSt.lastP3 = p3;
@@ -743,12 +1191,15 @@ public class ClientPigpiod {
      // delegate numerical command extension no extended response
      if (hasIntExtNoResp[cmd]) {
        if (p3 != 4) return PI_BAD_PARAM_NUM;
-       if (buffC == null || buffC.length < 4) return PI_BAD_PARAM;
-       final int pNum = ((buffC[3] & 0xFF) << 24) 
-            | ((buffC[2] & 0xFF) << 16) | ((buffC[1] & 0xFF) << 8 )
-            | (buffC[0] & 0xFF);  // little endian
+       final int pos = ext.position();
+       final int pNum = ((ext.get(pos + 3) & 0xFF) << 24) 
+            | ((ext.get(pos + 2) & 0xFF) << 16) 
+            | ((ext.get(pos + 1) & 0xFF) << 8 )
+            | (ext.get(pos) & 0xFF);  // little endian
+       ext.position(pos + 4);
        return stdCmd(cmd, p1, p2, pNum); // better call directly
      } // numerical command extension no extended response
+     if (p3 > 0 && !hasExtension[cmd]) return PI_BAD_PARAM; // extR only
      
      /* command     p1 (sem)   extension
      28 WVAG       must be 0  extC
@@ -759,6 +1210,7 @@ public class ClientPigpiod {
      45 PROCP      SCRIPT_ID       extR
      56 I2CRD      HANDLE          extR
      57 I2CWD      HANDLE     extC
+     65 I2CRK      HANDLE          extR
      66 I2CWK      HANDLE     extC
      67 I2CRI      HANDLE     extC extR
      68 I2CWI      HANDLE     extC
@@ -785,52 +1237,859 @@ public class ClientPigpiod {
     117 PROCU      SCRIPT_ID  extC
        command     p1 (sem)   extension    */
      
-     // below is wrong XXXX (unmodified stdCmd)  
      int ret = 0;
-     Arrays.fill(cmdSt.command, (byte) 0); // init all 0
-     cmdSt.command[0] = (byte)cmd;
-     cmdSt.command[4] = (byte)p1;
-     if ((p1 & 0xFFFFFF00) != 0) {
-        cmdSt.command[5] = (byte)(p1 >> 8);
-        cmdSt.command[6] = (byte)(p1 >> 16);
-        cmdSt.command[7] = (byte)(p1 >> 24);
+     cmdSt.cmdExecStage = 1;
+     CompletableFuture<Integer> piped = null;
+     ioLock.lock();
+     try {
+       shadowForget(cmd, p1); // SLR etc. not tracked
+       if (pipe != null) { // pipelined mode: reader thread gets response
+         putCmd(cmdSt.command, cmd, p1, p2, p3);
+         final Timed f = new Timed(cmd, p1, p2, p3, hasRespExt[cmd], resp);
+         final Pipe p = pipeOffer(f);
+         if (p != null) pipeWrite(p, cmdSt, cmdSt.command, 16, ext);
+         piped = f;
+       } else { // the whole method is quasi sync as cmdSt is threadlocal
+         final long t0 = System.nanoTime();
+         ret = transferExt(cmdSt, cmd, p1, p2, ext, resp);
+         if (cmdSt.cmdExecStage >= 16) {
+           stats.record(cmd, t0, ret);
+         } else {
+           failed(ret, cmdSt.lastException);
+         }
+         final CommandRecorder rec = recorder;
+         if (rec != null) rec.record(t0, cmd, p1, p2, p3, ret);
+       }
+     } finally {
+       ioLock.unlock();
+     } // locked
+     if (piped != null) return joined(cmdSt, piped); // wait outside lock
+     return ret;
+   } // extCmd(3*int, 2*ByteBuffer)
+   
+
+//---------------------------  batched commands  ---------------------------
+
+/** Execute a batch of commands in one step. <br />
+ *  <br />
+ *  All commands of the batch are checked as by
+ *  {@link #stdCmd(int, int, int)} respectively
+ *  {@link #stdCmd(int, int, int, int)}. Those passing the checks are
+ *  encoded in one contiguous buffer, sent by one socket write and their
+ *  responses are read in one pass. Every command's result (return value or
+ *  error number) is put in the batch's {@link CommandBatch#results()
+ *  results} at the command's index. <br />
+ *  <br />
+ *  In pipelined mode (see {@link #stdCmdAsync(int, int, int)}) the
+ *  responses are got via the reader thread, otherwise directly. <br />
+ *  <br />
+ *  For logging the last command of the batch &mdash; or the first one
+ *  failing the checks &mdash; is recorded.
+ *
+ *  @param batch the commands
+ *  @return the batch's results array (not a copy) 
+ *  @see CommandBatch#exec(ClientPigpiod)
+ */
+   public int[] execBatch(final CommandBatch batch){
+     final int n = batch.n;
+     final int[] res = batch.results;
+     if (n == 0) return res;
+     final CmdState cmdSt = lastCmdState.get();
+     cmdSt.cmdExecStage = 0; cmdSt.lastException = null;
+     batch.ensureBuffers();
+     final byte[] buf = batch.command;
+     final int[] sent = batch.sent;
+     int len = 0, toSend = 0;
+     boolean recorded = false;
+     Timed[] piped = null; // not generic: no raw array
+     ioLock.lock(); // shadow records in wire order: checks in the lock
+     try {
+       for (int i = 0; i < n; ++i) { // pre-checks (in order) and encode
+         final int cmd = batch.cmd[i], p1 = batch.p1[i], p2 = batch.p2[i];
+         final boolean numExt = cmd >= 0 && cmd <= 117 && hasIntExtNoResp[cmd];
+         int chk = numExt ? numChk(cmd, p1) : stdChk(cmd, p1, p2);
+         if (chk == GO) {
+           if (numExt) {
+             shadowForget(cmd, p1);
+           } else {
+             chk = shadowChk(cmd, p1, p2);
+           }
+         }
+         if (chk != GO) { // error or nothing to do
+           res[i] = chk;
+           if (chk < 0 && !recorded) { // record first failing for log
+             recorded = true;
+             rErr(chk, cmd, p1, p2);
+           }
+           continue;
+         }
+         putCmd(buf, len, cmd, p1, p2, numExt ? 4 : 0);
+         len += 16;
+         if (numExt) {
+           putInt(buf, len, batch.pNum[i]);
+           len += 4;
+         }
+         sent[toSend++] = i;
+       } // for
+       if (!recorded) { // record last command for log
+         final int l = n - 1;
+         cmdSt.lastCmd = batch.cmd[l]; cmdSt.lastP1 = batch.p1[l];
+         cmdSt.lastP2 = batch.p2[l];   cmdSt.lastP3 = batch.pNum[l];
+       }
+       if (toSend == 0) return res;
+       cmdSt.cmdExecStage = 1;
+       if (pipe != null) { // pipelined mode: the reader thread gets responses
+         piped = new Timed[toSend];
+         Pipe p = null;
+         for (int k = 0; k < toSend; ++k) {
+           final int i = sent[k], cmd = batch.cmd[i];
+           piped[k] = new Timed(cmd, batch.p1[i], batch.p2[i],
+                                   hasIntExtNoResp[cmd] ? batch.pNum[i] : 0);
+           final Pipe q = pipeOffer(piped[k]);
+           if (q != null) p = q; // reader may die meanwhile: keep p
+         }
+         if (p != null) pipeWrite(p, cmdSt, buf, len); // fails stragglers
+       } else { // blocking: one write, read all responses
+         int got = 0, err = 0;
+         final int resLen = toSend * 16;
+         final byte[] response = batch.response;
+         final long t0 = System.nanoTime();
+         if (sock == null) {
+           err = PI_SOCK_WRIT_FAILED; // not connected
+         } else try {
+           if (chan != null) ioSince = System.nanoTime();
+           sendBytes(buf, len);
+           try {
+             got = recvBytes(response, resLen);
+             if (got < resLen) err = PI_SOCK_READ_LEN; // end of stream
+             cmdSt.cmdExecStage = 16;
+           } catch (IOException e) {
+             cmdSt.lastException = e;
+             err = PI_SOCK_READ_FAILED;
+           }
+         } catch (IOException e) {
+           cmdSt.lastException = e;
+           err = PI_SOCK_WRIT_FAILED;
+         } finally {
+           ioSince = 0;
+         } // try
+         final int complete = got / 16; // responses fully got 
+         final CommandRecorder rec = recorder;
+         for (int k = 0; k < toSend; ++k) {
+           res[sent[k]] = k < complete ? int32(response, k * 16 + 12) : err;
+           if (k < complete) stats.record(batch.cmd[sent[k]], t0, res[sent[k]]);
+           if (rec != null) {
+             final int i = sent[k], cmd = batch.cmd[i];
+             rec.record(t0, cmd, batch.p1[i], batch.p2[i],
+                           hasIntExtNoResp[cmd] ? batch.pNum[i] : 0, res[i]);
+           }
+         }
+         if (err != 0) failed(err, cmdSt.lastException);
+       } // blocking
+     } finally {
+       ioLock.unlock();
+     } // locked
+     if (piped != null) { // wait outside the lock
+       for (int k = 0; k < toSend; ++k) res[sent[k]] = piped[k].join();
+       if (piped[toSend - 1].answered) cmdSt.cmdExecStage = 16;
      }
-     cmdSt.command[8] = (byte)p2;
-     if ((p2 & 0xFFFFFF00) != 0) {
-        cmdSt.command[ 9] = (byte)(p2 >> 8);
-        cmdSt.command[10] = (byte)(p2 >> 16);
-        cmdSt.command[11] = (byte)(p2 >> 24);
+     final GpioShadow sh = shadow;
+     if (sh != null) for (int k = 0; k < toSend; ++k) {
+       final int i = sent[k];
+       sh.done(batch.cmd[i], batch.p1[i], res[i]);
      }
-     cmdSt.command[12] = (byte)p3;
-     if ((p3 & 0xFFFFFF00) != 0) {
-        cmdSt.command[13] = (byte)(p3 >> 8);
-        cmdSt.command[14] = (byte)(p3 >> 16);
-        cmdSt.command[15] = (byte)(p3 >> 24);
+     return res;
+   } // execBatch(CommandBatch)
+
+//-----------------------  pipelined asynchronous commands  ----------------
+
+/** Asynchronous (pipelined) two parameter (standard) command. <br />
+ *  <br />
+ *  This method does the same checks and bookkeeping as
+ *  {@link #stdCmd(int, int, int)} but does not wait for the response. It
+ *  just sends the command and returns a future to be completed with the
+ *  command's return value when the response arrives.<br />
+ *  <br />
+ *  Hence, many commands may be in flight on the one socket connection. As
+ *  pigpiod answers strictly in order a single reader thread matches
+ *  the responses to the commands in FIFO order. A control cycle touching
+ *  20 pins would so be bound by one round trip instead of 20.<br />
+ *  <br />
+ *  The first asynchronous command switches this {@link ClientPigpiod}
+ *  to pipelined mode (starting the reader thread). In pipelined mode all
+ *  other commands, like {@link #stdCmd(int, int, int)} and the comfortable
+ *  IO methods, go the same way &mdash; they just wait for their own
+ *  response. Pipelined mode ends by {@link #disconnect()}.<br />
+ *  <br />
+ *  Note: Dependent actions (like {@code thenAccept(...)}) on the future
+ *  returned are run by the reader thread. They must not wait for other
+ *  commands of this {@link ClientPigpiod} (which would be a dead lock).
+ *  Use the {@code ...Async} variants of {@link CompletableFuture} for that.
+ *  <br />
+ *  For {@link #logCommand(int)} only the request is recorded, as the
+ *  response comes later (at another thread).
+ *  
+ *  @param cmd the command number 
+ *  @param p1 first parameter, mostly GPIO number
+ *  @param p2 optional second parameter
+ *  @return a future for the command's return value as described at 
+ *          {@link #stdCmd(int, int, int)}; it is already completed on 
+ *          errors found by the pre-checks
+ */
+   public CompletableFuture<Integer> stdCmdAsync(final int cmd,
+                                              final int p1, final int p2){
+     CmdState cmdSt = lastCmdState.get();
+     cmdSt.lastP1 = p1; cmdSt.lastP2 = p2; cmdSt.lastCmd = cmd; // enable log
+     cmdSt.cmdExecStage = 0; cmdSt.lastException = null;
+     final int chk = stdChk(cmd, p1, p2);
+     if (chk != GO) return CompletableFuture.completedFuture(chk);
+     putCmd(cmdSt.command, cmd, p1, p2, 0);
+     final CompletableFuture<Integer> ret;
+     ioLock.lock();
+     try {
+       final int sc = shadowChk(cmd, p1, p2); // in wire order
+       if (sc != GO) return CompletableFuture.completedFuture(sc);
+       cmdSt.cmdExecStage = 1;
+       ret = pipeSend(cmdSt, 16);
+     } finally {
+       ioLock.unlock();
      }
- 
+     final GpioShadow sh = shadow;
+     if (sh == null || !GpioShadow.tracks(cmd)) return ret;
+     return ret.thenApply(r -> { sh.done(cmd, p1, r); return r; });
+   } // stdCmdAsync(3*int)
+
+/** Asynchronous (pipelined) three parameter command. <br />
+ *  <br />
+ *  This is the asynchronous variant of
+ *  {@link #stdCmd(int, int, int, int)} as described at
+ *  {@link #stdCmdAsync(int, int, int)}.
+ *  
+ *  @param cmd the command number 
+ *  @param p1 first parameter, mostly GPIO number
+ *  @param p2 second parameter
+ *  @param pNum the one numerical (extension) parameter
+ *  @return a future for the command's return value
+ */
+   public CompletableFuture<Integer> stdCmdAsync(final int cmd,
+                               final int p1, final int p2, final int pNum){
+     if (cmd < 0 || cmd > 117 ||          // handle errors and not extended
+                     !hasIntExtNoResp[cmd]) return stdCmdAsync(cmd, p1, p2); 
+     CmdState cmdSt = lastCmdState.get();
+     cmdSt.lastP1 = p1; cmdSt.lastP2 = p2; cmdSt.lastCmd = cmd; // enable log
+     cmdSt.cmdExecStage = 0; cmdSt.lastException = null;
+     cmdSt.lastP3 = pNum;
+     final int chk = numChk(cmd, p1);
+     if (chk != GO) return CompletableFuture.completedFuture(chk);
+     putCmd(cmdSt.command, cmd, p1, p2, 4); // fixed command extension length 4
+     putInt(cmdSt.command, 16, pNum);
      cmdSt.cmdExecStage = 1;
-     synchronized (this) {
-     try { // the whole method is quasi sync as cmdSt is threadlocal
-         sockOut.write(cmdSt.command, 0, 16);
+     ioLock.lock();
+     try {
+       shadowForget(cmd, p1); // TRIG HP etc. not tracked
+       return pipeSend(cmdSt, 20);
+     } finally {
+       ioLock.unlock();
+     }
+   } // stdCmdAsync(4*int)
+
+/** The pipeline in pipelined mode. <br />
+ *  <br />
+ *  null: blocking mode, i.e. every command does its own round trip.
+ *  @see #stdCmdAsync(int, int, int)
+ */
+   volatile Pipe pipe;
+   
+/** Is pipelined mode. <br />
+ *  
+ *  @return true when in pipelined mode
+ *  @see #stdCmdAsync(int, int, int)
+ */
+   public final boolean isPipelined(){ return pipe != null; }
+
+/** Send a prepared command in pipelined mode. <br />
+ *  <br />
+ *  The caller must hold the {@link #ioLock}. The first call (after connect)
+ *  makes the {@link #pipe} and starts its reader thread.
+ *
+ *  @param cmdSt the thread's command state with the command prepared
+ *  @param len the number of command bytes to send (16 or 20)
+ *  @return the future to be completed with the command's return value
+ */
+   final CompletableFuture<Integer> pipeSend(final CmdState cmdSt,
+                                                            final int len){
+     final Timed ret = new Timed(cmdSt.lastCmd,
+               cmdSt.lastP1, cmdSt.lastP2, len > 16 ? cmdSt.lastP3 : 0);
+     final Pipe p = pipeOffer(ret);
+     if (p != null) pipeWrite(p, cmdSt, cmdSt.command, len);
+     return ret;
+   } // pipeSend(CmdState, int)
+
+/** Wait for a command sent in pipelined mode. <br />
+ *  <br />
+ *  When the response was read, its echo and value are put in the
+ *  thread's {@link CmdState} as by a blocking round trip. So
+ *  {@link #logCommand(int)} and {@link #debugCommand(int)} work in
+ *  pipelined mode, too.
+ *
+ *  @param cmdSt the calling thread's command state
+ *  @param piped the command's future
+ *  @return the command's return value
+ */
+   static int joined(final CmdState cmdSt,
+                                   final CompletableFuture<Integer> piped){
+     final int ret = piped.join();
+     if (piped instanceof Timed && ((Timed)piped).answered) {
+       cmdSt.cmdExecStage = 16;
+       putCmd(cmdSt.response, cmdSt.lastCmd, cmdSt.lastP1, cmdSt.lastP2, ret);
+     }
+     return ret;
+   } // joined(CmdState, CompletableFuture)
+
+/** Enqueue a command's future in pipelined mode. <br />
+ *  <br />
+ *  The caller must hold the {@link #ioLock} and has to send the command
+ *  (by {@link #pipeWrite(Pipe, CmdState, byte[], int)}) afterwards.
+ *  The future has to be enqueued before the write as the response may
+ *  come fast.
+ *  
+ *  @param ret the future for the command's return value
+ *  @return the pipeline; null if ret was completed by an error
+ */
+   final Pipe pipeOffer(final Timed ret){
+     if (sock == null) { // not connected
+       ret.complete(PI_SOCK_WRIT_FAILED);
+       return null;
+     }
+     Pipe p = pipe;
+     if (p == null) pipe = p = new Pipe();
+     if (! p.alive) { // reader is dead; broken till re-connect 
+       ret.complete(PI_SOCK_READ_FAILED);
+       return null;
+     }
+     p.inFlight.offer(ret);
+     return p;
+   } // pipeOffer(Timed)
+
+/** Send command(s) enqueued in pipelined mode. <br />
+ *  <br />
+ *  The caller must hold the {@link #ioLock}.
+ *  
+ *  @param p the pipeline got by {@link #pipeOffer(Timed)}
+ *  @param cmdSt the thread's command state (to record an exception) 
+ *  @param buf the command(s)
+ *  @param len the number of command bytes to send 
+ */
+   final void pipeWrite(final Pipe p, final CmdState cmdSt,
+                                    final byte[] buf, final int len){
+     pipeWrite(p, cmdSt, buf, len, null);
+   } // pipeWrite(Pipe, CmdState, byte[], int)
+
+/** Send a command with extension enqueued in pipelined mode. <br />
+ *  <br />
+ *  As {@link #pipeWrite(Pipe, CmdState, byte[], int)} with the command
+ *  extension ext (may be null) sent after the command(s).
+ */
+   final void pipeWrite(final Pipe p, final CmdState cmdSt,
+                final byte[] buf, final int len, final ByteBuffer ext){
+     try {
+       if (ext == null) {
+         sendBytes(buf, len);
+       } else {
+         sendExt(buf, len, ext);
+       }
+     } catch (IOException e) {
+       cmdSt.lastException = e;
+       failed(PI_SOCK_WRIT_FAILED, e);
+       p.alive = false; // the command stream is out of order now
+       p.fail(PI_SOCK_WRIT_FAILED);
+       return;
+     }
+     if (chan != null && ioSince == 0) ioSince = System.nanoTime(); // see run
+     if (! p.alive) p.fail(PI_SOCK_READ_FAILED); // reader died meanwhile
+   } // pipeWrite(Pipe, CmdState, byte[], int, ByteBuffer)
+
+/** A command's future in pipelined mode. <br />
+ *  <br />
+ *  It carries the command, its parameters and the time sent for
+ *  {@link #stats} and the {@link #recorder} and, for commands with
+ *  extended response, the buffer to read the response extension into.
+ */
+   static final class Timed extends CompletableFuture<Integer> {
+     final int cmd, p1, p2, p3;
+     final long t0 = System.nanoTime();
+     final boolean respExt;
+     final ByteBuffer resp;
+     boolean answered; // response read; seen after join() (happens before)
+     Timed(final int cmd, final int p1, final int p2, final int p3){
+       this(cmd, p1, p2, p3, false, null);
+     }
+     Timed(final int cmd, final int p1, final int p2, final int p3,
+                         final boolean respExt, final ByteBuffer resp){
+       this.cmd = cmd;
+       this.p1 = p1;
+       this.p2 = p2;
+       this.p3 = p3;
+       this.respExt = respExt;
+       this.resp = resp;
+     }
+
+/** Complete and record. <br /> */
+     void done(final CommandRecorder rec, final int ret){
+       if (rec != null) rec.record(t0, cmd, p1, p2, p3, ret);
+       complete(ret);
+     } // done(CommandRecorder, int)
+   } // Timed
+
+/** <b>The response reader for pipelined mode</b>. <br />
+ *  <br />
+ *  An object of this class holds the commands in flight and the thread
+ *  reading the responses. As pigpiod answers in order, the response read
+ *  completes the oldest command in flight.<br />
+ *  <br />
+ *  A read error, the end of the connection or a timeout with commands in
+ *  flight is fatal for the pipeline: All commands in flight and all
+ *  sent afterwards get {@link PiGpioDdefs#PI_SOCK_READ_FAILED} until
+ *  {@link #disconnect()} and {@link #connect()}.
+ */
+   final class Pipe implements Runnable {
+     final ConcurrentLinkedQueue<Timed> inFlight =
+                                         new ConcurrentLinkedQueue<>();
+     final InputStream in;
+     final SocketChannel ch;
+     volatile boolean alive = true;
+     
+     Pipe(){
+       this.in = sockIn;
+       this.ch = chan;
+       Thread rdr = new Thread(this, "pigpiod-rd " + thePi.host());
+       rdr.setDaemon(true);
+       rdr.start();
+     } // Pipe()
+
+/** Complete all commands in flight with an error. <br /> */
+     void fail(final int err){
+       final CommandRecorder rec = recorder;
+       for (Timed f; (f = inFlight.poll()) != null;) f.done(rec, err);
+     } // fail(int)
+
+/** Read and dispatch the responses. <br />
+ *  <br />
+ *  The classic socket's timeout also ends idle reads. Hence, a timeout
+ *  is fatal only if the oldest command in flight was sent longer than
+ *  {@link ThePi#timeout()} ago. For NIO the watchdog checks
+ *  {@link #ioSince}, set by the sender if 0 and here after each
+ *  response.
+ */
+     @Override public void run(){
+       final long tmoNs = thePi.timeout() * 1000000L;
+       final byte[] resp = new byte[16];
+       final byte[] scratch = new byte[256]; // drop / non array response
+       final ByteBuffer rb = ch == null ? null
+               : ByteBuffer.allocateDirect(16).order(ByteOrder.LITTLE_ENDIAN);
+       try {
+         for (;;) {
+           final int ret;
+           if (ch != null) { // NIO; timeout by the watchdog
+             rb.clear();
+             while (rb.hasRemaining()) { // read fully
+               if (ch.read(rb) < 0) throw new EOFException();
+             }
+             ret = rb.getInt(12);
+           } else { // classic; timeout by the socket
+             int got = 0;
+             while (got < 16) { // read fully
+               int n;
+               try {
+                 n = in.read(resp, got, 16 - got);
+               } catch (SocketTimeoutException e) {
+                 final Timed o = inFlight.peek();
+                 if (o == null || System.nanoTime() - o.t0 <= tmoNs) {
+                   continue; // idle or the oldest command not yet overdue
+                 }
+                 throw e; // waiting too long for a response
+               }
+               if (n < 0) throw new EOFException();
+               got += n;
+             } // read fully
+             ret = int32(resp, 12);
+           } // classic
+           final Timed f = inFlight.peek();
+           if (ret > 0 && f != null && f.respExt) {
+             readExt(ch, in, f.resp, ret, scratch);
+           }
+           inFlight.poll();
+           if (ch != null) { // NIO watchdog: waiting since now or not
+             if (! inFlight.isEmpty()) {
+               ioSince = System.nanoTime();
+             } else {
+               ioSince = 0; // a command sent meanwhile may have seen != 0:
+               if (! inFlight.isEmpty()) ioSince = System.nanoTime();
+             }
+           }
+           if (f != null) {
+             stats.record(f.cmd, f.t0, ret);
+             f.answered = true;
+             f.done(recorder, ret);
+           }
+         } // for
+       } catch (IOException e) { // read error, closed or timeout
+         if (pipe == this) {
+           failed(PI_SOCK_READ_FAILED, e);
+         } else { // connection dropped before; don't report a loss again
+           stats.failed(PI_SOCK_READ_FAILED, e);
+         }
+         alive = false;
+         fail(PI_SOCK_READ_FAILED);
+       }
+     } // run()
+   } // Pipe
+
+//---------------------------  transport  ----------------------------------
+
+/** One command round trip. <br />
+ *  <br />
+ *  The command is sent and its response is read (fully) by the transport
+ *  in use. The caller must hold the {@link #ioLock} and must not be in 
+ *  pipelined mode. <br />
+ *  The NIO transport encodes directly into its direct buffers; the classic 
+ *  one uses the thread's {@link CmdState} buffers. Both record the
+ *  outcome (stage, exception) in cmdSt.
+ *
+ *  @param cmdSt the thread's command state 
+ *  @param cmd the command number 
+ *  @param p1 first parameter
+ *  @param p2 second parameter
+ *  @param p3 the third parameter (extension length)
+ *  @param pNum the numerical extension (if numExt)
+ *  @param numExt true: send pNum as 4 byte extension
+ *  @return the command's return value or error
+ */
+   final int roundTrip(final CmdState cmdSt, final int cmd, final int p1,
+              final int p2, final int p3, final int pNum, boolean numExt){
+     final long t0 = System.nanoTime();
+     final int ret = transfer(cmdSt, cmd, p1, p2, p3, pNum, numExt);
+     if (cmdSt.cmdExecStage >= 16) {
+       stats.record(cmd, t0, ret);
+     } else {
+       failed(ret, cmdSt.lastException);
+     }
+     final CommandRecorder rec = recorder;
+     if (rec != null) rec.record(t0, cmd, p1, p2, numExt ? pNum : p3, ret);
+     return ret;
+   } // roundTrip(CmdState, 6*int, boolean)
+
+/** One command round trip's transfer. <br />
+ *  <br />
+ *  This is {@link #roundTrip(CmdState, int, int, int, int, int, boolean)}
+ *  without the recording in {@link #stats}.
+ */
+   private int transfer(final CmdState cmdSt, final int cmd, final int p1,
+              final int p2, final int p3, final int pNum, boolean numExt){
+     if (sock == null) return PI_SOCK_WRIT_FAILED; // not connected
+     if (chan != null) { // NIO
+       final ByteBuffer cb = cmdBuf;
+       cb.clear();
+       cb.putInt(cmd).putInt(p1).putInt(p2).putInt(p3);
+       if (numExt) cb.putInt(pNum);
+       cb.flip();
+       ioSince = System.nanoTime();
+       try {
          try {
-            int bRead = sockIn.available();
-            bRead = sockIn.read(cmdSt.response, 0, 16);
-            cmdSt.cmdExecStage = 16;
-            ret = bRead != 16 ?  PI_SOCK_READ_LEN
-                       : cmdSt.response[12] | cmdSt.response[13] << 8
-                 | cmdSt.response[14] << 16 | cmdSt.response[15] << 24;
+           chanWrite(cb);
          } catch (IOException e) {
            cmdSt.lastException = e;
-            ret =  PI_SOCK_READ_FAILED;
+           return PI_SOCK_WRIT_FAILED;
          }
-      } catch (IOException e) {
-         cmdSt.lastException = e;
-         ret = PI_SOCK_WRIT_FAILED;
-      } // try
-      } // synchronized 
-      return ret;
-   } // stdCmd(3*int)
+         try {
+           final ByteBuffer rb = respBuf;
+           rb.clear().limit(16);
+           while (rb.hasRemaining()) { // read fully
+             if (chan.read(rb) < 0) return PI_SOCK_READ_LEN; // closed
+           }
+           cmdSt.cmdExecStage = 16;
+           return rb.getInt(12);
+         } catch (IOException e) {
+           cmdSt.lastException = e;
+           return PI_SOCK_READ_FAILED;
+         }
+       } finally {
+         ioSince = 0;
+       }
+     } // NIO
+     
+     final byte[] command = cmdSt.command;
+     putCmd(command, cmd, p1, p2, p3);
+     if (numExt) putInt(command, 16, pNum);
+     try {
+       sockOut.write(command, 0, numExt ? 20 : 16);
+     } catch (IOException e) {
+       cmdSt.lastException = e;
+       return PI_SOCK_WRIT_FAILED;
+     }
+     try {
+       if (recvBytes(cmdSt.response, 16) != 16) return PI_SOCK_READ_LEN;
+       cmdSt.cmdExecStage = 16;
+       return int32(cmdSt.response, 12);
+     } catch (IOException e) {
+       cmdSt.lastException = e;
+       return PI_SOCK_READ_FAILED;
+     }
+   } // transfer(CmdState, 6*int, boolean)
+
+/** Write a buffer fully to the channel. <br /> */
+   final void chanWrite(final ByteBuffer bb) throws IOException {
+     while (bb.hasRemaining()) chan.write(bb);
+   } // chanWrite(ByteBuffer)
    
+/** Send bytes by the transport in use. <br />
+ *  <br />
+ *  The caller must hold the {@link #ioLock}. The NIO transport copies
+ *  via its direct command buffer (in parts if len is larger).
+ */
+   final void sendBytes(final byte[] buf, final int len) throws IOException {
+     if (chan == null) {
+       sockOut.write(buf, 0, len);
+       return;
+     }
+     final ByteBuffer cb = cmdBuf;
+     for (int off = 0; off < len;) {
+       final int n = Math.min(NIO_BUF_LEN, len - off);
+       cb.clear();
+       cb.put(buf, off, n).flip();
+       chanWrite(cb);
+       off += n;
+     }
+   } // sendBytes(byte[], int)
+
+/** Receive bytes by the transport in use. <br />
+ *  <br />
+ *  The caller must hold the {@link #ioLock} and must not be in pipelined
+ *  mode. This method reads until len bytes are got or the end of stream. 
+ *
+ *  @return the number of bytes read; &lt; len on end of stream
+ */
+   final int recvBytes(final byte[] buf, final int len) throws IOException {
+     int got = 0;
+     if (chan == null) {
+       while (got < len) { // read fully
+         final int n = sockIn.read(buf, got, len - got);
+         if (n < 0) break; // end of stream
+         got += n;
+       }
+       return got;
+     }
+     final ByteBuffer rb = respBuf;
+     while (got < len) {
+       final int n = Math.min(NIO_BUF_LEN, len - got);
+       rb.clear().limit(n);
+       while (rb.hasRemaining()) { // read fully
+         if (chan.read(rb) < 0) { // end of stream
+           rb.flip();
+           final int r = rb.remaining();
+           rb.get(buf, got, r);
+           return got + r;
+         }
+       }
+       rb.flip();
+       rb.get(buf, got, n);
+       got += n;
+     }
+     return got;
+   } // recvBytes(byte[], int)
+
+/** Scratch buffer for the classic transport's extensions. <br />
+ *  <br />
+ *  Used under the {@link #ioLock}; lazy. 
+ */
+   byte[] extBuf;
+
+/** Send a command and its extension by the transport in use. <br />
+ *  <br />
+ *  The caller must hold the {@link #ioLock}. The extension's remaining
+ *  bytes are sent and its position is set to its limit. An extension
+ *  fitting in the command buffer is sent together with the command in
+ *  one write; larger ones are written (gathering) from ext directly, as
+ *  are heap buffers' arrays by the classic transport.
+ *
+ *  @param head the command(s)
+ *  @param len the number of command bytes
+ *  @param ext the command extension
+ */
+   final void sendExt(final byte[] head, final int len, final ByteBuffer ext)
+                                                        throws IOException {
+     final int n = ext.remaining();
+     if (chan != null) { // NIO
+       final ByteBuffer cb = cmdBuf;
+       cb.clear();
+       cb.put(head, 0, len);
+       if (n <= cb.remaining()) { // one write
+         cb.put(ext).flip();
+         chanWrite(cb);
+         return;
+       }
+       cb.flip();
+       final ByteBuffer[] both = {cb, ext};
+       while (ext.hasRemaining()) chan.write(both);
+       return;
+     } // NIO
+     byte[] eb = extBuf;
+     if (eb == null) extBuf = eb = new byte[NIO_BUF_LEN];
+     if (len + n <= eb.length) { // one write
+       System.arraycopy(head, 0, eb, 0, len);
+       ext.get(eb, len, n);
+       sockOut.write(eb, 0, len + n);
+       return;
+     }
+     sockOut.write(head, 0, len);
+     if (ext.hasArray()) {
+       sockOut.write(ext.array(), ext.arrayOffset() + ext.position(), n);
+       ext.position(ext.limit());
+       return;
+     }
+     while (ext.hasRemaining()) { // direct buffer, classic transport
+       final int k = Math.min(eb.length, ext.remaining());
+       ext.get(eb, 0, k);
+       sockOut.write(eb, 0, k);
+     }
+   } // sendExt(byte[], int, ByteBuffer)
+
+/** Read a response extension. <br />
+ *  <br />
+ *  Exactly len bytes are read from the channel ch (if not null) or the
+ *  stream in. Up to {@code dst.remaining()} of them are stored in dst
+ *  (directly, if possible) and its position is advanced; the rest is
+ *  dropped (via scratch).
+ *
+ *  @param dst the destination; null: drop all
+ *  @param len the response extension's length (p3 of the response)
+ *  @throws EOFException on end of stream within the extension
+ */
+   static void readExt(final SocketChannel ch, final InputStream in,
+               final ByteBuffer dst, final int len, final byte[] scratch)
+                                                        throws IOException {
+     int keep = dst == null ? 0 : Math.min(len, dst.remaining());
+     if (keep > 0 && ch != null) {
+       final int lim = dst.limit();
+       dst.limit(dst.position() + keep);
+       try {
+         while (dst.hasRemaining()) {
+           if (ch.read(dst) < 0) throw new EOFException();
+         }
+       } finally {
+         dst.limit(lim);
+       }
+     } else if (keep > 0 && dst.hasArray()) {
+       final byte[] a = dst.array();
+       final int off = dst.arrayOffset() + dst.position();
+       for (int got = 0; got < keep;) {
+         final int k = in.read(a, off + got, keep - got);
+         if (k < 0) throw new EOFException();
+         got += k;
+       }
+       dst.position(dst.position() + keep);
+     } else if (keep > 0) { // direct buffer, classic transport
+       for (int got = 0; got < keep;) {
+         final int k = in.read(scratch, 0,
+                                     Math.min(scratch.length, keep - got));
+         if (k < 0) throw new EOFException();
+         dst.put(scratch, 0, k);
+         got += k;
+       }
+     }
+     for (int rest = len - keep; rest > 0;) { // drop the surplus
+       final int m = Math.min(scratch.length, rest);
+       final int k = ch != null ? ch.read(ByteBuffer.wrap(scratch, 0, m))
+                                : in.read(scratch, 0, m);
+       if (k < 0) throw new EOFException();
+       rest -= k;
+     }
+   } // readExt(SocketChannel, InputStream, ByteBuffer, int, byte[])
+
+/** One extended command round trip's transfer. <br />
+ *  <br />
+ *  The command with extension is sent and its response is read including
+ *  a response extension (if the command has one). The caller must hold
+ *  the {@link #ioLock} and must not be in pipelined mode. 
+ *
+ *  @return the command's return value or error
+ *  @see #extCmd(int, int, int, ByteBuffer, ByteBuffer)
+ */
+   private int transferExt(final CmdState cmdSt, final int cmd, final int p1,
+             final int p2, final ByteBuffer ext, final ByteBuffer resp){
+     if (sock == null) return PI_SOCK_WRIT_FAILED; // not connected
+     final byte[] command = cmdSt.command;
+     putCmd(command, cmd, p1, p2, ext == null ? 0 : ext.remaining());
+     if (chan != null) ioSince = System.nanoTime();
+     try {
+       try {
+         if (ext == null) {
+           sendBytes(command, 16);
+         } else {
+           sendExt(command, 16, ext);
+         }
+       } catch (IOException e) {
+         cmdSt.lastException = e;
+         return PI_SOCK_WRIT_FAILED;
+       }
+       try {
+         if (recvBytes(cmdSt.response, 16) != 16) return PI_SOCK_READ_LEN;
+         final int ret = int32(cmdSt.response, 12);
+         if (ret > 0 && hasRespExt[cmd]) {
+           byte[] eb = extBuf;
+           if (eb == null) extBuf = eb = new byte[NIO_BUF_LEN];
+           readExt(chan, sockIn, resp, ret, eb);
+         }
+         cmdSt.cmdExecStage = 16;
+         return ret;
+       } catch (EOFException e) {
+         cmdSt.lastException = e;
+         return PI_SOCK_READ_LEN;
+       } catch (IOException e) {
+         cmdSt.lastException = e;
+         return PI_SOCK_READ_FAILED;
+       }
+     } finally {
+       ioSince = 0;
+     }
+   } // transferExt(CmdState, 3*int, 2*ByteBuffer)
+
+/** Put a command in a command buffer. <br />
+ *  <br />
+ *  The 16 bytes of the command {@code cmd p1 p2 p3} are put little endian
+ *  into {@code command[0..15]}.
+ */
+   static void putCmd(final byte[] command, final int cmd, final int p1,
+                                             final int p2, final int p3){
+     putCmd(command, 0, cmd, p1, p2, p3);
+   } // putCmd(byte[], 4*int)
+
+/** Put a command in a command buffer at an offset. <br />
+ *  <br />
+ *  The 16 bytes of the command {@code cmd p1 p2 p3} are put little endian
+ *  into {@code command[off..off+15]}.
+ */
+   static void putCmd(final byte[] command, final int off, final int cmd,
+                             final int p1, final int p2, final int p3){
+     putInt(command, off, cmd);
+     putInt(command, off + 4, p1);
+     putInt(command, off + 8, p2);
+     putInt(command, off + 12, p3);
+   } // putCmd(byte[], 5*int)
+
+/** Put an int little endian in a buffer. <br /> */
+   static void putInt(final byte[] buf, final int off, final int val){
+     buf[off]     = (byte)val;
+     buf[off + 1] = (byte)(val >> 8);
+     buf[off + 2] = (byte)(val >> 16);
+     buf[off + 3] = (byte)(val >> 24);
+   } // putInt(byte[], 2*int)
+
+/** Get an int little endian from a buffer. <br /> */
+   static int int32(final byte[] buf, final int off){
+     return (buf[off] & 0xFF) | (buf[off + 1] & 0xFF) << 8
+                 | (buf[off + 2] & 0xFF) << 16 | buf[off + 3] << 24;
+   } // int32(byte[], int)
 
 //-------------------------  mask / bulk operations (support)  -------------
    
@@ -870,9 +2129,7 @@ public class ClientPigpiod {
  *  This method does a forEachRemaining(action) as described in 
  *  {@link #gpiosByMsk(int)} plus some checks and synchronising: <br />
  *  When mask is 0 nothing is done. When action is null nothing is done.<br />
- *  Otherwise, in one 
- *  {@code synchronized (this ClientPigdiod object)}
- *  block all actions are done.
+ *  Otherwise, all actions are done holding the {@link #ioLock}.
  *    
  *  @param mask a bank 0 bit mask of GPIOs in the range 0..31
  *  @param action what to do with each GPIO in mask
@@ -880,7 +2137,12 @@ public class ClientPigpiod {
   public void gpioActionsByMsk(final int mask, final IntConsumer action){
     if (mask == 0 || action == null) return;
     PrimitiveIterator.OfInt iter = gpiosByMsk(mask);
-    synchronized(this) {  iter.forEachRemaining(action); }
+    ioLock.lock();
+    try {
+      iter.forEachRemaining(action);
+    } finally {
+      ioLock.unlock();
+    }
   } // gpioActionsByMsk(int, IntConsumer)
 
 //-------------------------    Pin / gpio initialisation  ------------------
@@ -1003,6 +2265,7 @@ public class ClientPigpiod {
  *  This functions sets the pins listed as GPIOs to input mode. This
  *  is also used to release them from any output modes as input means
  *  hi impedance.
+ *  All pins are set by one {@link CommandBatch} (one round trip).
  *
  *  @see #initAsOutputs(int[]) 
  *  @param lesGPIOs array of GPIO numbers (0..53); use {@link ThePi#PINix}
@@ -1011,17 +2274,20 @@ public class ClientPigpiod {
  */
   public void initAsInputs(final int[] lesGPIOs){
     if (lesGPIOs == null) return;
+    final CommandBatch batch = new CommandBatch(lesGPIOs.length);
     for(int act : lesGPIOs) {
       if (act >= ThePi.PINix || act < 0) break; //
       if (act > 53) continue; 
-      initAsInput(act); // make input; release as output
+      batch.setMode(act, PI_INPUT); // make input; release as output
      } // for over GPIO number list
+    execBatch(batch); // one round trip
   } // initAsInputs(unsigned const[])
 
 /** Put one or more GPIO pins to output mode.<br />
  *  <br />
  *  This functions sets the pins listed by GPIO number in the parameter array
  *  to output mode.
+ *  All pins are set by one {@link CommandBatch} (one round trip).
  *
  *  @see #initAsInputs(int[]) 
  *  @param lesGPIOs array of GPIO numbers (0..53); use {@link ThePi#PINix}
@@ -1031,12 +2297,17 @@ public class ClientPigpiod {
  */
   public int initAsOutputs(final int[] lesGPIOs){
     if (lesGPIOs == null) return 0;
-    int ret = 0;
+    final CommandBatch batch = new CommandBatch(lesGPIOs.length);
     for(int act : lesGPIOs) {
       if (act >= ThePi.PINix || act < 0) break; //
-      if (act > 53) continue; 
-      ret |= initAsOutput(act); // make output
+      if (act > 31) continue; // no output exc. bank 0
+      batch.setMode(act, PI_OUTPUT); // make output
     } // for over GPIO number list
+    final int[] res = execBatch(batch); // one round trip
+    int ret = 0;
+    for (int i = 0; i < batch.n; ++i) {
+      if (res[i] >= 0) ret |= gpio2bit[batch.p1[i]];
+    }
     return ret;
   } // initAsOutputs(unsigned const[])
 
@@ -1094,6 +2365,93 @@ public class ClientPigpiod {
  */
   public final int areOut(){ return areOut; }   
 
+/** Pad strengths set (0: not set). <br />
+ *  @see #replay()
+ */
+  final int[] padsSet = new int[3];
+
+/** Replay the output and pad configuration. <br />
+ *  <br />
+ *  The GPIOs recorded as outputs ({@link #areOut()}) are set as output
+ *  and the pad strengths set are set again; all by one
+ *  {@link CommandBatch} (one round trip). This is done by the
+ *  {@link Reconnector} after a reconnect.
+ *
+ *  @return 0: OK; &lt; 0: the first error
+ */
+  public int replay(){
+    final CommandBatch b = new CommandBatch(35);
+    for (int p = 0; p < 3; ++p) {
+      if (padsSet[p] > 0) b.setPadS(p, padsSet[p]);
+    }
+    gpioActionsByMsk(areOut, gpio -> b.setMode(gpio, PI_OUTPUT));
+    if (b.exec(this) == 0) return 0;
+    for (int i = 0; i < b.size(); ++i) if (b.result(i) < 0) return b.result(i);
+    return 0;
+  } // replay()
+
+/** The command traffic recorder; null: none (default). <br />
+ *  @see #setRecorder(CommandRecorder)
+ */
+  volatile CommandRecorder recorder;
+
+/** The command traffic recorder. <br />
+ *  @return the recorder; null if none
+ */
+  public final CommandRecorder recorder(){ return recorder; }
+
+/** Record the command traffic. <br />
+ *  <br />
+ *  Every command sent to pigpiod and its response (or transport error)
+ *  is given to rec. This costs no lock and no garbage; see
+ *  {@link CommandRecorder}. Commands rejected by the pre-checks or
+ *  suppressed by a {@link #shadow() shadow} are not recorded.
+ *
+ *  @param rec the recorder; null: stop recording
+ *  @return the recorder used before; null if none (it is not closed)
+ *  @see CommandReplayer
+ */
+  public CommandRecorder setRecorder(final CommandRecorder rec){
+    final CommandRecorder ret = recorder;
+    recorder = rec;
+    return ret;
+  } // setRecorder(CommandRecorder)
+
+/** The GPIO shadow state; null: not used (default). <br />
+ *  @see #useShadow(boolean)
+ */
+  volatile GpioShadow shadow;
+
+/** The GPIO shadow state. <br />
+ *  @return the shadow; null if not used
+ *  @see #useShadow(boolean)
+ */
+  public final GpioShadow shadow(){ return shadow; }
+
+/** Use a GPIO shadow state to suppress redundant commands. <br />
+ *  <br />
+ *  With a {@link GpioShadow shadow} setting modes, pull resistors,
+ *  levels, PWM, servo pulses or pads to the value already set returns at
+ *  once without network traffic. On switching on, the state is read back
+ *  by {@link GpioShadow#resync(ClientPigpiod)}; this should be repeated
+ *  after a re-connect (when the daemon might have been restarted).
+ *
+ *  @param on true: use a (new) shadow; false: don't
+ *  @return 0: OK; &lt; 0: error of reading back the state (the shadow is
+ *          used nevertheless with all values unknown)
+ */
+  public int useShadow(final boolean on){
+    if (!on) {
+      shadow = null;
+      return 0;
+    }
+    final GpioShadow sh = new GpioShadow();
+    final int ret = sh.resync(this);
+    if (ret < 0) sh.clear();
+    shadow = sh;
+    return ret;
+  } // useShadow(boolean)
+
 /** Initialise a GPIO pin as output. <br />
  *  <br />
  *  This sets a GPIO as output and puts it in the list of GPIOs used as
@@ -1142,30 +2500,35 @@ public class ClientPigpiod {
  *         if null the standard PrintWriter is used
  *  @return the bank mask of the released (previous) outputs
  */
-  public synchronized int releaseOutputsReport(final Appendable log){
-    final Appendable out = log != null ? log : this.out; 
-    final int wereOut = areOut;
-    if (wereOut == 0) return 0; // nothing to do and to report
-    if (out == null) return releaseOutputs();
-    final Flushable flushi = out instanceof Flushable ? (Flushable) out : null;
+  public int releaseOutputsReport(final Appendable log){
+    ioLock.lock();
     try {
-      out.append("\n  ").append(ComVar.PROG_SHORT)
-             .append(" outputs are  GPIOs: 0x");
-      PiUtil.eightDigitHex(out, wereOut).append('\n');
-      if (flushi != null) flushi.flush();
-    } catch (IOException ex) {} // ignore 
-    gpioActionsByMsk(wereOut, gpio -> {
-      stdCmd(PI_CMD_MODES, gpio, PI_INPUT); // make it PI_INPUT
+      final Appendable out = log != null ? log : this.out; 
+      final int wereOut = areOut;
+      if (wereOut == 0) return 0; // nothing to do and to report
+      if (out == null) return releaseOutputs();
+      final Flushable flushi = out instanceof Flushable ? (Flushable) out : null;
       try {
-        out.append("  ").append(ComVar.PROG_SHORT)
-         .append(" releaseToIn  GPIO");
-        PiUtil.twoDigitDec(out, gpio).append(" pin");
-        PiUtil.twoDigitDec(out, thePi.gpio2pin(gpio)).append('\n');
+        out.append("\n  ").append(ComVar.PROG_SHORT)
+               .append(" outputs are  GPIOs: 0x");
+        PiUtil.eightDigitHex(out, wereOut).append('\n');
         if (flushi != null) flushi.flush();
       } catch (IOException ex) {} // ignore 
-    });
-  //     areOut = 0; // done in stdCmd()   
-    return wereOut;
+      gpioActionsByMsk(wereOut, gpio -> {
+        stdCmd(PI_CMD_MODES, gpio, PI_INPUT); // make it PI_INPUT
+        try {
+          out.append("  ").append(ComVar.PROG_SHORT)
+           .append(" releaseToIn  GPIO");
+          PiUtil.twoDigitDec(out, gpio).append(" pin");
+          PiUtil.twoDigitDec(out, thePi.gpio2pin(gpio)).append('\n');
+          if (flushi != null) flushi.flush();
+        } catch (IOException ex) {} // ignore 
+      });
+    //     areOut = 0; // done in stdCmd()   
+      return wereOut;
+    } finally {
+      ioLock.unlock();
+    }
   } // releaseOutputsReport(Appendable)
 
 /** Set all GPIO pins named by mask as outputs with report. <br />
@@ -1182,38 +2545,43 @@ public class ClientPigpiod {
  *  @param mask GPIOs to be set as outputs as bit mask
  *  @return the bank mask of all outputs  now set
  */
-  public synchronized int setAsOutputs(final boolean report,
+  public int setAsOutputs(final boolean report,
                                         final String grp, final int mask){
-    if (!report) return setAsOutputs(mask); // w/o report lines
-    final int wereOut = areOut;
-    if (mask == 0) return wereOut; // nothing to do and to report
-    final Flushable flushi = out instanceof Flushable ? (Flushable) out : null;
-    final int newSet = mask & ~wereOut;
+    ioLock.lock();
     try {
-      out.append("\n  ").append(ComVar.PROG_SHORT)
-             .append(" outputs " + grp  + ": 0x");
-      PiUtil.eightDigitHex(out, mask); 
-      if (newSet != mask) {
-        out.append(" new: "); 
-        PiUtil.eightDigitHex(out, newSet);
-      }
-      out.append(" -> ");
-      PiUtil.eightDigitHex(out, wereOut | mask).append('\n');
-      if (flushi != null) flushi.flush();
-    } catch (IOException ex) {} // ignore 
-    if (newSet == 0) return wereOut;
-    IntConsumer setOutRep = gpio -> {
-      stdCmd(PI_CMD_MODES, gpio, PI_OUTPUT);
+      if (!report) return setAsOutputs(mask); // w/o report lines
+      final int wereOut = areOut;
+      if (mask == 0) return wereOut; // nothing to do and to report
+      final Flushable flushi = out instanceof Flushable ? (Flushable) out : null;
+      final int newSet = mask & ~wereOut;
       try {
-        out.append("  ").append(ComVar.PROG_SHORT)
-         .append(" make output  GPIO");
-        PiUtil.twoDigitDec(out, gpio).append(" pin");
-        PiUtil.twoDigitDec(out, thePi.gpio2pin(gpio)).append('\n');
+        out.append("\n  ").append(ComVar.PROG_SHORT)
+               .append(" outputs " + grp  + ": 0x");
+        PiUtil.eightDigitHex(out, mask); 
+        if (newSet != mask) {
+          out.append(" new: "); 
+          PiUtil.eightDigitHex(out, newSet);
+        }
+        out.append(" -> ");
+        PiUtil.eightDigitHex(out, wereOut | mask).append('\n');
         if (flushi != null) flushi.flush();
       } catch (IOException ex) {} // ignore 
-    };
-    gpiosByMsk(newSet).forEachRemaining(setOutRep);
-    return areOut;
+      if (newSet == 0) return wereOut;
+      IntConsumer setOutRep = gpio -> {
+        stdCmd(PI_CMD_MODES, gpio, PI_OUTPUT);
+        try {
+          out.append("  ").append(ComVar.PROG_SHORT)
+           .append(" make output  GPIO");
+          PiUtil.twoDigitDec(out, gpio).append(" pin");
+          PiUtil.twoDigitDec(out, thePi.gpio2pin(gpio)).append('\n');
+          if (flushi != null) flushi.flush();
+        } catch (IOException ex) {} // ignore 
+      };
+      gpiosByMsk(newSet).forEachRemaining(setOutRep);
+      return areOut;
+    } finally {
+      ioLock.unlock();
+    }
   } // setAsOutputs(boolean, String, int)    
 
 /** Set all GPIO pins named by mask as outputs. <br />
@@ -1232,13 +2600,18 @@ public class ClientPigpiod {
  *  @param mask GPIOs to be set as outputs as bit mask
  *  @return the bank mask of all outputs  now set
  */
-  public synchronized int setAsOutputs(final int mask){
-    if (mask == 0) return areOut; // nothing to do and to report
-    final int newSet = mask & ~areOut;
-    if (newSet == 0) return areOut;  // omit fore test
-    IntConsumer setOut = gpio -> stdCmd(PI_CMD_MODES, gpio, PI_OUTPUT);
-    gpiosByMsk(newSet).forEachRemaining(setOut);
-    return areOut;
+  public int setAsOutputs(final int mask){
+    ioLock.lock();
+    try {
+      if (mask == 0) return areOut; // nothing to do and to report
+      final int newSet = mask & ~areOut;
+      if (newSet == 0) return areOut;  // omit fore test
+      IntConsumer setOut = gpio -> stdCmd(PI_CMD_MODES, gpio, PI_OUTPUT);
+      gpiosByMsk(newSet).forEachRemaining(setOut);
+      return areOut;
+    } finally {
+      ioLock.unlock();
+    }
   } // setAsOutputs(int)
   
 /** Initialise a GPIO pin as input. <br />
@@ -1345,9 +2718,34 @@ public class ClientPigpiod {
    public int getInp(int gpio){
      if (gpio == ThePi.PINig) return rIgn(PI_CMD_READ, 0); // return 0 = Low
      if (gpio < 0 || gpio > 56) return rErr(PI_BAD_GPIO, PI_CMD_READ, gpio, 0);
+     final ProcessImage img = inImage;
+     if (img != null && gpio <= 31 && img.valid()) { // from cycle's snapshot
+       rIgn(PI_CMD_READ, 0);
+       lastCmdState.get().lastP1 = gpio;
+       return img.levels >>> gpio & 1;
+     }
      return stdCmd(PI_CMD_READ, gpio, 0);
    }  // getInp(int)
 
+/** The input process image. <br />
+ *  <br />
+ *  If set (not null) and {@linkplain ProcessImage#valid() valid}, 
+ *  {@link #getInp(int)} for GPIO 0..31 is served from its snapshot instead
+ *  of a READ command.
+ *  @see #setInImage(ProcessImage)
+ */
+   volatile ProcessImage inImage;
+
+/** Set the input process image. <br />
+ *  <br />
+ *  If set all {@link #getInp(int)} for GPIO 0..31 are served from the
+ *  image's last snapshot. The application has to {@link ProcessImage#read()
+ *  read} it, usually once at every cycle's start. 
+ *
+ *  @param img the image; null: every {@link #getInp(int)} reads by command
+ */
+   public void setInImage(final ProcessImage img){ inImage = img; }
+
 /** Output to one GPIO pin. <br />
  *  <br />
  *  This is the universal output method, choosing one of the more specialised
@@ -1495,7 +2893,7 @@ public class ClientPigpiod {
 /** Get the servo pulse width. <br />
  *     
  *  @param gpio a legal BCM IO number 0.28
- *  @return  0 Off, or pulse width in s (1500..2500)
+ *  @return  0 Off, or pulse width in µs (1500..2500)
  */
    public int getServoPw(int gpio){
      if (gpio == ThePi.PINig) return rIgn(PI_CMD_GPW, 0); // no action ignore
@@ -1527,6 +2925,480 @@ public class ClientPigpiod {
     return stdCmd(PI_CMD_PFG, gpio, 0);
   } // getPWMhertz(int) 
   
+//------------------  bulk transfers (I2C, SPI, serial)  --------------------
+
+/** Open an I2C device. <br />
+ *  <br />
+ *  @param bus the I2C bus (0 or 1; higher with software multiplexer)
+ *  @param addr the device's address 0..0x7F
+ *  @param flags 0 (none defined yet)
+ *  @return the handle (&gt;= 0) for the other i2c.. methods; or error
+ */
+  public int i2cOpen(final int bus, final int addr, final int flags){
+    return stdCmd(PI_CMD_I2CO, bus, addr, flags);
+  } // i2cOpen(3*int)
+
+/** Close an I2C device. <br />
+ *  @param handle as got by {@link #i2cOpen(int, int, int)}
+ *  @return 0: OK; &lt; 0: error
+ */
+  public int i2cClose(final int handle){
+    return stdCmd(PI_CMD_I2CC, handle, 0);
+  } // i2cClose(int)
+
+/** Read bytes from an I2C device. <br />
+ *  <br />
+ *  @param handle as got by {@link #i2cOpen(int, int, int)}
+ *  @param buf the destination
+ *  @param off start in buf
+ *  @param len the number of bytes to read
+ *  @return the number of bytes read (&gt; 0); or error
+ */
+  public int i2cReadDevice(final int handle, final byte[] buf,
+                                         final int off, final int len){
+    return extCmd(PI_CMD_I2CRD, handle, len, null, 0, 0, buf, off, len);
+  } // i2cReadDevice(int, byte[], 2*int)
+
+/** Read bytes from an I2C device into a buffer. <br />
+ *  <br />
+ *  {@code dst.remaining()} bytes are requested; the position is advanced
+ *  by the bytes got.
+ *
+ *  @param handle as got by {@link #i2cOpen(int, int, int)}
+ *  @param dst the destination
+ *  @return the number of bytes read (&gt; 0); or error
+ */
+  public int i2cReadDevice(final int handle, final ByteBuffer dst){
+    return extCmd(PI_CMD_I2CRD, handle, dst.remaining(), null, dst);
+  } // i2cReadDevice(int, ByteBuffer)
+
+/** Write bytes to an I2C device. <br />
+ *  <br />
+ *  @param handle as got by {@link #i2cOpen(int, int, int)}
+ *  @param buf the source
+ *  @param off start in buf
+ *  @param len the number of bytes to write
+ *  @return 0: OK; &lt; 0: error
+ */
+  public int i2cWriteDevice(final int handle, final byte[] buf,
+                                         final int off, final int len){
+    return extCmd(PI_CMD_I2CWD, handle, 0, buf, off, len, null, 0, 0);
+  } // i2cWriteDevice(int, byte[], 2*int)
+
+/** Read a block from an I2C device's register(s). <br />
+ *  <br />
+ *  This is I2C (not SMBus) block read: len (1..32) bytes from register
+ *  reg on. 
+ *
+ *  @param handle as got by {@link #i2cOpen(int, int, int)}
+ *  @param reg the start register 0..255
+ *  @param buf the destination
+ *  @param off start in buf
+ *  @param len the number of bytes to read 1..32
+ *  @return the number of bytes read (&gt; 0); or error
+ */
+  public int i2cReadBlock(final int handle, final int reg,
+                         final byte[] buf, final int off, final int len){
+    if (len < 0 || off < 0 || buf == null
+                           || off + len > buf.length) return PI_BAD_PARAM;
+    final ByteBuffer cnt = ByteBuffer.allocate(4)
+                                    .order(ByteOrder.LITTLE_ENDIAN);
+    cnt.putInt(0, len);
+    return extCmd(PI_CMD_I2CRI, handle, reg, cnt,
+                                           ByteBuffer.wrap(buf, off, len));
+  } // i2cReadBlock(2*int, byte[], 2*int)
+
+/** Write a block to an I2C device's register(s). <br />
+ *  <br />
+ *  @param handle as got by {@link #i2cOpen(int, int, int)}
+ *  @param reg the start register 0..255
+ *  @param buf the source
+ *  @param off start in buf
+ *  @param len the number of bytes to write 1..32
+ *  @return 0: OK; &lt; 0: error
+ */
+  public int i2cWriteBlock(final int handle, final int reg,
+                         final byte[] buf, final int off, final int len){
+    return extCmd(PI_CMD_I2CWI, handle, reg, buf, off, len, null, 0, 0);
+  } // i2cWriteBlock(2*int, byte[], 2*int)
+
+/** Execute a sequence of I2C operations. <br />
+ *  <br />
+ *  The sequence (see pigpio's i2cZip) is executed in one command by 
+ *  pigpiod; the bytes read are returned.
+ *
+ *  @param handle as got by {@link #i2cOpen(int, int, int)}
+ *  @param ops the operations
+ *  @param opsOff start in ops
+ *  @param opsLen length of the operations
+ *  @param resp the destination for the bytes read
+ *  @param respOff start in resp
+ *  @param respLen maximum number of bytes to store
+ *  @return the number of bytes read (&gt;= 0); or error
+ */
+  public int i2cZip(final int handle, final byte[] ops, final int opsOff,
+        final int opsLen, final byte[] resp, final int respOff,
+                                                      final int respLen){
+    return extCmd(PI_CMD_I2CZ, handle, 0, ops, opsOff, opsLen,
+                                                 resp, respOff, respLen);
+  } // i2cZip(int, byte[], 2*int, byte[], 2*int)
+
+/** Open a SPI device. <br />
+ *  <br />
+ *  @param channel the SPI channel (chip select) 0..2
+ *  @param baud the bit rate 32K..125M (bits per second)
+ *  @param flags mode, active levels, main / auxiliary device etc. 
+ *               (see pigpio's spiOpen)
+ *  @return the handle (&gt;= 0) for the other spi.. methods; or error
+ */
+  public int spiOpen(final int channel, final int baud, final int flags){
+    return stdCmd(PI_CMD_SPIO, channel, baud, flags);
+  } // spiOpen(3*int)
+
+/** Close a SPI device. <br />
+ *  @param handle as got by {@link #spiOpen(int, int, int)}
+ *  @return 0: OK; &lt; 0: error
+ */
+  public int spiClose(final int handle){
+    return stdCmd(PI_CMD_SPIC, handle, 0);
+  } // spiClose(int)
+
+/** Read bytes from a SPI device. <br />
+ *  <br />
+ *  @param handle as got by {@link #spiOpen(int, int, int)}
+ *  @param buf the destination
+ *  @param off start in buf
+ *  @param len the number of bytes to read
+ *  @return the number of bytes read (&gt; 0); or error
+ */
+  public int spiRead(final int handle, final byte[] buf,
+                                         final int off, final int len){
+    return extCmd(PI_CMD_SPIR, handle, len, null, 0, 0, buf, off, len);
+  } // spiRead(int, byte[], 2*int)
+
+/** Write bytes to a SPI device. <br />
+ *  <br />
+ *  @param handle as got by {@link #spiOpen(int, int, int)}
+ *  @param buf the source
+ *  @param off start in buf
+ *  @param len the number of bytes to write
+ *  @return the number of bytes written (&gt; 0); or error
+ */
+  public int spiWrite(final int handle, final byte[] buf,
+                                         final int off, final int len){
+    return extCmd(PI_CMD_SPIW, handle, 0, buf, off, len, null, 0, 0);
+  } // spiWrite(int, byte[], 2*int)
+
+/** Transfer bytes to and from a SPI device. <br />
+ *  <br />
+ *  len bytes are sent from tx and (simultaneously) the same number
+ *  received into rx; tx and rx may be the same array (and offset). This
+ *  is the common way to poll SPI ADCs.
+ *
+ *  @param handle as got by {@link #spiOpen(int, int, int)}
+ *  @param tx the bytes to send
+ *  @param txOff start in tx
+ *  @param rx the destination
+ *  @param rxOff start in rx
+ *  @param len the number of bytes to transfer
+ *  @return the number of bytes transferred (&gt; 0); or error
+ */
+  public int spiXfer(final int handle, final byte[] tx, final int txOff,
+                        final byte[] rx, final int rxOff, final int len){
+    return extCmd(PI_CMD_SPIX, handle, 0, tx, txOff, len, rx, rxOff, len);
+  } // spiXfer(int, byte[], int, byte[], 2*int)
+
+/** Transfer bytes to and from a SPI device by buffers. <br />
+ *  <br />
+ *  {@code tx.remaining()} bytes are sent and as many received into rx
+ *  (positions advanced). With the NIO transport ({@link #nio}) and
+ *  direct buffers nothing is copied in Java.
+ *
+ *  @param handle as got by {@link #spiOpen(int, int, int)}
+ *  @param tx the bytes to send
+ *  @param rx the destination
+ *  @return the number of bytes transferred (&gt; 0); or error
+ */
+  public int spiXfer(final int handle, final ByteBuffer tx,
+                                                     final ByteBuffer rx){
+    return extCmd(PI_CMD_SPIX, handle, 0, tx, rx);
+  } // spiXfer(int, 2*ByteBuffer)
+
+/** Open a serial device. <br />
+ *  <br />
+ *  @param tty the device's name, like "/dev/ttyAMA0" or "/dev/serial0"
+ *  @param baud 50..230400
+ *  @param flags 0 (none defined yet)
+ *  @return the handle (&gt;= 0) for the other ser.. methods; or error
+ */
+  public int serOpen(final String tty, final int baud, final int flags){
+    if (tty == null || tty.isEmpty()) return PI_BAD_SER_DEVICE;
+    final byte[] name = tty.getBytes(StandardCharsets.ISO_8859_1);
+    return extCmd(PI_CMD_SERO, baud, flags, name, 0, name.length,
+                                                              null, 0, 0);
+  } // serOpen(String, 2*int)
+
+/** Close a serial device. <br />
+ *  @param handle as got by {@link #serOpen(String, int, int)}
+ *  @return 0: OK; &lt; 0: error
+ */
+  public int serClose(final int handle){
+    return stdCmd(PI_CMD_SERC, handle, 0);
+  } // serClose(int)
+
+/** Number of bytes available from a serial device. <br />
+ *  @param handle as got by {@link #serOpen(String, int, int)}
+ *  @return the number of bytes to be read (&gt;= 0); or error
+ */
+  public int serDataAvailable(final int handle){
+    return stdCmd(PI_CMD_SERDA, handle, 0);
+  } // serDataAvailable(int)
+
+/** Read bytes from a serial device. <br />
+ *  <br />
+ *  @param handle as got by {@link #serOpen(String, int, int)}
+ *  @param buf the destination
+ *  @param off start in buf
+ *  @param len the maximum number of bytes to read
+ *  @return the number of bytes read (&gt;= 0); or error
+ */
+  public int serRead(final int handle, final byte[] buf,
+                                         final int off, final int len){
+    return extCmd(PI_CMD_SERR, handle, len, null, 0, 0, buf, off, len);
+  } // serRead(int, byte[], 2*int)
+
+/** Write bytes to a serial device. <br />
+ *  <br />
+ *  @param handle as got by {@link #serOpen(String, int, int)}
+ *  @param buf the source
+ *  @param off start in buf
+ *  @param len the number of bytes to write
+ *  @return 0: OK; &lt; 0: error
+ */
+  public int serWrite(final int handle, final byte[] buf,
+                                         final int off, final int len){
+    return extCmd(PI_CMD_SERW, handle, 0, buf, off, len, null, 0, 0);
+  } // serWrite(int, byte[], 2*int)
+  
+//-----------------------------  waveforms  --------------------------------
+
+/** Clear all waveforms. <br />
+ *  <br />
+ *  All waveforms created and the one being built are deleted.
+ *  @return 0: OK; &lt; 0: error
+ *  @see Waveform
+ */
+  public int waveClear(){ return stdCmd(PI_CMD_WVCLR, 0, 0); }
+
+/** Start a new waveform. <br />
+ *  <br />
+ *  The pulses added since the last {@link #waveCreate()} are dropped.
+ *  @return 0: OK; &lt; 0: error
+ */
+  public int waveAddNew(){ return stdCmd(PI_CMD_WVNEW, 0, 0); }
+
+/** Add pulses to the waveform being built. <br />
+ *  <br />
+ *  The pulses are the buffer's remaining bytes: 12 per pulse, three 
+ *  little endian ints gpioOn (mask), gpioOff (mask) and the delay 
+ *  (in &micro;s) till the next pulse. <br />
+ *  Pulses of several calls are merged by time into the waveform.
+ *
+ *  @param pulses the pulses; the position is set to the limit
+ *  @return the number of pulses in the waveform (&gt; 0); or error
+ *  @see Waveform#create(ClientPigpiod)
+ */
+  public int waveAddGeneric(final ByteBuffer pulses){
+    if (pulses == null || pulses.remaining() == 0
+                     || pulses.remaining() % 12 != 0) return PI_BAD_PARAM;
+    return extCmd(PI_CMD_WVAG, 0, 0, pulses, null);
+  } // waveAddGeneric(ByteBuffer)
+
+/** Create a waveform from the pulses added. <br />
+ *  <br />
+ *  @return the wave id (&gt;= 0) to be sent or chained; or error 
+ *          (e.g. {@link PiGpioDdefs#PI_EMPTY_WAVEFORM})
+ */
+  public int waveCreate(){ return stdCmd(PI_CMD_WVCRE, 0, 0); }
+
+/** Delete a waveform. <br />
+ *  @param waveId as got by {@link #waveCreate()}
+ *  @return 0: OK; &lt; 0: error
+ */
+  public int waveDelete(final int waveId){
+    return stdCmd(PI_CMD_WVDEL, waveId, 0);
+  } // waveDelete(int)
+
+/** Send a waveform. <br />
+ *  <br />
+ *  The pulses are timed by pigpiod (by DMA) at &micro;s accuracy; no
+ *  further commands are needed. 
+ *
+ *  @param waveId as got by {@link #waveCreate()}
+ *  @param mode {@link PiGpioDdefs#PI_WAVE_MODE_ONE_SHOT}, 
+ *         {@link PiGpioDdefs#PI_WAVE_MODE_REPEAT} or their _SYNC variants
+ *         (starting after the current waveform)
+ *  @return the number of DMA control blocks (&gt; 0); or error
+ */
+  public int waveSend(final int waveId, final int mode){
+    if (mode < 0 || mode > 3) return rErr(PI_BAD_WAVE_MODE, PI_CMD_WVTXM, 
+                                                               waveId, mode);
+    final GpioShadow sh = shadow;
+    if (sh != null) sh.forgetLevels(-1); // the wave's GPIOs are not known
+    final int ret = stdCmd(PI_CMD_WVTXM, waveId, mode);
+    if (sh != null) sh.forgetLevels(-1); // levels recorded meanwhile, too
+    return ret;
+  } // waveSend(2*int)
+
+/** Send a chain of waveforms. <br />
+ *  <br />
+ *  The chain (wave ids, loops and delays) is executed by pigpiod.
+ *  @param chain the chain's bytes
+ *  @param off start in chain
+ *  @param len the chain's length (up to 600)
+ *  @return 0: OK; &lt; 0: error
+ *  @see Waveform.Chain
+ */
+  public int waveChain(final byte[] chain, final int off, final int len){
+    if (len > PI_WAVE_MAX_CHAIN) return PI_BAD_PARAM;
+    final GpioShadow sh = shadow;
+    if (sh != null) sh.forgetLevels(-1);
+    final int ret = extCmd(PI_CMD_WVCHA, 0, 0, chain, off, len, null, 0, 0);
+    if (sh != null) sh.forgetLevels(-1); // levels recorded meanwhile, too
+    return ret;
+  } // waveChain(byte[], 2*int)
+
+/** Is a waveform being sent. <br />
+ *  @return 1: busy, 0: not; &lt; 0: error
+ */
+  public int waveTxBusy(){ return stdCmd(PI_CMD_WVBSY, 0, 0); }
+
+/** The waveform being sent. <br />
+ *  @return the wave id; {@link PiGpioDdefs#PI_NO_TX_WAVE} or
+ *          {@link PiGpioDdefs#PI_WAVE_NOT_FOUND}; or error
+ */
+  public int waveTxAt(){ return stdCmd(PI_CMD_WVTAT, 0, 0); }
+
+/** Stop sending waveforms (also repeated and chains). <br />
+ *  @return 0: OK; &lt; 0: error
+ */
+  public int waveTxStop(){ return stdCmd(PI_CMD_WVHLT, 0, 0); }
+  
+//------------------------------  scripts  ---------------------------------
+
+/** The script manager. <br />
+ *  <br />
+ *  It is made on first use and caches the scripts stored by content.
+ *  @return this connection's script manager
+ */
+  public ScriptManager scripts(){
+    ScriptManager sm = scripts;
+    if (sm == null) {
+      synchronized (this) {
+        if (scripts == null) scripts = new ScriptManager(this);
+        sm = scripts;
+      }
+    }
+    return sm;
+  } // scripts()
+
+  volatile ScriptManager scripts;
+
+/** Store a script on pigpiod. <br />
+ *  <br />
+ *  The script (pigpio's script language) is checked and stored by
+ *  pigpiod; it stays there (for all clients) till deleted. <br />
+ *  Hint: Use {@link #scripts()} to avoid storing the same script again.
+ *
+ *  @param text the script
+ *  @return the script id (&gt;= 0); or error
+ *          (e.g. {@link PiGpioDdefs#PI_BAD_SCRIPT})
+ */
+  public int storeScript(final String text){
+    if (text == null || text.isEmpty()) return PI_BAD_SCRIPT;
+    final byte[] t = text.getBytes(StandardCharsets.ISO_8859_1);
+    return extCmd(PI_CMD_PROC, 0, 0, t, 0, t.length, null, 0, 0);
+  } // storeScript(String)
+
+/** Script parameters as command extension. <br />
+ *  @return the extension; null if none
+ */
+  static ByteBuffer scriptParams(final int[] params){
+    if (params == null || params.length == 0) return null;
+    final ByteBuffer ext = ByteBuffer.allocate(params.length * 4)
+                                          .order(ByteOrder.LITTLE_ENDIAN);
+    for (int p : params) ext.putInt(p);
+    ext.flip();
+    return ext;
+  } // scriptParams(int[])
+
+/** Run a script. <br />
+ *  <br />
+ *  @param scriptId as got by {@link #storeScript(String)}
+ *  @param params the parameters p0.. (up to 10; none: the last ones)
+ *  @return 0: OK; &lt; 0: error
+ */
+  public int runScript(final int scriptId, final int... params){
+    if (params != null && params.length > PI_MAX_SCRIPT_PARAMS) {
+      return PI_TOO_MANY_PARAM;
+    }
+    final GpioShadow sh = shadow;
+    if (sh != null) sh.clear(); // a script may change anything
+    final int ret = extCmd(PI_CMD_PROCR, scriptId, 0, scriptParams(params),
+                                                                      null);
+    if (sh != null) sh.clear(); // recorded meanwhile, too
+    return ret;
+  } // runScript(int, int...)
+
+/** Update a (running) script's parameters. <br />
+ *  <br />
+ *  @param scriptId as got by {@link #storeScript(String)}
+ *  @param params the parameters p0.. (up to 10)
+ *  @return 0: OK; &lt; 0: error
+ */
+  public int updateScript(final int scriptId, final int... params){
+    if (params != null && params.length > PI_MAX_SCRIPT_PARAMS) {
+      return PI_TOO_MANY_PARAM;
+    }
+    return extCmd(PI_CMD_PROCU, scriptId, 0, scriptParams(params), null);
+  } // updateScript(int, int...)
+
+/** Get a script's status and parameters. <br />
+ *  <br />
+ *  @param scriptId as got by {@link #storeScript(String)}
+ *  @param params null or the destination for (up to 10) parameters
+ *  @return the status {@link PiGpioDdefs#PI_SCRIPT_HALTED} etc. 
+ *          (&gt;= 0); or error
+ */
+  public int scriptStatus(final int scriptId, final int[] params){
+    final ByteBuffer resp = ByteBuffer.allocate(4 + 4 * PI_MAX_SCRIPT_PARAMS)
+                                           .order(ByteOrder.LITTLE_ENDIAN);
+    final int ret = extCmd(PI_CMD_PROCP, scriptId, 0, null, resp);
+    if (ret < 0) return ret;
+    if (ret < 4) return PI_SOCK_READ_LEN;
+    if (params != null) {
+      final int n = Math.min(params.length, resp.position() / 4 - 1);
+      for (int i = 0; i < n; ++i) params[i] = resp.getInt(4 + 4 * i);
+    }
+    return resp.getInt(0);
+  } // scriptStatus(int, int[])
+
+/** Stop a script. <br />
+ *  @param scriptId as got by {@link #storeScript(String)}
+ *  @return 0: OK; &lt; 0: error
+ */
+  public int stopScript(final int scriptId){
+    return stdCmd(PI_CMD_PROCS, scriptId, 0);
+  } // stopScript(int)
+
+/** Delete a script. <br />
+ *  @param scriptId as got by {@link #storeScript(String)}
+ *  @return 0: OK; &lt; 0: error
+ */
+  public int deleteScript(final int scriptId){
+    return stdCmd(PI_CMD_PROCD, scriptId, 0);
+  } // deleteScript(int)
+  
 //------------------- helper methods  and  final 'const' arrays -------------
 
 /** GPIO number to bank pin number lookup. <br />
@@ -1632,8 +3504,8 @@ public class ClientPigpiod {
  *  Those more special command get a true in this table. They can't be 
  *  handled by {@link ClientPigpiod#stdCmd(int, int, int)}. Trying to do so
  *  gets a {@link PiGpioDdefs#PI_CMD_BAD} error.<br />
- *  Hint: As of June 2021 here is no implementation of non standard commands
- *  as no need arose so far. This might change in future.
+ *  They are handled by
+ *  {@link ClientPigpiod#extCmd(int, int, int, ByteBuffer, ByteBuffer)}.
  */
   private static final boolean[] hasExtension = {
 //   0      1      2      3      4      5      6      7      8      9                        
@@ -1675,17 +3547,34 @@ public class ClientPigpiod {
  false, false, false, false, false, false, false, false,  true, false, //100
  false, false, false, false, false, false, false, false};              //110
 
+/** Command has a command extension (not only a numerical one). <br />
+ *  @param cmd the command number
+ *  @return true if cmd needs a command extension's content
+ */
+  static boolean hasCmdExt(final int cmd){
+    return cmd >= 0 && cmd <= 117 && hasExtension[cmd]
+                                  && !hasIntExtNoResp[cmd];
+  } // hasCmdExt(int)
+
+/** Command has a numerical (four byte) extension and no response one.
+ *  <br />
+ *  @param cmd the command number
+ *  @return true if cmd is for {@link #stdCmd(int, int, int, int)}
+ */
+  static boolean hasNumExt(final int cmd){
+    return cmd >= 0 && cmd <= 117 && hasIntExtNoResp[cmd];
+  } // hasNumExt(int)
+
 /** Response has extension. <br />
  *  <br />
  *  Most commands returning a value (byte int) or error code will do that
  *  as value of p3.<br />
  *  But some use p3 as the number of response bytes of the extension to 
  *  follow. These command are not (all) the same as those having a command
- *  extension.
- *  Hint: As of June 2021 here is no implementation of non standard commands
- *  as no need arose so far. This might change in future.
+ *  extension. The response extension (if p3 &gt; 0) must be read
+ *  completely to keep the connection in sync.
  */
-  private static final boolean[] hasRespExt = {  // Attn. wrong values
+  private static final boolean[] hasRespExt = {
 //   0      1      2      3      4      5      6      7      8      9                        
  false, false, false, false, false, false, false, false, false, false, // 00
  false, false, false, false, false, false, false, false, false, false, // 10
@@ -1693,7 +3582,7 @@ public class ClientPigpiod {
  false, false, false, false, false, false, false, false, false, false, // 30
  false, false, false,  true, false,  true, false, false, false, false, // 40
  false, false, false, false, false, false,  true, false, false, false, // 50
- false, false, false, false, false, false, false,  true, false, false, // 60
+ false, false, false, false, false,  true, false,  true, false, false, // 60
   true, false, false,  true, false,  true, false, false, false, false, // 70
   true, false, false, false, false, false, false, false,  true, false, // 80
  false,  true,  true, false, false, false, false, false, false, false, // 90
@@ -1751,6 +3640,16 @@ public class ClientPigpiod {
 "WVTXM", "WVTAT", "PADS", "PADG", "FO", "FC", "FR", "FW", "FS", "FL",  // 100
 "SHELL", "BSPIC", "BSPIO", "BSPIX", "BSCX", "EVM", "EVT", "PROCU", // 110..117
 "none", "none"};  // 118 .. no command (as of 05.2021)
+
+/** Command short name. <br />
+ *
+ *  @param cmd the command number 0..117
+ *  @return the short name as in the socket interface documentation;
+ *          "none" for cmd out of range
+ */
+  public static String cmdName(final int cmd){
+    return cmd < 0 || cmd >= PI_CMD_NONE ? "none" : cmdNam[cmd];
+  } // cmdName(int)
  
 /** ClientPigpoid application. <br />
  *  <br />
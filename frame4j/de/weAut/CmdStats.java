@@ -0,0 +1,262 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import static de.weAut.PiGpioDdefs.*; // pigpio library defines
+
+import java.io.EOFException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.AsynchronousCloseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+
+/** <b>IO statistics of a pigpiod connection</b>.<br />
+ *  <br />
+ *  An object of this class records the latency of every command answered
+ *  by pigpiod in a histogram per command number (and one for all), plus the
+ *  counts of error responses, timeouts, short reads and other IO failures.
+ *  <br />
+ *  Every {@link ClientPigpiod} has one ({@link ClientPigpiod#stats}); the
+ *  recording is always on. It costs two System.nanoTime() and some
+ *  {@link LongAdder} increments per command, i.e. nothing compared to the
+ *  round trip and nothing to contend on by concurrent threads. <br />
+ *  <br />
+ *  The histograms are log-linear: latencies (in &micro;s) below 8 have a
+ *  bucket each; above, every power of two is divided in 8 buckets. Hence
+ *  percentiles are exact within 12.5 % from 1 &micro;s up to 35 minutes.
+ *  <br />
+ *  Percentiles per Pi (registered by {@link #regAsMBean(String)}) tell
+ *  network stalls (all commands slow, timeouts) from daemon stalls (some
+ *  commands or all on one Pi only). <br />
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see CmdStatsMBean
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  70 (16.10.2026) : new
+public class CmdStats implements CmdStatsMBean {
+
+/** Number of histogram buckets. <br /> */
+   public static final int BUCKETS = 240;
+
+/** <b>A latency histogram</b>. <br /> */
+   public static final class Histogram {
+     final LongAdder[] buckets = new LongAdder[BUCKETS];
+     final LongAdder count = new LongAdder(), sumMicros = new LongAdder();
+     final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+     Histogram(){
+       for (int i = 0; i < BUCKETS; ++i) buckets[i] = new LongAdder();
+     } // Histogram()
+
+/** Record a latency. <br />
+ *  @param micros the latency in &micro;s
+ */
+     public void add(final long micros){
+       buckets[bucket(micros)].increment();
+       count.increment();
+       sumMicros.add(micros);
+       max.accumulate(micros);
+     } // add(long)
+
+/** The number of latencies recorded. <br /> */
+     public long count(){ return count.sum(); }
+
+/** The maximum latency in &micro;s. <br /> */
+     public long max(){ return max.get(); }
+
+/** The mean latency in &micro;s. <br /> */
+     public double mean(){
+       final long n = count.sum();
+       return n == 0 ? 0.0 : (double)sumMicros.sum() / n;
+     } // mean()
+
+/** A percentile. <br />
+ *
+ *  @param q the quantile 0.0..1.0 (e.g. 0.99)
+ *  @return the latency in &micro;s (bucket's upper bound) q of all
+ *          recorded are lower or equal; 0 if none
+ */
+     public long percentile(final double q){
+       final long[] snap = new long[BUCKETS];
+       long n = 0;
+       for (int i = 0; i < BUCKETS; ++i) n += snap[i] = buckets[i].sum();
+       if (n == 0) return 0;
+       final long target = Math.max(1, (long)Math.ceil(q * n));
+       long cum = 0;
+       for (int i = 0; i < BUCKETS; ++i) {
+         cum += snap[i];
+         if (cum >= target) return Math.min(upper(i), max.get());
+       }
+       return max.get();
+     } // percentile(double)
+
+     void reset(){
+       for (LongAdder b : buckets) b.reset();
+       count.reset();
+       sumMicros.reset();
+       max.reset();
+     } // reset()
+   } // Histogram
+
+/** The bucket of a latency. <br />
+ *
+ *  @param micros latency in &micro;s
+ *  @return the bucket 0..{@link #BUCKETS}-1
+ */
+   static int bucket(final long micros){
+     if (micros < 8) return micros < 0 ? 0 : (int)micros;
+     final int e = 63 - Long.numberOfLeadingZeros(micros);
+     if (e > 31) return BUCKETS - 1;
+     return 8 + (e - 3) * 8 + (int)(micros >>> (e - 3) & 7);
+   } // bucket(long)
+
+/** The upper bound of a bucket. <br /> */
+   static long upper(final int bucket){
+     if (bucket < 8) return bucket;
+     final int e = (bucket - 8) / 8 + 3, sub = (bucket - 8) % 8;
+     return ((9L + sub) << (e - 3)) - 1;
+   } // upper(int)
+
+/** Histograms by command number; made on first use. <br /> */
+   final AtomicReferenceArray<Histogram> byCmd =
+                                 new AtomicReferenceArray<>(PI_CMD_NONE);
+
+/** Histogram of all commands. <br /> */
+   final Histogram all = new Histogram();
+
+/** Counters of failures. <br /> */
+   final LongAdder errors = new LongAdder(), timeouts = new LongAdder(),
+                   shortReads = new LongAdder(), ioErrors = new LongAdder();
+
+/** Record an answered command. <br />
+ *
+ *  @param cmd the command number
+ *  @param startNanos System.nanoTime() before sending
+ *  @param ret the response's return value
+ */
+   public void record(final int cmd, final long startNanos, final int ret){
+     final long micros = (System.nanoTime() - startNanos) / 1000;
+     all.add(micros);
+     if (cmd >= 0 && cmd < PI_CMD_NONE) {
+       Histogram h = byCmd.get(cmd);
+       if (h == null) {
+         byCmd.compareAndSet(cmd, null, new Histogram());
+         h = byCmd.get(cmd);
+       }
+       h.add(micros);
+       if (ret < 0 && !ClientPigpiod.uint32ret(cmd)) errors.increment();
+     }
+   } // record(int, long, int)
+
+/** Record a command without response. <br />
+ *
+ *  @param ret the error returned (e.g. PI_SOCK_READ_FAILED)
+ *  @param exc the exception causing it; may be null
+ */
+   public void failed(final int ret, final Throwable exc){
+     if (ret == PI_SOCK_READ_LEN || exc instanceof EOFException) {
+       shortReads.increment();
+     } else if (exc instanceof SocketTimeoutException
+                            || exc instanceof AsynchronousCloseException) {
+       timeouts.increment(); // NIO: closed by the watchdog
+     } else {
+       ioErrors.increment();
+     }
+   } // failed(int, Throwable)
+
+/** The histogram of a command. <br />
+ *
+ *  @param cmd the command number
+ *  @return the histogram or null if that command was not used
+ */
+   public Histogram histogram(final int cmd){
+     return cmd >= 0 && cmd < PI_CMD_NONE ? byCmd.get(cmd) : null;
+   } // histogram(int)
+
+/** The histogram of all commands. <br /> */
+   public Histogram histogram(){ return all; }
+
+/** Register as MBean. <br />
+ *
+ *  @param name the name (key) of the connection, e.g. host:port
+ *  @return the registered object name
+ *  @throws JMException if the registering fails
+ *  @see PiUtil#regAsStdMBean(Object, String)
+ */
+   public String regAsMBean(final String name) throws JMException {
+     return PiUtil.regAsStdMBean(this, name);
+   } // regAsMBean(String)
+
+//--------------------------------  MBean  ---------------------------------
+
+   @Override public Long getCommands(){ return all.count(); }
+
+   @Override public Long getErrors(){ return errors.sum(); }
+
+   @Override public Long getTimeouts(){ return timeouts.sum(); }
+
+   @Override public Long getShortReads(){ return shortReads.sum(); }
+
+   @Override public Long getIoErrors(){ return ioErrors.sum(); }
+
+   @Override public Double getMeanMicros(){ return all.mean(); }
+
+   @Override public Long getP50Micros(){ return all.percentile(0.5); }
+
+   @Override public Long getP99Micros(){ return all.percentile(0.99); }
+
+   @Override public Long getP999Micros(){ return all.percentile(0.999); }
+
+   @Override public Long getMaxMicros(){ return all.max(); }
+
+   @Override public String[] getPerCommand(){
+     final List<String> ret = new ArrayList<>();
+     for (int cmd = 0; cmd < PI_CMD_NONE; ++cmd) {
+       final Histogram h = byCmd.get(cmd);
+       if (h == null) continue;
+       ret.add(ClientPigpiod.cmdName(cmd) + " n=" + h.count()
+           + " p50=" + h.percentile(0.5) + " p99=" + h.percentile(0.99)
+           + " p999=" + h.percentile(0.999) + " max=" + h.max() + " us");
+     }
+     return ret.toArray(new String[ret.size()]);
+   } // getPerCommand()
+
+   @Override public void reset(){
+     all.reset();
+     for (int cmd = 0; cmd < PI_CMD_NONE; ++cmd) {
+       final Histogram h = byCmd.get(cmd);
+       if (h != null) h.reset();
+     }
+     errors.reset();
+     timeouts.reset();
+     shortReads.reset();
+     ioErrors.reset();
+   } // reset()
+
+/** State as short text. <br /> */
+   @Override public String toString(){
+     return all.count() + " cmds p50 " + all.percentile(0.5) + " p99 "
+        + all.percentile(0.99) + " max " + all.max() + " us, errors "
+        + errors.sum() + " timeouts " + timeouts.sum() + " short "
+        + shortReads.sum() + " io " + ioErrors.sum();
+   } // toString()
+
+} // CmdStats (16.10.2026)
@@ -0,0 +1,69 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+/** <b>A pigpiod connection's IO statistics MBean</b>.<br />
+ *  <br />
+ *  Latency percentiles and error counters of one {@link ClientPigpiod}
+ *  (i.e. one Pi) for observation via JMX (JConsole e.g.).<br />
+ *  <br />
+ *  Copyright  &copy;  2026  Frame4J contributors <br />
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  70 (16.10.2026) : new
+public interface CmdStatsMBean {
+
+/** The number of commands answered. <br /> */
+   public Long getCommands();
+
+/** The number of error responses (&lt; 0) by pigpiod. <br /> */
+   public Long getErrors();
+
+/** The number of commands without response by timeout. <br /> */
+   public Long getTimeouts();
+
+/** The number of commands without response by short read. <br />
+ *  <br />
+ *  A short read is the end of the connection in (or before) a response.
+ */
+   public Long getShortReads();
+
+/** The number of other IO failures (write and read). <br /> */
+   public Long getIoErrors();
+
+/** The mean latency of all commands in &micro;s. <br /> */
+   public Double getMeanMicros();
+
+/** The median latency of all commands in &micro;s. <br /> */
+   public Long getP50Micros();
+
+/** The 99 % latency of all commands in &micro;s. <br /> */
+   public Long getP99Micros();
+
+/** The 99.9 % latency of all commands in &micro;s. <br /> */
+   public Long getP999Micros();
+
+/** The maximum latency of all commands in &micro;s. <br /> */
+   public Long getMaxMicros();
+
+/** The latencies by command. <br />
+ *  @return one line per command used: name, count, p50 p99 p999 max
+ */
+   public String[] getPerCommand();
+
+/** Reset all counters and histograms. <br /> */
+   public void reset();
+
+} // CmdStatsMBean (16.10.2026)
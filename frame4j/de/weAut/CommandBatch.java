@@ -0,0 +1,271 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import static de.weAut.PiGpioDdefs.*; // pigpio library defines
+import java.util.Arrays;
+
+/** <b>A batch of pigpiod commands sent in one step</b>.<br />
+ *  <br />
+ *  An object of this class collects standard (two parameter) and numerical
+ *  extension (three parameter) commands as
+ *  {@link ClientPigpiod#stdCmd(int, int, int)} and
+ *  {@link ClientPigpiod#stdCmd(int, int, int, int)} would execute them one
+ *  by one. {@link ClientPigpiod#execBatch(CommandBatch)} checks them the
+ *  same way, encodes them in one contiguous buffer, sends them by one
+ *  socket write and reads all responses in one pass. <br />
+ *  <br />
+ *  Hence, initialising 28 pins costs one round trip instead of 28 (or 56
+ *  with pull resistors). <br />
+ *  <br />
+ *  Every command's result (return value or error number &lt; 0) is put in
+ *  the {@link #results()} array at the command's index. A command failing
+ *  does not stop the following ones, just as a sequence of single
+ *  commands would not. <br />
+ *  <br />
+ *  A {@link CommandBatch} may be {@linkplain #clear() cleared} and re-used
+ *  without garbage. It is not threadsafe; every thread (control cycle)
+ *  should use its own batches. <br />
+ *  Example: <pre>
+ *  CommandBatch init = new CommandBatch(32);
+ *  init.setMode(17, PI_OUTPUT).setPullR(17, PI_PUD_UP).write(17, 0);
+ *  int bad = init.exec(pigpio); // number of failed commands
+ *  </pre>
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see ClientPigpiod
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  62 (16.10.2026) : new
+public class CommandBatch {
+
+/** Number of commands. <br /> */
+   int n;
+
+/** The commands' parameters. <br /> */
+   int[] cmd, p1, p2, pNum;
+
+/** The commands' results. <br /> */
+   int[] results;
+
+/** Index of the commands sent (the others failed the pre-checks). <br /> */
+   int[] sent;
+
+/** Command buffer. <br />
+ *  <br />
+ *  Up to 20 bytes per command, little endian.
+ */
+   byte[] command;
+
+/** Response buffer; 16 bytes per command sent. <br /> */
+   byte[] response;
+
+/** Make a command batch. <br />
+ *
+ *  @param capacity the expected number of commands (will grow if needed)
+ */
+   public CommandBatch(final int capacity){
+     final int cap = capacity < 4 ? 4 : capacity;
+     cmd  = new int[cap];
+     p1   = new int[cap];
+     p2   = new int[cap];
+     pNum = new int[cap];
+     results = new int[cap];
+     sent = new int[cap];
+   } // CommandBatch(int)
+
+/** Make a command batch for up to 32 commands. <br /> */
+   public CommandBatch(){ this(32); }
+
+/** Add a two parameter (standard) command. <br />
+ *
+ *  @param cmd the command number
+ *  @param p1 first parameter, mostly GPIO number
+ *  @param p2 optional second parameter
+ *  @return this batch
+ *  @see ClientPigpiod#stdCmd(int, int, int)
+ */
+   public CommandBatch add(final int cmd, final int p1, final int p2){
+     return add(cmd, p1, p2, 0);
+   } // add(3*int)
+
+/** Add a three parameter (numerical extension) command. <br />
+ *  <br />
+ *  For commands without numerical extension pNum is ignored.
+ *
+ *  @param cmd the command number
+ *  @param p1 first parameter, mostly GPIO number
+ *  @param p2 second parameter
+ *  @param pNum the one numerical (extension) parameter
+ *  @return this batch
+ *  @see ClientPigpiod#stdCmd(int, int, int, int)
+ */
+   public CommandBatch add(final int cmd, final int p1, final int p2,
+                                                         final int pNum){
+     if (n == this.cmd.length) grow();
+     this.cmd[n] = cmd;
+     this.p1[n]  = p1;
+     this.p2[n]  = p2;
+     this.pNum[n] = pNum;
+     ++n;
+     return this;
+   } // add(4*int)
+
+/** Add setting a GPIO's mode. <br />
+ *
+ *  @param gpio a legal IO number 0.. 31
+ *  @param mode a mode like {@link PiGpioDdefs#PI_INPUT},
+ *            {@link PiGpioDdefs#PI_OUTPUT}, {@link PiGpioDdefs#PI_ALT0} etc.
+ *  @return this batch
+ *  @see ClientPigpiod#setMode(int, int)
+ */
+   public CommandBatch setMode(final int gpio, final int mode){
+     return add(PI_CMD_MODES, gpio, mode, 0);
+   } // setMode(2*int)
+
+/** Add setting a GPIO's pull resistor. <br />
+ *  <br />
+ *  As with {@link ClientPigpiod#setPullR(int, int)} {@link PiVals#PINig}
+ *  and the settings keep and default are no command.
+ *
+ *  @param gpio a legal BCM IO number 0.. 31 or {@link PiVals#PINig}
+ *  @param pud  {@link PiGpioDdefs#PI_PUD_OFF},
+ *          {@link PiGpioDdefs#PI_PUD_DOWN} or {@link PiGpioDdefs#PI_PUD_UP}
+ *  @return this batch
+ */
+   public CommandBatch setPullR(final int gpio, final int pud){
+     if (gpio == PiVals.PINig || pud == PiVals.PI_PUD_KP
+                               || pud == PiVals.PI_PUD_DT) return this;
+     return add(PI_CMD_PUD, gpio, pud, 0);
+   } // setPullR(2*int)
+
+/** Add setting an output. <br />
+ *
+ *  @param gpio a legal BCM IO number 0.. 31
+ *  @param level 0 or 1
+ *  @return this batch
+ *  @see ClientPigpiod#setOutput(int, boolean)
+ */
+   public CommandBatch write(final int gpio, final int level){
+     return add(PI_CMD_WRITE, gpio, level, 0);
+   } // write(2*int)
+
+/** Add setting a PWM output's duty cycle. <br />
+ *
+ *  @param gpio a legal BCM IO number 0.. 31
+ *  @param val 0..range
+ *  @return this batch
+ *  @see ClientPigpiod#setPWMcycle(int, int)
+ */
+   public CommandBatch pwm(final int gpio, final int val){
+     return add(PI_CMD_PWM, gpio, val, 0);
+   } // pwm(2*int)
+
+/** Add setting or clearing a set of outputs. <br />
+ *
+ *  @param lesOuts the outputs (bank 0) as bit mask; 0 means no command
+ *  @param level true: set (BS1); false: clear (BC1)
+ *  @return this batch
+ *  @see ClientPigpiod#setOutSet(int, boolean)
+ */
+   public CommandBatch setOutSet(final int lesOuts, final boolean level){
+     if (lesOuts == 0) return this;
+     return add(level ? PI_CMD_BS1 : PI_CMD_BC1, lesOuts, 0, 0);
+   } // setOutSet(int, boolean)
+
+/** Add setting the pads' output strength. <br />
+ *
+ *  @param pad 0..2; 0 is GPIO 0..27
+ *  @param mA 1..16, the strength in mA
+ *  @return this batch
+ *  @see ClientPigpiod#setPadS(int, int)
+ */
+   public CommandBatch setPadS(final int pad, final int mA){
+     return add(PI_CMD_PADS, pad, mA, 0);
+   } // setPadS(2*int)
+
+/** Number of commands. <br />
+ *  @return the number of commands added since making or clearing
+ */
+   public final int size(){ return n; }
+
+/** Remove all commands. <br />
+ *  <br />
+ *  The buffers are kept for re-use.
+ *
+ *  @return this batch
+ */
+   public CommandBatch clear(){ n = 0; return this; }
+
+/** The commands' results. <br />
+ *  <br />
+ *  After {@link #exec(ClientPigpiod)} the elements {@code 0..size()-1}
+ *  hold the commands' return value or error number (&lt; 0).<br />
+ *  Note: Commands returning an unsigned value (as BR1) may return
+ *  negative values without error, see {@link ClientPigpiod#uint32ret(int)}.
+ *
+ *  @return the results array (not a copy; may be longer than size())
+ */
+   public final int[] results(){ return results; }
+
+/** The result of one command. <br />
+ *  @param i the command's index 0 .. size()-1
+ *  @return the command's return value or error number (&lt; 0)
+ */
+   public final int result(final int i){ return results[i]; }
+
+/** Execute all commands. <br />
+ *  <br />
+ *  This is {@link ClientPigpiod#execBatch(CommandBatch)
+ *  pigpio.execBatch(this)} plus counting the errors.
+ *
+ *  @param pigpio the connection to use
+ *  @return the number of commands failed (results &lt; 0 for commands
+ *          not returning unsigned values); 0 is OK
+ */
+   public int exec(final ClientPigpiod pigpio){
+     pigpio.execBatch(this);
+     int bad = 0;
+     for (int i = 0; i < n; ++i) {
+       if (results[i] < 0 && !ClientPigpiod.uint32ret(cmd[i])) ++bad;
+     }
+     return bad;
+   } // exec(ClientPigpiod)
+
+/** Make the buffers for the execution. <br />
+ *  <br />
+ *  This makes or enlarges the command and response buffers as needed for
+ *  {@link #size()} commands.
+ */
+   void ensureBuffers(){
+     if (command == null || command.length < n * 20) {
+       command  = new byte[cmd.length * 20];
+       response = new byte[cmd.length * 16];
+     }
+   } // ensureBuffers()
+
+/** Double the capacity. <br /> */
+   private void grow(){
+     final int cap = cmd.length * 2;
+     cmd  = Arrays.copyOf(cmd, cap);
+     p1   = Arrays.copyOf(p1, cap);
+     p2   = Arrays.copyOf(p2, cap);
+     pNum = Arrays.copyOf(pNum, cap);
+     results = Arrays.copyOf(results, cap);
+     sent = Arrays.copyOf(sent, cap);
+   } // grow()
+
+} // CommandBatch (16.10.2026)
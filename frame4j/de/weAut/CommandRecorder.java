@@ -0,0 +1,310 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/** <b>Recorder of a ClientPigpiod's command traffic</b>.<br />
+ *  <br />
+ *  An object of this class, set by
+ *  {@link ClientPigpiod#setRecorder(CommandRecorder)}, gets every command
+ *  sent to pigpiod with its response &mdash; in blocking, batched and
+ *  pipelined mode &mdash; and appends it as fixed size binary record
+ *  ({@link #REC} bytes, little endian) to a memory mapped file: <pre>
+ *   0  long  time sent ({@link System#nanoTime()})
+ *   8  int   cmd
+ *  12  int   p1
+ *  16  int   p2
+ *  20  int   p3 (numerical extension or extension length)
+ *  24  int   result (return value or error)
+ *  28  int   round trip time in ns (saturated)
+ *  </pre>
+ *  The files (segments) are named {@code name-000000.rec},
+ *  {@code name-000001.rec} and so on in the directory given. A segment
+ *  holds a fixed number of records after a {@link #HEAD} byte header
+ *  (magic, version, record size, capacity, wall clock and nanoTime at
+ *  start, segment number). When full the next segment is started and the
+ *  oldest ones beyond {@link #keep} are deleted. <br />
+ *  <br />
+ *  Recording costs an atomic increment and seven puts into mapped memory,
+ *  no lock, no garbage and no system call; the operating system writes
+ *  the pages. Records are in the order of the responses got; a record
+ *  slot still zero (by a crash) is skipped when reading. <br />
+ *  The content of a command extension (like I2C data) is not
+ *  recorded. <br />
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see CommandReplayer
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  81 (16.10.2026) : new
+public class CommandRecorder implements AutoCloseable {
+
+/** A segment's magic number ("PGRC"). <br /> */
+   public static final int MAGIC = 0x50475243;
+
+/** The format version. <br /> */
+   public static final int VERSION = 1;
+
+/** The length of a record in bytes. <br /> */
+   public static final int REC = 32;
+
+/** The length of a segment's header in bytes. <br /> */
+   public static final int HEAD = 64;
+
+/** The segment file's extension. <br /> */
+   public static final String EXT = ".rec";
+
+/** The directory of the segments. <br /> */
+   public final File dir;
+
+/** The segments' name (prefix). <br /> */
+   public final String name;
+
+/** The number of records per segment. <br /> */
+   public final int perSegment;
+
+/** The number of segments kept; 0: all. <br /> */
+   public final int keep;
+
+/** <b>A mapped segment</b>. <br /> */
+   static final class Segment {
+     final MappedByteBuffer buf;
+     final AtomicInteger next = new AtomicInteger();
+     final int cap;
+     final File file;
+
+     Segment(final File file, final int cap, final int no)
+                                                      throws IOException {
+       this.file = file;
+       this.cap = cap;
+       try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+         final FileChannel fc = raf.getChannel();
+         buf = fc.map(FileChannel.MapMode.READ_WRITE, 0,
+                                                 HEAD + (long)cap * REC);
+       } // the mapping stays valid after closing
+       buf.order(ByteOrder.LITTLE_ENDIAN);
+       buf.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, REC)
+          .putInt(12, cap).putLong(16, System.currentTimeMillis())
+          .putLong(24, System.nanoTime()).putInt(32, no);
+     } // Segment(File, 2*int)
+   } // Segment
+
+/** The segment recorded to; null: closed or failed. <br /> */
+   volatile Segment cur;
+
+/** Lock for rotating. <br /> */
+   final ReentrantLock lock = new ReentrantLock();
+
+/** The next segment's number. <br /> */
+   int segNo;
+
+/** Records in the segments before the current one. <br /> */
+   volatile long before;
+
+/** Records lost as closed or failed. <br /> */
+   final LongAdder dropped = new LongAdder();
+
+/** The last exception of making a segment. <br /> */
+   volatile IOException lastException;
+
+/** Make a recorder. <br />
+ *  <br />
+ *  The first segment is made at once. Numbering continues after existing
+ *  segments of the same name in dir.
+ *
+ *  @param dir the directory (will be made if not existing)
+ *  @param name the segments' name (prefix)
+ *  @param perSegment the number of records per segment (1K..32M)
+ *  @param keep the number of segments kept; 0: all
+ *  @throws IOException if the first segment can't be made
+ */
+   public CommandRecorder(final File dir, final String name,
+             final int perSegment, final int keep) throws IOException {
+     this.dir = dir;
+     this.name = name;
+     this.perSegment = perSegment < 1024 ? 1024
+                     : perSegment > 1 << 25 ? 1 << 25 : perSegment;
+     this.keep = keep < 0 ? 0 : keep;
+     if (!dir.isDirectory() && !dir.mkdirs()) {
+       throw new IOException("can't make " + dir);
+     }
+     final File[] old = segments(dir, name);
+     if (old.length > 0) segNo = number(old[old.length - 1], name) + 1;
+     cur = next();
+   } // CommandRecorder(File, String, 2*int)
+
+/** Make a recorder with 1M records (32 Mbyte) per segment keeping 8.
+ *  <br />
+ *  @param dir the directory
+ *  @param name the segments' name (prefix)
+ *  @throws IOException if the first segment can't be made
+ */
+   public CommandRecorder(final File dir, final String name)
+                                                      throws IOException {
+     this(dir, name, 1 << 20, 8);
+   } // CommandRecorder(File, String)
+
+/** Record a command and its response. <br />
+ *  <br />
+ *  This is called by {@link ClientPigpiod} when a command's response (or
+ *  error) is got. It is threadsafe and lock free (except for starting the
+ *  next segment).
+ *
+ *  @param t0 the time sent ({@link System#nanoTime()})
+ *  @param cmd the command number
+ *  @param p1 first parameter
+ *  @param p2 second parameter
+ *  @param p3 numerical extension or extension length
+ *  @param ret the command's result
+ */
+   public void record(final long t0, final int cmd, final int p1,
+                          final int p2, final int p3, final int ret){
+     final long rtt = System.nanoTime() - t0;
+     for (;;) {
+       final Segment s = cur;
+       if (s == null) { // closed
+         dropped.increment();
+         return;
+       }
+       final int i = s.next.getAndIncrement();
+       if (i < s.cap) {
+         final int pos = HEAD + i * REC;
+         final MappedByteBuffer b = s.buf;
+         b.putInt(pos + 8, cmd).putInt(pos + 12, p1).putInt(pos + 16, p2)
+          .putInt(pos + 20, p3).putInt(pos + 24, ret)
+          .putInt(pos + 28, rtt > Integer.MAX_VALUE ? Integer.MAX_VALUE
+                                                    : (int)rtt);
+         b.putLong(pos, t0 == 0 ? 1 : t0); // last: 0 is an empty slot
+         return;
+       }
+       rotate(s);
+     } // for
+   } // record(long, 5*int)
+
+/** Start the next segment when s is full. <br /> */
+   final void rotate(final Segment s){
+     lock.lock();
+     try {
+       if (cur != s) return; // done by another thread
+       before += s.cap;
+       try {
+         cur = next();
+       } catch (IOException e) {
+         lastException = e;
+         cur = null;
+       }
+     } finally {
+       lock.unlock();
+     }
+   } // rotate(Segment)
+
+/** Make the next segment and delete the oldest beyond keep. <br /> */
+   final Segment next() throws IOException {
+     final int no = segNo++;
+     final Segment s = new Segment(new File(dir,
+               name + '-' + String.format("%06d", no) + EXT), perSegment, no);
+     if (keep > 0) {
+       final File[] all = segments(dir, name);
+       for (int i = 0; i < all.length - keep; ++i) all[i].delete();
+     }
+     return s;
+   } // next()
+
+/** The segments of a name in a directory. <br />
+ *
+ *  @param dir the directory
+ *  @param name the segments' name (prefix)
+ *  @return the segment files, oldest first; empty if none
+ */
+   public static File[] segments(final File dir, final String name){
+     final File[] ret = dir.listFiles((d, n) -> n.startsWith(name + '-')
+                   && n.endsWith(EXT) && n.length() == name.length() + 11);
+     if (ret == null) return new File[0];
+     Arrays.sort(ret);
+     return ret;
+   } // segments(File, String)
+
+/** A segment file's number. <br /> */
+   static int number(final File f, final String name){
+     final String n = f.getName();
+     try {
+       return Integer.parseInt(n.substring(name.length() + 1,
+                                                     n.length() - 4));
+     } catch (NumberFormatException e) {
+       return -1;
+     }
+   } // number(File, String)
+
+/** The number of records made. <br /> */
+   public long records(){
+     final Segment s = cur;
+     return s == null ? before : before + Math.min(s.next.get(), s.cap);
+   } // records()
+
+/** The number of records lost (closed or failed). <br /> */
+   public long dropped(){ return dropped.sum(); }
+
+/** The current segment file; null if closed. <br /> */
+   public File file(){
+     final Segment s = cur;
+     return s == null ? null : s.file;
+   } // file()
+
+/** The last exception of making a segment; null if none. <br /> */
+   public IOException lastException(){ return lastException; }
+
+/** Write the current segment's pages to the file. <br /> */
+   public void flush(){
+     final Segment s = cur;
+     if (s != null) s.buf.force();
+   } // flush()
+
+/** Stop recording. <br />
+ *  <br />
+ *  The current segment is flushed; records got later are dropped.
+ */
+   @Override public void close(){
+     lock.lock();
+     try {
+       final Segment s = cur;
+       cur = null;
+       if (s != null) {
+         before += Math.min(s.next.get(), s.cap);
+         s.buf.force();
+       }
+     } finally {
+       lock.unlock();
+     }
+   } // close()
+
+/** State as short text. <br /> */
+   @Override public String toString(){
+     return "CommandRecorder " + new File(dir, name) + ": " + records()
+         + " records, " + dropped.sum() + " dropped, segment "
+         + (segNo - 1) + (cur == null ? " (closed)" : "");
+   } // toString()
+
+} // CommandRecorder (16.10.2026)
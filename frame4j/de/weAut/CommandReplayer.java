@@ -0,0 +1,321 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import static de.weAut.CommandRecorder.HEAD;
+import static de.weAut.CommandRecorder.MAGIC;
+import static de.weAut.CommandRecorder.REC;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+
+/** <b>Replayer of recorded ClientPigpiod command traffic</b>.<br />
+ *  <br />
+ *  An object of this class reads the segments written by a
+ *  {@link CommandRecorder} and either hands the records to a
+ *  {@link Visitor} ({@link #forEach(Visitor)}) or sends the commands
+ *  again by a {@link ClientPigpiod} ({@link #replay(ClientPigpiod,
+ *  double)}) &mdash; to a pigpiod or to a {@link PigpiodSim} stand-in
+ *  &mdash; at recorded speed, at a scaled speed or as fast as
+ *  possible. <br />
+ *  <br />
+ *  So field incidents may be reproduced offline and new releases may be
+ *  load tested with real traffic. <br />
+ *  Commands with a command extension (like I2C writes or waveform pulses)
+ *  are skipped as their extension's content is not recorded. Note: a
+ *  replay to a real pigpiod really sets the outputs recorded. <br />
+ *  <br />
+ *  As application (Java 8 and better) it dumps or replays segments: <pre>
+ *  java de.weAut.CommandReplayer dir name [dump] [sim] [host=h] [port=p]
+ *                                [speed=x|asap] [nio] [pipe]
+ *  </pre>
+ *  sim replays to a local {@link PigpiodSim}; pipe (with asap) sends
+ *  pipelined. <br />
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see CommandRecorder
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  81 (16.10.2026) : new
+//           V.  97 (16.10.2026) : segments rebased by their header's clocks
+//           V. 125 (17.10.2026) : doc wrapped
+public class CommandReplayer {
+
+/** The segment files, oldest first. <br /> */
+   public final File[] files;
+
+/** Make a replayer for the segments of a name. <br />
+ *
+ *  @param dir the directory
+ *  @param name the segments' name (prefix) as recorded
+ */
+   public CommandReplayer(final File dir, final String name){
+     this(CommandRecorder.segments(dir, name));
+   } // CommandReplayer(File, String)
+
+/** Make a replayer for segment files. <br />
+ *
+ *  @param files the segments in order
+ */
+   public CommandReplayer(final File... files){
+     this.files = files;
+   } // CommandReplayer(File[])
+
+/** <b>The receiver of records</b>. <br /> */
+   @FunctionalInterface public interface Visitor {
+
+/** Take a record. <br />
+ *
+ *  @param nanos the time sent ({@link System#nanoTime()} of the recording,
+ *               on the first segment's time line; see
+ *               {@link CommandReplayer#forEach(Visitor) forEach})
+ *  @param cmd the command number
+ *  @param p1 first parameter
+ *  @param p2 second parameter
+ *  @param p3 numerical extension or extension length
+ *  @param ret the command's result as recorded
+ *  @param rttNs the round trip time in ns
+ *  @return true: go on; false: stop
+ */
+     boolean record(long nanos, int cmd, int p1, int p2, int p3, int ret,
+                                                              int rttNs);
+   } // Visitor
+
+/** Read all records. <br />
+ *  <br />
+ *  The segments are mapped read only, one at a time. Empty slots are
+ *  skipped. <br />
+ *  <br />
+ *  The records' times are brought to the first segment's nanoTime time
+ *  line: each segment header's pair of wall clock and nanoTime (at offset
+ *  16 and 24) tells how far its nanoTime origin is off. So segments
+ *  recorded by another process or after a reboot (another, arbitrary
+ *  origin) follow in wall clock distance. An offset below one second is
+ *  taken as the same monotonic clock (just the wall clock's granularity
+ *  or adjustment) and the times are passed unchanged.
+ *
+ *  @param v the receiver of the records
+ *  @return the number of records read
+ *  @throws IOException if a segment can't be read or is no recording
+ */
+   public long forEach(final Visitor v) throws IOException {
+     long n = 0;
+     long wall0 = 0, nano0 = 0; // the first segment's clock pair
+     boolean firstSeg = true;
+     for (File f : files) {
+       final MappedByteBuffer b;
+       try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+         final FileChannel fc = raf.getChannel();
+         b = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+       }
+       b.order(ByteOrder.LITTLE_ENDIAN);
+       if (b.capacity() < HEAD || b.getInt(0) != MAGIC
+                               || b.getInt(8) != REC) {
+         throw new IOException(f + " is no command recording");
+       }
+       final int cap = Math.min(b.getInt(12), (b.capacity() - HEAD) / REC);
+       final long wall = b.getLong(16), nano = b.getLong(24);
+       if (firstSeg) {
+         firstSeg = false;
+         wall0 = wall;
+         nano0 = nano;
+       }
+       long shift = (wall - wall0) * 1000000L - (nano - nano0);
+       if (Math.abs(shift) < 1000000000L) shift = 0; // same clock
+       for (int i = 0, pos = HEAD; i < cap; ++i, pos += REC) {
+         final long t = b.getLong(pos);
+         if (t == 0) continue; // empty slot
+         ++n;
+         if (!v.record(t + shift, b.getInt(pos + 8), b.getInt(pos + 12),
+                   b.getInt(pos + 16), b.getInt(pos + 20),
+                   b.getInt(pos + 24), b.getInt(pos + 28))) return n;
+       } // for records
+     } // for segments
+     return n;
+   } // forEach(Visitor)
+
+/** <b>A replay's outcome</b>. <br /> */
+   public static final class Result {
+
+/** Commands sent. <br /> */
+     public long sent;
+
+/** Commands skipped (with command extension). <br /> */
+     public long skipped;
+
+/** Commands with a result other than recorded. <br /> */
+     public long differ;
+
+/** Commands failed (result &lt; 0 where the recording had none). <br /> */
+     public long failed;
+
+/** The maximum lateness of a command against its schedule in ns. <br /> */
+     public long lateMaxNs;
+
+/** The replay's duration in ns. <br /> */
+     public long nanos;
+
+/** State as short text. <br /> */
+     @Override public String toString(){
+       return "replay: " + sent + " sent, " + skipped + " skipped, "
+           + differ + " differ, " + failed + " failed in "
+           + nanos / 1000000 + " ms"
+           + (sent > 0 && nanos > 0 ? " (" + sent * 1000000000L / nanos
+                                                       + " /s)" : "")
+           + ", late max " + lateMaxNs / 1000 + " us";
+     } // toString()
+   } // Result
+
+/** Send the commands recorded again. <br />
+ *  <br />
+ *  The commands are sent in the order recorded. With speed &gt; 0 each
+ *  one is sent at its recorded time (relative to the first one, segments
+ *  rebased as by {@link #forEach(Visitor)}) divided by speed, i.e. 1 is
+ *  recorded speed and 2 twice as fast. With speed &lt;= 0 or infinite they are sent as fast as possible; if pI is in
+ *  pipelined mode ({@link ClientPigpiod#isPipelined()}) then without
+ *  waiting for the responses (up to 256 in flight).
+ *
+ *  @param pI the connection to send by
+ *  @param speed the speed factor
+ *  @return the outcome
+ *  @throws IOException if a segment can't be read
+ */
+   public Result replay(final ClientPigpiod pI, final double speed)
+                                                        throws IOException {
+     final Result r = new Result();
+     final boolean paced = speed > 0 && !Double.isInfinite(speed);
+     final boolean async = !paced && pI.isPipelined();
+     final ArrayDeque<CompletableFuture<Integer>> inFlight =
+                                        async ? new ArrayDeque<>() : null;
+     final ArrayDeque<Integer> recorded = async ? new ArrayDeque<>() : null;
+     final long start = System.nanoTime();
+     final long[] first = {0};
+     forEach((t, cmd, p1, p2, p3, ret, rtt) -> {
+       if (ClientPigpiod.hasCmdExt(cmd)) {
+         ++r.skipped;
+         return true;
+       }
+       if (paced) {
+         if (first[0] == 0) first[0] = t;
+         final long due = start + (long)((t - first[0]) / speed);
+         long now = System.nanoTime();
+         while (due - now > 0) {
+           LockSupport.parkNanos(due - now);
+           now = System.nanoTime();
+         }
+         if (now - due > r.lateMaxNs) r.lateMaxNs = now - due;
+       }
+       ++r.sent;
+       if (async) {
+         if (inFlight.size() == 256) {
+           check(r, recorded.poll(), inFlight.poll().join());
+         }
+         inFlight.add(ClientPigpiod.hasNumExt(cmd)
+                                      ? pI.stdCmdAsync(cmd, p1, p2, p3)
+                                      : pI.stdCmdAsync(cmd, p1, p2));
+         recorded.add(ret);
+       } else {
+         check(r, ret, ClientPigpiod.hasNumExt(cmd)
+                       ? pI.stdCmd(cmd, p1, p2, p3)
+                       : pI.extCmd(cmd, p1, p2, null, null));
+       }
+       return true;
+     });
+     if (async) while (!inFlight.isEmpty()) {
+       check(r, recorded.poll(), inFlight.poll().join());
+     }
+     r.nanos = System.nanoTime() - start;
+     return r;
+   } // replay(ClientPigpiod, double)
+
+/** Compare a result with the recorded one. <br /> */
+   static void check(final Result r, final int recorded, final int got){
+     if (got == recorded) return;
+     ++r.differ;
+     if (got < 0 && recorded >= 0) ++r.failed;
+   } // check(Result, 2*int)
+
+/** Dump or replay recorded segments. <br />
+ *
+ *  @param args dir name [dump] [sim] [host=h] [port=p] [speed=x|asap]
+ *              [nio] [pipe]
+ */
+   public static void main(final String[] args){
+     if (args.length < 2) {
+       System.out.println("usage: CommandReplayer dir name [dump] [sim] "
+               + "[host=h] [port=p] [speed=x|asap] [nio] [pipe]");
+       return;
+     }
+     final CommandReplayer rp = new CommandReplayer(new File(args[0]),
+                                                                 args[1]);
+     boolean dump = false, sim = false, nio = false, pipe = false;
+     String host = "localhost";
+     int port = 8888;
+     double speed = 1;
+     for (int i = 2; i < args.length; ++i) {
+       final String a = args[i];
+       if ("dump".equals(a)) {
+         dump = true;
+       } else if ("sim".equals(a)) {
+         sim = true;
+       } else if ("nio".equals(a)) {
+         nio = true;
+       } else if ("pipe".equals(a)) {
+         pipe = true;
+       } else if (a.startsWith("host=")) {
+         host = a.substring(5);
+       } else if (a.startsWith("port=")) {
+         port = Integer.parseInt(a.substring(5));
+       } else if (a.startsWith("speed=")) {
+         speed = "asap".equals(a.substring(6)) ? 0
+                                      : Double.parseDouble(a.substring(6));
+       }
+     } // for
+     System.out.println(rp.files.length + " segment(s) " + args[1]
+                                                    + " in " + args[0]);
+     try {
+       if (dump) {
+         final long[] first = {0};
+         final long n = rp.forEach((t, cmd, p1, p2, p3, ret, rtt) -> {
+           if (first[0] == 0) first[0] = t;
+           System.out.println(String.format("%12.3f ms %-6s %11d %11d "
+                   + "%11d -> %11d %8d us", (t - first[0]) / 1e6,
+                   ClientPigpiod.cmdName(cmd), p1, p2, p3, ret, rtt / 1000));
+           return true;
+         });
+         System.out.println(n + " records");
+         return;
+       } // dump
+       try (PigpiodSim s = sim ? new PigpiodSim(0) : null) {
+         final ThePi pi = ThePi.make(sim ? "localhost" : host,
+                                  sim ? s.getPort() : port, 3000, 3);
+         final ClientPigpiod pI = new ClientPigpiod(pi, null, nio);
+         if (pipe) pI.stdCmdAsync(PiGpioDdefs.PI_CMD_TICK, 0, 0).join();
+         System.out.println(rp.replay(pI, speed));
+         pI.disconnect();
+       }
+     } catch (IOException e) {
+       System.out.println("CommandReplayer error: " + e);
+     }
+   } // main(String[])
+
+} // CommandReplayer (16.10.2026)
@@ -0,0 +1,427 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/** <b>Deterministic scheduler for cyclic tasks</b>.<br />
+ *  <br />
+ *  An object of this class runs many periodic tasks (of different periods
+ *  and phases) on one or a few threads. All times are by System.nanoTime(),
+ *  i.e. of sub-millisecond resolution and immune to jumps of the wall
+ *  clock (as by NTP or manual setting). <br />
+ *  <br />
+ *  In contrast, {@link PiUtil#thrDelay(int)} needs a thread per periodic
+ *  job, has ms resolution and uses the wall clock. <br />
+ *  <br />
+ *  Every task has a fixed grid of due times {@code start + phase + n *
+ *  period}. If a task's run ends after its next due time (overrun), the
+ *  task's {@link Overrun policy} decides: <ul>
+ *  <li>{@link Overrun#CATCH_UP}: run the missed cycles immediately,</li>
+ *  <li>{@link Overrun#SKIP}: skip the missed cycles, stay on the grid,</li>
+ *  <li>{@link Overrun#RESTART}: start a new grid now (as thrDelay()).</li>
+ *  </ul>
+ *  Per task statistics of start lateness (jitter), execution time,
+ *  overruns and skipped cycles are kept ({@link Task}); the lateness is
+ *  recorded in {@link CycleStats} as "scheduler/task" also. <br />
+ *  <br />
+ *  A thread waits for the next due time on a condition until the last some
+ *  ten &micro;s, which are spun by {@link PiUtil#parkUntil(long)}. <br />
+ *  <br />
+ *  Usage scheme (two jobs on one thread): <pre>
+ *  CycleScheduler sched = new CycleScheduler("cycles", 1);
+ *  sched.schedule("blink", 500, 0, Overrun.SKIP, () -&gt; blinkStep());
+ *  sched.schedule("wDog", 1000, 250, Overrun.RESTART,
+ *                                             () -&gt; triggerWatchdog());
+ *  ...
+ *  sched.shutdown();</pre>
+ *  A task is never run concurrently to itself. With more than one thread
+ *  different tasks may run in parallel. A task must not block for long
+ *  (as it delays the other tasks of its thread). <br />
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see PiUtil#thrDelay(int)
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  71 (16.10.2026) : new
+//           V.  72 (16.10.2026) : park / spin for the last some us
+//           V.  73 (16.10.2026) : lateness histogram (CycleStats)
+public class CycleScheduler {
+
+/** <b>Overrun policy</b>. <br /> */
+   public enum Overrun {
+/** Run missed cycles immediately (keep the number of runs). <br /> */
+     CATCH_UP,
+/** Skip missed cycles, next run at the next due time on the grid. <br /> */
+     SKIP,
+/** Drop the grid, next run one period after now. <br /> */
+     RESTART
+   } // Overrun
+
+/** <b>A cyclic task</b>. <br />
+ *  <br />
+ *  The statistics are updated by the scheduler's threads and may be read
+ *  at any time (as consistent snapshot per method).
+ */
+   public final class Task implements Comparable<Task> {
+
+/** The task's name. <br /> */
+     public final String name;
+
+/** The period in ns. <br /> */
+     public final long period;
+
+/** The overrun policy. <br /> */
+     public final Overrun policy;
+
+     final Runnable job;
+
+/** Next due time (System.nanoTime()). <br /> */
+     long due;
+
+     volatile boolean cancelled;
+
+     long runs, overruns, skipped, failures;
+     long lateMin = Long.MAX_VALUE, lateMax, lateSum;
+     long execMax, execSum;
+     Throwable lastExc;
+
+/** The lateness telemetry (histogram). <br /> */
+     public final CycleStats.Entry stats;
+
+     Task(final String name, final long period, final long first,
+                            final Overrun policy, final Runnable job){
+       this.name = name;
+       this.period = period;
+       this.policy = policy;
+       this.job = job;
+       this.due = first;
+       this.stats = CycleStats.get().entry(CycleScheduler.this.name
+                                                             + '/' + name);
+     } // Task(String, 2*long, Overrun, Runnable)
+
+     @Override public int compareTo(final Task o){
+       return Long.signum(due - o.due);
+     } // compareTo(Task)
+
+/** Record a run. <br /> */
+     synchronized void ran(final long late, final long exec){
+       ++runs;
+       if (late < lateMin) lateMin = late;
+       if (late > lateMax) lateMax = late;
+       lateSum += late;
+       stats.record(late);
+       if (exec > execMax) execMax = exec;
+       execSum += exec;
+     } // ran(2*long)
+
+/** Advance the due time after a run by policy. <br /> */
+     synchronized void advance(final long now){
+       long next = due + period;
+       if (next - now <= 0) { // overrun
+         ++overruns;
+         stats.overrun();
+         if (policy == Overrun.SKIP) {
+           final long missed = (now - next) / period + 1;
+           skipped += missed;
+           next += missed * period;
+         } else if (policy == Overrun.RESTART) {
+           next = now + period;
+         } // CATCH_UP: next as is (in the past: run at once)
+       }
+       due = next;
+     } // advance(long)
+
+/** Cancel the task. <br />
+ *  <br />
+ *  The task will not be run anymore (a run in progress ends normally).
+ */
+     public void cancel(){
+       cancelled = true;
+       remove(this);
+     } // cancel()
+
+/** Cancelled. <br /> */
+     public boolean isCancelled(){ return cancelled; }
+
+/** Number of runs. <br /> */
+     public synchronized long runs(){ return runs; }
+
+/** Number of overruns. <br />
+ *  @return the number of runs ending after the next due time
+ */
+     public synchronized long overruns(){ return overruns; }
+
+/** Number of cycles skipped (by policy {@link Overrun#SKIP}). <br /> */
+     public synchronized long skipped(){ return skipped; }
+
+/** Number of runs ended by an exception. <br /> */
+     public synchronized long failures(){ return failures; }
+
+/** The last exception thrown by the task; null if none. <br /> */
+     public synchronized Throwable lastExc(){ return lastExc; }
+
+/** Minimal start lateness in ns. <br /> */
+     public synchronized long lateMin(){ return runs == 0 ? 0 : lateMin; }
+
+/** Maximal start lateness in ns. <br /> */
+     public synchronized long lateMax(){ return lateMax; }
+
+/** Mean start lateness in ns. <br /> */
+     public synchronized long lateMean(){
+       return runs == 0 ? 0 : lateSum / runs;
+     } // lateMean()
+
+/** Jitter in ns. <br />
+ *  @return the span of start lateness (max - min)
+ */
+     public synchronized long jitter(){
+       return runs == 0 ? 0 : lateMax - lateMin;
+     } // jitter()
+
+/** Maximal execution time in ns. <br /> */
+     public synchronized long execMax(){ return execMax; }
+
+/** Mean execution time in ns. <br /> */
+     public synchronized long execMean(){
+       return runs == 0 ? 0 : execSum / runs;
+     } // execMean()
+
+/** Reset the statistics. <br /> */
+     public synchronized void resetStats(){
+       runs = overruns = skipped = failures = 0;
+       lateMin = Long.MAX_VALUE;
+       lateMax = lateSum = execMax = execSum = 0;
+     } // resetStats()
+
+/** State as short text. <br />
+ *  @return name, runs, lateness and execution time in &micro;s, overruns
+ */
+     @Override public synchronized String toString(){
+       return name + ": " + runs + " runs, late "
+          + (runs == 0 ? 0 : lateMin / 1000) + ".." + lateMax / 1000
+          + " (" + (runs == 0 ? 0 : lateSum / runs / 1000) + ") exec "
+          + (runs == 0 ? 0 : execSum / runs / 1000) + ".." + execMax / 1000
+          + " us, overruns " + overruns
+          + (skipped > 0 ? " skipped " + skipped : "")
+          + (failures > 0 ? " failures " + failures : "");
+     } // toString()
+   } // Task
+
+/** The name (prefix for the threads' names). <br /> */
+   public final String name;
+
+/** The tasks by due time. <br /> */
+   final PriorityQueue<Task> queue = new PriorityQueue<>();
+
+/** All tasks scheduled (and not cancelled). <br /> */
+   final List<Task> tasks = new ArrayList<>();
+
+/** Guards queue and tasks. <br /> */
+   final ReentrantLock lock = new ReentrantLock();
+
+/** Signalled when the head of the queue changes. <br /> */
+   final Condition headChanged = lock.newCondition();
+
+/** The scheduler's threads. <br /> */
+   final Thread[] threads;
+
+/** Start of the time grid. <br /> */
+   final long start = System.nanoTime();
+
+   volatile boolean running = true;
+
+/** Make and start a scheduler. <br />
+ *  <br />
+ *  The threads are not daemons; the scheduler keeps the JVM alive until
+ *  {@link #shutdown()}.
+ *
+ *  @param name the name (of the threads)
+ *  @param nThreads the number of threads (1..16)
+ */
+   public CycleScheduler(final String name, final int nThreads){
+     this.name = name;
+     if (PiUtil.getSpinNanos() < 0) PiUtil.calibrateDelay();
+     threads = new Thread[nThreads < 1 ? 1 : nThreads > 16 ? 16 : nThreads];
+     for (int i = 0; i < threads.length; ++i) {
+       threads[i] = new Thread(this::work, name + "-" + i);
+       threads[i].setPriority(Thread.MAX_PRIORITY);
+       threads[i].start();
+     }
+   } // CycleScheduler(String, int)
+
+/** Schedule a task. <br />
+ *
+ *  @param name the task's name
+ *  @param period the period
+ *  @param phase the offset of the grid to the scheduler's start
+ *         (0 &lt;= phase; typically &lt; period)
+ *  @param unit the unit of period and phase
+ *  @param policy the overrun policy; null: {@link Overrun#SKIP}
+ *  @param job the work to do cyclically; not null
+ *  @return the task
+ *  @throws IllegalArgumentException if period is not positive
+ */
+   public Task schedule(final String name, final long period,
+                 final long phase, final TimeUnit unit, final Overrun policy,
+                                                       final Runnable job){
+     final long p = unit.toNanos(period);
+     if (p <= 0) throw new IllegalArgumentException("period " + period);
+     long first = start + unit.toNanos(phase);
+     final long now = System.nanoTime();
+     if (first - now < 0) { // grid started: next point on the grid
+       first += ((now - first) / p + 1) * p;
+     }
+     final Task t = new Task(name, p, first,
+                             policy == null ? Overrun.SKIP : policy, job);
+     lock.lock();
+     try {
+       tasks.add(t);
+       queue.add(t);
+       if (queue.peek() == t) headChanged.signal();
+     } finally {
+       lock.unlock();
+     }
+     return t;
+   } // schedule(String, 2*long, TimeUnit, Overrun, Runnable)
+
+/** Schedule a task (ms). <br />
+ *
+ *  @param name the task's name
+ *  @param periodMs the period in ms
+ *  @param phaseMs the offset of the grid in ms
+ *  @param policy the overrun policy; null: {@link Overrun#SKIP}
+ *  @param job the work to do cyclically; not null
+ *  @return the task
+ */
+   public Task schedule(final String name, final int periodMs,
+               final int phaseMs, final Overrun policy, final Runnable job){
+     return schedule(name, periodMs, phaseMs, TimeUnit.MILLISECONDS,
+                                                             policy, job);
+   } // schedule(String, 2*int, Overrun, Runnable)
+
+/** Remove a task. <br /> */
+   void remove(final Task t){
+     lock.lock();
+     try {
+       tasks.remove(t);
+       queue.remove(t);
+       headChanged.signal();
+     } finally {
+       lock.unlock();
+     }
+   } // remove(Task)
+
+/** The tasks. <br />
+ *  @return a copy of the list of tasks scheduled
+ */
+   public List<Task> tasks(){
+     lock.lock();
+     try {
+       return new ArrayList<>(tasks);
+     } finally {
+       lock.unlock();
+     }
+   } // tasks()
+
+/** Stop. <br />
+ *  <br />
+ *  No more runs are started; the threads end after their runs in
+ *  progress.
+ */
+   public void shutdown(){
+     running = false;
+     lock.lock();
+     try {
+       queue.clear();
+       headChanged.signalAll();
+     } finally {
+       lock.unlock();
+     }
+   } // shutdown()
+
+/** Wait for the threads' end (after {@link #shutdown()}). <br />
+ *  @param millis the maximum time to wait per thread; 0: forever
+ */
+   public void join(final long millis) throws InterruptedException {
+     for (Thread t : threads) t.join(millis);
+   } // join(long)
+
+/** A scheduler thread's work. <br /> */
+   void work(){
+     while (running) {
+       Task t;
+       lock.lock();
+       try {
+         t = queue.peek();
+         if (t == null) {
+           headChanged.awaitUninterruptibly();
+           continue;
+         }
+         final long wait = t.due - System.nanoTime();
+         final long spin = PiUtil.getSpinNanos();
+         if (wait > spin) {
+           headChanged.awaitNanos(wait - spin);
+           continue; // re-check the head (might have changed)
+         }
+         queue.poll(); // t is (almost) due and ours now
+         if (!queue.isEmpty()) headChanged.signal(); // next for others
+       } catch (InterruptedException e) {
+         continue;
+       } finally {
+         lock.unlock();
+       }
+       PiUtil.parkUntil(t.due); // spin the rest
+       final long begin = System.nanoTime();
+       try {
+         t.job.run();
+       } catch (RuntimeException e) {
+         synchronized (t) {
+           ++t.failures;
+           t.lastExc = e;
+         }
+       }
+       final long end = System.nanoTime();
+       t.ran(begin - t.due, end - begin);
+       if (t.cancelled) continue;
+       t.advance(end);
+       lock.lock();
+       try {
+         if (!t.cancelled && running) {
+           queue.add(t);
+           if (queue.peek() == t) headChanged.signal();
+         }
+       } finally {
+         lock.unlock();
+       }
+     } // while
+   } // work()
+
+/** State as text. <br />
+ *  @return one line per task
+ */
+   @Override public String toString(){
+     final StringBuilder sb = new StringBuilder(name).append(':');
+     for (Task t : tasks()) sb.append("\n  ").append(t);
+     return sb.toString();
+   } // toString()
+
+} // CycleScheduler (16.10.2026)
@@ -0,0 +1,237 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+
+/** <b>Cycle lateness telemetry</b>.<br />
+ *  <br />
+ *  The one object of this class ({@link #get()}) records the wake up
+ *  lateness of every cycle of {@link PiUtil#thrDelay(int) thrDelay},
+ *  {@link PiUtil#thrDelayNanos(long) thrDelayNanos} (per thread) and
+ *  {@link CycleScheduler} (per task) in a lock-free histogram
+ *  ({@link CmdStats.Histogram}, &micro;s) per cycle, plus its overruns.
+ *  <br />
+ *  <br />
+ *  A cycle later than {@link #getSpikeMicros()} is recorded as spike with
+ *  its (wall clock) time and the garbage collectors' time since the spike
+ *  before. So spikes may be correlated with GC or (by the time) with
+ *  network stalls (see {@link CmdStats}). <br />
+ *  <br />
+ *  The data are exposed as MBean ({@link #regAsMBean()}) and as compact
+ *  text ({@link #report()}, appended to the {@code getStateString()} of
+ *  {@link TestOnPi} and {@link de.weAut.demos.BlinkOnPi}). <br />
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  73 (16.10.2026) : new
+//           V.  92 (16.10.2026) : spikes as primitives, text when asked
+public class CycleStats implements CycleStatsMBean {
+
+/** <b>One cycle's telemetry</b>. <br />
+ *  <br />
+ *  A thread's or task's lateness histogram and overrun counter.
+ */
+   public static final class Entry {
+
+/** The name (thread or scheduler/task). <br /> */
+     public final String name;
+
+/** The lateness histogram in &micro;s. <br /> */
+     public final CmdStats.Histogram late = new CmdStats.Histogram();
+
+     final LongAdder overruns = new LongAdder();
+
+     Entry(final String name){ this.name = name; }
+
+/** Record a cycle's lateness. <br />
+ *  @param lateNanos the wake up lateness in ns
+ */
+     public void record(final long lateNanos){
+       final long micros = lateNanos / 1000;
+       late.add(micros);
+       if (micros >= get().spikeMicros) get().spike(this, micros);
+     } // record(long)
+
+/** Record an overrun. <br /> */
+     public void overrun(){ overruns.increment(); }
+
+/** The number of overruns. <br /> */
+     public long overruns(){ return overruns.sum(); }
+
+/** State as short text. <br /> */
+     @Override public String toString(){
+       return name + ": " + late.count() + " cyc, late p50 "
+           + late.percentile(0.5) + " p99 " + late.percentile(0.99)
+           + " p999 " + late.percentile(0.999) + " max " + late.max()
+           + " us, ovr " + overruns.sum();
+     } // toString()
+   } // Entry
+
+/** The garbage collectors (got once; before INSTANCE). <br /> */
+   static final List<GarbageCollectorMXBean> GCS =
+                               ManagementFactory.getGarbageCollectorMXBeans();
+
+/** The one object. <br /> */
+   static final CycleStats INSTANCE = new CycleStats();
+
+/** The telemetry. <br /> */
+   public static CycleStats get(){ return INSTANCE; }
+
+   private CycleStats(){}
+
+/** The entries by name. <br /> */
+   final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+/** Spike threshold in &micro;s. <br /> */
+   volatile int spikeMicros = 5000;
+
+/** Recent spikes (ring): time (ms), lateness (&micro;s), GC ms since
+ *  the spike before and cycle. <br />
+ *  <br />
+ *  Only primitives are stored by the (late) cycle's thread; the text is
+ *  made when asked for ({@link #getSpikes()}, {@link #report()}).
+ */
+   final long[] spikeAt = new long[16], spikeLate = new long[16],
+                spikeGc = new long[16];
+   final Entry[] spikeOf = new Entry[16];
+   int spikeCnt;
+   long gcMsLast = gcMillis();
+
+/** Get or make an entry. <br />
+ *
+ *  @param name the cycle's name
+ *  @return the entry
+ */
+   public Entry entry(final String name){
+     return entries.computeIfAbsent(name, Entry::new);
+   } // entry(String)
+
+/** Record a spike. <br />
+ *  <br />
+ *  This runs on the late cycle's thread: no allocation, no formatting.
+ */
+   void spike(final Entry e, final long micros){
+     final long now = System.currentTimeMillis();
+     final long gc = gcMillis();
+     synchronized (this) {
+       final int i = spikeCnt++ & 15;
+       spikeAt[i] = now;
+       spikeLate[i] = micros;
+       spikeGc[i] = gc - gcMsLast;
+       spikeOf[i] = e;
+       gcMsLast = gc;
+     }
+   } // spike(Entry, long)
+
+/** A recorded spike as text (lock held). <br /> */
+   final String spikeText(final int i, final SimpleDateFormat form){
+     return form.format(new Date(spikeAt[i])) + " " + spikeOf[i].name
+          + " late " + spikeLate[i] + " us, GC " + spikeGc[i]
+          + " ms since spike before";
+   } // spikeText(int, SimpleDateFormat)
+
+/** The garbage collectors' total time in ms. <br /> */
+   static long gcMillis(){
+     long t = 0;
+     for (int i = 0; i < GCS.size(); ++i) {
+       final long ct = GCS.get(i).getCollectionTime();
+       if (ct > 0) t += ct;
+     }
+     return t;
+   } // gcMillis()
+
+/** Compact text report. <br />
+ *  @return one line per cycle, the last spike if any
+ */
+   public String report(){
+     final StringBuilder sb = new StringBuilder(200);
+     for (String l : getReport()) sb.append("\n  ").append(l);
+     synchronized (this) {
+       if (spikeCnt > 0) {
+         sb.append("\n  last spike ").append(spikeText((spikeCnt - 1) & 15,
+                                        new SimpleDateFormat("HH:mm:ss.SSS")))
+           .append(" (").append(spikeCnt).append(" spikes)");
+       }
+     }
+     return sb.toString();
+   } // report()
+
+/** Register as MBean. <br />
+ *  @return the registered object name
+ *  @throws JMException if the registering fails (e.g. twice)
+ */
+   public String regAsMBean() throws JMException {
+     return PiUtil.regAsStdMBean(this);
+   } // regAsMBean()
+
+//--------------------------------  MBean  ---------------------------------
+
+   @Override public String[] getReport(){
+     final List<String> ret = new ArrayList<>();
+     for (Entry e : new TreeMap<>(entries).values()) ret.add(e.toString());
+     return ret.toArray(new String[ret.size()]);
+   } // getReport()
+
+   @Override public synchronized String[] getSpikes(){
+     final int n = spikeCnt < 16 ? spikeCnt : 16;
+     final String[] ret = new String[n];
+     final SimpleDateFormat form = new SimpleDateFormat("HH:mm:ss.SSS");
+     for (int i = 0; i < n; ++i) {
+       ret[i] = spikeText((spikeCnt - n + i) & 15, form);
+     }
+     return ret;
+   } // getSpikes()
+
+   @Override public Long getWorstP999Micros(){
+     long w = 0;
+     for (Entry e : entries.values()) {
+       w = Math.max(w, e.late.percentile(0.999));
+     }
+     return w;
+   } // getWorstP999Micros()
+
+   @Override public Integer getSpikeMicros(){ return spikeMicros; }
+
+   @Override public void setSpikeMicros(final Integer spikeMicros){
+     if (spikeMicros != null && spikeMicros > 0) {
+       this.spikeMicros = spikeMicros;
+     }
+   } // setSpikeMicros(Integer)
+
+   @Override public void reset(){
+     for (Entry e : entries.values()) {
+       e.late.reset();
+       e.overruns.reset();
+     }
+     synchronized (this) {
+       spikeCnt = 0;
+       gcMsLast = gcMillis();
+     }
+   } // reset()
+
+} // CycleStats (16.10.2026)
@@ -0,0 +1,53 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+/** <b>Cycle lateness telemetry as MBean</b>.<br />
+ *  <br />
+ *  Wake up lateness percentiles, overruns and recent spikes of all cyclic
+ *  threads and tasks for observation via JMX (JConsole e.g.).<br />
+ *  <br />
+ *  Copyright  &copy;  2026  Frame4J contributors <br />
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ *  @see CycleStats
+ */
+// so far:   V.  73 (16.10.2026) : new
+public interface CycleStatsMBean {
+
+/** The report. <br />
+ *  @return one line per cycle (thread or task): cycles, lateness p50 p99
+ *          p999 max in &micro;s, overruns
+ */
+   public String[] getReport();
+
+/** The recent spikes. <br />
+ *  @return one line per spike: time, cycle, lateness, GC time since the
+ *          spike before
+ */
+   public String[] getSpikes();
+
+/** The worst 99.9 % lateness of all cycles in &micro;s. <br /> */
+   public Long getWorstP999Micros();
+
+/** The lateness in &micro;s to be recorded as spike. <br /> */
+   public Integer getSpikeMicros();
+
+/** Set the lateness in &micro;s to be recorded as spike. <br /> */
+   public void setSpikeMicros(Integer spikeMicros);
+
+/** Reset all histograms and counters. <br /> */
+   public void reset();
+
+} // CycleStatsMBean (16.10.2026)
@@ -0,0 +1,343 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import static de.weAut.PiGpioDdefs.*; // pigpio library defines
+import java.util.concurrent.atomic.LongAdder;
+
+/** <b>Client side shadow of pigpiod's GPIO state</b>.<br />
+ *  <br />
+ *  An object of this class mirrors the modes, pull resistors, levels,
+ *  PWM duty cycles and frequencies, servo pulse widths of all 54 GPIOs and
+ *  the strength of the 3 pads as last set by (or read back from) one
+ *  {@link ClientPigpiod}. A setting command that would not change the
+ *  daemon's state returns at once without network traffic
+ *  ({@link #suppressed()} counts them). <br />
+ *  <br />
+ *  So configuration code may re-assert modes, pulls and outputs every
+ *  cycle for robustness at (nearly) no cost. <br />
+ *  <br />
+ *  The shadow is switched on by {@link ClientPigpiod#useShadow(boolean)}.
+ *  It starts with all values unknown; i.e. every first setting is sent.
+ *  {@link #resync(ClientPigpiod)} reads modes, levels (BR1 BR2), pads,
+ *  PWM duty cycles and servo pulse widths back by one
+ *  {@link CommandBatch} (one round trip). Pull resistors and frequencies
+ *  can't be read back and stay unknown till set. <br />
+ *  <br />
+ *  The state is recorded when the command passes the pre-checks, holding
+ *  {@link ClientPigpiod}'s IO lock in the critical section sending it. So
+ *  the records follow the order on the wire, also when threads set the
+ *  same GPIO concurrently. It is forgotten if pigpiod answers with an
+ *  error. A (re-) {@link ClientPigpiod#connect() connect} forgets all.
+ *  Hardware PWM, triggers, waveforms and scripts started by
+ *  {@link ClientPigpiod} make the GPIOs concerned unknown. Other clients
+ *  of the same pigpiod are not seen; when sharing the daemon call
+ *  {@link #resync(ClientPigpiod)} (or don't use a shadow). <br />
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see ClientPigpiod#shadow()
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  77 (16.10.2026) : new
+//           V.  93 (16.10.2026) : recorded in wire order (IO lock)
+public class GpioShadow {
+
+/** Value not known. <br /> */
+   public static final int UNKNOWN = -1;
+
+/** PWM respectively servo pulses known to be off. <br /> */
+   public static final int OFF = -2;
+
+/** Modes of GPIO 0..53. <br /> */
+   final int[] mode = new int[54];
+
+/** Pull resistors of GPIO 0..53. <br /> */
+   final int[] pud = new int[54];
+
+/** PWM duty cycles, requested and got frequencies, servo pulse widths
+ *  of GPIO 0..31. <br />
+ */
+   final int[] duty = new int[32], freqSet = new int[32],
+               freqGot = new int[32], servo = new int[32];
+
+/** Pad strengths. <br /> */
+   final int[] pads = new int[3];
+
+/** Levels known and high (GPIO 0..53 as bits). <br /> */
+   long known, high;
+
+/** Plain outputs: mode output, no PWM, no servo (as bits). <br /> */
+   long plain;
+
+/** Commands suppressed. <br /> */
+   final LongAdder saved = new LongAdder();
+
+/** Make a shadow with all values unknown. <br /> */
+   public GpioShadow(){ clear(); }
+
+/** Forget all. <br /> */
+   public synchronized void clear(){
+     for (int g = 0; g < 54; ++g) forget(g);
+     for (int p = 0; p < 3; ++p) pads[p] = UNKNOWN;
+   } // clear()
+
+/** Forget all about a GPIO. <br />
+ *  @param gpio 0..53 (others are ignored)
+ */
+   public synchronized void forget(final int gpio){
+     if (gpio < 0 || gpio > 53) return;
+     mode[gpio] = pud[gpio] = UNKNOWN;
+     if (gpio < 32) {
+       duty[gpio] = freqSet[gpio] = freqGot[gpio] = servo[gpio] = UNKNOWN;
+     }
+     known &= ~(1L << gpio);
+     plain &= ~(1L << gpio);
+   } // forget(int)
+
+/** Forget the levels and functions of some GPIOs. <br />
+ *  <br />
+ *  This is for waveforms and scripts, which may switch them.
+ *  @param mask the GPIOs 0..31 as bits
+ */
+   public synchronized void forgetLevels(final int mask){
+     final long m = mask & 0xFFFFFFFFL;
+     known &= ~m;
+     plain &= ~m;
+     for (int g = 0; g < 32; ++g) {
+       if ((mask & 1 << g) != 0) duty[g] = servo[g] = UNKNOWN;
+     }
+   } // forgetLevels(int)
+
+/** Update the plain output bit of a GPIO. <br /> */
+   private void plain(final int g){
+     if (mode[g] == PI_OUTPUT && (g > 31
+                           || duty[g] == OFF && servo[g] == OFF)) {
+       plain |= 1L << g;
+     } else {
+       plain &= ~(1L << g);
+     }
+   } // plain(int)
+
+/** Check and record a (pre-checked) setting command. <br />
+ *  <br />
+ *  This is called by {@link ClientPigpiod} for every command passing its
+ *  pre-checks, holding its IO lock till the command is sent.
+ *
+ *  @param cmd the command number
+ *  @param p1 first parameter (GPIO, bits or pad)
+ *  @param p2 second parameter
+ *  @return {@link ClientPigpiod#GO} to send the command; else its result
+ *          (0 or the known frequency) without sending
+ */
+   synchronized int check(final int cmd, final int p1, final int p2){
+     switch (cmd) {
+       case PI_CMD_MODES:
+         if (mode[p1] == p2) break;
+         mode[p1] = p2;
+         known &= ~(1L << p1); // level (of new output) not known
+         if (p1 < 32) duty[p1] = servo[p1] = UNKNOWN;
+         plain(p1);
+         return ClientPigpiod.GO;
+       case PI_CMD_PUD:
+         if (pud[p1] == p2) break;
+         pud[p1] = p2;
+         return ClientPigpiod.GO;
+       case PI_CMD_WRITE: {
+         final long b = 1L << p1;
+         if ((plain & known & b) != 0 && ((high & b) != 0) == (p2 != 0)) {
+           break;
+         }
+         mode[p1] = PI_OUTPUT;
+         duty[p1] = servo[p1] = OFF; // write ends PWM and servo pulses
+         plain |= b;
+         known |= b;
+         high = p2 != 0 ? high | b : high & ~b;
+         return ClientPigpiod.GO;
+       }
+       case PI_CMD_PWM:
+         if (duty[p1] == p2) break;
+         duty[p1] = p2;
+         servo[p1] = OFF;
+         mode[p1] = PI_OUTPUT;
+         known &= ~(1L << p1);
+         plain(p1);
+         return ClientPigpiod.GO;
+       case PI_CMD_SERVO:
+         if (servo[p1] == p2) break;
+         servo[p1] = p2;
+         duty[p1] = OFF;
+         mode[p1] = PI_OUTPUT;
+         known &= ~(1L << p1);
+         plain(p1);
+         return ClientPigpiod.GO;
+       case PI_CMD_PRS: // range changes the duty cycle's meaning
+         if (p1 > 31) return ClientPigpiod.GO;
+         duty[p1] = UNKNOWN;
+         plain(p1);
+         return ClientPigpiod.GO;
+       case PI_CMD_PFS:
+         if (p1 > 31) return ClientPigpiod.GO;
+         if (freqSet[p1] == p2 && freqGot[p1] > 0) {
+           saved.increment();
+           return freqGot[p1];
+         }
+         freqSet[p1] = p2;
+         freqGot[p1] = UNKNOWN;
+         return ClientPigpiod.GO;
+       case PI_CMD_PADS:
+         if (pads[p1] == p2) break;
+         pads[p1] = p2;
+         return ClientPigpiod.GO;
+       case PI_CMD_BS1: case PI_CMD_BC1:
+       case PI_CMD_BS2: case PI_CMD_BC2: {
+         final boolean set = cmd == PI_CMD_BS1 || cmd == PI_CMD_BS2;
+         final long m = cmd == PI_CMD_BS1 || cmd == PI_CMD_BC1
+                       ? p1 & 0xFFFFFFFFL : (p1 & 0x3FFFFFL) << 32;
+         if ((m & ~(plain & known)) == 0
+                               && (set ? (m & ~high) : (m & high)) == 0) {
+           break;
+         }
+         final long p = m & plain; // others are not driven by the bits
+         known |= p;
+         high = set ? high | p : high & ~p;
+         return ClientPigpiod.GO;
+       }
+       default:
+         return ClientPigpiod.GO; // not a setting command or not tracked
+     } // switch
+     saved.increment();
+     return 0; // redundant
+   } // check(3*int)
+
+/** Record a setting command's result. <br />
+ *  <br />
+ *  An error forgets what {@link #check(int, int, int)} recorded.
+ *
+ *  @param cmd the command number
+ *  @param p1 first parameter (GPIO, bits or pad)
+ *  @param ret pigpiod's response
+ */
+   synchronized void done(final int cmd, final int p1, final int ret){
+     if (ret >= 0) {
+       if (cmd == PI_CMD_PFS && p1 >= 0 && p1 < 32) freqGot[p1] = ret;
+       return;
+     }
+     switch (cmd) {
+       case PI_CMD_MODES: case PI_CMD_PUD: case PI_CMD_WRITE:
+       case PI_CMD_PWM: case PI_CMD_SERVO: case PI_CMD_PRS: case PI_CMD_PFS:
+         forget(p1);
+         return;
+       case PI_CMD_PADS:
+         if (p1 >= 0 && p1 < 3) pads[p1] = UNKNOWN;
+         return;
+       case PI_CMD_BS1: case PI_CMD_BC1:
+         known &= ~(p1 & 0xFFFFFFFFL);
+         return;
+       case PI_CMD_BS2: case PI_CMD_BC2:
+         known &= ~((p1 & 0x3FFFFFL) << 32);
+         return;
+       default:
+     } // switch
+   } // done(3*int)
+
+/** Is the command recorded by the shadow. <br />
+ *  @param cmd the command number
+ *  @return true if {@link #check(int, int, int)} might record or suppress
+ */
+   static boolean tracks(final int cmd){
+     switch (cmd) {
+       case PI_CMD_MODES: case PI_CMD_PUD: case PI_CMD_WRITE:
+       case PI_CMD_PWM: case PI_CMD_SERVO: case PI_CMD_PRS: case PI_CMD_PFS:
+       case PI_CMD_PADS: case PI_CMD_BS1: case PI_CMD_BC1:
+       case PI_CMD_BS2: case PI_CMD_BC2:
+         return true;
+       default:
+         return false;
+     }
+   } // tracks(int)
+
+/** Read back the daemon's state. <br />
+ *  <br />
+ *  All is forgotten and the modes of GPIO 0..53, the levels (BR1 BR2),
+ *  the pads and the PWM duty cycles and servo pulse widths of GPIO 0..31
+ *  are read by one {@link CommandBatch}. Levels are recorded for outputs
+ *  only. This is to be used after a reconnect or when other clients may
+ *  have changed the state.
+ *
+ *  @param pI the connection to pigpiod
+ *  @return 0: OK; &lt; 0: the first error reading modes, levels or pads
+ */
+   public int resync(final ClientPigpiod pI){
+     clear();
+     final CommandBatch b = new CommandBatch(124);
+     for (int g = 0; g < 54; ++g) b.add(PI_CMD_MODEG, g, 0);   // 0..53
+     b.add(PI_CMD_BR1, 0, 0).add(PI_CMD_BR2, 0, 0);           // 54 55
+     for (int p = 0; p < 3; ++p) b.add(PI_CMD_PADG, p, 0);     // 56..58
+     for (int g = 0; g < 32; ++g) b.add(PI_CMD_GDC, g, 0);    // 59..90
+     for (int g = 0; g < 32; ++g) b.add(PI_CMD_GPW, g, 0);    // 91..122
+     b.exec(pI);
+     final int[] r = b.results();
+     for (int i = 0; i < 59; ++i) if (r[i] < 0) return r[i];
+     synchronized (this) {
+       final long lev = (r[54] & 0xFFFFFFFFL)
+                                       | (r[55] & 0x3FFFFFL) << 32;
+       for (int g = 0; g < 54; ++g) {
+         mode[g] = r[g];
+         if (g < 32) {
+           final int d = r[59 + g], s = r[91 + g];
+           duty[g] = d >= 0 ? d : d == PI_NOT_PWM_GPIO ? OFF : UNKNOWN;
+           servo[g] = s >= 0 ? s : s == PI_NOT_SERVO_GPIO ? OFF : UNKNOWN;
+         }
+         plain(g);
+       }
+       known = plain;
+       high = lev & plain;
+       for (int p = 0; p < 3; ++p) pads[p] = r[56 + p];
+     } // synchronized
+     return 0;
+   } // resync(ClientPigpiod)
+
+/** The number of commands suppressed. <br /> */
+   public long suppressed(){ return saved.sum(); }
+
+/** A GPIO's mode. <br />
+ *  @param gpio 0..53
+ *  @return the mode as last set or read; {@link #UNKNOWN}
+ */
+   public synchronized int mode(final int gpio){
+     return gpio < 0 || gpio > 53 ? UNKNOWN : mode[gpio];
+   } // mode(int)
+
+/** A GPIO's output level. <br />
+ *  @param gpio 0..53
+ *  @return 0 or 1 if a plain output with known level; else {@link #UNKNOWN}
+ */
+   public synchronized int level(final int gpio){
+     if (gpio < 0 || gpio > 53) return UNKNOWN;
+     final long b = 1L << gpio;
+     if ((known & plain & b) == 0) return UNKNOWN;
+     return (high & b) != 0 ? 1 : 0;
+   } // level(int)
+
+/** State as short text. <br /> */
+   @Override public synchronized String toString(){
+     return "GpioShadow: plain out 0x" + Long.toHexString(plain)
+         + ", known 0x" + Long.toHexString(known & plain) + ", high 0x"
+         + Long.toHexString(high & known & plain) + ", pads " + pads[0]
+         + " " + pads[1] + " " + pads[2] + "; suppressed " + saved.sum();
+   } // toString()
+
+} // GpioShadow (16.10.2026)
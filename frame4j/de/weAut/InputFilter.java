@@ -0,0 +1,452 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+/** <b>Debounce and glitch filter for GPIO inputs</b>.<br />
+ *  <br />
+ *  An object of this class cleans the levels of GPIO 0..31, each by its
+ *  own filter mode: <ul>
+ *  <li>{@link #DEBOUNCE}: a change passes at once, then changes are
+ *      ignored for the time set (lock out); the level valid at its end
+ *      passes then &mdash; no delay for push buttons,</li>
+ *  <li>{@link #GLITCH}: a change passes only when the new level was
+ *      stable for the time set (minimum pulse width); shorter pulses are
+ *      dropped &mdash; delayed by that time,</li>
+ *  <li>{@link #MAJORITY}: the level is the majority of the last N
+ *      samples,</li>
+ *  <li>{@link #NONE}: every change passes.</li></ul>
+ *  The raw levels come either as edges &mdash; the filter is a
+ *  {@link PigpiodNotifier.EdgeListener} &mdash; or as polled bank 0 levels
+ *  ({@link #sample(int, int)}, {@link #sample(ProcessImage)}). The
+ *  filtered edges go to the {@link PigpiodNotifier.EdgeListener}s added
+ *  here, with the tick of the raw edge; the filtered levels may be got
+ *  any time by {@link #levels()}. <br />
+ *  <br />
+ *  As edges don't come when nothing changes, a change waiting for its
+ *  time (glitch) or the end of a lock out (debounce) is decided by the
+ *  next call with a later tick: an edge of any GPIO, a sample or
+ *  {@link #update(int)}, to be called cyclically for edge input (e.g. by
+ *  a {@link CycleScheduler} task with {@link TickClock#toTick(long)}).
+ *  Majority filtered GPIOs with edge input take a sample by every
+ *  {@link #update(int)}. <br />
+ *  <br />
+ *  The configuration and state are kept in primitive arrays by GPIO;
+ *  filtering neither allocates nor blocks. The methods are threadsafe
+ *  (synchronized); the listeners are called by the thread delivering the
+ *  raw levels and must be short. <br />
+ *  Usage scheme (buttons on GPIO 5 and 6, a noisy sensor on 12): <pre>
+ *  InputFilter flt = new InputFilter()
+ *      .debounce(1 &lt;&lt; 5 | 1 &lt;&lt; 6, 20000).glitch(1 &lt;&lt; 12, 500);
+ *  flt.reset(notifier.level(), notifier.lastTick());
+ *  flt.addListener(1 &lt;&lt; 5, (gpio, level, tick) -&gt; startPressed(level));
+ *  notifier.addListener(flt.mask(), flt);
+ *  </pre>
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see PigpiodNotifier
+ *  @see ProcessImage
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  85 (16.10.2026) : new
+public class InputFilter implements PigpiodNotifier.EdgeListener {
+
+/** Mode: no filter. <br /> */
+   public static final int NONE = 0;
+
+/** Mode: pass at once, then lock out for a time (&micro;s). <br /> */
+   public static final int DEBOUNCE = 1;
+
+/** Mode: pass when stable for a time (&micro;s; min. pulse width). <br /> */
+   public static final int GLITCH = 2;
+
+/** Mode: majority of the last N (1..31, odd) samples. <br /> */
+   public static final int MAJORITY = 3;
+
+/** The GPIOs' modes. <br /> */
+   final int[] mode = new int[32];
+
+/** The GPIOs' times (&micro;s) or numbers of samples. <br /> */
+   final int[] param = new int[32];
+
+/** Time of the last raw change (&micro;s, extended tick). <br /> */
+   final long[] since = new long[32];
+
+/** Start of the lock out (debounce; &micro;s, extended tick). <br /> */
+   final long[] lock = new long[32];
+
+/** The last samples (majority), newest in bit 0. <br /> */
+   final int[] hist = new int[32];
+
+/** GPIOs configured (mode set, also {@link #NONE}). <br /> */
+   int used;
+
+/** GPIOs with majority mode. <br /> */
+   int majMask;
+
+/** The raw levels. <br /> */
+   int raw;
+
+/** The filtered levels. <br /> */
+   volatile int out;
+
+/** GPIOs with a change waiting (glitch, debounce lock out). <br /> */
+   int pending;
+
+/** The time: last tick got and its extension. <br /> */
+   int lastTick;
+   long now;
+   boolean timed;
+
+/** Changes passed and dropped. <br /> */
+   long passed, dropped;
+
+/** The listeners' masks and the listeners. <br /> */
+   volatile int[] lsnrMasks = new int[0];
+   volatile PigpiodNotifier.EdgeListener[] lsnrs =
+                                       new PigpiodNotifier.EdgeListener[0];
+
+//----------------------------  configuration  -----------------------------
+
+/** Set a GPIO's filter. <br />
+ *
+ *  @param gpio the GPIO 0..31
+ *  @param mode {@link #NONE}, {@link #DEBOUNCE}, {@link #GLITCH} or
+ *         {@link #MAJORITY}
+ *  @param param the time in &micro;s or the number of samples (odd,
+ *         1..31)
+ *  @return this filter
+ *  @throws IllegalArgumentException on a bad gpio, mode or param
+ */
+   public synchronized InputFilter set(final int gpio, final int mode,
+                                                       final int param){
+     if (gpio < 0 || gpio > 31 || mode < NONE || mode > MAJORITY
+        || param < 0 || mode == MAJORITY && (param < 1 || param > 31)) {
+       throw new IllegalArgumentException("filter " + gpio + ": " + mode
+                                                            + ", " + param);
+     }
+     final int b = 1 << gpio;
+     this.mode[gpio] = mode;
+     this.param[gpio] = param;
+     used |= b;
+     majMask = mode == MAJORITY ? majMask | b : majMask & ~b;
+     hist[gpio] = (raw & b) != 0 ? -1 : 0;
+     pending &= ~b;
+     return this;
+   } // set(3*int)
+
+/** Set the filter of GPIOs. <br />
+ *  @param mask the GPIOs
+ *  @param mode the mode, see {@link #set(int, int, int)}
+ *  @param param the time or number, see {@link #set(int, int, int)}
+ *  @return this filter
+ */
+   public InputFilter setAll(int mask, final int mode, final int param){
+     for (int g = 0; mask != 0; ++g, mask >>>= 1) {
+       if ((mask & 1) != 0) set(g, mode, param);
+     }
+     return this;
+   } // setAll(3*int)
+
+/** Debounce GPIOs. <br />
+ *  @param mask the GPIOs
+ *  @param micros the lock out time in &micro;s
+ *  @return this filter
+ */
+   public InputFilter debounce(final int mask, final int micros){
+     return setAll(mask, DEBOUNCE, micros);
+   } // debounce(2*int)
+
+/** Filter glitches of GPIOs. <br />
+ *  @param mask the GPIOs
+ *  @param micros the minimum pulse width in &micro;s
+ *  @return this filter
+ */
+   public InputFilter glitch(final int mask, final int micros){
+     return setAll(mask, GLITCH, micros);
+   } // glitch(2*int)
+
+/** Filter GPIOs by majority vote. <br />
+ *  @param mask the GPIOs
+ *  @param n the number of samples (odd, 1..31)
+ *  @return this filter
+ */
+   public InputFilter majority(final int mask, final int n){
+     return setAll(mask, MAJORITY, n);
+   } // majority(2*int)
+
+/** The GPIOs configured. <br />
+ *  @return the mask of GPIOs with a mode set (for the notifier)
+ */
+   public synchronized int mask(){ return used; }
+
+/** Set the levels without filtering. <br />
+ *  <br />
+ *  This sets the raw and filtered levels, e.g. to the levels read at
+ *  start, and drops all waiting changes.
+ *
+ *  @param levels the bank 0 levels
+ *  @param tick the time in &micro;s (pigpiod's tick)
+ */
+   public synchronized void reset(final int levels, final int tick){
+     raw = out = levels;
+     pending = 0;
+     for (int g = 0; g < 32; ++g) {
+       hist[g] = (levels >>> g & 1) != 0 ? -1 : 0;
+     }
+     timed = false;
+     time(tick);
+   } // reset(2*int)
+
+//-------------------------------  listeners  ------------------------------
+
+/** Register a listener for filtered edges. <br />
+ *
+ *  @param mask the GPIOs
+ *  @param lsnr the listener
+ */
+   public synchronized void addListener(final int mask,
+                                 final PigpiodNotifier.EdgeListener lsnr){
+     if (lsnr == null || mask == 0) return;
+     final int n = lsnrs.length;
+     final int[] m = new int[n + 1];
+     final PigpiodNotifier.EdgeListener[] l =
+                                   new PigpiodNotifier.EdgeListener[n + 1];
+     System.arraycopy(lsnrMasks, 0, m, 0, n);
+     System.arraycopy(lsnrs, 0, l, 0, n);
+     m[n] = mask;
+     l[n] = lsnr;
+     lsnrMasks = m;
+     lsnrs = l;
+   } // addListener(int, EdgeListener)
+
+/** Unregister a listener. <br />
+ *  <br />
+ *  All registrations of the listener are removed.
+ *  @param lsnr the listener
+ */
+   public synchronized void removeListener(
+                                 final PigpiodNotifier.EdgeListener lsnr){
+     final PigpiodNotifier.EdgeListener[] ol = lsnrs;
+     final int[] om = lsnrMasks;
+     int keep = 0;
+     for (PigpiodNotifier.EdgeListener l : ol) if (l != lsnr) ++keep;
+     if (keep == ol.length) return;
+     final int[] m = new int[keep];
+     final PigpiodNotifier.EdgeListener[] l =
+                                      new PigpiodNotifier.EdgeListener[keep];
+     keep = 0;
+     for (int i = 0; i < ol.length; ++i) if (ol[i] != lsnr) {
+       m[keep] = om[i];
+       l[keep++] = ol[i];
+     }
+     lsnrMasks = m;
+     lsnrs = l;
+   } // removeListener(EdgeListener)
+
+//--------------------------------  filter  --------------------------------
+
+/** A raw edge. <br />
+ *  <br />
+ *  This is the input for {@link PigpiodNotifier} (register with
+ *  {@link #mask()}). Changes waiting are decided first.
+ *
+ *  @param gpio the GPIO changed (0..31)
+ *  @param level the new level 0 or 1
+ *  @param tick the &micro;s tick of the change
+ */
+   @Override public synchronized void edge(final int gpio, final int level,
+                                                           final int tick){
+     if (gpio < 0 || gpio > 31) return;
+     time(tick);
+     decide();
+     final int b = 1 << gpio;
+     if (((raw & b) != 0) == (level != 0)) return; // no change
+     raw ^= b;
+     if ((majMask & b) == 0) in(gpio, b); // majority: by samples
+   } // edge(3*int)
+
+/** Decide the changes waiting. <br />
+ *  <br />
+ *  For edge input this is to be called cyclically (with a tick of the
+ *  same clock); majority filtered GPIOs take a sample.
+ *
+ *  @param tick the &micro;s tick now
+ *  @return the filtered levels
+ */
+   public synchronized int update(final int tick){
+     time(tick);
+     decide();
+     if (majMask != 0) vote(raw);
+     return out;
+   } // update(int)
+
+/** Filter polled levels. <br />
+ *  <br />
+ *  Every GPIO configured takes the level sampled.
+ *
+ *  @param levels the bank 0 levels (as by BR1)
+ *  @param tick the sample's time in &micro;s (any &micro;s clock)
+ *  @return the filtered levels
+ */
+   public synchronized int sample(final int levels, final int tick){
+     time(tick);
+     decide();
+     final int changed = (levels ^ raw) & used & ~majMask;
+     raw = raw & ~used | levels & used;
+     for (int c = changed, g = 0; c != 0; ++g, c >>>= 1) {
+       if ((c & 1) != 0) in(g, 1 << g);
+     }
+     if (majMask != 0) vote(levels);
+     return out;
+   } // sample(2*int)
+
+/** Filter a process image's levels. <br />
+ *
+ *  @param img the image read (in this cycle)
+ *  @return the filtered levels
+ */
+   public int sample(final ProcessImage img){
+     return sample(img.levels(), (int)(img.nanos() / 1000));
+   } // sample(ProcessImage)
+
+/** Advance the time by a tick; wrap and small steps back tolerated. */
+   final void time(final int tick){
+     if (!timed) {
+       timed = true;
+       now = tick & 0xFFFFFFFFL;
+       lastTick = tick;
+       for (int g = 0; g < 32; ++g) since[g] = lock[g] = now - (1L << 32);
+     } else {
+       final int d = tick - lastTick; // signed: wraps over
+       if (d > 0) {
+         now += d;
+         lastTick = tick;
+       }
+     }
+   } // time(int)
+
+/** Handle a raw change of a (not majority) GPIO; the level is raw's. */
+   final void in(final int g, final int b){
+     since[g] = now;
+     final boolean differs = ((raw ^ out) & b) != 0;
+     switch (mode[g]) {
+       case DEBOUNCE:
+         if (now - lock[g] < param[g]) { // locked out: decide at its end
+           if (differs) {
+             pending |= b;
+           } else {
+             pending &= ~b;
+             ++dropped; // bounced back
+           }
+         } else if (differs) {
+           lock[g] = now;
+           pass(g, b, now);
+         }
+         return;
+       case GLITCH:
+         if (differs) {
+           pending |= b; // wait for stability
+         } else {
+           pending &= ~b;
+           ++dropped; // glitch
+         }
+         return;
+       default:
+         if (differs) pass(g, b, now);
+     } // switch
+   } // in(2*int)
+
+/** Decide the waiting changes by the time now. <br /> */
+   final void decide(){
+     for (int p = pending, g = 0; p != 0; ++g, p >>>= 1) {
+       if ((p & 1) == 0) continue;
+       final int b = 1 << g;
+       if (mode[g] == DEBOUNCE) {
+         if (now - lock[g] < param[g]) continue;
+         pending &= ~b;
+         if (((raw ^ out) & b) != 0) { // changed during lock out
+           lock[g] = now;
+           pass(g, b, since[g]);
+         }
+       } else { // GLITCH
+         if (now - since[g] < param[g]) continue;
+         pending &= ~b;
+         if (((raw ^ out) & b) != 0) pass(g, b, since[g]);
+       }
+     } // for
+   } // decide()
+
+/** Take a sample for the majority filtered GPIOs. <br /> */
+   final void vote(final int levels){
+     for (int m = majMask, g = 0; m != 0; ++g, m >>>= 1) {
+       if ((m & 1) == 0) continue;
+       final int b = 1 << g;
+       final int n = param[g];
+       final int h = hist[g] << 1 | levels >>> g & 1;
+       hist[g] = h;
+       final boolean hi = Integer.bitCount(h & (int)((1L << n) - 1)) * 2 > n;
+       if (hi != ((out & b) != 0)) {
+         since[g] = now;
+         pass(g, b, now);
+       }
+     } // for
+   } // vote(int)
+
+/** Pass a change: toggle the output and call the listeners. <br /> */
+   final void pass(final int g, final int b, final long t){
+     final int o = out ^ b;
+     out = o;
+     ++passed;
+     final int[] m = lsnrMasks;
+     final PigpiodNotifier.EdgeListener[] l = lsnrs;
+     for (int i = 0; i < l.length && i < m.length; ++i) {
+       if ((m[i] & b) != 0) l[i].edge(g, o >>> g & 1, (int)t);
+     }
+   } // pass(2*int, long)
+
+//--------------------------------  results  -------------------------------
+
+/** The filtered levels. <br />
+ *  @return bank 0 levels as bit mask
+ */
+   public final int levels(){ return out; }
+
+/** A filtered level. <br />
+ *  @param gpio the GPIO 0..31
+ *  @return true if high
+ */
+   public final boolean isHi(final int gpio){
+     return (out >>> gpio & 1) != 0;
+   } // isHi(int)
+
+/** The GPIOs with a change waiting. <br /> */
+   public synchronized int pending(){ return pending; }
+
+/** The number of changes passed. <br /> */
+   public synchronized long passed(){ return passed; }
+
+/** The number of raw changes dropped (bounces, glitches). <br /> */
+   public synchronized long dropped(){ return dropped; }
+
+/** State as short text. <br /> */
+   @Override public synchronized String toString(){
+     return "InputFilter " + Integer.toHexString(used) + ": levels "
+         + Integer.toHexString(out) + " (raw " + Integer.toHexString(raw)
+         + "), " + passed + " passed, " + dropped + " dropped, pending "
+         + Integer.toHexString(pending);
+   } // toString()
+
+} // InputFilter (16.10.2026)
@@ -0,0 +1,428 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/** <b>Service for 1-wire thermometers</b>.<br />
+ *  <br />
+ *  An object of this class finds all thermometers (DS18B20, DS18S20,
+ *  DS1822, DS28EA00, MAX31850) on all 1-wire bus masters of the Pi's
+ *  kernel driver and reads them cyclically, each one by an own (daemon)
+ *  thread. As a reading blocks for the conversion (some 750 ms) all
+ *  sensors are so read in parallel. <br />
+ *  <br />
+ *  Every {@link Sensor} keeps its pseudo file open and reads it into a
+ *  direct buffer made once; the value is parsed from the bytes (no String,
+ *  no allocation). The latest value and its age are cached; registered
+ *  {@link Listener}s get every good reading. <br />
+ *  Usage scheme: <pre>
+ *  OneWireTherm w1 = new OneWireTherm(2000);  // every 2 s
+ *  w1.addListener((s, milliC) -&gt; log(s.id, milliC));
+ *  w1.start();
+ *  ...
+ *  OneWireTherm.Sensor s = w1.sensor("28-02049245dde6");
+ *  if (s != null &amp;&amp; s.ageMillis() &lt; 5000) use(s.celsius());
+ *  </pre>
+ *  The root directory may be any directory tree of the same form as
+ *  {@code /sys/bus/w1/devices} (bus masters {@code w1_bus_master*} with
+ *  sensor directories containing {@code w1_slave}), e.g. for tests
+ *  without a Pi. <br />
+ *  <br />
+ *  Hint: Like {@link de.weAut.demos.Pi1WireThDemo} and contrary to the
+ *  pigpiod based IO this works only on the Pi in question. <br />
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see de.weAut.demos.Pi1WireThDemo
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  84 (16.10.2026) : new
+public class OneWireTherm implements AutoCloseable {
+
+/** Error: CRC check failed (no YES). <br /> */
+   public static final int BAD_CRC = -1;
+
+/** Error: the pseudo file's content is not as expected. <br /> */
+   public static final int BAD_FORMAT = -2;
+
+/** Error: the pseudo file can't be opened or read. <br /> */
+   public static final int BAD_READ = -3;
+
+/** The default root: the kernel driver's devices. <br /> */
+   public static final String SYS_ROOT = "/sys/bus/w1/devices";
+
+/** The root directory. <br /> */
+   public final File root;
+
+/** The period of reading a sensor in ms. <br />
+ *  <br />
+ *  A reading's conversion time counts; a period shorter than that makes
+ *  continuous reading.
+ */
+   public final int periodMs;
+
+/** The sensors found. <br /> */
+   final List<Sensor> sensors = new CopyOnWriteArrayList<>();
+
+/** Running (started and not closed). <br /> */
+   volatile boolean running;
+
+//-------------------------------  listeners  ------------------------------
+
+/** <b>Listener for temperature readings</b>. <br /> */
+   @FunctionalInterface
+   public interface Listener {
+
+/** A sensor was read. <br />
+ *  <br />
+ *  This is called by the sensor's thread. It must not block for long.
+ *
+ *  @param s the sensor
+ *  @param milliC the temperature in m&deg;C
+ */
+      void reading(Sensor s, int milliC);
+   } // Listener
+
+/** The listeners. <br /> */
+   volatile Listener[] listeners = new Listener[0];
+
+/** Register a listener. <br />
+ *  <br />
+ *  It will get the good readings of all sensors.
+ *
+ *  @param lsnr the listener
+ */
+   public synchronized void addListener(final Listener lsnr){
+     if (lsnr == null) return;
+     final Listener[] old = listeners;
+     final Listener[] neu = new Listener[old.length + 1];
+     System.arraycopy(old, 0, neu, 0, old.length);
+     neu[old.length] = lsnr;
+     listeners = neu;
+   } // addListener(Listener)
+
+/** Unregister a listener. <br />
+ *  <br />
+ *  All registrations of the listener are removed.
+ *
+ *  @param lsnr the listener
+ */
+   public synchronized void removeListener(final Listener lsnr){
+     final Listener[] old = listeners;
+     int keep = 0;
+     for (Listener l : old) if (l != lsnr) ++keep;
+     if (keep == old.length) return;
+     final Listener[] neu = new Listener[keep];
+     keep = 0;
+     for (Listener l : old) if (l != lsnr) neu[keep++] = l;
+     listeners = neu;
+   } // removeListener(Listener)
+
+//--------------------------------  sensors  -------------------------------
+
+/** <b>A 1-wire thermometer</b>. <br />
+ *  <br />
+ *  The cached values may be read by any thread at any time.
+ */
+   public final class Sensor implements Runnable {
+
+/** The sensor's id, like 28-02049245dde6. <br /> */
+     public final String id;
+
+/** The bus master's name, like w1_bus_master1. <br /> */
+     public final String bus;
+
+/** The pseudo file read. <br /> */
+     public final File file;
+
+     final ByteBuffer buf = ByteBuffer.allocateDirect(256);
+     FileChannel ch;
+     Thread thread;
+     int got; // parsed value
+
+     volatile int milliC;
+     volatile long nanos; // of the last good reading; 0: none
+     volatile long readings, errors;
+     volatile int lastErr;
+
+     Sensor(final String id, final String bus, final File file){
+       this.id = id;
+       this.bus = bus;
+       this.file = file;
+     } // Sensor(2*String, File)
+
+/** Read cyclically. <br />
+ *  <br />
+ *  This is the sensor's thread's work.
+ */
+     @Override public void run(){
+       final long period = periodMs * 1000000L;
+       long due = System.nanoTime();
+       while (running) {
+         final int ret = read();
+         if (!running) break; // closed while reading
+         if (ret == 0) {
+           final int v = got;
+           milliC = v;
+           nanos = System.nanoTime();
+           ++readings; // one writer
+           for (Listener l : listeners) {
+             try {
+               l.reading(this, v);
+             } catch (RuntimeException e) { } // listener's failure
+           }
+         } else {
+           lastErr = ret;
+           ++errors;
+         }
+         due += period;
+         final long now = System.nanoTime();
+         if (due - now < 0) due = now; // no catching up
+         try {
+           Thread.sleep((due - now) / 1000000);
+         } catch (InterruptedException e) {
+           break;
+         }
+       } // while
+       closeFile();
+     } // run()
+
+/** Read the sensor once. <br />
+ *  <br />
+ *  This blocks for the conversion. The pseudo file is opened once and
+ *  read from position 0 by one read, which makes a new conversion.
+ *
+ *  @return 0: OK, the value is in got; else error (&lt; 0)
+ */
+     int read(){
+       try {
+         if (ch == null) {
+           ch = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+         }
+         buf.clear();
+         final int len = ch.read(buf, 0); // one read: one conversion
+         return len <= 0 ? BAD_FORMAT : parse(buf, len);
+       } catch (IOException e) {
+         closeFile(); // re-open next time
+         return BAD_READ;
+       }
+     } // read()
+
+/** Parse the pseudo file's content. <br />
+ *  <br />
+ *  The content is like <pre>
+ *  63 01 55 05 7f 7e 81 66 74 : crc=74 YES
+ *  63 01 55 05 7f 7e 81 66 74 t=22187
+ *  </pre>
+ *  @param b the bytes read (at 0)
+ *  @param len their number
+ *  @return 0: OK, the value in m&deg;C is in got; else error (&lt; 0)
+ */
+     int parse(final ByteBuffer b, final int len){
+       int i = 0;
+       while (i < len && b.get(i) != '\n') ++i; // end of line 1
+       if (i >= len || i < 3) return BAD_FORMAT;
+       if (b.get(i - 3) != 'Y' || b.get(i - 2) != 'E'
+                               || b.get(i - 1) != 'S') return BAD_CRC;
+       int j = i + 1;
+       while (j + 1 < len && (b.get(j) != 't' || b.get(j + 1) != '=')) ++j;
+       j += 2;
+       if (j >= len) return BAD_FORMAT;
+       final boolean neg = b.get(j) == '-';
+       if (neg) ++j;
+       int v = 0, digits = 0;
+       for (; j < len; ++j) {
+         final int c = b.get(j);
+         if (c < '0' || c > '9') break;
+         if (++digits > 7) return BAD_FORMAT;
+         v = v * 10 + c - '0';
+       }
+       if (digits == 0) return BAD_FORMAT;
+       got = neg ? -v : v;
+       return 0;
+     } // parse(ByteBuffer, int)
+
+/** Close the pseudo file. <br /> */
+     void closeFile(){
+       final FileChannel c = ch;
+       ch = null;
+       if (c != null) try {
+         c.close();
+       } catch (IOException e) { } // ignore
+     } // closeFile()
+
+/** The last good reading in m&deg;C. <br />
+ *  @return the temperature; 0 if none (see {@link #ageMillis()})
+ */
+     public int milliC(){ return milliC; }
+
+/** The last good reading in &deg;C. <br /> */
+     public double celsius(){ return milliC / 1000.0; }
+
+/** The last good reading's age. <br />
+ *  @return the age in ms; -1: no reading yet
+ */
+     public long ageMillis(){
+       final long t = nanos;
+       return t == 0 ? -1 : (System.nanoTime() - t) / 1000000;
+     } // ageMillis()
+
+/** The number of good readings. <br /> */
+     public long readings(){ return readings; }
+
+/** The number of failed readings. <br /> */
+     public long errors(){ return errors; }
+
+/** The last failed reading's error; 0: none. <br /> */
+     public int lastErr(){ return lastErr; }
+
+/** State as short text. <br /> */
+     @Override public String toString(){
+       return id + " (" + bus + "): " + (nanos == 0 ? "---"
+           : celsius() + " C, " + ageMillis() + " ms ago") + ", "
+           + readings + " readings, " + errors + " errors";
+     } // toString()
+   } // Sensor
+
+/** Make a service for the Pi's 1-wire thermometers. <br />
+ *
+ *  @param periodMs the period of reading a sensor in ms
+ */
+   public OneWireTherm(final int periodMs){
+     this(new File(SYS_ROOT), periodMs);
+   } // OneWireTherm(int)
+
+/** Make a service for 1-wire thermometers. <br />
+ *
+ *  @param root the devices' directory, like {@link #SYS_ROOT}
+ *  @param periodMs the period of reading a sensor in ms
+ */
+   public OneWireTherm(final File root, final int periodMs){
+     this.root = root;
+     this.periodMs = periodMs < 1 ? 1 : periodMs;
+   } // OneWireTherm(File, int)
+
+/** Is a device id one of a thermometer. <br />
+ *  <br />
+ *  The form is family (2 hex digits), '-', 12 hex digits; the families
+ *  are 10, 22, 28, 3b and 42.
+ *  @param id the device directory's name
+ *  @return true if a thermometer
+ */
+   public static boolean isThermometer(final String id){
+     if (id.length() != 15 || id.charAt(2) != '-') return false;
+     for (int i = 0; i < 15; ++i) {
+       if (i != 2 && Character.digit(id.charAt(i), 16) < 0) return false;
+     }
+     final String fam = id.substring(0, 2).toLowerCase();
+     return "10".equals(fam) || "22".equals(fam) || "28".equals(fam)
+                             || "3b".equals(fam) || "42".equals(fam);
+   } // isThermometer(String)
+
+/** Find the thermometers. <br />
+ *  <br />
+ *  All bus masters' directories are searched. New sensors are added and,
+ *  if running, started. This may be repeated for sensors plugged later.
+ *
+ *  @return the number of new sensors
+ */
+   public synchronized int discover(){
+     final File[] masters = root.listFiles((d, n) ->
+                                            n.startsWith("w1_bus_master"));
+     if (masters == null) return 0;
+     int neu = 0;
+     for (File m : masters) {
+       final File[] devs = m.listFiles();
+       if (devs == null) continue;
+       for (File d : devs) {
+         final String id = d.getName();
+         if (!isThermometer(id) || sensor(id) != null) continue;
+         final File f = new File(d, "w1_slave");
+         if (!f.isFile()) continue;
+         final Sensor s = new Sensor(id, m.getName(), f);
+         sensors.add(s);
+         ++neu;
+         if (running) start(s);
+       } // for devices
+     } // for masters
+     return neu;
+   } // discover()
+
+/** Start reading. <br />
+ *  <br />
+ *  The sensors are discovered (again) and each one is read by its own
+ *  thread.
+ *
+ *  @return the number of sensors
+ */
+   public synchronized int start(){
+     if (!running) {
+       running = true;
+       for (Sensor s : sensors) start(s);
+     }
+     discover();
+     return sensors.size();
+   } // start()
+
+/** Start a sensor's thread. <br /> */
+   final void start(final Sensor s){
+     if (s.thread != null && s.thread.isAlive()) return;
+     final Thread t = new Thread(s, "w1-" + s.id);
+     t.setDaemon(true);
+     s.thread = t;
+     t.start();
+   } // start(Sensor)
+
+/** The sensors found. <br /> */
+   public List<Sensor> sensors(){ return sensors; }
+
+/** A sensor by id. <br />
+ *  @param id like 28-02049245dde6
+ *  @return the sensor; null if not found
+ */
+   public Sensor sensor(final String id){
+     for (Sensor s : sensors) if (s.id.equalsIgnoreCase(id)) return s;
+     return null;
+   } // sensor(String)
+
+/** Stop reading. <br />
+ *  <br />
+ *  The sensors' threads are stopped (interrupted); they close their
+ *  pseudo files. The cached values stay.
+ */
+   @Override public synchronized void close(){
+     running = false;
+     for (Sensor s : sensors) {
+       final Thread t = s.thread;
+       if (t != null) t.interrupt();
+     }
+   } // close()
+
+/** State as short text. <br /> */
+   @Override public String toString(){
+     final StringBuilder sb = new StringBuilder("OneWireTherm ");
+     sb.append(root).append(": ").append(sensors.size()).append(" sensors");
+     for (Sensor s : sensors) sb.append("\n  ").append(s);
+     return sb.toString();
+   } // toString()
+
+} // OneWireTherm (16.10.2026)
@@ -0,0 +1,195 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import static de.weAut.PiGpioDdefs.*; // pigpio library defines
+
+/** <b>Output process image for PLC like cycles</b>.<br />
+ *  <br />
+ *  An object of this class records the desired levels of binary outputs
+ *  (GPIO 0..31) set during a cycle, instead of writing each by an own
+ *  command as {@link ClientPigpiod#setOutput(int, boolean)} does. At the
+ *  cycle's end {@link #flush()} writes all changes by at most one
+ *  {@link PiGpioDdefs#PI_CMD_BS1 BS1} and one
+ *  {@link PiGpioDdefs#PI_CMD_BC1 BC1} command (sent together as one
+ *  {@link CommandBatch}, i.e. one round trip). <br />
+ *  <br />
+ *  The commands are computed from the difference to the levels flushed
+ *  before. Hence, setting an output to its unchanged level costs nothing
+ *  at all. A blink or control loop setting some LEDs per step would need
+ *  one round trip per step instead of one per LED. <br />
+ *  <br />
+ *  GPIOs used by this image the first time are made outputs (by
+ *  {@link ClientPigpiod#setAsOutputs(int)}) as BS1 and BC1 only work on
+ *  outputs. <br />
+ *  <br />
+ *  An {@link OutputImage} is to be used by one (cycle) thread. It assumes
+ *  its outputs are not written otherwise; if that may be the case
+ *  {@link #invalidate()} forces the next {@link #flush()} to write all.
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see ProcessImage
+ *  @see ClientPigpiod
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  66 (16.10.2026) : new
+public class OutputImage {
+
+/** The connection the outputs are written by. <br /> */
+   public final ClientPigpiod pigpio;
+
+/** The outputs used by this image as bit mask. <br /> */
+   int used;
+
+/** The desired levels (of the outputs used). <br /> */
+   int desired;
+
+/** The levels flushed (written successfully) last. <br /> */
+   int flushed;
+
+/** The outputs the flushed level of which is known. <br /> */
+   int known;
+
+/** The batch for BS1 and BC1. <br /> */
+   final CommandBatch batch = new CommandBatch(4);
+
+/** Number of flushes and of commands sent by them. <br /> */
+   int flushCnt, cmdCnt;
+
+/** Make an output process image. <br />
+ *
+ *  @param pigpio the connection to the Pi; not null
+ */
+   public OutputImage(final ClientPigpiod pigpio){
+     this.pigpio = pigpio;
+   } // OutputImage(ClientPigpiod)
+
+/** Set an output. <br />
+ *  <br />
+ *  The desired level is just recorded. It will be written by the next
+ *  {@link #flush()} if it differs from the level written before.
+ *
+ *  @param gpio a legal BCM IO number 0..31; {@link PiVals#PINig} is
+ *         ignored
+ *  @param level the output level desired
+ *  @return 0: OK; &lt; 0: error
+ *  @see ClientPigpiod#setOutput(int, boolean)
+ */
+   public int setOutput(final int gpio, final boolean level){
+     if (gpio == ThePi.PINig) return 0; // no action ignore
+     if (gpio < 0 || gpio > 31) return PI_BAD_USER_GPIO;
+     final int bit = 1 << gpio;
+     used |= bit;
+     desired = level ? desired | bit : desired & ~bit;
+     return 0;
+   } // setOutput(int, boolean)
+
+/** Set a set of outputs. <br />
+ *
+ *  @param lesOuts bank mask of outputs to be set
+ *  @param level OFF or ON
+ *  @return 0: OK
+ *  @see ClientPigpiod#setOutSet(int, boolean)
+ */
+   public int setOutSet(final int lesOuts, final boolean level){
+     used |= lesOuts;
+     desired = level ? desired | lesOuts : desired & ~lesOuts;
+     return 0;
+   } // setOutSet(int, boolean)
+
+/** Write the changed outputs. <br />
+ *  <br />
+ *  All outputs with a desired level different from the one flushed before
+ *  (or unknown) are written by at most one BS1 and one BC1. No command is
+ *  sent if nothing changed.<br />
+ *  On error the outputs concerned are marked unknown, so the next flush
+ *  will write them again.
+ *
+ *  @return 0: OK; &lt; 0: error of BS1 or BC1 (or making outputs)
+ */
+   public int flush(){
+     ++flushCnt;
+     final int newOut = used & ~pigpio.areOut();
+     if (newOut != 0) { // first use: BS1 / BC1 need outputs
+       if ((pigpio.setAsOutputs(newOut) & newOut) != newOut) {
+         known &= ~newOut;
+         return PI_NOT_PERMITTED;
+       }
+     }
+     final int toSet = used & desired & ~(flushed & known);
+     final int toClr = used & ~desired & ~(~flushed & known);
+     if ((toSet | toClr) == 0) return 0; // nothing changed
+     batch.clear().setOutSet(toSet, true).setOutSet(toClr, false);
+     final int[] res = pigpio.execBatch(batch);
+     cmdCnt += batch.size();
+     int ret = 0, i = 0;
+     if (toSet != 0) {
+       ret = upd(res[i++], toSet, true);
+     }
+     if (toClr != 0) {
+       final int r = upd(res[i], toClr, false);
+       if (ret == 0) ret = r;
+     }
+     return ret;
+   } // flush()
+
+/** Update the flushed state by a command's result. <br /> */
+   private int upd(final int res, final int mask, final boolean level){
+     if (res < 0) {
+       known &= ~mask;
+       return res;
+     }
+     known |= mask;
+     flushed = level ? flushed | mask : flushed & ~mask;
+     return 0;
+   } // upd(2*int, boolean)
+
+/** Forget the levels flushed. <br />
+ *  <br />
+ *  The next {@link #flush()} will write all outputs used.
+ */
+   public void invalidate(){ known = 0; }
+
+/** The desired levels. <br />
+ *  @return the desired levels of the outputs used as bit mask
+ */
+   public final int desired(){ return desired & used; }
+
+/** The levels flushed. <br />
+ *  @return the levels (bank 0 mask) of the outputs written successfully
+ *          and not invalidated
+ */
+   public final int flushed(){ return flushed & known; }
+
+/** The outputs used. <br />
+ *  @return the outputs set by this image so far as bit mask
+ */
+   public final int used(){ return used; }
+
+/** Number of flushes. <br /> */
+   public final int flushCount(){ return flushCnt; }
+
+/** Number of commands sent by the flushes. <br /> */
+   public final int cmdCount(){ return cmdCnt; }
+
+/** State as short text. <br /> */
+   @Override public String toString(){
+     return "outputs 0x" + Integer.toHexString(desired & used) + " flushed 0x"
+         + Integer.toHexString(flushed & known) + " " + cmdCnt + " cmds / "
+         + flushCnt + " flushes";
+   } // toString()
+
+} // OutputImage (16.10.2026)
@@ -0,0 +1,1257 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import static de.weAut.PiGpioDdefs.*;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntBinaryOperator;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+
+import de.frame4j.util.MinDoc;
+
+/** <b>The (JUnit) Tests for this package</b>. <br />
+ *  <br />
+ *  This class contains the tests of the pigpiod client and its helpers,
+ *  run against a {@link PigpiodSim} on a local port and against files in
+ *  temporary directories &mdash; no Raspberry Pi needed. <br />
+ *  <br />
+ *  JUnit Tests may be started by the standard JUnit 4.x annotation
+ *  mechanism. There's also a static ({@link #main(String[])}-) starter as
+ *  application. <br />
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see PigpiodSim
+ *  @see PigpiodBench
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  98 (17.10.2026) : new (stress)
+//           V.  99 (17.10.2026) : I2C, SPI, serial ext loopback test
+//           V. 100 (17.10.2026) : GPIO shadow test
+//           V. 101 (17.10.2026) : reconnect test
+//           V. 102 (17.10.2026) : SampleRing overrun and torn sample test
+//           V. 103 (17.10.2026) : SampleStore round trip test
+//           V. 104 (17.10.2026) : OneWireTherm test on a w1 tree
+//           V. 105 (17.10.2026) : InputFilter timing test
+//           V. 106 (17.10.2026) : pipelined order and timeout test
+//           V. 107 (17.10.2026) : batch error count and lost connection test
+//           V. 108 (17.10.2026) : no reconnect over disconnect test
+//           V. 111 (17.10.2026) : NIO results and watchdog test
+//           V. 112 (17.10.2026) : ProcessImage levels and error test
+//           V. 113 (17.10.2026) : notifier edges and added GPIO test
+//           V. 114 (17.10.2026) : OutputImage coalescing test
+//           V. 115 (17.10.2026) : PiFleet test
+//           V. 116 (17.10.2026) : PigpiodSim wire format test
+//           V. 117 (17.10.2026) : PigpiodBench smoke test
+//           V. 118 (17.10.2026) : CmdStats histogram and JMX test
+//           V. 119 (17.10.2026) : CycleScheduler test
+//           V. 120 (17.10.2026) : precise delay test
+//           V. 121 (17.10.2026) : CycleStats test
+//           V. 122 (17.10.2026) : Waveform encoding and commands test
+//           V. 123 (17.10.2026) : ScriptManager test
+//           V. 124 (17.10.2026) : TickClock fit test
+//           V. 125 (17.10.2026) : recorder / replayer round trip test
+@MinDoc(
+  copyright = "Copyright 2026  Frame4J contributors",
+  version   = "V.$Revision$",
+  lastModified   = "$Date$",
+  usage   = "java de.weAut.PackageTest or JUnit mechanisms",
+  purpose = "(JUnit) Tests for package de.weAut"
+) public class PackageTest {
+
+/** A connection to sim. <br />
+ *
+ *  @param mode 0: classic, 1: NIO, 2: NIO pipelined
+ *  @throws IOException if ThePi can't be made
+ */
+   static ClientPigpiod client(final PigpiodSim sim, final int mode)
+                                                      throws IOException {
+     final ClientPigpiod c = new ClientPigpiod(ThePi.make("localhost",
+                                   sim.getPort(), 3000, 3), null, mode > 0);
+     if (mode == 2) c.stdCmdAsync(PI_CMD_TICK, 0, 0).join(); // pipelined
+     return c;
+   } // client(PigpiodSim, int)
+
+/** The transports' names by mode. <br /> */
+   static final String[] MODES = {"classic ", "nio ", "nio.pipelined "};
+
+/** The number of control tasks sharing one connection. <br />
+ *  <br />
+ *  10000 with virtual threads (Java 21+); 200 as platform threads else.
+ */
+   static final int TASKS = PiUtil.virtualThreads() != null ? 10000 : 200;
+
+/** The heartbeat's (1 ms sleep) maximum lateness allowed in &micro;s. */
+   static final long LATE_MAX_US = 100000;
+
+/** The stress run's maximum wall time (per transport) in ms. <br /> */
+   static final long WALL_MAX_MS = 30000;
+
+/** Stress one connection by many control tasks (virtual threads). <br />
+ *  <br />
+ *  As {@link PigpiodBench}'s stress mode on a 20 &micro;s latency
+ *  simulator: each of {@link #TASKS} tasks sets an output and reads an
+ *  input once per period for 1 s; the period is 50 &micro;s per task
+ *  (10 ms with 200 tasks, 0.5 s with 10000). No cycle may fail, the
+ *  heartbeat must not be starved (no carrier pinned by the IO lock) and
+ *  all tasks must end within {@link #WALL_MAX_MS}.
+ */
+   @Test public void testStress() throws IOException, InterruptedException {
+     try (PigpiodSim sim = new PigpiodSim(0)) {
+       sim.setLatency(20, 0);
+       final long period = TASKS * 50000L;
+       for (int mode = 0; mode < 3; ++mode) {
+         final String t = MODES[mode];
+         final ClientPigpiod c = client(sim, mode);
+         c.setAsOutputs(1 << 17);
+         final LongAdder cycles = new LongAdder(), errs = new LongAdder();
+         final AtomicLong lateMax = new AtomicLong();
+         final AtomicBoolean done = new AtomicBoolean();
+         final Thread hb = PiUtil.startVirtual(() -> {
+           try {
+             while (!done.get()) { // till all tasks ended
+               final long s = System.nanoTime();
+               Thread.sleep(1);
+               final long l = (System.nanoTime() - s - 1000000) / 1000;
+               if (l > lateMax.get()) lateMax.set(l);
+             }
+           } catch (InterruptedException e) {} // end
+         });
+         final long t0 = System.nanoTime();
+         final long end = t0 + 1000000000L;
+         final Thread[] thr = new Thread[TASKS];
+         for (int i = 0; i < TASKS; ++i) {
+           final boolean level = (i & 1) == 0;
+           thr[i] = PiUtil.startVirtual(() -> {
+             try {
+               long next = System.nanoTime();
+               do { // at least once, even if started late
+                 if (c.setOutput(17, level) < 0 | c.getInp(4) < 0) {
+                   errs.increment();
+                 }
+                 cycles.increment();
+                 next += period;
+                 final long sl = next - System.nanoTime();
+                 if (sl > 0) Thread.sleep(sl / 1000000, (int)(sl % 1000000));
+               } while (next < end);
+             } catch (InterruptedException e) {} // end
+           });
+         } // for
+         for (Thread th : thr) th.join(WALL_MAX_MS);
+         final long wallMs = (System.nanoTime() - t0) / 1000000;
+         done.set(true);
+         hb.join(1000);
+         c.disconnect();
+         assertTrue(t + TASKS + " tasks in " + wallMs + " ms",
+                                                    wallMs < WALL_MAX_MS);
+         assertTrue(t + "cycles done " + cycles.sum(), cycles.sum() >= TASKS);
+         assertTrue(t + "failed cycles " + errs.sum(), errs.sum() == 0);
+         assertTrue(t + "heartbeat late max " + lateMax.get() + " us",
+                                              lateMax.get() < LATE_MAX_US);
+       } // for modes
+     }
+   } // testStress()
+
+/** Command extensions on the simulator's loopback I2C, SPI and serial. */
+   @Test public void testExtLoopback() throws IOException {
+     try (PigpiodSim sim = new PigpiodSim(0)) {
+       for (int mode = 0; mode < 3; ++mode) {
+         final String t = MODES[mode];
+         final ClientPigpiod c = client(sim, mode);
+         final int h = c.i2cOpen(1, 0x48, 0);
+         assertTrue(t + "i2cOpen " + h, h >= 0);
+         final byte[] w = {1, 2, 3, 4, 5, 6};
+         assertTrue(t + "i2cWriteBlock", c.i2cWriteBlock(h, 10, w, 1, 4) == 0);
+         final byte[] rd = new byte[8];
+         assertTrue(t + "i2cReadBlock", c.i2cReadBlock(h, 10, rd, 2, 4) == 4
+                                            && rd[2] == 2 && rd[5] == 5);
+         assertTrue(t + "i2cWriteDevice", c.i2cWriteDevice(h, w, 0, 6) == 0);
+         final ByteBuffer bb = ByteBuffer.allocateDirect(6);
+         assertTrue(t + "i2cReadDevice(ByteBuffer)", c.i2cReadDevice(h, bb)
+                       == 6 && bb.position() == 6 && bb.get(5) == 6);
+         assertTrue(t + "i2cClose", c.i2cClose(h) == 0
+                                     && c.i2cClose(h) == PI_BAD_HANDLE);
+
+         final int s = c.spiOpen(0, 1000000, 0);
+         final byte[] tx = new byte[300], rx = new byte[300];
+         for (int i = 0; i < tx.length; ++i) tx[i] = (byte)i;
+         assertTrue(t + "spiXfer 256", c.spiXfer(s, tx, 0, rx, 0, 256) == 256
+                                  && rx[199] == (byte)199 && rx[255] == -1);
+         final ByteBuffer txB = ByteBuffer.wrap(new byte[]{7, 8, 9});
+         final ByteBuffer rxB = ByteBuffer.allocate(2);
+         assertTrue(t + "spiXfer surplus dropped", c.spiXfer(s, txB, rxB)
+                          == 3 && rxB.get(1) == 8 && !txB.hasRemaining());
+         assertTrue(t + "in sync after drop", c.getMode(4) >= 0);
+         assertTrue(t + "spi count", c.spiXfer(s, tx, 0, rx, 0, 257)
+                                                      == PI_BAD_SPI_COUNT);
+         assertTrue(t + "in sync after count", c.getMode(4) >= 0);
+         c.spiClose(s);
+
+         final int z = c.serOpen("/dev/serial0", 9600, 0);
+         assertTrue(t + "serWrite", c.serWrite(z, "hello".getBytes(), 0, 5)
+                                    == 0 && c.serDataAvailable(z) == 5);
+         final byte[] sr = new byte[10];
+         assertTrue(t + "serRead", c.serRead(z, sr, 0, 10) == 5
+                                                        && sr[4] == 'o');
+         assertTrue(t + "serRead none", c.serRead(z, sr, 0, 10)
+                                                  == PI_SER_READ_NO_DATA);
+         c.serClose(z);
+         c.disconnect();
+       } // for modes
+     }
+   } // testExtLoopback()
+
+/** The GPIO shadow: suppression of repeated commands and resync. <br /> */
+   @Test public void testShadow() throws IOException {
+     try (PigpiodSim sim = new PigpiodSim(0)) {
+       for (int mode = 0; mode < 3; ++mode) {
+         final String t = MODES[mode];
+         final ClientPigpiod c = client(sim, mode);
+         c.setMode(17, PI_INPUT);
+         c.setOutput(18, false);
+         assertTrue(t + "resync", c.useShadow(true) == 0);
+         final GpioShadow sh = c.shadow();
+         assertTrue(t + "read back", sh.mode(17) == PI_INPUT
+                        && sh.mode(18) == PI_OUTPUT && sh.level(18) == 0);
+         long n0 = sim.commands();
+         for (int i = 0; i < 100; ++i) {
+           c.setMode(17, PI_INPUT);
+           c.setOutput(18, false);
+         }
+         assertTrue(t + "all suppressed", sim.commands() == n0
+                                                && sh.suppressed() >= 200);
+         n0 = sim.commands();
+         c.setOutput(18, true);
+         c.setOutput(18, true);
+         c.setOutSet(1 << 18, true);
+         assertTrue(t + "write once", sim.commands() - n0 == 1
+                                                    && sh.level(18) == 1);
+         n0 = sim.commands();
+         c.setPWMcycle(18, 100);
+         c.setPWMcycle(18, 100);
+         assertTrue(t + "pwm once, level unknown", sim.commands() - n0 == 1
+                                                   && sh.level(18) == -1);
+         c.setOutput(18, false);
+         assertTrue(t + "write after pwm sent", sim.commands() - n0 == 2
+                                                    && sh.level(18) == 0);
+         n0 = sim.commands();
+         new CommandBatch().setMode(22, PI_OUTPUT).setMode(22, PI_OUTPUT)
+                                       .write(22, 1).write(22, 1).exec(c);
+         assertTrue(t + "batch suppressed", sim.commands() - n0 == 2
+                                                    && sh.level(22) == 1);
+         c.disconnect();
+         c.connect();
+         assertTrue(t + "forgot on connect", sh.mode(17) == -1);
+         assertTrue(t + "resync after connect", c.useShadow(true) == 0
+                                           && c.shadow().level(22) == 1);
+         c.useShadow(false);
+         n0 = sim.commands();
+         c.setMode(17, PI_INPUT);
+         assertTrue(t + "off", sim.commands() - n0 == 1);
+         c.releaseOutputs();
+         c.disconnect();
+       } // for modes
+     }
+   } // testShadow()
+
+/** Reconnect and replay of the outputs after pigpiod dropped. <br />
+ *  <br />
+ *  A reconnect blocked in connecting while the application disconnects
+ *  must not undo it.
+ */
+   @Test public void testReconnect() throws IOException, InterruptedException {
+     for (int mode = 0; mode < 3; ++mode) {
+       final String t = MODES[mode];
+       final PigpiodSim sim = new PigpiodSim(0);
+       final int port = sim.getPort();
+       final ClientPigpiod c = client(sim, mode);
+       final Reconnector rc = c.autoReconnect(5, 200);
+       c.setOutput(18, true);
+       c.setOutput(23, false);
+       c.setPadS(0, 12);
+       sim.close(); // pigpiod dies: no accept, then the connections
+       sim.dropClients();
+       final int r = mode == 2 ? c.stdCmdAsync(PI_CMD_READ, 4, 0).join()
+                               : c.getInp(4);
+       assertTrue(t + "first fails " + r, r < 0);
+       Thread.sleep(20);
+       assertTrue(t + "down " + rc, rc.isDown() && rc.losses() == 1);
+       final long t0 = System.nanoTime();
+       for (int i = 0; i < 1000; ++i) c.getInp(4);
+       assertTrue(t + "fail fast while down", c.getInp(4)
+              == PI_SOCK_WRIT_FAILED && System.nanoTime() - t0 < 500000000L);
+       try (PigpiodSim sim2 = new PigpiodSim(port)) { // pigpiod is back
+         for (int i = 0; rc.isDown() && i < 2000; ++i) Thread.sleep(1);
+         Thread.sleep(20);
+         assertTrue(t + "up again " + rc, !rc.isDown()
+                                               && rc.reconnects() == 1);
+         assertTrue(t + "modes and pads replayed", sim2.mode(18) == PI_OUTPUT
+                   && sim2.mode(23) == PI_OUTPUT && c.getPadS(0) == 12);
+         c.disconnect();
+         Thread.sleep(50);
+         assertTrue(t + "no reconnect after disconnect " + rc,
+                                  !rc.isDown() && rc.reconnects() == 1);
+         final int n = sim2.clients();
+         assertTrue(t + "a reconnect connecting meanwhile not used",
+                  !c.reopen(rc, 1000) && c.getInp(4) == PI_SOCK_WRIT_FAILED);
+         Thread.sleep(20);
+         assertTrue(t + "its connection closed", sim2.clients() == n);
+       }
+     } // for modes
+   } // testReconnect()
+
+/** SampleRing: overrun accounting and the order of the samples. <br /> */
+   @Test public void testSampleRing() throws InterruptedException {
+     final SampleRing r = new SampleRing(100);
+     assertTrue("ring capacity 128", r.capacity == 128);
+     final SampleRing.Cursor c = r.cursor();
+     for (int i = 0; i < 1000; ++i) r.put(i, i * 10);
+     final long[] t = new long[500], v = new long[500];
+     final int n = c.read(t, v, 0, 500);
+     assertTrue("overrun: newest kept " + n, n == 127
+                          && v[0] == (1000 - 127) * 10 && v[n - 1] == 9990);
+     assertTrue("overrun: lost " + c.lost(), c.lost() == 1000 - 127);
+     assertTrue("empty", c.read(t, v, 0, 500) == 0 && c.available() == 0);
+     r.put(5, 7);
+     assertTrue("one more", c.read(t, v, 0, 500) == 1 && v[0] == 7
+                                                        && t[0] == 5);
+
+     final SampleRing r2 = new SampleRing(1024);
+     final SampleRing.Cursor c2 = r2.cursor();
+     final long puts = 2000000;
+     final Thread w = new Thread(() -> {
+       for (long i = 0; i < puts; ++i) r2.put(i, i * 3);
+     });
+     w.start();
+     long got = 0, torn = 0, order = 0, last = -1;
+     while (w.isAlive() || c2.available() > 0) {
+       final int k = c2.read(t, v, 0, 500);
+       for (int i = 0; i < k; ++i) {
+         if (v[i] != t[i] * 3) ++torn;
+         if (t[i] <= last) ++order;
+         last = t[i];
+       }
+       got += k;
+     }
+     w.join();
+     assertTrue("concurrent: torn " + torn + ", out of order " + order,
+                                                   torn == 0 && order == 0);
+     assertTrue("concurrent: got " + got + " + lost " + c2.lost()
+                                  + " == put", got + c2.lost() == puts);
+   } // testSampleRing()
+
+/** Delete a (temporary) directory tree. <br /> */
+   static void delete(final File f){
+     final File[] sub = f.listFiles();
+     if (sub != null) for (File s : sub) delete(s);
+     f.delete();
+   } // delete(File)
+
+/** SampleStore: encode and query round trip, analog and digital. <br /> */
+   @Test public void testSampleStore() throws IOException {
+     final File dir = Files.createTempDirectory("store").toFile();
+     try {
+       final int n = 100000;
+       final long t0 = 1700000000000000L; // in us
+       final long[] av = new long[n];
+       final java.util.Random rnd = new java.util.Random(1);
+       long x = 500;
+       final SampleStore an = new SampleStore(dir, "adc",
+                                           SampleStore.ANALOG, 1 << 14, 0);
+       for (int i = 0; i < n; ++i) {
+         x += rnd.nextInt(7) - 3;
+         if (i % 1000 == 0) x = -x;
+         av[i] = x;
+         an.append(t0 + i * 1000L, x);
+       }
+       an.close();
+       assertTrue("rotated", SampleStore.segments(dir, "adc").length > 2);
+       final long[] i0 = {0}, errs = {0};
+       long got = SampleStore.query(dir, "adc", 0, Long.MAX_VALUE,
+           (t, v) -> {
+             final int i = (int)i0[0]++;
+             if (v != av[i] || t != t0 + i * 1000L) ++errs[0];
+             return true;
+           });
+       assertTrue("analog full " + got + ", errors " + errs[0],
+                                                got == n && errs[0] == 0);
+       final List<long[]> rg = new ArrayList<>();
+       got = SampleStore.query(dir, "adc", t0 + 70000000L + 500,
+                     t0 + 70010000L, (t, v) -> rg.add(new long[]{t, v}));
+       assertTrue("analog range " + got, got == 10
+           && rg.get(0)[0] == t0 + 70001000L && rg.get(0)[1] == av[70001]
+           && rg.get(9)[1] == av[70010]);
+
+       final SampleStore dg = new SampleStore(dir, "bank",
+                                          SampleStore.DIGITAL, 1 << 14, 0);
+       final long[] dl = new long[n];
+       long lev = 0;
+       for (int i = 0; i < n; ++i) {
+         if (rnd.nextInt(100) == 0) lev ^= 1L << rnd.nextInt(28);
+         dl[i] = lev;
+         dg.append(t0 + i * 1000L, lev);
+       }
+       dg.close();
+       final long from = t0 + 50000000L + 500;
+       final List<long[]> dg2 = new ArrayList<>();
+       SampleStore.query(dir, "bank", from, from + 10000000L,
+                                     (t, v) -> dg2.add(new long[]{t, v}));
+       assertTrue("digital: level held at from", !dg2.isEmpty()
+               && dg2.get(0)[0] < from && dg2.get(0)[1] == dl[50000]);
+       boolean same = true;
+       for (long[] e : dg2) same &= dl[(int)((e[0] - t0) / 1000)] == e[1];
+       assertTrue("digital: changes " + dg2.size(), same);
+     } finally {
+       delete(dir);
+     }
+   } // testSampleStore()
+
+/** A w1_slave file's content of a DS18B20. <br /> */
+   static String w1(final int milliC, final boolean crc){
+     return "63 01 55 05 7f 7e 81 66 74 : crc=74 " + (crc ? "YES" : "NO")
+           + "\n63 01 55 05 7f 7e 81 66 74 t=" + milliC + "\n";
+   } // w1(int, boolean)
+
+/** Put a (new) w1_slave file into a w1 tree. <br /> */
+   static void w1(final File root, final String bus, final String id,
+                               final String content) throws IOException {
+     final File d = new File(new File(root, bus), id);
+     d.mkdirs();
+     Files.write(new File(d, "w1_slave").toPath(), content.getBytes());
+   } // w1(File, 3*String)
+
+/** OneWireTherm on a w1 tree in a temporary directory. <br /> */
+   @Test public void testOneWireTherm() throws IOException,
+                                                   InterruptedException {
+     final File root = Files.createTempDirectory("w1").toFile();
+     final OneWireTherm ow = new OneWireTherm(root, 50);
+     try {
+       w1(root, "w1_bus_master1", "28-02049245dde6", w1(22187, true));
+       w1(root, "w1_bus_master1", "28-0000000000a1", w1(-10625, true));
+       w1(root, "w1_bus_master2", "10-0000000000b2", w1(1, false));
+       w1(root, "w1_bus_master2", "28-0000000000c3", "garbage");
+       w1(root, "w1_bus_master2", "00-0000000000d4", w1(1, true));
+       final AtomicInteger last = new AtomicInteger();
+       final AtomicLong calls = new AtomicLong();
+       ow.addListener((s, mc) -> {
+         calls.incrementAndGet();
+         if (s.id.endsWith("dde6")) last.set(mc);
+       });
+       assertTrue("4 thermometers", ow.start() == 4);
+       Thread.sleep(300);
+       final OneWireTherm.Sensor s1 = ow.sensor("28-02049245DDE6");
+       final OneWireTherm.Sensor s2 = ow.sensor("28-0000000000a1");
+       assertTrue("read " + s1, s1.milliC() == 22187 && s1.readings() >= 2);
+       assertTrue("negative " + s2, s2.celsius() == -10.625);
+       assertTrue("bad crc", ow.sensor("10-0000000000b2").lastErr()
+                                                 == OneWireTherm.BAD_CRC);
+       assertTrue("bad format", ow.sensor("28-0000000000c3").lastErr()
+                                              == OneWireTherm.BAD_FORMAT);
+       assertTrue("listener " + calls.get(), last.get() == 22187);
+       w1(root, "w1_bus_master1", "28-02049245dde6", w1(23500, true));
+       w1(root, "w1_bus_master1", "3b-0000000000e5", w1(100, true));
+       assertTrue("hot plug", ow.discover() == 1);
+       Thread.sleep(300);
+       assertTrue("updated " + s1, s1.milliC() == 23500);
+       assertTrue("new one read", ow.sensor("3b-0000000000e5").milliC()
+                                                                   == 100);
+     } finally {
+       ow.close();
+       delete(root);
+     }
+   } // testOneWireTherm()
+
+/** InputFilter: debounce and glitch timing (ticks in &micro;s). <br /> */
+   @Test public void testInputFilter(){
+     final InputFilter f = new InputFilter().debounce(1 << 5, 20000)
+                                           .glitch(1 << 12, 500);
+     final StringBuilder log = new StringBuilder();
+     f.addListener(-1, (g, l, t) -> log.append(g).append(':').append(l)
+                                            .append('@').append(t).append(' '));
+     f.reset(0, 1000);
+     f.edge(5, 1, 2000); // press, bouncing
+     f.edge(5, 0, 2100);
+     f.edge(5, 1, 2300);
+     f.edge(5, 0, 2400);
+     f.edge(5, 1, 2500);
+     assertTrue("debounce: at once " + log, "5:1@2000 ".equals(log.toString())
+                                                             && f.isHi(5));
+     f.update(30000);
+     assertTrue("debounce: bounces ignored " + log,
+                                         "5:1@2000 ".equals(log.toString()));
+     log.setLength(0);
+     f.edge(5, 0, 50000); // release, bouncing
+     f.edge(5, 1, 50100);
+     f.edge(5, 0, 50200);
+     f.update(80000);
+     assertTrue("debounce: release " + log, "5:0@50000 ".equals(log.toString())
+                                                            && !f.isHi(5));
+     log.setLength(0);
+     f.edge(5, 1, 100000);
+     f.edge(5, 0, 110000); // final within lock out
+     f.update(119999);
+     assertTrue("debounce: locked out " + log,
+                                       "5:1@100000 ".equals(log.toString()));
+     f.update(120000);
+     assertTrue("debounce: at lock out's end with raw tick " + log,
+                       "5:1@100000 5:0@110000 ".equals(log.toString()));
+     log.setLength(0);
+     f.edge(12, 1, 200000);
+     f.edge(12, 0, 200300);
+     f.update(201000);
+     assertTrue("glitch: short pulse dropped " + log, log.length() == 0
+                                      && !f.isHi(12) && f.dropped() > 0);
+     f.edge(12, 1, 210000);
+     f.update(210499);
+     assertTrue("glitch: waiting", log.length() == 0
+                                               && f.pending() == 1 << 12);
+     f.update(210500);
+     assertTrue("glitch: passed when stable " + log,
+                     "12:1@210000 ".equals(log.toString()) && f.isHi(12));
+
+     final InputFilter w = new InputFilter().glitch(1, 1000);
+     final StringBuilder wl = new StringBuilder();
+     w.addListener(1, (g, l, t) -> wl.append(l).append('@').append(t));
+     w.reset(0, -500);
+     w.edge(0, 1, -200);
+     w.update(900);
+     assertTrue("tick wrap " + wl, "1@-200".equals(wl.toString()));
+   } // testInputFilter()
+
+/** Pipelined mode: responses in order and the timeout. <br />
+ *  <br />
+ *  The classic reader's socket timeout also ends idle reads; a command
+ *  sent just before must not kill the pipeline. A response really
+ *  overdue must.
+ */
+   @Test public void testPipelined() throws IOException, InterruptedException {
+     try (PigpiodSim sim = new PigpiodSim(0)) {
+       for (int mode = 0; mode < 2; ++mode) {
+         final String t = MODES[mode];
+         final ClientPigpiod c = client(sim, mode);
+         for (int g = 2; g < 28; ++g) c.stdCmd(PI_CMD_MODES, g, g % 8);
+         c.stdCmdAsync(PI_CMD_TICK, 0, 0).join(); // pipelined now
+         assertTrue(t + "pipelined", c.isPipelined());
+         final List<CompletableFuture<Integer>> fs = new ArrayList<>();
+         for (int i = 0; i < 1000; ++i) {
+           fs.add(c.stdCmdAsync(PI_CMD_MODEG, 2 + i % 26, 0));
+         }
+         boolean inOrder = true;
+         for (int i = 0; i < 1000; ++i) {
+           inOrder &= fs.get(i).join() == (2 + i % 26) % 8;
+         }
+         assertTrue(t + "1000 responses in order", inOrder);
+         c.disconnect();
+       } // for modes
+     }
+     try (PigpiodSim sim = new PigpiodSim(0)) {
+       sim.setLatency(200000, 0); // 200 ms
+       final ClientPigpiod c = new ClientPigpiod(ThePi.make("localhost",
+                                      sim.getPort(), 300, 3), null, false);
+       c.stdCmdAsync(PI_CMD_TICK, 0, 0).join(); // pipelined now
+       for (int i = 0; i < 10; ++i) { // sent in all phases of the idle read
+         Thread.sleep(170);
+         final int r = c.stdCmdAsync(PI_CMD_MODEG, 4, 0).join();
+         assertTrue("classic: sent before idle timeout " + i + ": " + r,
+                                                                  r >= 0);
+       }
+       sim.setLatency(1000000, 0); // 1 s: overdue
+       assertTrue("classic: overdue", c.stdCmdAsync(PI_CMD_MODEG, 4, 0)
+                                          .join() == PI_SOCK_READ_FAILED);
+       c.disconnect();
+     }
+   } // testPipelined()
+
+/** CommandBatch: results and error count; a connection lost in flight. */
+   @Test public void testBatch() throws IOException, InterruptedException {
+     try (PigpiodSim sim = new PigpiodSim(0)) {
+       for (int mode = 0; mode < 3; ++mode) {
+         final String t = MODES[mode];
+         final ClientPigpiod c = client(sim, mode);
+         final CommandBatch b = new CommandBatch().setMode(4, PI_OUTPUT)
+              .write(60, 1)                 // rejected by the pre-check
+              .add(PI_CMD_I2CC, 99, 0)      // rejected by pigpiod
+              .write(4, 1).add(PI_CMD_MODEG, 4, 0);
+         final long n0 = sim.commands();
+         assertTrue(t + "2 errors", b.exec(c) == 2);
+         assertTrue(t + "results", b.result(0) == 0 && b.result(1) < 0
+                   && b.result(2) == PI_BAD_HANDLE && b.result(3) == 0
+                   && b.result(4) == PI_OUTPUT);
+         assertTrue(t + "4 sent", sim.commands() - n0 == 4);
+         c.disconnect();
+       } // for modes
+     }
+     for (int trial = 0; trial < 5; ++trial) { // reader dies in the batch
+       try (PigpiodSim sim = new PigpiodSim(0)) {
+         final ClientPigpiod c = client(sim, 2);
+         final CommandBatch b = new CommandBatch(50000);
+         for (int i = 0; i < 50000; ++i) b.add(PI_CMD_MODEG, 4, 0);
+         final Thread x = new Thread(() -> b.exec(c));
+         x.start();
+         while (c.pipe.inFlight.isEmpty() && x.isAlive()) Thread.yield();
+         sim.dropClients();
+         x.join(10000);
+         assertTrue("batch ends when the connection is lost", !x.isAlive());
+         int bad = 0;
+         for (int i = 0; i < 50000; ++i) if (b.result(i) < 0) ++bad;
+         assertTrue("batch: lost ones failed " + bad, bad > 0);
+         c.disconnect();
+       }
+     } // for trials
+   } // testBatch()
+
+/** NIO transport: same results as classic; the watchdog's timeout. <br />
+ *  <br />
+ *  A blocking channel has no read timeout. The watchdog must close it
+ *  when a response is overdue and the command must fail as with the
+ *  classic socket's timeout.
+ */
+   @Test public void testNioWatchdog() throws IOException {
+     try (PigpiodSim sim = new PigpiodSim(0)) {
+       final ClientPigpiod cl = client(sim, 0), ni = client(sim, 1);
+       assertTrue("nio: channel", ni.chan != null && cl.chan == null);
+       boolean same = true;
+       for (int g = 2; g < 28; ++g) {
+         ni.stdCmd(PI_CMD_MODES, g, g % 8);
+         same &= cl.stdCmd(PI_CMD_MODEG, g, 0) == g % 8
+              && ni.stdCmd(PI_CMD_MODEG, g, 0) == g % 8;
+       }
+       assertTrue("nio: same as classic", same);
+       cl.disconnect();
+       ni.disconnect();
+     }
+     try (PigpiodSim sim = new PigpiodSim(0)) {
+       final ClientPigpiod c = new ClientPigpiod(ThePi.make("localhost",
+                                      sim.getPort(), 300, 3), null, true);
+       sim.setLatency(200000, 0); // 200 ms: in time
+       assertTrue("nio: in time", c.stdCmd(PI_CMD_MODEG, 4, 0) >= 0);
+       sim.setLatency(2000000, 0); // 2 s: overdue
+       final long t0 = System.currentTimeMillis();
+       final int r = c.stdCmd(PI_CMD_MODEG, 4, 0);
+       final long t = System.currentTimeMillis() - t0;
+       assertTrue("nio: overdue " + r, r == PI_SOCK_READ_FAILED);
+       assertTrue("nio: closed by the watchdog " + t, t < 1500);
+       c.disconnect();
+     }
+   } // testNioWatchdog()
+
+/** ProcessImage: BR1's uint32 levels vs. transport errors. <br />
+ *  <br />
+ *  GPIO 31 high makes the levels negative; that is no error. A lost
+ *  connection is one and keeps the previous snapshot.
+ */
+   @Test public void testProcessImage() throws IOException {
+     for (int mode = 0; mode < 3; ++mode) {
+       final String t = MODES[mode];
+       try (PigpiodSim sim = new PigpiodSim(0)) {
+         final ClientPigpiod c = client(sim, mode);
+         c.stdCmd(PI_CMD_MODES, 31, PI_OUTPUT);
+         c.stdCmd(PI_CMD_MODES, 4, PI_OUTPUT);
+         c.stdCmd(PI_CMD_WRITE, 31, 1);
+         c.stdCmd(PI_CMD_WRITE, 4, 1);
+         final ProcessImage img = new ProcessImage(c);
+         assertTrue(t + "read", img.read() == 1 && img.valid());
+         assertTrue(t + "GPIO 31 high", img.levels() < 0 && img.isHi(31)
+                               && img.getInp(4) == 1 && img.getInp(5) == 0);
+         final int lev = img.levels();
+         sim.dropClients();
+         final int r = img.read();
+         assertTrue(t + "lost " + r, ClientPigpiod.isTransportError(r)
+                   && img.err() == r && img.cycle() == 1 && !img.valid()
+                   && img.levels() == lev);
+         c.disconnect();
+       }
+     } // for modes
+     assertTrue("no transport errors", !ClientPigpiod.isTransportError(0)
+               && !ClientPigpiod.isTransportError(PI_BAD_HANDLE)
+               && !ClientPigpiod.isTransportError(0xFFFFFFFF));
+   } // testProcessImage()
+
+/** PigpiodNotifier: edges by reports; a GPIO added later. <br />
+ *  <br />
+ *  A GPIO's level changing while not monitored must not be reported as
+ *  edge by the first report after it was added.
+ */
+   @Test public void testNotifier() throws IOException, InterruptedException {
+     try (PigpiodSim sim = new PigpiodSim(0)) {
+       final ClientPigpiod c = client(sim, 0);
+       final List<String> edges = new ArrayList<>();
+       final PigpiodNotifier.EdgeListener l = (gpio, level, tick) -> {
+         synchronized (edges) { edges.add(gpio + "=" + level); }
+       };
+       try (PigpiodNotifier nt = new PigpiodNotifier(c, 64)) {
+         assertTrue("notifier: monitor 4", nt.addListener(1 << 4, l) == 0
+                                              && nt.monitored() == 1 << 4);
+         sim.setInput(4, true);
+         sim.setInput(4, false);
+         waitReports(nt, 2);
+         sim.setInput(5, true); // not monitored: no report
+         assertTrue("notifier: 5 added", nt.addListener(1 << 5, l) == 0);
+         sim.setInput(4, true);
+         sim.setInput(5, false);
+         waitReports(nt, 4);
+         synchronized (edges) {
+           assertTrue("notifier: edges " + edges, edges.toString()
+                                   .equals("[4=1, 4=0, 4=1, 5=0]"));
+         }
+         assertTrue("notifier: level", (nt.level() & 0x30) == 0x10
+                           && nt.reportCount() == 4 && nt.lostCount() == 0);
+       }
+       c.disconnect();
+     }
+   } // testNotifier()
+
+/** Wait (max. 5 s) until n reports are dispatched. <br /> */
+   static void waitReports(final PigpiodNotifier nt, final long n)
+                                               throws InterruptedException {
+     final long t0 = System.currentTimeMillis();
+     while (nt.rdCnt < n && System.currentTimeMillis() - t0 < 5000) {
+       Thread.sleep(5);
+     }
+     Thread.sleep(20); // the last one's listeners
+   } // waitReports(PigpiodNotifier, long)
+
+/** OutputImage: changes coalesced to at most one BS1 and one BC1. */
+   @Test public void testOutputImage() throws IOException {
+     try (PigpiodSim sim = new PigpiodSim(0)) {
+       for (int mode = 0; mode < 3; ++mode) {
+         final String t = MODES[mode];
+         final ClientPigpiod c = client(sim, mode);
+         final OutputImage img = new OutputImage(c);
+         img.setOutput(4, true);
+         img.setOutput(17, true);
+         img.setOutput(18, false);
+         assertTrue(t + "first flush", img.flush() == 0
+                     && img.cmdCount() == 2 && sim.mode(17) == PI_OUTPUT);
+         assertTrue(t + "levels", (sim.levels() & 0x60010) == 0x20010
+                                                && img.flushed() == 0x20010);
+         long n0 = sim.commands();
+         img.setOutput(4, true); // unchanged: nothing sent
+         assertTrue(t + "unchanged", img.flush() == 0
+                          && img.cmdCount() == 2 && sim.commands() == n0);
+         img.setOutput(4, false);
+         img.setOutput(18, false);
+         assertTrue(t + "one BC1", img.flush() == 0 && img.cmdCount() == 3
+              && sim.commands() - n0 == 1 && (sim.levels() & 0x10) == 0);
+         img.invalidate();
+         n0 = sim.commands();
+         assertTrue(t + "invalidated: all", img.flush() == 0
+                        && sim.commands() - n0 == 2 && img.cmdCount() == 5);
+         c.disconnect();
+       } // for modes
+     }
+   } // testOutputImage()
+
+/** PiFleet: parallel connect, shared cycles, broadcast and counters. */
+   @Test public void testFleet() throws IOException, InterruptedException {
+     final PigpiodSim[] sims = new PigpiodSim[4];
+     int gone;
+     try (PigpiodSim s = new PigpiodSim(0)) { gone = s.getPort(); }
+     try (PiFleet fleet = new PiFleet(2, null)) {
+       for (int i = 0; i < sims.length; ++i) {
+         sims[i] = new PigpiodSim(0);
+         fleet.add(ThePi.make("localhost", sims[i].getPort(), 3000, 3));
+       }
+       fleet.add(ThePi.make("localhost", gone, 3000, 3)); // refused
+       assertTrue("fleet: 5 members", fleet.getMembers() == 5
+            && fleet.add(ThePi.make("localhost", gone, 3000, 3))
+                                   == fleet.get("localhost:" + gone));
+       assertTrue("fleet: 4 connected", fleet.connectAll() == 4
+             && fleet.get("localhost:" + gone).lastExc() != null);
+       final Map<String, Integer> r = fleet.broadcast(p ->
+                                    p.setOutput(4, true));
+       assertTrue("fleet: broadcast " + r, r.size() == 4
+                                   && !r.containsValue(PI_SOCK_WRIT_FAILED));
+       for (PigpiodSim s : sims) assertTrue("fleet: GPIO 4 on",
+                                               (s.levels() & 0x10) != 0);
+       final long e0 = fleet.getErrors();
+       final int bad = sims[0].getPort();
+       assertTrue("fleet: scheduled 4", fleet.schedule(10, p ->
+            p.thePi.sockP() == bad ? PI_BAD_GPIO : p.getInp(4)) == 4);
+       Thread.sleep(300);
+       fleet.unschedule();
+       Thread.sleep(50); // cycles running end
+       final PiFleet.Member m0 = fleet.get("localhost:" + bad);
+       final long n = fleet.getCycles();
+       assertTrue("fleet: cycles " + n, n >= 4 * 5
+               && m0.cycles() > 0 && m0.errors() == m0.cycles()
+               && fleet.getErrors() - e0 == m0.errors());
+       assertTrue("fleet: all off", fleet.allOutputsOff() == 0);
+       for (PigpiodSim s : sims) assertTrue("fleet: GPIO 4 off",
+                                               (s.levels() & 0x10) == 0);
+     } finally {
+       for (PigpiodSim s : sims) if (s != null) s.close();
+     }
+   } // testFleet()
+
+/** PigpiodSim: wire format, simulated GPIOs and injected timing. <br />
+ *  <br />
+ *  Talks raw 16 byte commands to be independent of the client.
+ */
+   @Test public void testSim() throws IOException, InterruptedException {
+     try (PigpiodSim sim = new PigpiodSim(0);
+          Socket s = new Socket("localhost", sim.getPort())) {
+       final byte[] b = new byte[16];
+       s.setSoTimeout(3000);
+       final IntBinaryOperator cmd2 = (cmd, p) -> {
+         try {
+           ClientPigpiod.putCmd(b, cmd, p >> 8, p & 0xFF, 0);
+           s.getOutputStream().write(b);
+           PigpiodNotifier.readFully(s.getInputStream(), b, 16);
+         } catch (IOException e) {
+           return PI_SOCK_READ_FAILED;
+         }
+         return ClientPigpiod.int32(b, 0) != cmd ? PI_SOCK_READ_LEN
+                                         : ClientPigpiod.int32(b, 12);
+       }; // p: gpio << 8 | p2
+       assertTrue("sim: PIGPV", cmd2.applyAsInt(PI_CMD_PIGPV, 0) == 79
+              && ClientPigpiod.int32(b, 4) == 0);
+       assertTrue("sim: WRITE makes output", cmd2.applyAsInt(PI_CMD_WRITE,
+              17 << 8 | 1) == 0 && sim.mode(17) == PI_OUTPUT
+              && cmd2.applyAsInt(PI_CMD_READ, 17 << 8) == 1
+              && ClientPigpiod.int32(b, 4) == 17);
+       assertTrue("sim: pull up", cmd2.applyAsInt(PI_CMD_PUD, 5 << 8
+              | PI_PUD_UP) == 0 && cmd2.applyAsInt(PI_CMD_READ, 5 << 8) == 1);
+       sim.setInput(5, false);
+       assertTrue("sim: outer world", cmd2.applyAsInt(PI_CMD_READ, 5 << 8)
+              == 0 && (sim.levels() & 1 << 5) == 0);
+       assertTrue("sim: unknown", cmd2.applyAsInt(PI_CMD_HP, 18 << 8)
+                                                      == PI_UNKNOWN_COMMAND);
+       sim.setServiceTime(PI_CMD_TICK, 30000).setLatency(20000, 0);
+       final long t0 = System.nanoTime();
+       cmd2.applyAsInt(PI_CMD_TICK, 0);
+       final long t = (System.nanoTime() - t0) / 1000000;
+       assertTrue("sim: service + latency " + t, t >= 50 && t < 1000);
+       assertTrue("sim: 1 client", sim.clients() == 1);
+       sim.dropClients();
+       assertTrue("sim: dropped", cmd2.applyAsInt(PI_CMD_TICK, 0) < 0);
+       Thread.sleep(50);
+       assertTrue("sim: no client", sim.clients() == 0);
+     }
+   } // testSim()
+
+/** PigpiodBench: a short run against the simulator (smoke test). */
+   @Test public void testBench() throws IOException {
+     try (PigpiodSim sim = new PigpiodSim(0)) {
+       final ClientPigpiod c = client(sim, 1);
+       final PigpiodBench bench = new PigpiodBench();
+       bench.warmupMs = 50;
+       bench.iterations = 3;
+       bench.iterationMs = 100;
+       final long n0 = sim.commands();
+       final PigpiodBench.Result r = bench.run("getInp", 2,
+                                                       () -> c.getInp(4));
+       assertTrue("bench: " + r, r.name.equals("getInp") && r.threads == 2
+               && r.opsPerS > 0 && r.opsPerSdev >= 0
+               && Math.abs(r.nsPerOp * r.opsPerS - 2e9) < 1e3);
+       assertTrue("bench: sent", sim.commands() - n0 >= r.opsPerS * 0.2);
+       assertTrue("bench: csv " + r.toCsv(),
+                                       r.toCsv().split(",").length == 5);
+       c.disconnect();
+     }
+   } // testBench()
+
+/** CmdStats: histogram buckets, percentiles, counters and JMX. */
+   @Test public void testCmdStats() throws IOException, JMException {
+     boolean exact = true;
+     for (long us = 0; us < 1L << 31; us = us * 9 / 8 + 1) {
+       final long up = CmdStats.upper(CmdStats.bucket(us));
+       exact &= up >= us && up <= us + us / 8 + 1;
+     }
+     assertTrue("stats: buckets within 12.5 %", exact);
+     final CmdStats.Histogram h = new CmdStats().histogram();
+     for (int i = 1; i <= 1000; ++i) h.add(i);
+     assertTrue("stats: p50 " + h.percentile(0.5), h.count() == 1000
+             && h.max() == 1000 && h.mean() == 500.5
+             && h.percentile(0.5) >= 500 && h.percentile(0.5) <= 563
+             && h.percentile(1.0) == 1000);
+     try (PigpiodSim sim = new PigpiodSim(0)) {
+       final ClientPigpiod c = client(sim, 0);
+       sim.setLatency(2000, 0); // 2 ms
+       for (int i = 0; i < 20; ++i) c.stdCmd(PI_CMD_MODEG, 4, 0);
+       c.stdCmd(PI_CMD_I2CC, 99, 0); // error response
+       final CmdStats st = c.stats;
+       final CmdStats.Histogram mg = st.histogram(PI_CMD_MODEG);
+       assertTrue("stats: " + st, mg.count() == 20 && st.getErrors() == 1
+             && mg.percentile(0.5) >= 2000 && st.getCommands() >= 21
+             && st.histogram(PI_CMD_WRITE) == null);
+       final String name = c.regStatsMBean();
+       final MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+       final ObjectName on = new ObjectName(name);
+       assertTrue("stats: JMX " + name, ((Long)mbs.getAttribute(on,
+                          "Commands")).longValue() == st.getCommands()
+             && ((String[])mbs.getAttribute(on, "PerCommand")).length >= 2);
+       mbs.invoke(on, "reset", null, null);
+       mbs.unregisterMBean(on);
+       assertTrue("stats: reset", st.getCommands() == 0 && mg.count() == 0);
+       sim.dropClients();
+       c.stdCmd(PI_CMD_MODEG, 4, 0);
+       assertTrue("stats: lost " + st, st.getShortReads()
+                                            + st.getIoErrors() == 1);
+       c.disconnect();
+     }
+   } // testCmdStats()
+
+/** CycleScheduler: runs on the grid, overrun policies, failures. */
+   @Test public void testCycleScheduler() throws InterruptedException {
+     final CycleScheduler sched = new CycleScheduler("sched-test", 3);
+     final AtomicInteger first = new AtomicInteger();
+     final Runnable slowOnce = () -> { // first runs of s and c: 70 ms
+       if (first.getAndIncrement() < 2) {
+         PiUtil.parkUntil(System.nanoTime() + 70000000L);
+       }
+     };
+     final CycleScheduler.Task a = sched.schedule("a", 10, 0, null,
+                                                                () -> {});
+     final CycleScheduler.Task f = sched.schedule("f", 10, 5, null, () -> {
+       throw new IllegalStateException("fails");
+     });
+     final CycleScheduler.Task s = sched.schedule("s", 20, 0,
+                                      CycleScheduler.Overrun.SKIP, slowOnce);
+     final CycleScheduler.Task c = sched.schedule("c", 20, 0,
+                                  CycleScheduler.Overrun.CATCH_UP, slowOnce);
+     Thread.sleep(400);
+     sched.shutdown();
+     sched.join(1000);
+     assertTrue("sched: 4 tasks", sched.tasks().size() == 4);
+     assertTrue("sched: a " + a, a.runs() >= 20 && a.runs() <= 45
+                                                     && a.lateMin() >= 0);
+     assertTrue("sched: f " + f, f.runs() > 0 && f.failures() == f.runs()
+                          && f.lastExc() instanceof IllegalStateException);
+     assertTrue("sched: skip " + s, s.overruns() >= 1 && s.skipped() >= 2);
+     assertTrue("sched: catch up " + c, c.overruns() >= 1
+                     && c.skipped() == 0 && c.runs() >= s.runs() + 2);
+     boolean ended = true;
+     for (Thread t : sched.threads) ended &= !t.isAlive();
+     assertTrue("sched: ended", ended);
+   } // testCycleScheduler()
+
+/** Precise delays: calibration, parkUntil never early, ns periods. */
+   @Test public void testPreciseDelay() throws InterruptedException {
+     final long spin = PiUtil.calibrateDelay();
+     assertTrue("delay: spin " + spin, spin >= 20000 && spin <= 2000000
+                                          && PiUtil.getSpinNanos() == spin);
+     final long[] late = new long[100];
+     for (int i = 0; i < late.length; ++i) {
+       final long dl = System.nanoTime() + 500000; // 0.5 ms
+       PiUtil.parkUntil(dl);
+       late[i] = System.nanoTime() - dl;
+     }
+     Arrays.sort(late);
+     assertTrue("delay: never early " + late[0], late[0] >= 0);
+     assertTrue("delay: median late " + late[50], late[50] < 1000000);
+     final long[] res = new long[3];
+     final Thread t = new Thread(() -> { // own thread local period
+       final PiUtil pu = new PiUtil(){};
+       final int d0 = pu.getDelCnt();
+       final long t0 = System.nanoTime();
+       for (int i = 0; i < 200; ++i) pu.thrDelayMicros(1000);
+       res[0] = System.nanoTime() - t0;
+       res[1] = pu.getDelCnt() - d0;
+       res[2] = pu.getOvrCnt();
+     });
+     t.start();
+     t.join();
+     assertTrue("delay: 200 * 1 ms took " + res[0] / 1000 + " us, "
+         + res[1] + " delays, " + res[2] + " spoiled", res[0] >= 199000000
+         && res[0] < 400000000 && res[1] == 199); // 1st starts the period
+   } // testPreciseDelay()
+
+/** CycleStats: entries, lateness percentiles, spikes and JMX. */
+   @Test public void testCycleStats() throws JMException {
+     final CycleStats cs = CycleStats.get();
+     final CycleStats.Entry e = cs.entry("stats-test");
+     assertTrue("cycStats: one entry per name", cs.entry("stats-test") == e);
+     final int spk = cs.getSpikeMicros();
+     cs.setSpikeMicros(10000); // 10 ms
+     try {
+       for (int i = 1; i <= 1000; ++i) e.record(i * 1000L); // 1..1000 us
+       e.overrun();
+       assertTrue("cycStats: " + e, e.late.count() == 1000
+                    && e.late.percentile(0.5) >= 500 && e.overruns() == 1
+                    && cs.report().contains("\n  " + e.toString()));
+       for (int i = 0; i < 20; ++i) e.record(20000000L); // 20 ms
+       final String[] spikes = cs.getSpikes();
+       assertTrue("cycStats: 16 spikes kept", spikes.length == 16
+              && spikes[15].contains(" stats-test late 20000 us, GC ")
+              && cs.report().contains("last spike "));
+       final String name = cs.regAsMBean();
+       final MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+       final ObjectName on = new ObjectName(name);
+       assertTrue("cycStats: JMX " + name, ((Long)mbs.getAttribute(on,
+                             "WorstP999Micros")).longValue() >= 20000);
+       mbs.unregisterMBean(on);
+     } finally {
+       cs.setSpikeMicros(spk);
+     }
+     cs.reset();
+     assertTrue("cycStats: reset", e.late.count() == 0
+                          && e.overruns() == 0 && cs.getSpikes().length == 0);
+   } // testCycleStats()
+
+/** Waveform and chain: encoding and the daemon side commands. */
+   @Test public void testWaveform() throws IOException, InterruptedException {
+     final Waveform.Chain ch = new Waveform.Chain().wave(1).loop().wave(2)
+                                              .repeat(300).delay(70000);
+     assertTrue("wave: chain bytes", Arrays.equals(Arrays.copyOf(ch.buf,
+          ch.size()), new byte[]{1, -1, 0, 2, -1, 1, 44, 1, // 300 = 0x12C
+                      -1, 2, -1, -1, -1, 2, 0x71, 0x11})); // 65535 + 4465
+     try (PigpiodSim sim = new PigpiodSim(0)) {
+       for (int mode = 0; mode < 3; ++mode) {
+         final String t = MODES[mode];
+         final ClientPigpiod c = client(sim, mode);
+         c.waveClear();
+         c.stdCmd(PI_CMD_MODES, 18, PI_OUTPUT);
+         final Waveform w = new Waveform().square(18, 100, 100, 10)
+                                                             .delay(50000);
+         assertTrue(t + "built", w.size() == 21 && w.micros() == 52000
+                                               && w.outMask() == 1 << 18);
+         final int id = w.create(c);
+         assertTrue(t + "created " + id, id >= 0);
+         assertTrue(t + "sent", c.waveSend(id, PI_WAVE_MODE_ONE_SHOT) >= 0
+               && c.waveTxBusy() == 1 && c.waveTxAt() == id
+               && (sim.levels() & 1 << 18) == 0); // final level
+         Thread.sleep(80);
+         assertTrue(t + "sent out", c.waveTxBusy() == 0
+                                        && c.waveTxAt() == PI_NO_TX_WAVE);
+         final Waveform big = new Waveform().square(18, 10, 10, 2500);
+         final int id2 = big.create(c); // 5000 pulses: two parts
+         assertTrue(t + "2 parts " + id2, id2 > id
+                                      && sim.waves.get(id2)[0] == 50000);
+         assertTrue(t + "chain", new Waveform.Chain().wave(id).loop()
+               .wave(id2).repeat(3).send(c) == 0 && c.waveTxBusy() == 1
+               && c.waveTxAt() == PI_WAVE_NOT_FOUND);
+         assertTrue(t + "repeat", c.waveTxStop() == 0
+               && c.waveSend(id, PI_WAVE_MODE_REPEAT) >= 0);
+         Thread.sleep(20);
+         assertTrue(t + "stopped", c.waveTxBusy() == 1
+               && c.waveTxStop() == 0 && c.waveTxBusy() == 0);
+         assertTrue(t + "errors", new Waveform().high(40, 10).create(c)
+                       == PI_BAD_USER_GPIO
+               && new Waveform().create(c) == PI_EMPTY_WAVEFORM
+               && new Waveform.Chain().loop().send(c) == PI_BAD_PARAM
+               && new Waveform.Chain().wave(300).send(c) == PI_BAD_WAVE_ID
+               && c.waveDelete(id2) == 0 && c.waveDelete(id2) < 0);
+         c.disconnect();
+       } // for modes
+     }
+   } // testWaveform()
+
+/** ScriptManager: script text, content hash cache, run and status. */
+   @Test public void testScripts() throws IOException, InterruptedException {
+     final ScriptManager.Script s = new ScriptManager.Script().tag(1)
+              .read(4).sta("v0").write(17, "v0").lda("p0").jz(2).mils(1)
+              .jmp(1).tag(2).halt();
+     final String text = "tag 1 r 4 sta v0 w 17 v0 lda p0 jz 2 mils 1 "
+                                                   + "jmp 1 tag 2 halt";
+     assertTrue("script: text " + s, s.toString().equals(text));
+     assertTrue("script: hash", ScriptManager.hash(" " + text + "\n")
+            .equals(ScriptManager.hash(text))
+            && ScriptManager.hash(text).length() == 64);
+     try (PigpiodSim sim = new PigpiodSim(0)) {
+       for (int mode = 0; mode < 3; ++mode) {
+         final String t = MODES[mode];
+         final ClientPigpiod c = client(sim, mode);
+         final ScriptManager sm = c.scripts();
+         final int id = sm.store(text);
+         final long n0 = sim.commands();
+         assertTrue(t + "cached " + id, id >= 0 && sm.store(s) == id
+                            && sm.size() == 1 && sim.commands() == n0);
+         final int[] p = new int[PI_MAX_SCRIPT_PARAMS];
+         assertTrue(t + "run", sm.run(s, 7, 8) == id
+                && sm.status(id, p) == PI_SCRIPT_HALTED
+                && p[0] == 7 && p[1] == 8 && p[2] == 0);
+         assertTrue(t + "update", sm.update(id, 9) == 0
+                && sm.awaitEnd(id, 100, p) == PI_SCRIPT_HALTED && p[0] == 9);
+         final List<int[]> seen = new ArrayList<>();
+         final ScriptManager.Watch wt = sm.watch(id, 1, seen::add);
+         wt.thread.join(1000);
+         assertTrue(t + "watched", !wt.isRunning() && seen.size() == 1
+               && seen.get(0)[0] == PI_SCRIPT_HALTED && seen.get(0)[1] == 9);
+         c.deleteScript(id); // behind the cache's back
+         final int id2 = sm.run(text, 1);
+         assertTrue(t + "stored anew " + id2, id2 >= 0 && sm.size() == 1
+                          && sm.status(id2, null) == PI_SCRIPT_HALTED);
+         assertTrue(t + "deleted", sm.deleteAll() == 0 && sm.size() == 0
+                          && sm.status(id2, p) == PI_BAD_SCRIPT_ID);
+         c.disconnect();
+       } // for modes
+     }
+   } // testScripts()
+
+/** TickClock: fit of offset and drift, wrap, restart; live on the sim. */
+   @Test public void testTickClock() throws IOException, InterruptedException {
+     final TickClock tc = new TickClock(null); // fed by add() directly
+     assertTrue("tick: not sync", !tc.isSync()
+                     && tc.toNanoTime(0) == TickClock.NOT_SYNC);
+     final long base = 1000000000000L;
+     final double nsPerTick = 1000.0 * (1 + 200e-6); // runs 200 ppm slow
+     for (int i = 0; i < 16; ++i) { // every 10 ms, wrapping at i = 1
+       final long mid = base + i * 10000000L;
+       tc.add(-5000 + (int)Math.round(i * 10000000L / nsPerTick), mid, 20000);
+     }
+     final int t8 = -5000 + (int)Math.round(8 * 10000000L / nsPerTick);
+     final long at8 = tc.toNanoTime(t8) - (base + 80000000L);
+     assertTrue("tick: drift " + tc.driftPpm(), tc.isSync()
+                                    && Math.abs(tc.driftPpm() - 200) < 1);
+     assertTrue("tick: fit " + at8, Math.abs(at8) < 1000
+                  && Math.abs(tc.toTick(base + 80000000L) - t8) <= 1
+                  && tc.errorNanos(base + 150000000L) < 100000);
+     tc.add(123456789, base + 160000000L, 20000); // daemon restarted
+     assertTrue("tick: restart", tc.restarts() == 1 && tc.samples() == 17
+           && Math.abs(tc.toNanoTime(123456789) - base - 160000000L) < 20000);
+     try (PigpiodSim sim = new PigpiodSim(0)) {
+       sim.setTick(-2000000, 0); // wraps in 2 s
+       final ClientPigpiod c = client(sim, 0);
+       final TickClock live = new TickClock(c);
+       for (int i = 0; i < 10; ++i) {
+         assertTrue("tick: sample", live.sample() == 0);
+         Thread.sleep(5);
+       }
+       final long t0 = System.nanoTime();
+       final int tick = c.stdCmd(PI_CMD_TICK, 0, 0);
+       final long d = live.toNanoTime(tick) - (t0 + System.nanoTime()) / 2;
+       assertTrue("tick: live " + d + " ns, " + live, Math.abs(d)
+                                  < live.errorNanos(t0) + 2000000);
+       c.disconnect();
+     }
+   } // testTickClock()
+
+/** CommandRecorder and CommandReplayer: round trip over segments. <br />
+ *  <br />
+ *  A segment of another nanoTime origin (other process, reboot) must be
+ *  rebased by its header's clock pair.
+ */
+   @Test public void testRecordReplay() throws IOException {
+     final File dir = Files.createTempDirectory("rec").toFile();
+     try (PigpiodSim sim = new PigpiodSim(0);
+          PigpiodSim sim2 = new PigpiodSim(0)) {
+       final ClientPigpiod c = client(sim, 0);
+       final CommandRecorder rec = new CommandRecorder(dir, "t", 1024, 0);
+       c.setRecorder(rec);
+       final List<Integer> cmds = new ArrayList<>();
+       for (int i = 0; i < 1500; ++i) {
+         final int g = 4 + i % 20;
+         final int cmd = i % 3 == 0 ? PI_CMD_MODEG : PI_CMD_WRITE;
+         c.stdCmd(cmd, g, i / 20 & 1);
+         cmds.add(cmd);
+       }
+       new Waveform().high(4, 10).create(c); // WVNEW, WVAG (ext), WVCRE
+       cmds.add(PI_CMD_WVNEW);
+       cmds.add(PI_CMD_WVAG);
+       cmds.add(PI_CMD_WVCRE);
+       c.setRecorder(null);
+       rec.close();
+       final File[] segs = CommandRecorder.segments(dir, "t");
+       assertTrue("rec: 2 segments", segs.length == 2
+                           && rec.records() == 1503 && rec.dropped() == 0);
+       final List<long[]> got = new ArrayList<>();
+       final CommandReplayer rp = new CommandReplayer(dir, "t");
+       rp.forEach((t, cmd, p1, p2, p3, ret, rtt) ->
+                                 got.add(new long[]{t, cmd, rtt}));
+       boolean same = got.size() == cmds.size();
+       for (int i = 0; same && i < got.size(); ++i) {
+         same = got.get(i)[1] == cmds.get(i) && got.get(i)[2] > 0
+             && (i == 0 || got.get(i)[0] >= got.get(i - 1)[0]);
+       }
+       assertTrue("rec: read back in order", same);
+       final long d = 5000000000000L; // 2nd segment: other nanoTime origin
+       final ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(
+                         segs[1].toPath())).order(ByteOrder.LITTLE_ENDIAN);
+       b.putLong(24, b.getLong(24) - d);
+       for (int p = CommandRecorder.HEAD; p < b.capacity();
+                                             p += CommandRecorder.REC) {
+         if (b.getLong(p) != 0) b.putLong(p, b.getLong(p) - d);
+       }
+       Files.write(segs[1].toPath(), b.array());
+       final List<Long> times = new ArrayList<>();
+       rp.forEach((t, cmd, p1, p2, p3, ret, rtt) -> times.add(t));
+       boolean rebased = times.size() == got.size();
+       for (int i = 0; rebased && i < times.size(); ++i) {
+         rebased = Math.abs(times.get(i) - got.get(i)[0]) < 2000000;
+       }
+       assertTrue("rec: segment rebased (by the ms wall clock)", rebased);
+       final ClientPigpiod c2 = client(sim2, 0), c3 = client(sim2, 2);
+       final CommandReplayer.Result r = rp.replay(c2, 0);
+       assertTrue("replay: " + r, r.sent == 1502 && r.skipped == 1
+           && r.differ == 1 && r.failed == 1 // WVCRE of an empty waveform
+           && (sim2.levels() & 0xFFFFF0) == (sim.levels() & 0xFFFFF0));
+       final CommandReplayer.Result rPipe = rp.replay(c3, 0);
+       assertTrue("replay pipelined: " + rPipe, rPipe.sent == 1502
+                                     && rPipe.failed == 1); // WVCRE again
+       c.disconnect();
+       c2.disconnect();
+       c3.disconnect();
+     } finally {
+       delete(dir);
+     }
+   } // testRecordReplay()
+
+/** Let at least one &quot;test&quot; fail on intend. <br />
+ *  <br />
+ *  This is mainly a meta test for the test harness.<br />
+ */
+   static boolean failIntent;
+
+/** Intentional failure (with -fail). <br /> */
+   @Test public void testHarness(){
+     if (failIntent) assertTrue("intentionally", false);
+   } // testHarness()
+
+/** Static test launcher. <br />
+ *  <br />
+ *  @param args -fail switches on intentional test failures
+ */
+   public static void main(final String[] args){
+     failIntent = args.length > 0 && args[0].equals("-fail");
+     System.out.println("\n /// Test start with "
+             + (failIntent ? "all" : "no") + " intentional test failures\n");
+     final Result result =
+                     org.junit.runner.JUnitCore.runClasses(PackageTest.class);
+     final int anzFail = result.getFailureCount();
+     if (anzFail > 0) {
+       int i = 0;
+       for (Failure f : result.getFailures()) {
+         System.out.println("\n\n // failure " + ++i + " : " + f);
+       }
+     }
+     System.out.println("\n /// " + result.getRunCount()
+                         + " test(s) ended with " + anzFail + " failures \n");
+   } // main(String[])
+
+} // PackageTest (17.10.2026)
@@ -0,0 +1,463 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+import javax.management.JMException;
+
+/** <b>A fleet of Raspberry Pis controlled from one JVM</b>.<br />
+ *  <br />
+ *  An object of this class is a registry of many {@link ClientPigpiod}
+ *  connections. The Pis are keyed by {@link #key(ThePi) host:port} (as
+ *  {@link ThePi#equals(Object)} just compares the Pi type). <br />
+ *  <br />
+ *  The fleet's IO cycles are driven by a small shared pool of threads
+ *  instead of one (or more) thread per Pi. Connecting all Pis and
+ *  broadcast operations (like {@link #allOutputsOff()}) are done in
+ *  parallel; on a JVM with virtual threads by those, else by a
+ *  temporary pool. Hence, starting a fleet of 50 Pis takes about one
+ *  connect time, not 50. <br />
+ *  <br />
+ *  Fleet wide throughput, latency and error counters are kept by
+ *  {@link LongAdder}s and may be observed via JMX ({@link PiFleetMBean},
+ *  see {@link #regAsMBean()}). <br />
+ *  <br />
+ *  Usage scheme: <pre>
+ *  PiFleet fleet = new PiFleet(4, app);
+ *  for (String host : hosts) fleet.add(Pi3.make(host, 0, 0, 3));
+ *  fleet.connectAll();
+ *  fleet.schedule(100, pigpio -&gt; oneCycle(pigpio)); // every 100 ms
+ *  ...
+ *  fleet.allOutputsOff();
+ *  fleet.close();</pre>
+ *  A cycle must not wait for broadcast operations or other cycles (as
+ *  they may need the same pool threads). <br />
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see ClientPigpiod
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  67 (16.10.2026) : new
+public class PiFleet implements PiFleetMBean, AutoCloseable {
+
+/** <b>A Pi of the fleet</b>. <br /> */
+   public static final class Member {
+
+/** The Pi. <br /> */
+     public final ThePi thePi;
+
+/** The key (host:port). <br /> */
+     public final String key;
+
+/** The connection; null if not (yet) connected. <br /> */
+     volatile ClientPigpiod pigpio;
+
+/** The last exception (on connect or in a cycle). <br /> */
+     volatile Throwable lastExc;
+
+/** Counters of this Pi. <br /> */
+     final LongAdder cycles = new LongAdder(), errors = new LongAdder();
+
+/** The cyclic task; null if none. <br /> */
+     ScheduledFuture<?> task;
+
+     Member(final ThePi thePi){
+       this.thePi = thePi;
+       this.key = key(thePi);
+     } // Member(ThePi)
+
+/** The connection. <br />
+ *  @return the connection or null if not connected
+ */
+     public ClientPigpiod pigpio(){ return pigpio; }
+
+/** Is connected. <br /> */
+     public boolean isConnected(){ return pigpio != null; }
+
+/** The last exception. <br />
+ *  @return the last exception on connect or in a cycle; null if none
+ */
+     public Throwable lastExc(){ return lastExc; }
+
+/** The number of cycles run for this Pi. <br /> */
+     public long cycles(){ return cycles.sum(); }
+
+/** The number of errors for this Pi. <br /> */
+     public long errors(){ return errors.sum(); }
+
+     @Override public String toString(){
+       return key + (pigpio != null ? " connected" : " not connected");
+     } // toString()
+   } // Member
+
+/** The Pis by key. <br /> */
+   final ConcurrentHashMap<String, Member> members =
+                                                 new ConcurrentHashMap<>();
+
+/** The shared pool for the IO cycles. <br /> */
+   final ScheduledExecutorService pool;
+
+/** The application (for the connections' outputs). <br /> */
+   final Object app;
+
+/** Use the NIO transport for the connections. <br /> */
+   final boolean nio;
+
+/** Fleet wide counters. <br /> */
+   final LongAdder cycles = new LongAdder(), errors = new LongAdder(),
+                   cycNanos = new LongAdder();
+
+/** Maximum cycle duration in ns. <br /> */
+   volatile long maxNanos;
+
+/** Start of counting (System.nanoTime()). <br /> */
+   volatile long countStart = System.nanoTime();
+
+/** Make a fleet. <br />
+ *
+ *  @param threads the number of threads for the IO cycles (1..64)
+ *  @param app the application; see {@link ClientPigpiod#setOut(Object)}
+ *  @param nio true: connect by the NIO transport
+ *         (see {@link ClientPigpiod#nio})
+ */
+   public PiFleet(final int threads, final Object app, final boolean nio){
+     this.app = app;
+     this.nio = nio;
+     pool = Executors.newScheduledThreadPool(
+               threads < 1 ? 1 : threads > 64 ? 64 : threads,
+               daemonFactory("pi-fleet-"));
+   } // PiFleet(int, Object, boolean)
+
+/** Make a fleet using the classic transport. <br />
+ *
+ *  @param threads the number of threads for the IO cycles (1..64)
+ *  @param app the application; see {@link ClientPigpiod#setOut(Object)}
+ */
+   public PiFleet(final int threads, final Object app){
+     this(threads, app, false);
+   } // PiFleet(int, Object)
+
+/** The key of a Pi. <br />
+ *
+ *  @param thePi the Pi
+ *  @return host:port
+ */
+   public static String key(final ThePi thePi){
+     final String host = thePi.host();
+     return (host != null ? host : "localhost") + ":" + thePi.sockP();
+   } // key(ThePi)
+
+/** Add a Pi. <br />
+ *  <br />
+ *  The Pi is registered but not connected. If a Pi with the same key is
+ *  registered already, that one is returned.
+ *
+ *  @param thePi the Pi; not null
+ *  @return the fleet member
+ */
+   public Member add(final ThePi thePi){
+     return members.computeIfAbsent(key(thePi), k -> new Member(thePi));
+   } // add(ThePi)
+
+/** Add a connected Pi. <br />
+ *
+ *  @param pigpio the connection; not null
+ *  @return the fleet member
+ */
+   public Member add(final ClientPigpiod pigpio){
+     final Member m = add(pigpio.thePi);
+     if (m.pigpio == null) m.pigpio = pigpio;
+     return m;
+   } // add(ClientPigpiod)
+
+/** Get a Pi. <br />
+ *
+ *  @param key host:port
+ *  @return the member or null
+ */
+   public Member get(final String key){ return members.get(key); }
+
+/** Get a Pi's connection. <br />
+ *
+ *  @param thePi the Pi
+ *  @return the connection or null if not registered or not connected
+ */
+   public ClientPigpiod pigpio(final ThePi thePi){
+     final Member m = members.get(key(thePi));
+     return m == null ? null : m.pigpio;
+   } // pigpio(ThePi)
+
+/** All Pis. <br />
+ *  @return the fleet members (a view)
+ */
+   public Collection<Member> members(){ return members.values(); }
+
+/** Connect all Pis not yet connected. <br />
+ *  <br />
+ *  The connects are made in parallel. This method returns when all are
+ *  made or failed.
+ *
+ *  @return the number of Pis connected now
+ */
+   public int connectAll(){
+     final List<Member> todo = new ArrayList<>();
+     for (Member m : members.values()) if (m.pigpio == null) todo.add(m);
+     if (!todo.isEmpty()) {
+       final ExecutorService burst = burstExecutor(todo.size());
+       try {
+         final CompletableFuture<?>[] all =
+                                       new CompletableFuture<?>[todo.size()];
+         for (int i = 0; i < all.length; ++i) {
+           final Member m = todo.get(i);
+           all[i] = CompletableFuture.runAsync(() -> connect(m), burst);
+         }
+         CompletableFuture.allOf(all).join();
+       } finally {
+         burst.shutdown();
+       }
+     }
+     return getConnected();
+   } // connectAll()
+
+/** Connect one Pi. <br /> */
+   void connect(final Member m){
+     try {
+       m.pigpio = new ClientPigpiod(m.thePi, app, nio);
+       m.lastExc = null;
+     } catch (IOException | RuntimeException e) {
+       m.lastExc = e;
+       m.errors.increment();
+       errors.increment();
+     }
+   } // connect(Member)
+
+/** Schedule an IO cycle for every Pi connected. <br />
+ *  <br />
+ *  The cycle is run with the Pi's connection at the given period by the
+ *  fleet's pool. A result &lt; 0 or an exception counts as error.
+ *  A Pi's former cycle is cancelled.
+ *
+ *  @param periodMs the cycle time in ms (&gt; 0)
+ *  @param cycle the cycle's work; returns &lt; 0 on error
+ *  @return the number of cycles scheduled
+ */
+   public int schedule(final long periodMs,
+                                  final ToIntFunction<ClientPigpiod> cycle){
+     int cnt = 0;
+     for (Member m : members.values()) {
+       if (m.pigpio == null) continue;
+       synchronized (m) {
+         if (m.task != null) m.task.cancel(false);
+         m.task = pool.scheduleAtFixedRate(() -> runCycle(m, cycle),
+                                 0, periodMs, TimeUnit.MILLISECONDS);
+       }
+       ++cnt;
+     } // for
+     return cnt;
+   } // schedule(long, ToIntFunction)
+
+/** Run one cycle of a Pi with measurement. <br /> */
+   void runCycle(final Member m, final ToIntFunction<ClientPigpiod> cycle){
+     final ClientPigpiod pigpio = m.pigpio;
+     if (pigpio == null) return;
+     final long start = System.nanoTime();
+     boolean bad;
+     try {
+       bad = cycle.applyAsInt(pigpio) < 0;
+     } catch (RuntimeException e) {
+       m.lastExc = e;
+       bad = true;
+     }
+     final long dur = System.nanoTime() - start;
+     cycNanos.add(dur);
+     if (dur > maxNanos) maxNanos = dur; // racy max is good enough
+     m.cycles.increment();
+     cycles.increment();
+     if (bad) {
+       m.errors.increment();
+       errors.increment();
+     }
+   } // runCycle(Member, ToIntFunction)
+
+/** Stop all IO cycles. <br /> */
+   public void unschedule(){
+     for (Member m : members.values()) {
+       synchronized (m) {
+         if (m.task != null) m.task.cancel(false);
+         m.task = null;
+       }
+     }
+   } // unschedule()
+
+/** Do an operation on every Pi connected in parallel. <br />
+ *  <br />
+ *  This method returns when the operation is done on all Pis.
+ *
+ *  @param op the operation; returns &lt; 0 on error
+ *  @return the results (or {@link PiGpioDdefs#PI_SOCK_WRIT_FAILED} on
+ *          exception) by key
+ */
+   public Map<String, Integer> broadcast(final ToIntFunction<ClientPigpiod> op){
+     final List<Member> conn = new ArrayList<>();
+     for (Member m : members.values()) if (m.pigpio != null) conn.add(m);
+     final Map<String, Integer> ret = new LinkedHashMap<>();
+     if (conn.isEmpty()) return ret;
+     final ExecutorService burst = burstExecutor(conn.size());
+     try {
+       final List<CompletableFuture<Integer>> all =
+                                            new ArrayList<>(conn.size());
+       for (int i = 0; i < conn.size(); ++i) {
+         final Member m = conn.get(i);
+         all.add(CompletableFuture.supplyAsync(() -> {
+           try {
+             return op.applyAsInt(m.pigpio);
+           } catch (RuntimeException e) {
+             m.lastExc = e;
+             return PiGpioDdefs.PI_SOCK_WRIT_FAILED;
+           }
+         }, burst));
+       }
+       for (int i = 0; i < conn.size(); ++i) {
+         final Member m = conn.get(i);
+         final int r = all.get(i).join();
+         if (r < 0) {
+           m.errors.increment();
+           errors.increment();
+         }
+         ret.put(m.key, r);
+       }
+     } finally {
+       burst.shutdown();
+     }
+     return ret;
+   } // broadcast(ToIntFunction)
+
+/** Set all outputs off on every Pi. <br />
+ *  <br />
+ *  All outputs set by the programs (see {@link ClientPigpiod#areOut()})
+ *  are set OFF on all Pis in parallel.
+ *
+ *  @return the number of Pis failing
+ */
+   @Override public Integer allOutputsOff(){
+     int bad = 0;
+     for (int r : broadcast(p -> p.setOutSet(p.areOut(), false)).values()) {
+       if (r < 0) ++bad;
+     }
+     return bad;
+   } // allOutputsOff()
+
+/** Stop all and disconnect all Pis. <br /> */
+   @Override public void close(){
+     unschedule();
+     pool.shutdown();
+     for (Member m : members.values()) {
+       final ClientPigpiod p = m.pigpio;
+       m.pigpio = null;
+       if (p != null) try {
+         p.disconnect();
+       } catch (IOException e) {} // ignore
+     }
+   } // close()
+
+/** Register this fleet as MBean. <br />
+ *
+ *  @return the registered object name
+ *  @throws JMException if the registering fails (e.g. a second fleet)
+ *  @see PiUtil#regAsStdMBean(Object)
+ */
+   public String regAsMBean() throws JMException {
+     return PiUtil.regAsStdMBean(this);
+   } // regAsMBean()
+
+//--------------------------------  MBean  ---------------------------------
+
+   @Override public Integer getMembers(){ return members.size(); }
+
+   @Override public Integer getConnected(){
+     int cnt = 0;
+     for (Member m : members.values()) if (m.pigpio != null) ++cnt;
+     return cnt;
+   } // getConnected()
+
+   @Override public Long getCycles(){ return cycles.sum(); }
+
+   @Override public Long getErrors(){ return errors.sum(); }
+
+   @Override public Double getCyclesPerSecond(){
+     final long dur = System.nanoTime() - countStart;
+     return dur <= 0 ? 0.0 : cycles.sum() * 1e9 / dur;
+   } // getCyclesPerSecond()
+
+   @Override public Double getAvgCycleMicros(){
+     final long n = cycles.sum();
+     return n == 0 ? 0.0 : cycNanos.sum() / 1000.0 / n;
+   } // getAvgCycleMicros()
+
+   @Override public Long getMaxCycleMicros(){ return maxNanos / 1000; }
+
+   @Override public void resetStats(){
+     cycles.reset();
+     errors.reset();
+     cycNanos.reset();
+     maxNanos = 0;
+     countStart = System.nanoTime();
+   } // resetStats()
+
+//----------------------------  thread helpers  ----------------------------
+
+/** A factory for named daemon threads. <br /> */
+   static ThreadFactory daemonFactory(final String name){
+     final AtomicInteger no = new AtomicInteger();
+     return r -> {
+       final Thread t = new Thread(r, name + no.incrementAndGet());
+       t.setDaemon(true);
+       return t;
+     };
+   } // daemonFactory(String)
+
+/** An executor for a burst of parallel (blocking) tasks. <br />
+ *  <br />
+ *  On a JVM having {@link PiUtil#virtualThreads() virtual threads} this
+ *  is an unbounded pool of them (practically a virtual thread per task);
+ *  else a pool of up to 64 daemon threads. The caller has to shut it down.
+ *
+ *  @param tasks the number of tasks
+ */
+   static ExecutorService burstExecutor(final int tasks){
+     final ThreadFactory virt = PiUtil.virtualThreads();
+     if (virt != null) return Executors.newCachedThreadPool(virt);
+     return Executors.newFixedThreadPool(tasks < 1 ? 1
+                    : tasks > 64 ? 64 : tasks, daemonFactory("pi-burst-"));
+   } // burstExecutor(int)
+
+} // PiFleet (16.10.2026)
@@ -0,0 +1,68 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+/** <b>A Pi fleet's MBean</b>.<br />
+ *  <br />
+ *  Fleet wide counters and operations of a {@link PiFleet} for observation
+ *  and control via JMX (JConsole e.g.).<br />
+ *  <br />
+ *  Copyright  &copy;  2026  Frame4J contributors <br />
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  67 (16.10.2026) : new
+public interface PiFleetMBean {
+
+/** The number of Pis in the fleet. <br /> */
+   public Integer getMembers();
+
+/** The number of Pis connected. <br /> */
+   public Integer getConnected();
+
+/** The number of IO cycles run (all Pis). <br /> */
+   public Long getCycles();
+
+/** The number of errors (all Pis). <br />
+ *  <br />
+ *  Errors are failed connects, cycles returning an error (&lt; 0) or
+ *  throwing and failed broadcast operations.
+ */
+   public Long getErrors();
+
+/** The IO cycles' throughput. <br />
+ *  @return cycles per second (all Pis) since start or reset
+ */
+   public Double getCyclesPerSecond();
+
+/** The IO cycles' mean latency. <br />
+ *  @return the mean duration of a cycle's execution in &micro;s
+ */
+   public Double getAvgCycleMicros();
+
+/** The IO cycles' maximum latency. <br />
+ *  @return the maximum duration of a cycle's execution in &micro;s
+ */
+   public Long getMaxCycleMicros();
+
+/** Reset the counters. <br /> */
+   public void resetStats();
+
+/** Set all outputs off on every Pi. <br />
+ *  @return the number of Pis failing
+ *  @see PiFleet#allOutputsOff()
+ */
+   public Integer allOutputsOff();
+
+} // PiFleetMBean (16.10.2026)
@@ -39,6 +39,11 @@ package de.weAut;
 //           V. 36  (06.04.2021) :  minor typo
 //           V. 54  (22.06.2021) :  documentation++
 //           V. 57  (14.07.2021) :  p1 semantic debugged
+//           V. 64  (16.10.2026) :  notification flags
+//           V. 75  (16.10.2026) :  waveform modes and limits
+//           V. 76  (16.10.2026) :  script states
+//           V. 109 (17.10.2026) :  waveform defines in their own group
+//           V. 110 (17.10.2026) :  script states in their own group
 public interface PiGpioDdefs {
 
 //-------------------------------------   Socket command codes   ------------
@@ -101,7 +106,7 @@ public interface PiGpioDdefs {
    public static final int PI_CMD_SLRO  = 42; // 
    public static final int PI_CMD_SLR   = 43; // 
    public static final int PI_CMD_SLRC  = 44; // 
-   public static final int PI_CMD_PROCP = 45; // 
+   public static final int PI_CMD_PROCP = 45; // script status and params
    public static final int PI_CMD_MICS  = 46; // 
    public static final int PI_CMD_MILS  = 47; // 
    public static final int PI_CMD_PARSE = 48; // 
@@ -168,10 +173,10 @@ public interface PiGpioDdefs {
    public static final int PI_CMD_FG    = 97; // 
    public static final int PI_CMD_FN    = 98; // 
 
-   public static final int PI_CMD_NOIB  = 99; // 
+   public static final int PI_CMD_NOIB  = 99; // open notification in band
 
-   public static final int PI_CMD_WVTXM = 100; // 
-   public static final int PI_CMD_WVTAT = 101; // 
+   public static final int PI_CMD_WVTXM = 100; // send wave by mode
+   public static final int PI_CMD_WVTAT = 101; // wave transmitted at
 
    public static final int PI_CMD_PADS  = 102; // set pad strength
    public static final int PI_CMD_PADG  = 103; // get pad strength
@@ -197,6 +202,37 @@ public interface PiGpioDdefs {
    public static final int PI_CMD_PROCU = 117; //
    public static final int PI_CMD_NONE = 118; // 117 is the last command
 
+//-------------------------------------   Notification flags   --------------
+
+   // notification report: seqno uint16, flags uint16, tick, level uint32
+   public static final int PI_NTFY_FLAGS_EVENT = 1 << 7; // event triggered
+   public static final int PI_NTFY_FLAGS_ALIVE = 1 << 6; // keep alive
+   public static final int PI_NTFY_FLAGS_WDOG  = 1 << 5; // watchdog timeout
+   public static final int PI_NTFY_FLAGS_BIT   = 0x1F; // GPIO resp. event
+
+//-------------------------------------   Waveforms   -----------------------
+
+   // WVTXM modes
+   public static final int PI_WAVE_MODE_ONE_SHOT      = 0;
+   public static final int PI_WAVE_MODE_REPEAT        = 1;
+   public static final int PI_WAVE_MODE_ONE_SHOT_SYNC = 2; // after current
+   public static final int PI_WAVE_MODE_REPEAT_SYNC   = 3; // after current
+
+   public static final int PI_WAVE_NOT_FOUND = 9998; // WVTAT: not known
+   public static final int PI_NO_TX_WAVE     = 9999; // WVTAT: none sent
+   public static final int PI_WAVE_MAX_PULSES = 12000; // per waveform
+   public static final int PI_WAVE_MAX_CHAIN  = 600; // WVCHA bytes
+
+//-------------------------------------   Script status   -------------------
+
+   // PROCP status; followed by the parameters p0..p9
+   public static final int PI_SCRIPT_INITING = 0;
+   public static final int PI_SCRIPT_HALTED  = 1;
+   public static final int PI_SCRIPT_RUNNING = 2;
+   public static final int PI_SCRIPT_WAITING = 3;
+   public static final int PI_SCRIPT_FAILED  = 4;
+   public static final int PI_MAX_SCRIPT_PARAMS = 10; // p0..p9
+
 //-------------------------------------   p1 semantics  ---------------------   
 
   public static final int GPIO = 1;
@@ -362,7 +398,7 @@ public interface PiGpioDdefs {
    public static final int PI_BAD_CHAIN_LOOP  = -114; // empty chain loop
    public static final int PI_CHAIN_COUNTER   = -115; // too many chain counters
    public static final int PI_BAD_CHAIN_CMD   = -116; // bad chain command
-   public static final int PI_BAD_CHAIN_DELAY = -117; // bad chain delay s
+   public static final int PI_BAD_CHAIN_DELAY = -117; // bad chain delay µs
    public static final int PI_CHAIN_NESTING   = -118; // chain counters nested too deeply
    public static final int PI_CHAIN_TOO_BIG   = -119; // chain is too long
    public static final int PI_DEPRECATED      = -120; // deprecated function removed
@@ -21,10 +21,16 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.management.ManagementFactory;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.util.Arrays;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import javax.management.JMException;
 import javax.management.MBeanServer;
 import javax.management.NotCompliantMBeanException;
@@ -50,6 +56,12 @@ import de.frame4j.util.ComVar;
 //           V.  21  (19.05.2019) : ALT numbers, typo
 //           V.  25  (27.05.2019) : enhanced error numbers 
 //           V.  36  (06.04.2021) : re-work
+//           V.  63  (16.10.2026) : NIO start argument
+//           V.  67  (16.10.2026) : register any object as MBean
+//           V.  70  (16.10.2026) : register any object (by name) as MBean
+//           V.  72  (16.10.2026) : ns precision (park / spin) delays
+//           V.  73  (16.10.2026) : cycle lateness telemetry (CycleStats)
+//           V.  94  (16.10.2026) : virtual threads (one reflective helper)
 public interface PiUtil extends PiVals {
   
 /** The standard output. <br />
@@ -84,12 +96,43 @@ public interface PiUtil extends PiVals {
  * 
  *  @return the registered object name
  *  @throws JMException if the registering fails 
+ *  @see #regAsStdMBean(Object)
  */
   public default String regAsStdMBean() throws JMException {
+    return regAsStdMBean(this);
+  } // regAsStdMBean()
+
+/** Register an object as standard MBean. <br />
+ *  <br />
+ *  The object's class {@code package.Class} must implement the interface
+ *  {@code package.ClassMBean}. It is registered at the platform MBean
+ *  server by the name {@code package:type=Class}.
+ *
+ *  @param mBean the object to register
+ *  @return the registered object name
+ *  @throws JMException if the registering fails 
+ */
+  public static String regAsStdMBean(final Object mBean) throws JMException {
+    return regAsStdMBean(mBean, null);
+  } // regAsStdMBean(Object)
+
+/** Register an object as standard MBean by name. <br />
+ *  <br />
+ *  As {@link #regAsStdMBean(Object)} but, if name is not null, registered
+ *  by {@code package:type=Class,name="name"}. So more objects of the same
+ *  class can be registered, e.g. one per Pi.
+ *
+ *  @param mBean the object to register
+ *  @param name the name (quoted if needed); may be null
+ *  @return the registered object name
+ *  @throws JMException if the registering fails 
+ */
+  public static String regAsStdMBean(final Object mBean,
+                               final String name) throws JMException {
     MBeanServer platformMBeanServer =
                             ManagementFactory.getPlatformMBeanServer();
     ObjectName objectName = null;
-    Class<?> clasz = this.getClass();
+    Class<?> clasz = mBean.getClass();
     String fullName = clasz.getName();
     String fullMBname = fullName + "MBean";
     Class<?>[] intfacs = clasz.getInterfaces();
@@ -105,10 +148,38 @@ public interface PiUtil extends PiVals {
       new NotCompliantMBeanException("no package.class");
     String oName = fullName.substring (0, lastDot) + ":type="
                                 + fullName.substring (lastDot + 1);
+    if (name != null) oName += ",name=" + ObjectName.quote(name);
     objectName = new ObjectName(oName);
-    platformMBeanServer.registerMBean(this, objectName);
+    platformMBeanServer.registerMBean(mBean, objectName);
     return oName;
-  } // regAsStdMBean()
+  } // regAsStdMBean(Object, String)
+
+/** Virtual threads' factory. <br />
+ *  <br />
+ *  On a JVM having virtual threads (Java 21+) this is
+ *  {@code Thread.ofVirtual().factory()}. As Frame4J runs on Java 8 it is
+ *  got (once) by reflection.
+ *
+ *  @return the factory; null if the JVM has no virtual threads
+ *  @see #startVirtual(Runnable)
+ */
+  public static ThreadFactory virtualThreads(){ return Impl.virtualThreads; }
+
+/** Start a virtual thread. <br />
+ *  <br />
+ *  If the JVM has no {@link #virtualThreads() virtual threads} a daemon
+ *  platform thread is started.
+ *
+ *  @param r the thread's work
+ *  @return the thread started
+ */
+  public static Thread startVirtual(final Runnable r){
+    final ThreadFactory f = Impl.virtualThreads;
+    final Thread t = f != null ? f.newThread(r) : new Thread(r);
+    if (f == null) t.setDaemon(true); // before Java 21
+    t.start();
+    return t;
+  } // startVirtual(Runnable)
 
 /** Report an exception. <br />
  * 
@@ -405,10 +476,79 @@ public interface PiUtil extends PiVals {
  *  {@code millies} ms. The number of delays having been spoiled so can be 
  *  obtained by {@link #getOvrCnt()}. <br />
  *  <br />
+ *  For periods below some ms use {@link #thrDelayNanos(long)}.
  *  @param millies the number of ms to delay relativ to the last call
  */  
    public default void thrDelay(int millies){ Impl.thrDelay(millies); }
 
+/** Periodic delay in ns precision. <br />
+ *  <br />
+ *  This method delays the calling thread for the given number of ns 
+ *  relative to its last call, like {@link #thrDelay(int)} does in ms.
+ *  The times are by System.nanoTime() (not affected by setting the clock).
+ *  The delay is done by {@link #parkUntil(long)}, i.e. with some &micro;s
+ *  precision. Hence periods of 100..500 &micro;s (for bit-banged 
+ *  protocols or fast control loops) are feasible. <br />
+ *  <br />
+ *  Successful and spoiled delays are counted by the same (thread's) 
+ *  counters as thrDelay's; see {@link #getDelCnt()} and 
+ *  {@link #getOvrCnt()}.
+ *
+ *  @param nanos the number of ns to delay relative to the last call
+ *         (&gt;= 1000)
+ */
+   public default void thrDelayNanos(long nanos){ Impl.thrDelayNanos(nanos); }
+
+/** Periodic delay in &micro;s. <br />
+ *  @param micros the number of &micro;s to delay relative to the last call
+ *  @see #thrDelayNanos(long)
+ */
+   public default void thrDelayMicros(int micros){
+     Impl.thrDelayNanos(micros * 1000L);
+   } // thrDelayMicros(int)
+
+/** Precise delay until a point in time. <br />
+ *  <br />
+ *  The calling thread is parked (by {@link LockSupport#parkNanos(long)})
+ *  until shortly before deadline; the rest is spun (with Thread.onSpinWait()
+ *  on Java 9+). The spin time is the park's typical wake up lateness as
+ *  measured by {@link #calibrateDelay()}. So the CPU is used for the last
+ *  some ten &micro;s only, and the deadline is met within few &micro;s
+ *  (if the thread is not hindered by others). <br />
+ *  This method ignores interrupts.
+ *
+ *  @param deadline the time to return as by System.nanoTime()
+ */
+   public static void parkUntil(final long deadline){
+     Impl.parkUntil(deadline);
+   } // parkUntil(long)
+
+/** Precise delay. <br />
+ *  @param nanos the delay in ns
+ *  @see #parkUntil(long)
+ */
+   public static void delayNanos(final long nanos){
+     Impl.parkUntil(System.nanoTime() + nanos);
+   } // delayNanos(long)
+
+/** Calibrate the precise delay. <br />
+ *  <br />
+ *  Park's wake up lateness is measured (some ms). The spin time of
+ *  {@link #parkUntil(long)} is set to its 90 % value plus 10 &micro;s
+ *  (20 &micro;s .. 2 ms). <br />
+ *  This is done automatically on first use. It may be called at start to
+ *  avoid that delay in a cycle or later again if the system's load changed.
+ *
+ *  @return the spin time in ns
+ */
+   public static long calibrateDelay(){ return Impl.calibrate(); }
+
+/** The precise delay's spin time. <br />
+ *  @return the spin time in ns; -1: not calibrated yet
+ *  @see #calibrateDelay()
+ */
+   public static long getSpinNanos(){ return Impl.spinNs; }
+
 /** Get the number of thread delays. <br />
  *  <br />   
  *  @return the number of successful thread delays
@@ -432,8 +572,23 @@ public interface PiUtil extends PiVals {
  */
    public final class LeTick {
       long tick;
+      long nanoTick; // target by System.nanoTime() (thrDelayNanos)
+      boolean nanoSet; // nanoTick valid
       int cycCnt; // (sub-) cycle count (counts the adds)
       int ovrCnt; // overrun count (count the sets)
+      CycleStats.Entry late; // lateness telemetry; lazy
+
+/** The thread's lateness telemetry. <br />
+ *  <br />
+ *  The entry is named "thread " plus the thread's name.
+ *  @return the entry; made on first use
+ *  @see CycleStats
+ */
+      public CycleStats.Entry stats(){
+        if (late == null) late = CycleStats.get().entry("thread "
+                                       + Thread.currentThread().getName());
+        return late;
+      } // stats()
 
 /** Get the tick value. <br />
  *  @see PiUtil#thrDelay(int)
@@ -450,10 +605,37 @@ public interface PiUtil extends PiVals {
  */
       public long add(final long adv){ ++cycCnt; return this.tick += adv; }
 
+/** Get the ns tick value. <br />
+ *  @see PiUtil#thrDelayNanos(long)
+ */      
+      public long getNanoTick(){ return nanoTick; }
+      
+/** Set the ns tick value. */
+      public void setNanoTick(final long nanoTick){
+        if (nanoSet) ++ovrCnt;
+        nanoSet = true;
+        this.nanoTick = nanoTick;
+      } // setNanoTick(long)
+      
+/** Advance or add to the ns tick value. <br />
+ *  <br />      
+ *  @param adv the value to be added (will normally be &gt; 0)
+ *  @return the advanced value
+ */
+      public long addNanos(final long adv){ ++cycCnt; return nanoTick += adv; }
+
 /** Make with initial value. */      
       public LeTick(long tick){ this.tick = tick; }
    } // LeTick
 
+/** Cycle lateness report. <br />
+ *  <br />
+ *  @return a compact text, one line per cyclic thread or task, to be
+ *          appended to a state string e.g.
+ *  @see CycleStats#report()
+ */
+   public default String cycleReport(){ return CycleStats.get().report(); }
+
 /** Get the last lock file. <br />
  *
  *  @return the name of the last lock file locked and eventually released
@@ -503,6 +685,16 @@ public interface PiUtil extends PiVals {
   } // setArgHost(int)
 /** Start argument getter. <br /> */   
   public default String argHost(){ return Impl.argHost; }
+
+/** Start argument setter. <br /> 
+ *  @param argNio true: use the NIO channel transport to pigpiod
+ *  @see ClientPigpiod#nio
+ */
+  public default void setArgNio(final boolean argNio){
+    Impl.argNio = argNio;
+  } // setArgNio(boolean)
+/** Start argument getter. <br /> */   
+  public default boolean argNio(){ return Impl.argNio; }
      
 //======   inner class for initialisations and default methods   ==========
 
@@ -526,6 +718,7 @@ static final class Impl {
   public static int argPort; // 0 -> default 8888
   public static int argTimeout = 10000; // 10s default (not yet evaluated as arg)
   public static String argHost = null; // null not yet set -> default
+  public static boolean argNio; // false -> classic socket streams
 
   private static PrintWriter myOut; 
    
@@ -703,13 +896,112 @@ static final class Impl {
          if (target > now) {
             millies = (int)(target - now); // keep exact period
             // no new Long object leTick = target;
-         } else leTick.setTick(now + millies); // lost exact period start now  
+         } else { // lost exact period start now  
+           leTick.setTick(now + millies);
+           leTick.stats().overrun();
+         }
       } //  have threads last tick
+      final long t0 = System.nanoTime();
       try {
         Thread.sleep(millies);
       } catch (InterruptedException e) { } // ignore exception
+      leTick.stats().record(System.nanoTime() - t0 - millies * 1000000L);
    } // thrDelay(int)
 
+/** Periodic delay in ns. <br />
+ *  <br />
+ *  @see PiUtil#thrDelayNanos(long)
+ *  @param nanos the number of ns to delay relativ to the last call
+ */  
+   static void thrDelayNanos(long nanos){
+      if (nanos < 1000) nanos = 1000; // must be positive
+      final long now = System.nanoTime();
+      LeTick leTick = lastThTick.get();
+      if (leTick == null) {
+        lastThTick.set(leTick = new LeTick(System.currentTimeMillis()));
+      }
+      long target;
+      if (!leTick.nanoSet) { // first time: start now
+        leTick.setNanoTick(target = now + nanos);
+      } else {
+        target = leTick.addNanos(nanos);
+        if (target - now <= 0) { // lost exact period start now
+          leTick.setNanoTick(target = now + nanos);
+          leTick.stats().overrun();
+        }
+      }
+      parkUntil(target);
+      leTick.stats().record(System.nanoTime() - target);
+   } // thrDelayNanos(long)
+
+/** Spin time of parkUntil in ns; -1: not calibrated. <br /> */
+   static volatile long spinNs = -1;
+
+/** Thread.onSpinWait() (Java 9+) or a no operation. <br /> */
+   static final MethodHandle onSpinWait;
+   static {
+     MethodHandle mh;
+     final MethodType vv = MethodType.methodType(void.class);
+     try {
+       mh = MethodHandles.lookup().findStatic(Thread.class, "onSpinWait", vv);
+     } catch (ReflectiveOperationException e) { // Java 8
+       try {
+         mh = MethodHandles.lookup().findStatic(Impl.class, "noSpinHint", vv);
+       } catch (ReflectiveOperationException e2) {
+         throw new ExceptionInInitializerError(e2); // can't happen
+       }
+     }
+     onSpinWait = mh;
+   } // static
+
+   static void noSpinHint(){} // Java 8's Thread.onSpinWait()
+
+/** Thread.ofVirtual().factory() (Java 21+) or null. <br /> */
+   static final ThreadFactory virtualThreads;
+   static {
+     ThreadFactory f = null;
+     try {
+       final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+       f = (ThreadFactory)Class.forName("java.lang.Thread$Builder")
+                             .getMethod("factory").invoke(builder);
+     } catch (ReflectiveOperationException | RuntimeException e) {} // < 21
+     virtualThreads = f;
+   } // static
+
+/** Precise delay until deadline. <br />
+ *  @see PiUtil#parkUntil(long)
+ */
+   static void parkUntil(final long deadline){
+     long spin = spinNs;
+     if (spin < 0) spin = calibrate();
+     long rem;
+     while ((rem = deadline - System.nanoTime()) > spin) {
+       LockSupport.parkNanos(rem - spin);
+     }
+     while (deadline - System.nanoTime() > 0) {
+       try {
+         onSpinWait.invokeExact();
+       } catch (Throwable e) {} // can't happen
+     }
+   } // parkUntil(long)
+
+/** Calibrate the spin time of parkUntil. <br />
+ *  @see PiUtil#calibrateDelay()
+ */
+   static synchronized long calibrate(){
+     final int n = 60;
+     final long[] late = new long[n];
+     for (int i = 0; i < n; ++i) {
+       final long t0 = System.nanoTime();
+       LockSupport.parkNanos(50_000);
+       late[i] = System.nanoTime() - t0 - 50_000;
+     }
+     Arrays.sort(late);
+     final long spin = late[n * 9 / 10] + 10_000;
+     return spinNs = spin < 20_000 ? 20_000 : spin > 2_000_000 ? 2_000_000
+                                                               : spin;
+   } // calibrate()
+
 /** Get the number of cycles respectively delays. <br />
  *  <br /> 
  *  Implementation note on {@link PiUtil.LeTick): This is the count of
@@ -141,7 +141,7 @@ public interface PiVals extends ComVar {
  *  {@link #PIN3V}.
  */
   public static final int PIN01 = PIN3V, PIN1 = PIN3V, 
-                          PIN17 = PIN3V; // 3.3 V C supply
+                          PIN17 = PIN3V; // 3.3 V µC supply
 
 /** The Pi's 5.0 V &micro;C board pins. <br />
  *  <br />
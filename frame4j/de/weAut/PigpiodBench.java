@@ -0,0 +1,369 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import static de.weAut.PiGpioDdefs.*; // pigpio library defines
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.LongAdder;
+
+/** <b>Benchmarks of the pigpiod client's hot path</b>.<br />
+ *  <br />
+ *  This program measures the throughput of {@link ClientPigpiod}'s
+ *  {@link ClientPigpiod#stdCmd(int, int, int) stdCmd(3*int)},
+ *  {@link ClientPigpiod#stdCmd(int, int, int, int) stdCmd(4*int)},
+ *  {@link ClientPigpiod#setOutput(int, boolean) setOutput},
+ *  {@link ClientPigpiod#setOutSet(int, boolean) setOutSet},
+ *  {@link ClientPigpiod#getInp(int) getInp} and
+ *  {@link ClientPigpiod#gpioActionsByMsk(int, java.util.function.IntConsumer)
+ *  gpioActionsByMsk} at 1, 4 and 64 threads sharing one connection: <ul>
+ *  <li>as full round trips against a local (loopback)
+ *      {@link PigpiodSim} by the classic and by the NIO transport, </li>
+ *  <li>and their parts without transport: the thread local
+ *      {@link ClientPigpiod.CmdState} lookup, the pre-checks, the encoding,
+ *      the (contended) {@linkplain ClientPigpiod#ioLock IO lock} and the
+ *      clearing of a buffer.</li></ul>
+ *  Each benchmark is warmed up and then measured in some timed iterations
+ *  (like JMH's throughput mode). The result is the mean and standard
+ *  deviation of the iterations' throughput and the resulting time per
+ *  operation (per thread). <br />
+ *  <br />
+ *  The stress mode lets very many (default 10000) control tasks share one
+ *  connection to a slow (100 &micro;s latency) {@link PigpiodSim}, each
+ *  setting an output and reading an input every 10 ms. The tasks run as
+ *  virtual threads (Java 21+; else as platform threads). A heartbeat
+ *  task sleeping 1 ms measures the scheduler's lateness: if the tasks
+ *  blocked in IO pinned their carrier threads, it would starve. <br />
+ *  <br />
+ *  Run by: <pre>
+ *  java de.weAut.PigpiodBench [quick] [csv] [threads=1,4,64] [filter]
+ *  java de.weAut.PigpiodBench [quick] stress[=10000]</pre>
+ *  quick: short runs (for a check, not for publishing) <br />
+ *  csv: print the results as comma separated values (to be kept per
+ *  release)<br />
+ *  filter: run only benchmarks the name of which contains filter <br />
+ *  stress: run the stress mode with the number of tasks given <br />
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see PigpiodSim
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  69 (16.10.2026) : new
+//           V.  80 (16.10.2026) : IO lock, stress mode (virtual threads)
+//           V.  94 (16.10.2026) : virtual threads by PiUtil
+public class PigpiodBench {
+
+/** An operation to be measured. <br /> */
+   @FunctionalInterface public interface Op {
+
+/** Do the operation once. <br />
+ *  @return some result (consumed to prevent dead code elimination)
+ */
+     int op();
+   } // Op
+
+/** A benchmark result. <br /> */
+   public static final class Result {
+     public final String name;
+     public final int threads;
+     public final double opsPerS, opsPerSdev, nsPerOp;
+
+     Result(final String name, final int threads, final double[] ops){
+       this.name = name;
+       this.threads = threads;
+       double sum = 0, sq = 0;
+       for (double o : ops) sum += o;
+       opsPerS = sum / ops.length;
+       for (double o : ops) sq += (o - opsPerS) * (o - opsPerS);
+       opsPerSdev = ops.length > 1 ? Math.sqrt(sq / (ops.length - 1)) : 0;
+       nsPerOp = opsPerS > 0 ? threads * 1e9 / opsPerS : 0;
+     } // Result(String, int, double[])
+
+     @Override public String toString(){
+       return String.format("%-28s %3d thr %12.0f ops/s +-%5.1f %%"
+              + " %10.1f ns/op", name, threads, opsPerS,
+              opsPerS > 0 ? 100 * opsPerSdev / opsPerS : 0.0, nsPerOp);
+     } // toString()
+
+/** The result as comma separated values. <br /> */
+     public String toCsv(){
+       return String.format(Locale.ROOT, "%s,%d,%.0f,%.0f,%.1f",
+                        name, threads, opsPerS, opsPerSdev, nsPerOp);
+     } // toCsv()
+   } // Result
+
+/** Warm up time per benchmark in ms. <br /> */
+   int warmupMs = 1000;
+
+/** Number of measured iterations. <br /> */
+   int iterations = 5;
+
+/** Time per measured iteration in ms. <br /> */
+   int iterationMs = 1000;
+
+/** Result sink (against dead code elimination). <br /> */
+   volatile int sink;
+
+/** Stop flag of the running iteration. <br /> */
+   volatile boolean stop;
+
+/** Run one benchmark. <br />
+ *  <br />
+ *  The operation is done by threads in parallel, each in a tight loop.
+ *
+ *  @param name the benchmark's name
+ *  @param threads the number of threads
+ *  @param op the operation
+ *  @return the result
+ */
+   public Result run(final String name, final int threads, final Op op){
+     final double[] ops = new double[iterations];
+     final long[] counts = new long[threads];
+     final CyclicBarrier start = new CyclicBarrier(threads + 1);
+     final CyclicBarrier end = new CyclicBarrier(threads + 1);
+     final Thread[] thr = new Thread[threads];
+     final int rounds = iterations + 1; // + warm up
+     for (int t = 0; t < threads; ++t) {
+       final int ti = t;
+       thr[t] = new Thread(() -> {
+         try {
+           for (int r = 0; r < rounds; ++r) {
+             start.await();
+             long cnt = 0;
+             int s = 0;
+             while (!stop) {
+               s += op.op();
+               ++cnt;
+             }
+             counts[ti] = cnt;
+             sink = s;
+             end.await();
+           }
+         } catch (Exception e) {} // broken barrier: end
+       }, "bench-" + t);
+       thr[t].setDaemon(true);
+       thr[t].start();
+     } // for
+     try {
+       for (int r = 0; r < rounds; ++r) {
+         stop = false;
+         start.await();
+         final long t0 = System.nanoTime();
+         Thread.sleep(r == 0 ? warmupMs : iterationMs);
+         stop = true;
+         final long dur = System.nanoTime() - t0;
+         end.await();
+         if (r == 0) continue; // warm up
+         long sum = 0;
+         for (long c : counts) sum += c;
+         ops[r - 1] = sum * 1e9 / dur;
+       } // for
+     } catch (Exception e) {
+       return new Result(name + " (failed)", threads, new double[1]);
+     }
+     return new Result(name, threads, ops);
+   } // run(String, int, Op)
+
+/** Run the benchmarks. <br />
+ *
+ *  @param args [quick] [csv] [threads=1,4,64] [filter]
+ */
+   public static void main(final String[] args){
+     final PigpiodBench bench = new PigpiodBench();
+     boolean csv = false;
+     int[] threads = {1, 4, 64};
+     String filter = null;
+     int stress = 0;
+     for (String a : args) {
+       if ("quick".equals(a)) {
+         bench.warmupMs = 300;
+         bench.iterations = 3;
+         bench.iterationMs = 300;
+       } else if ("csv".equals(a)) {
+         csv = true;
+       } else if (a.startsWith("stress")) {
+         stress = a.startsWith("stress=")
+                  ? Integer.parseInt(a.substring(7)) : 10000;
+       } else if (a.startsWith("threads=")) {
+         threads = Arrays.stream(a.substring(8).split(","))
+                                   .mapToInt(Integer::parseInt).toArray();
+       } else {
+         filter = a;
+       }
+     } // for
+     try (PigpiodSim sim = new PigpiodSim(0)) {
+       final ThePi pi = ThePi.make("localhost", sim.getPort(), 3000, 3);
+       final ClientPigpiod classic = new ClientPigpiod(pi, null, false);
+       final ClientPigpiod nio = new ClientPigpiod(pi, null, true);
+       if (stress > 0) {
+         sim.setLatency(100, 50); // a slow daemon
+         bench.stress(classic, "classic", stress);
+         bench.stress(nio, "nio", stress);
+         nio.stdCmdAsync(PI_CMD_READ, 4, 0).join(); // pipelined mode
+         bench.stress(nio, "nio.pipelined", stress);
+         classic.disconnect();
+         nio.disconnect();
+         return;
+       }
+       if (csv) System.out.println("benchmark,threads,ops/s,sd,ns/op");
+       for (int thr : threads) {
+         bench.runAll(classic, nio, thr, filter, csv);
+       }
+       classic.disconnect();
+       nio.disconnect();
+     } catch (IOException e) {
+       System.out.println("PigpiodBench error: " + e);
+     }
+   } // main(String[])
+
+/** Run all benchmarks at one thread count. <br /> */
+   void runAll(final ClientPigpiod classic, final ClientPigpiod nio,
+                final int thr, final String filter, final boolean csv){
+     final ClientPigpiod cl = classic;
+     final int outs = 1 << 17 | 1 << 22 | 1 << 23 | 1 << 24;
+     cl.setAsOutputs(outs);
+     nio.setAsOutputs(outs);
+     final byte[] buf = new byte[20];
+
+     // parts without transport
+     one("enc.cmdStateLookup", thr, filter, csv,
+                            () -> ClientPigpiod.lastCmdState.get().lastCmd);
+     one("enc.stdChk", thr, filter, csv,
+                            () -> cl.stdChk(PI_CMD_READ, 17, 0));
+     one("enc.putCmd", thr, filter, csv, () -> {
+       ClientPigpiod.putCmd(buf, PI_CMD_WRITE, 17, 1, 0);
+       return buf[4];
+     });
+     one("enc.clearBuffer", thr, filter, csv, () -> {
+       Arrays.fill(buf, (byte)0);
+       return buf[4];
+     });
+     one("enc.ioLock", thr, filter, csv, () -> {
+       cl.ioLock.lock();
+       try {
+         return buf[0];
+       } finally {
+         cl.ioLock.unlock();
+       }
+     });
+     one("enc.stdCmdNoIO", thr, filter, csv, () -> {
+       final ClientPigpiod.CmdState cs = ClientPigpiod.lastCmdState.get();
+       cs.lastCmd = PI_CMD_READ; cs.lastP1 = 17; cs.lastP2 = 0;
+       cs.cmdExecStage = 0; cs.lastException = null;
+       if (cl.stdChk(PI_CMD_READ, 17, 0) != ClientPigpiod.GO) return -1;
+       cl.ioLock.lock();
+       try {
+         ClientPigpiod.putCmd(cs.command, PI_CMD_READ, 17, 0, 0);
+         return cs.command[4];
+       } finally {
+         cl.ioLock.unlock();
+       }
+     });
+
+     // round trips
+     for (int k = 0; k < 2; ++k) {
+       final ClientPigpiod c = k == 0 ? classic : nio;
+       final String t = k == 0 ? "rt.classic." : "rt.nio.";
+       one(t + "stdCmd3", thr, filter, csv,
+                                 () -> c.stdCmd(PI_CMD_READ, 17, 0));
+       one(t + "stdCmd4", thr, filter, csv,
+                                 () -> c.stdCmd(PI_CMD_TRIG, 4, 10, 1));
+       one(t + "setOutput", thr, filter, csv,
+                                 () -> c.setOutput(17, true));
+       one(t + "setOutSet", thr, filter, csv,
+                                 () -> c.setOutSet(outs, false));
+       one(t + "getInp", thr, filter, csv, () -> c.getInp(17));
+       one(t + "gpioActionsByMsk4", thr, filter, csv, () -> {
+         c.gpioActionsByMsk(outs, gpio -> c.setOutput(gpio, false));
+         return 0;
+       });
+     } // for
+   } // runAll(2*ClientPigpiod, int, String, boolean)
+
+/** Stress one connection by very many control tasks. <br />
+ *  <br />
+ *  Each task sets an output and reads an input every 10 ms for the
+ *  iterations' time. Printed are the commands done and failed, the
+ *  command latency and the heartbeat's (1 ms sleep) worst lateness.
+ *
+ *  @param c the connection shared
+ *  @param name the transport's name
+ *  @param tasks the number of tasks (threads)
+ */
+   void stress(final ClientPigpiod c, final String name, final int tasks){
+     final CmdStats.Histogram lat = new CmdStats.Histogram();
+     final CmdStats.Histogram late = new CmdStats.Histogram();
+     final LongAdder cmds = new LongAdder(), errs = new LongAdder();
+     c.setAsOutputs(1 << 17);
+     final long durNs = (long)iterations * iterationMs * 1000000L;
+     final long t0 = System.nanoTime();
+     final long end = t0 + durNs;
+     final Thread[] thr = new Thread[tasks];
+     final boolean virtual = PiUtil.virtualThreads() != null;
+     for (int i = 0; i < tasks; ++i) {
+       final boolean level = (i & 1) == 0;
+       thr[i] = PiUtil.startVirtual(() -> {
+         try {
+           long next = System.nanoTime();
+           while (next < end) {
+             final long s = System.nanoTime();
+             final int r1 = c.setOutput(17, level);
+             final int r2 = c.getInp(4);
+             lat.add((System.nanoTime() - s) / 2000);
+             cmds.add(2);
+             if (r1 < 0 || r2 < 0) errs.increment();
+             next += 10_000_000L;
+             final long sl = next - System.nanoTime();
+             if (sl > 0) Thread.sleep(sl / 1000000, (int)(sl % 1000000));
+           }
+         } catch (InterruptedException e) {} // end
+       });
+     } // for
+     final Thread hb = PiUtil.startVirtual(() -> {
+       try {
+         while (System.nanoTime() < end) {
+           final long s = System.nanoTime();
+           Thread.sleep(1);
+           late.add((System.nanoTime() - s - 1000000) / 1000);
+         }
+       } catch (InterruptedException e) {} // end
+     });
+     try {
+       for (Thread t : thr) t.join(durNs / 1000000 + 30000);
+       hb.join(1000);
+     } catch (InterruptedException e) {} // print what we have
+     final double s = (System.nanoTime() - t0) / 1e9;
+     System.out.println(String.format(Locale.ROOT, "stress.%s "
+         + "%d %s threads: %d cmds (%.0f /s), %d failed cycles; cmd "
+         + "latency p50 %d p99 %d max %d us; heartbeat late p99 %d max "
+         + "%d us", name, tasks, virtual ? "virtual" : "platform",
+         cmds.sum(), cmds.sum() / s, errs.sum(), lat.percentile(0.5),
+         lat.percentile(0.99), lat.max(), late.percentile(0.99),
+         late.max()));
+   } // stress(ClientPigpiod, String, int)
+
+/** Run one benchmark if not filtered and print the result. <br /> */
+   void one(final String name, final int thr, final String filter,
+                                       final boolean csv, final Op op){
+     if (filter != null && !name.contains(filter)) return;
+     final Result r = run(name, thr, op);
+     System.out.println(csv ? r.toCsv() : r.toString());
+   } // one(String, int, String, boolean, Op)
+
+} // PigpiodBench (16.10.2026)
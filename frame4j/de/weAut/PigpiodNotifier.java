@@ -0,0 +1,414 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import static de.weAut.PiGpioDdefs.*; // pigpio library defines
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.locks.LockSupport;
+
+/** <b>Event driven GPIO input by pigpiod notifications</b>.<br />
+ *  <br />
+ *  An object of this class is a second socket connection to a Pi's pigpiod
+ *  server opened as notification channel (by {@link PiGpioDdefs#PI_CMD_NOIB
+ *  NOIB}). pigpiod sends a 12 byte report on every level change of the
+ *  GPIOs monitored: <br />
+ *  &nbsp; seqno (uint16), flags (uint16), tick (uint32 in &micro;s),
+ *  level (uint32, bank 0).<br />
+ *  <br />
+ *  A receiver thread puts the reports into a ring buffer of primitive
+ *  arrays. A dispatcher thread takes them from there, finds the edges
+ *  (level changes) and calls the {@link EdgeListener}s registered for
+ *  the GPIOs changed. Hence, inputs need not be polled (by
+ *  {@link ClientPigpiod#getInp(int) getInp()} in
+ *  {@link PiUtil#thrDelay(int) thrDelay()} loops) and every edge gets the
+ *  pigpiod's &micro;s tick as time stamp. <br />
+ *  <br />
+ *  The GPIOs to be monitored are the union of all listeners' masks; they
+ *  are set via the command connection (the {@link ClientPigpiod} given)
+ *  by {@link PiGpioDdefs#PI_CMD_NB NB}. {@link #close()} ends the
+ *  notification by {@link PiGpioDdefs#PI_CMD_NC NC}.<br />
+ *  <br />
+ *  Note: The listeners are called by the dispatcher thread. They should be
+ *  short and must not block for long. If the ring buffer gets full by a
+ *  slow dispatching, reports are lost (see {@link #lostCount()}). <br />
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see ClientPigpiod
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  64 (16.10.2026) : new
+//           V. 113 (17.10.2026) : start level of newly monitored GPIOs
+public class PigpiodNotifier implements AutoCloseable {
+
+/** <b>Listener for edges on GPIO inputs</b>. <br />
+ *  <br />
+ *  An {@link java.util.function.IntConsumer IntConsumer} like primitive
+ *  functional interface.
+ */
+   @FunctionalInterface
+   public interface EdgeListener {
+
+/** An edge happened. <br />
+ *
+ *  @param gpio the GPIO changed (0..31)
+ *  @param level the new level 0 or 1
+ *  @param tick the pigpiod's &micro;s tick of the change (uint32); see
+ *         {@link TickClock#toNanoTime(int)} for JVM time
+ */
+      void edge(int gpio, int level, int tick);
+   } // EdgeListener
+
+/** The command connection. <br /> */
+   public final ClientPigpiod pigpio;
+
+/** The notification socket. <br /> */
+   final Socket sock;
+
+/** Closed by {@link #close()}. <br /> */
+   boolean closed;
+
+/** The notification handle (&gt;= 0). <br /> */
+   int handle = -1;
+
+/** Ring buffer size (power of 2). <br /> */
+   final int ringLen;
+
+/** Ring buffer. <br />
+ *  <br />
+ *  The reports' tick, level and flags (with the seqno in the upper half
+ *  word) by index count modulo ringLen.
+ */
+   final int[] rTick, rLevel, rFlags;
+
+/** Number of reports put in the ring (by the receiver). <br /> */
+   volatile long wrCnt;
+
+/** Number of reports taken from the ring (by the dispatcher). <br /> */
+   volatile long rdCnt;
+
+/** Number of reports lost by ring buffer full. <br /> */
+   volatile int lost;
+
+/** The listeners registered (copy on write). <br /> */
+   volatile Reg[] regs = new Reg[0];
+
+/** The listeners' masks' union, i.e. the GPIOs monitored. <br /> */
+   volatile int monitored;
+
+/** The level of all GPIOs (bank 0) by the last report. <br /> */
+   volatile int lastLevel;
+
+/** The tick of the last report. <br /> */
+   volatile int lastTick;
+
+/** GPIOs newly monitored; their levels are to be taken by the dispatcher.
+ *  <br />
+ *  A GPIO's bit in {@link #lastLevel} is stale until it is monitored. So
+ *  {@link #monitor()} reads the start levels by BR1 (into
+ *  {@link #seedLevel}) and the dispatcher takes them with the first report
+ *  not older than {@link #seedTick}. Older reports (still in the ring or
+ *  on the way) give no edges for these GPIOs. Guarded by
+ *  {@link #seedLock}.
+ */
+   volatile int seedMask;
+
+/** The start levels of the GPIOs in {@link #seedMask}. <br /> */
+   int seedLevel;
+
+/** The pigpiod tick just before the start levels were read. <br /> */
+   int seedTick;
+
+   final Object seedLock = new Object();
+
+/** Running. <br /> */
+   volatile boolean running;
+
+   final Thread receiver, dispatcher;
+
+/** A registration: mask plus listener. <br /> */
+   static final class Reg {
+     final int mask;
+     final EdgeListener lsnr;
+     Reg(final int mask, final EdgeListener lsnr){
+       this.mask = mask; this.lsnr = lsnr;
+     } // Reg(int, EdgeListener)
+   } // Reg
+
+/** Open a notification channel. <br />
+ *  <br />
+ *  A second socket connection to the same pigpiod as {@code pigpio} is
+ *  made and opened for notifications. No GPIO is monitored until
+ *  listeners are {@linkplain #addListener(int, EdgeListener) added}.
+ *
+ *  @param pigpio the command connection to the Pi; not null
+ *  @param ringLen the ring buffer's size; will be rounded up to a power
+ *         of 2 in the range 64..65536
+ *  @throws IOException if connecting or opening fails
+ */
+   public PigpiodNotifier(final ClientPigpiod pigpio, final int ringLen)
+                                                        throws IOException {
+     this.pigpio = pigpio;
+     int len = 64;
+     while (len < ringLen && len < 65536) len <<= 1;
+     this.ringLen = len;
+     rTick  = new int[len];
+     rLevel = new int[len];
+     rFlags = new int[len];
+     final ThePi thePi = pigpio.thePi;
+     sock = new Socket(thePi.host(), thePi.sockP());
+     try {
+       sock.setTcpNoDelay(true);
+       sock.setSoTimeout(thePi.timeout()); // for the NOIB response
+       final InputStream in = sock.getInputStream();
+       final OutputStream out = sock.getOutputStream();
+       final byte[] buf = new byte[16];
+       ClientPigpiod.putCmd(buf, PI_CMD_NOIB, 0, 0, 0);
+       out.write(buf, 0, 16);
+       readFully(in, buf, 16);
+       handle = ClientPigpiod.int32(buf, 12);
+       if (handle < 0) throw new IOException("pigpiod NOIB error " + handle);
+       sock.setSoTimeout(0); // reports only on changes, wait for ever
+     } catch (IOException e) {
+       sock.close();
+       throw e;
+     }
+     lastLevel = pigpio.stdCmd(PI_CMD_BR1, 0, 0); // start level
+     running = true;
+     final String host = thePi.host();
+     receiver = new Thread(this::receive, "pigpiod-ntfy " + host);
+     dispatcher = new Thread(this::dispatch, "pigpiod-ntfy-dsp " + host);
+     receiver.setDaemon(true);
+     dispatcher.setDaemon(true);
+     dispatcher.start();
+     receiver.start();
+   } // PigpiodNotifier(ClientPigpiod, int)
+
+/** Open a notification channel with a ring for 1024 reports. <br />
+ *
+ *  @param pigpio the command connection to the Pi; not null
+ *  @throws IOException if connecting or opening fails
+ */
+   public PigpiodNotifier(final ClientPigpiod pigpio) throws IOException {
+     this(pigpio, 1024);
+   } // PigpiodNotifier(ClientPigpiod)
+
+/** Register a listener for GPIOs. <br />
+ *  <br />
+ *  The listener will be called for every edge of a GPIO in mask. The
+ *  GPIOs monitored by pigpiod will be extended as needed.
+ *
+ *  @param mask the GPIOs (bank 0) as bit mask
+ *  @param lsnr the listener
+ *  @return 0: OK; &lt; 0: error on setting the GPIOs monitored
+ */
+   public synchronized int addListener(final int mask,
+                                                final EdgeListener lsnr){
+     if (lsnr == null || mask == 0) return 0;
+     final Reg[] old = regs;
+     final Reg[] neu = new Reg[old.length + 1];
+     System.arraycopy(old, 0, neu, 0, old.length);
+     neu[old.length] = new Reg(mask, lsnr);
+     regs = neu;
+     return monitor();
+   } // addListener(int, EdgeListener)
+
+/** Unregister a listener. <br />
+ *  <br />
+ *  All registrations of the listener are removed. The GPIOs monitored by
+ *  pigpiod will be reduced as possible.
+ *
+ *  @param lsnr the listener
+ *  @return 0: OK; &lt; 0: error on setting the GPIOs monitored
+ */
+   public synchronized int removeListener(final EdgeListener lsnr){
+     final Reg[] old = regs;
+     int keep = 0;
+     for (Reg r : old) if (r.lsnr != lsnr) ++keep;
+     if (keep == old.length) return 0;
+     final Reg[] neu = new Reg[keep];
+     keep = 0;
+     for (Reg r : old) if (r.lsnr != lsnr) neu[keep++] = r;
+     regs = neu;
+     return monitor();
+   } // removeListener(EdgeListener)
+
+/** Set the GPIOs monitored to the listeners' masks' union. <br /> */
+   private int monitor(){
+     int mask = 0;
+     for (Reg r : regs) mask |= r.mask;
+     if (mask == monitored) return 0;
+     final int added = mask & ~monitored;
+     if (added != 0) { // start level of the new ones before they are reported
+       final int tick = pigpio.stdCmd(PI_CMD_TICK, 0, 0);
+       if (ClientPigpiod.isTransportError(tick)) return tick;
+       final int lev = pigpio.stdCmd(PI_CMD_BR1, 0, 0);
+       if (ClientPigpiod.isTransportError(lev)) return lev;
+       synchronized (seedLock) {
+         seedLevel = seedLevel & ~added | lev & added;
+         seedTick = tick;
+         seedMask |= added;
+       }
+     }
+     final int ret = pigpio.stdCmd(PI_CMD_NB, handle, mask);
+     if (ret >= 0) monitored = mask; // after seedMask (see dispatch)
+     return ret;
+   } // monitor()
+
+/** The GPIOs monitored. <br />
+ *  @return the GPIOs (bank 0) monitored by pigpiod as bit mask
+ */
+   public final int monitored(){ return monitored; }
+
+/** The level of all GPIOs. <br />
+ *  <br />
+ *  This is the level got by the last report (or the initial BR1). For the
+ *  GPIOs {@linkplain #monitored() monitored} it is up to date without
+ *  polling.
+ *
+ *  @return the GPIOs' levels (bank 0) as bit mask
+ */
+   public final int level(){ return lastLevel; }
+
+/** The tick of the last report. <br />
+ *  @return the pigpiod's &micro;s tick (uint32) of the last report
+ */
+   public final int lastTick(){ return lastTick; }
+
+/** The number of reports received. <br /> */
+   public final long reportCount(){ return wrCnt; }
+
+/** The number of reports lost. <br />
+ *  <br />
+ *  Reports are lost if the ring buffer is full when a report comes, i.e.
+ *  when the listeners are too slow.
+ */
+   public final int lostCount(){ return lost; }
+
+/** The notification handle. <br /> */
+   public final int handle(){ return handle; }
+
+/** Is running. <br />
+ *  @return true while the notification channel is open and working
+ */
+   public final boolean isRunning(){ return running; }
+
+/** Close the notification channel. <br />
+ *  <br />
+ *  The notification is closed by {@link PiGpioDdefs#PI_CMD_NC NC} on the
+ *  command connection and the notification socket is closed. The threads
+ *  end.
+ */
+   @Override public synchronized void close(){
+     if (closed) return;
+     closed = true;
+     running = false;
+     if (handle >= 0 && pigpio.sock != null) {
+       pigpio.stdCmd(PI_CMD_NC, handle, 0);
+     }
+     try {
+       sock.close();
+     } catch (IOException e) {} // ignore
+     LockSupport.unpark(dispatcher);
+   } // close()
+
+/** The receiver thread's work. <br /> */
+   void receive(){
+     final byte[] rep = new byte[12];
+     final int ringMsk = ringLen - 1;
+     try {
+       final InputStream in = sock.getInputStream();
+       while (running) {
+         readFully(in, rep, 12);
+         final long wr = wrCnt;
+         if (wr - rdCnt >= ringLen) { // full
+           ++lost;
+           continue;
+         }
+         final int i = (int)wr & ringMsk;
+         rFlags[i] = (rep[0] & 0xFF) << 16 | (rep[1] & 0xFF) << 24 // seqno
+                               | (rep[2] & 0xFF) | (rep[3] & 0xFF) << 8;
+         rTick[i]  = ClientPigpiod.int32(rep, 4);
+         rLevel[i] = ClientPigpiod.int32(rep, 8);
+         wrCnt = wr + 1; // publish
+         LockSupport.unpark(dispatcher);
+       } // while
+     } catch (IOException e) { // closed or broken
+     } finally {
+       running = false;
+       LockSupport.unpark(dispatcher);
+     }
+   } // receive()
+
+/** The dispatcher thread's work. <br /> */
+   void dispatch(){
+     final int ringMsk = ringLen - 1;
+     for (;;) {
+       final long rd = rdCnt;
+       if (rd == wrCnt) { // empty
+         if (!running) return;
+         LockSupport.park(this);
+         continue;
+       }
+       final int i = (int)rd & ringMsk;
+       final int flags = rFlags[i] & 0xFFFF;
+       final int tick = rTick[i];
+       final int level = rLevel[i];
+       rdCnt = rd + 1; // free the slot
+       if ((flags & (PI_NTFY_FLAGS_ALIVE | PI_NTFY_FLAGS_EVENT
+                                     | PI_NTFY_FLAGS_WDOG)) != 0) continue;
+       final int mon = monitored; // read first: mon's seeds are visible
+       int fresh = seedMask; // newly monitored GPIOs
+       if (fresh != 0) {
+         synchronized (seedLock) {
+           fresh = seedMask;
+           if (tick - seedTick >= 0) { // report not older: take the seeds
+             lastLevel = lastLevel & ~fresh | seedLevel & fresh;
+             seedMask = fresh = 0;
+           }
+         }
+       }
+       final int changed = (level ^ lastLevel) & mon & ~fresh;
+       lastLevel = level;
+       lastTick = tick;
+       if (changed == 0) continue;
+       for (Reg r : regs) {
+         int m = changed & r.mask;
+         while (m != 0) {
+           final int gpio = Integer.numberOfTrailingZeros(m);
+           m &= m - 1;
+           try {
+             r.lsnr.edge(gpio, level >>> gpio & 1, tick);
+           } catch (RuntimeException e) {} // a listener's problem only
+         } // while
+       } // for
+     } // for
+   } // dispatch()
+
+/** Read exactly len bytes. <br /> */
+   static void readFully(final InputStream in, final byte[] buf,
+                                          final int len) throws IOException {
+     for (int got = 0; got < len;) {
+       final int n = in.read(buf, got, len - got);
+       if (n < 0) throw new EOFException();
+       got += n;
+     }
+   } // readFully(InputStream, byte[], int)
+
+} // PigpiodNotifier (16.10.2026)
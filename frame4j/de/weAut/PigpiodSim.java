@@ -0,0 +1,1013 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import static de.weAut.PiGpioDdefs.*; // pigpio library defines
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/** <b>A simulated pigpiod for tests without Raspberry Pi</b>.<br />
+ *  <br />
+ *  An object of this class is a server for the pigpiod socket interface
+ *  (16 byte commands and responses, little endian, see
+ *  {@link PiGpioDdefs}). It simulates one Pi's GPIO modes, levels, pull
+ *  resistors, PWM, servo pulses and pad strengths. So {@link ClientPigpiod}
+ *  (also in pipelined, batched and NIO mode), {@link PigpiodNotifier},
+ *  {@link ProcessImage} and so on can be tested and benchmarked on any
+ *  machine. <br />
+ *  <br />
+ *  Implemented are the commands MODES MODEG PUD READ WRITE PWM PRS PFS
+ *  SERVO WDOG BR1 BR2 BC1 BC2 BS1 BS2 TICK HWVER NB NP NC PRG PFG PIGPV
+ *  MICS MILS GDC GPW NOIB PADS PADG. All others are answered by
+ *  {@link PiGpioDdefs#PI_UNKNOWN_COMMAND} (their command extension, if any,
+ *  is read and dropped). <br />
+ *  Bulk transfers (with extensions) go to simple loop back devices: 
+ *  I2C (I2CO I2CC I2CRD I2CWD I2CRI I2CWI) and SPI (SPIO SPIC SPIR SPIW
+ *  SPIX) devices are 256 byte memories (SPIX sends the bytes back);
+ *  a serial device (SERO SERC SERR SERW SERDA) returns the bytes written.
+ *  <br />
+ *  Waveforms (WVCLR WVNEW WVAG WVCRE WVDEL WVTX WVTXR WVTXM WVCHA WVBSY
+ *  WVHLT WVTAT) are busy for their length (repeated: till halted); their
+ *  pulses' final levels are set at the start. <br />
+ *  Scripts (PROC PROCR PROCU PROCP PROCS PROCD) are stored but not
+ *  interpreted: a run halts at once keeping its parameters. <br />
+ *  WRITE, PWM and SERVO make the GPIO an output as pigpiod does. An input's
+ *  level is set by its pull resistor or by {@link #setInput(int, boolean)}
+ *  (the simulated outer world). Level changes are reported to notification
+ *  channels opened by NOIB. <br />
+ *  <br />
+ *  Latency and jitter may be injected, as well as a service time per
+ *  command: <ul>
+ *  <li>The service time is spent while executing the command. As all
+ *      clients' commands are executed one after the other (as by the one
+ *      daemon on one Pi), it limits the total throughput.</li>
+ *  <li>Latency plus a random jitter (0..jitter) delays each response
+ *      (without blocking the command stream). Hence pipelined clients do
+ *      profit as on a real network.</li></ul>
+ *  Every client connection is served by its own (daemon) thread, so many
+ *  concurrent clients (a simulated fleet) can be tested. A fleet of Pis is
+ *  simulated by one object per Pi (one port each). <br />
+ *  <br />
+ *  The simulator may also run as separate process: <pre>
+ *  java de.weAut.PigpiodSim [port [latency [jitter [service]]]]</pre>
+ *  port defaults to 8888 (pigpiod's); the times are in &micro;s. <br />
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see ClientPigpiod
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  68 (16.10.2026) : new
+//           V.  74 (16.10.2026) : I2C, SPI and serial loop back devices
+//           V.  75 (16.10.2026) : waveforms (timing and final levels)
+//           V.  76 (16.10.2026) : scripts (stored, not interpreted)
+//           V.  78 (16.10.2026) : drop clients (simulated daemon crash)
+//           V.  79 (16.10.2026) : settable tick and tick drift
+public class PigpiodSim implements AutoCloseable {
+
+/** The server socket. <br /> */
+   final ServerSocket server;
+
+/** The acceptor thread. <br /> */
+   final Thread acceptor;
+
+/** Running (not closed). <br /> */
+   volatile boolean running = true;
+
+/** Response latency in ns. <br /> */
+   volatile long latencyNs;
+
+/** Response jitter (maximum) in ns. <br /> */
+   volatile long jitterNs;
+
+/** Service time by command in ns. <br /> */
+   final long[] serviceNs = new long[PI_CMD_NONE];
+
+/** Hardware revision reported by HWVER. <br /> */
+   volatile int hwVer = 0xa02082; // Pi 3 B
+
+/** Counters. <br /> */
+   final LongAdder cmdCnt = new LongAdder();
+   final AtomicInteger clients = new AtomicInteger();
+
+/** Time base for TICK: nanoTime at tickStart. <br /> */
+   volatile long nanoStart = System.nanoTime();
+
+/** TICK at nanoStart and its rate (1: no drift). <br /> */
+   volatile int tickStart;
+   volatile double tickRate = 1.0;
+
+/** Set the tick and its drift. <br />
+ *  <br />
+ *  This simulates the tick of another (or a restarted) daemon and its
+ *  clock's deviation from the JVM's.
+ *
+ *  @param tick the tick now (&micro;s, uint32)
+ *  @param driftPpm the tick's drift (&gt; 0: it runs slow) in ppm
+ *  @return this
+ */
+   public PigpiodSim setTick(final int tick, final double driftPpm){
+     tickRate = 1.0 / (1.0 + driftPpm * 1e-6);
+     tickStart = tick;
+     nanoStart = System.nanoTime();
+     return this;
+   } // setTick(int, double)
+
+//-----------------------  simulated Pi (guarded by this)  -----------------
+
+/** Modes of GPIO 0..53. <br /> */
+   final byte[] modes = new byte[54];
+
+/** Output latches and external (input) levels, 54 bit. <br /> */
+   long latch, ext;
+
+/** Outputs as 54 bit mask. <br /> */
+   long outMask;
+
+/** PWM and servo GPIOs (0..31) as bit mask. <br /> */
+   int pwmMask, servoMask;
+
+/** PWM duty cycle, range and frequency; servo pulse width. <br /> */
+   final int[] duty = new int[32], range = new int[32],
+               freq = new int[32], pulseW = new int[32];
+
+/** Pad strengths in mA. <br /> */
+   final int[] pads = {8, 8, 8};
+
+/** Notification channels by handle. <br /> */
+   final Notif[] notifs = new Notif[32];
+
+/** Make and start a simulator. <br />
+ *
+ *  @param port the port to listen on (on loopback); 0: any free
+ *  @throws IOException if the port can't be bound
+ */
+   public PigpiodSim(final int port) throws IOException {
+     this(port, InetAddress.getLoopbackAddress());
+   } // PigpiodSim(int)
+
+/** Make and start a simulator. <br />
+ *
+ *  @param port the port to listen on; 0: any free
+ *  @param bindAddr the address to listen on; null: all
+ *  @throws IOException if the port can't be bound
+ */
+   public PigpiodSim(final int port, final InetAddress bindAddr)
+                                                        throws IOException {
+     for (int i = 0; i < 32; ++i) {
+       range[i] = 255;
+       freq[i] = 800;
+     }
+     server = new ServerSocket(port, 200, bindAddr);
+     acceptor = new Thread(this::accept, "pigpiod-sim:" + getPort());
+     acceptor.setDaemon(true);
+     acceptor.start();
+   } // PigpiodSim(int, InetAddress)
+
+/** The port listened on. <br /> */
+   public final int getPort(){ return server.getLocalPort(); }
+
+/** Set the response latency and jitter. <br />
+ *
+ *  @param latencyUs the fixed part of each response's delay in &micro;s
+ *  @param jitterUs the maximum of the random part in &micro;s
+ *  @return this
+ */
+   public PigpiodSim setLatency(final int latencyUs, final int jitterUs){
+     latencyNs = latencyUs * 1000L;
+     jitterNs = jitterUs * 1000L;
+     return this;
+   } // setLatency(2*int)
+
+/** Set the service time of all commands. <br />
+ *
+ *  @param serviceUs the service time in &micro;s
+ *  @return this
+ */
+   public PigpiodSim setServiceTime(final int serviceUs){
+     Arrays.fill(serviceNs, serviceUs * 1000L);
+     return this;
+   } // setServiceTime(int)
+
+/** Set the service time of one command. <br />
+ *
+ *  @param cmd the command number 0..117
+ *  @param serviceUs the service time in &micro;s
+ *  @return this
+ */
+   public PigpiodSim setServiceTime(final int cmd, final int serviceUs){
+     if (cmd >= 0 && cmd < PI_CMD_NONE) serviceNs[cmd] = serviceUs * 1000L;
+     return this;
+   } // setServiceTime(2*int)
+
+/** Set the hardware revision reported. <br />
+ *  @param hwVer the revision code, e.g. 0xc03111 for a Pi 4 B
+ *  @return this
+ */
+   public PigpiodSim setHwVer(final int hwVer){
+     this.hwVer = hwVer;
+     return this;
+   } // setHwVer(int)
+
+/** Set an input level (simulated outer world). <br />
+ *  <br />
+ *  The level is seen if the GPIO is not an output. A change is reported
+ *  to the notification channels.
+ *
+ *  @param gpio 0..53
+ *  @param level the input level
+ */
+   public synchronized void setInput(final int gpio, final boolean level){
+     if (gpio < 0 || gpio > 53) return;
+     final long old = levels();
+     ext = level ? ext | 1L << gpio : ext & ~(1L << gpio);
+     report(old);
+   } // setInput(int, boolean)
+
+/** The levels of all GPIOs. <br />
+ *  @return the levels of GPIO 0..53 as bit mask
+ */
+   public synchronized long levels(){
+     return latch & outMask | ext & ~outMask;
+   } // levels()
+
+/** The mode of a GPIO. <br />
+ *  @param gpio 0..53
+ *  @return the mode 0..7 or PI_BAD_GPIO
+ */
+   public synchronized int mode(final int gpio){
+     return gpio < 0 || gpio > 53 ? PI_BAD_GPIO : modes[gpio];
+   } // mode(int)
+
+/** Number of commands executed. <br /> */
+   public final long commands(){ return cmdCnt.sum(); }
+
+/** Number of clients connected. <br /> */
+   public final int clients(){ return clients.get(); }
+
+/** The clients' connections. <br /> */
+   final Set<Socket> socks = ConcurrentHashMap.newKeySet();
+
+/** Drop all client connections. <br />
+ *  <br />
+ *  This simulates a daemon crash or restart (or a network outage) for
+ *  the clients. New clients are still accepted if not closed.
+ */
+   public void dropClients(){
+     for (Socket s : socks) {
+       try {
+         s.close();
+       } catch (IOException e) {} // ignore
+     }
+   } // dropClients()
+
+/** Stop the simulator. <br />
+ *  <br />
+ *  No more clients are accepted. Clients connected are served until they
+ *  disconnect.
+ */
+   @Override public void close(){
+     running = false;
+     try {
+       server.close();
+     } catch (IOException e) {} // ignore
+   } // close()
+
+//---------------------------  command execution  --------------------------
+
+/** Execute one command. <br />
+ *  <br />
+ *  This method is the simulated daemon's core; the service time is spent
+ *  here.
+ *
+ *  @return p3 of the response, i.e. result &gt;= 0 or error &lt; 0
+ */
+   synchronized int exec(final int cmd, final int p1, final int p2){
+     cmdCnt.increment();
+     if (cmd >= 0 && cmd < PI_CMD_NONE) pause(serviceNs[cmd]);
+     switch (cmd) {
+       case PI_CMD_MODES:
+         if (p1 < 0 || p1 > 53) return PI_BAD_GPIO;
+         if (p2 < 0 || p2 > 7) return PI_BAD_MODE;
+         setMode(p1, p2);
+         return 0;
+       case PI_CMD_MODEG:
+         return p1 < 0 || p1 > 53 ? PI_BAD_GPIO : modes[p1];
+       case PI_CMD_PUD:
+         if (p1 < 0 || p1 > 53) return PI_BAD_GPIO;
+         if (p2 < 0 || p2 > 2) return PI_BAD_PUD;
+         if (p2 != PI_PUD_OFF) setInput(p1, p2 == PI_PUD_UP);
+         return 0;
+       case PI_CMD_READ:
+         return p1 < 0 || p1 > 53 ? PI_BAD_GPIO : (int)(levels() >>> p1) & 1;
+       case PI_CMD_WRITE:
+         if (p1 < 0 || p1 > 31) return PI_BAD_USER_GPIO;
+         if (p2 < 0 || p2 > 1) return PI_BAD_LEVEL;
+         pwmMask &= ~(1 << p1);
+         servoMask &= ~(1 << p1);
+         return write(p1, p2 != 0);
+       case PI_CMD_PWM:
+         if (p1 < 0 || p1 > 31) return PI_BAD_USER_GPIO;
+         if (p2 < 0 || p2 > range[p1]) return PI_BAD_DUTYCYCLE;
+         duty[p1] = p2;
+         pwmMask |= 1 << p1;
+         servoMask &= ~(1 << p1);
+         return write(p1, p2 != 0);
+       case PI_CMD_PRS:
+         if (p1 < 0 || p1 > 31) return PI_BAD_USER_GPIO;
+         if (p2 < 25 || p2 > 40000) return PI_BAD_DUTYRANGE;
+         range[p1] = p2;
+         return p2;
+       case PI_CMD_PRG:
+         return p1 < 0 || p1 > 31 ? PI_BAD_USER_GPIO : range[p1];
+       case PI_CMD_PFS:
+         if (p1 < 0 || p1 > 31) return PI_BAD_USER_GPIO;
+         freq[p1] = p2 < 10 ? 10 : p2 > 40000 ? 40000 : p2;
+         return freq[p1];
+       case PI_CMD_PFG:
+         return p1 < 0 || p1 > 31 ? PI_BAD_USER_GPIO : freq[p1];
+       case PI_CMD_GDC:
+         if (p1 < 0 || p1 > 31) return PI_BAD_USER_GPIO;
+         return (pwmMask & 1 << p1) == 0 ? PI_NOT_PWM_GPIO : duty[p1];
+       case PI_CMD_SERVO:
+         if (p1 < 0 || p1 > 31) return PI_BAD_USER_GPIO;
+         if (p2 != 0 && (p2 < 500 || p2 > 2500)) return PI_BAD_PULSEWIDTH;
+         pulseW[p1] = p2;
+         servoMask |= 1 << p1;
+         pwmMask &= ~(1 << p1);
+         return write(p1, false);
+       case PI_CMD_GPW:
+         if (p1 < 0 || p1 > 31) return PI_BAD_USER_GPIO;
+         return (servoMask & 1 << p1) == 0 ? PI_NOT_SERVO_GPIO : pulseW[p1];
+       case PI_CMD_WDOG:
+         if (p1 < 0 || p1 > 31) return PI_BAD_USER_GPIO;
+         return p2 < 0 || p2 > 60000 ? PI_BAD_WDOG_TIMEOUT : 0;
+       case PI_CMD_BR1:
+         return (int)levels();
+       case PI_CMD_BR2:
+         return (int)(levels() >>> 32);
+       case PI_CMD_BC1:
+         return setLatch(latch & ~(p1 & 0xFFFFFFFFL));
+       case PI_CMD_BC2:
+         return setLatch(latch & ~((long)p1 << 32));
+       case PI_CMD_BS1:
+         return setLatch(latch | (p1 & 0xFFFFFFFFL));
+       case PI_CMD_BS2:
+         return setLatch(latch | (p1 & 0x3FFFFFL) << 32);
+       case PI_CMD_TICK:
+         return tick();
+       case PI_CMD_HWVER:
+         return hwVer;
+       case PI_CMD_PIGPV:
+         return 79;
+       case PI_CMD_NB:
+       case PI_CMD_NP:
+       case PI_CMD_NC: {
+         final Notif n = p1 < 0 || p1 > 31 ? null : notifs[p1];
+         if (n == null) return PI_BAD_HANDLE;
+         if (cmd == PI_CMD_NB) {
+           n.mask = p2;
+         } else if (cmd == PI_CMD_NP) {
+           n.mask = 0;
+         } else {
+           notifs[p1] = null;
+           n.close();
+         }
+         return 0;
+       }
+       case PI_CMD_PADS:
+         if (p1 < 0 || p1 > 2) return PI_BAD_PAD;
+         if (p2 < 1 || p2 > 16) return PI_BAD_STRENGTH;
+         pads[p1] = p2;
+         return 0;
+       case PI_CMD_PADG:
+         return p1 < 0 || p1 > 2 ? PI_BAD_PAD : pads[p1];
+       case PI_CMD_I2CC:
+       case PI_CMD_SPIC:
+       case PI_CMD_SERC: {
+         final Dev d = dev(p1, cmd == PI_CMD_I2CC ? PI_CMD_I2CO
+                            : cmd == PI_CMD_SPIC ? PI_CMD_SPIO : PI_CMD_SERO);
+         if (d == null) return PI_BAD_HANDLE;
+         devs.set(p1, null);
+         return 0;
+       }
+       case PI_CMD_SERDA: {
+         final Dev d = dev(p1, PI_CMD_SERO);
+         return d == null ? PI_BAD_HANDLE : d.fill;
+       }
+       case PI_CMD_WVCLR:
+         waves.clear();
+         wvPulses = 0; wvMicros = wvOn = wvOff = 0;
+         txUntil = 0;
+         return 0;
+       case PI_CMD_WVNEW:
+         wvPulses = 0; wvMicros = wvOn = wvOff = 0;
+         return 0;
+       case PI_CMD_WVCRE: {
+         if (wvPulses == 0) return PI_EMPTY_WAVEFORM;
+         int id = waves.indexOf(null);
+         if (id < 0) {
+           if (waves.size() >= 250) return PI_NO_WAVEFORM_ID;
+           id = waves.size();
+           waves.add(null);
+         }
+         waves.set(id, new long[]{wvMicros, wvOn, wvOff, wvPulses});
+         wvPulses = 0; wvMicros = wvOn = wvOff = 0;
+         return id;
+       }
+       case PI_CMD_WVDEL:
+         if (wave(p1) == null) return PI_BAD_WAVE_ID;
+         waves.set(p1, null);
+         return 0;
+       case PI_CMD_WVTX:
+       case PI_CMD_WVTXR:
+       case PI_CMD_WVTXM: {
+         final long[] w = wave(p1);
+         if (w == null) return PI_BAD_WAVE_ID;
+         final int mode = cmd == PI_CMD_WVTX ? PI_WAVE_MODE_ONE_SHOT
+                    : cmd == PI_CMD_WVTXR ? PI_WAVE_MODE_REPEAT : p2;
+         if (mode < 0 || mode > 3) return PI_BAD_WAVE_MODE;
+         setLatch((latch | w[1]) & ~w[2]);
+         txWave = p1;
+         txUntil = (mode & 1) != 0 ? Long.MAX_VALUE
+                                   : System.nanoTime() + w[0] * 1000;
+         return (int)w[3] * 2; // control blocks (about)
+       }
+       case PI_CMD_PROCS:
+       case PI_CMD_PROCD: {
+         if (p1 < 0 || p1 >= scripts.size()
+                    || scripts.get(p1) == null) return PI_BAD_SCRIPT_ID;
+         if (cmd == PI_CMD_PROCD) {
+           scripts.set(p1, null);
+         } else {
+           scripts.get(p1)[0] = PI_SCRIPT_HALTED;
+         }
+         return 0;
+       }
+       case PI_CMD_WVBSY:
+         return System.nanoTime() - txUntil < 0 ? 1 : 0;
+       case PI_CMD_WVHLT:
+         txUntil = 0;
+         return 0;
+       case PI_CMD_WVTAT:
+         if (System.nanoTime() - txUntil >= 0) return PI_NO_TX_WAVE;
+         return txWave < 0 ? PI_WAVE_NOT_FOUND : txWave;
+       default:
+         return PI_UNKNOWN_COMMAND;
+     } // switch
+   } // exec(3*int)
+
+//-----------------------  simulated bus devices  --------------------------
+
+/** <b>A simulated I2C, SPI or serial device</b>. <br /> */
+   static final class Dev {
+     final int kind; // the open command
+     final byte[] mem = new byte[256]; // memory; serial: FIFO
+     int fill; // serial: bytes in mem
+
+     Dev(final int kind){ this.kind = kind; }
+   } // Dev
+
+/** The waveforms by id: length (us), on mask, off mask, pulses. <br /> */
+   final List<long[]> waves = new ArrayList<>();
+
+/** The waveform being built. <br /> */
+   int wvPulses;
+   long wvMicros, wvOn, wvOff;
+
+/** Waveform being sent till (System.nanoTime()); chain: -1. <br /> */
+   long txUntil;
+   int txWave;
+
+/** The scripts by id: status, p0..p9. <br /> */
+   final List<int[]> scripts = new ArrayList<>();
+
+/** Get a waveform by id. <br /> */
+   private long[] wave(final int id){
+     return id < 0 || id >= waves.size() ? null : waves.get(id);
+   } // wave(int)
+
+/** The devices by handle; null: closed. <br /> */
+   final List<Dev> devs = new ArrayList<>();
+
+/** Get an open device of a kind. <br /> */
+   private Dev dev(final int handle, final int kind){
+     if (handle < 0 || handle >= devs.size()) return null;
+     final Dev d = devs.get(handle);
+     return d == null || d.kind != kind ? null : d;
+   } // dev(2*int)
+
+/** Open a device. <br /> */
+   private int open(final int kind){
+     int h = devs.indexOf(null);
+     if (h < 0) {
+       if (devs.size() >= 64) return PI_NO_HANDLE;
+       h = devs.size();
+       devs.add(null);
+     }
+     devs.set(h, new Dev(kind));
+     return h;
+   } // open(int)
+
+/** Has a command an extended response (of the ones simulated). <br /> */
+   static boolean hasRespExt(final int cmd){
+     return cmd == PI_CMD_PROCP || cmd == PI_CMD_I2CRD || cmd == PI_CMD_I2CRI || cmd == PI_CMD_SPIR
+         || cmd == PI_CMD_SPIX || cmd == PI_CMD_SERR;
+   } // hasRespExt(int)
+
+/** Execute one command with extension. <br />
+ *  <br />
+ *  The extension is {@code ext[0..p3-1]}; an extended response is put
+ *  to {@code data} (large enough) with the result as its length.
+ *
+ *  @return p3 of the response, i.e. result &gt;= 0 or error &lt; 0
+ */
+   synchronized int execExt(final int cmd, final int p1, final int p2,
+                       final byte[] ext, final int p3, final byte[] data){
+     cmdCnt.increment();
+     if (cmd >= 0 && cmd < PI_CMD_NONE) pause(serviceNs[cmd]);
+     switch (cmd) {
+       case PI_CMD_I2CO:
+         if (p1 < 0) return PI_BAD_I2C_BUS;
+         if (p2 < 0 || p2 > 0x7F) return PI_BAD_I2C_ADDR;
+         return open(PI_CMD_I2CO);
+       case PI_CMD_SPIO:
+         if (p1 < 0 || p1 > 2) return PI_BAD_SPI_CHANNEL;
+         return open(PI_CMD_SPIO);
+       case PI_CMD_SERO:
+         if (p3 < 1) return PI_BAD_SER_DEVICE;
+         return open(PI_CMD_SERO);
+       case PI_CMD_I2CRD:
+       case PI_CMD_SPIR: {
+         final Dev d = dev(p1, cmd == PI_CMD_I2CRD ? PI_CMD_I2CO
+                                                   : PI_CMD_SPIO);
+         if (d == null) return PI_BAD_HANDLE;
+         if (p2 < 1 || p2 > 256) return PI_BAD_PARAM;
+         System.arraycopy(d.mem, 0, data, 0, p2);
+         return p2;
+       }
+       case PI_CMD_I2CWD:
+       case PI_CMD_SPIW: {
+         final Dev d = dev(p1, cmd == PI_CMD_I2CWD ? PI_CMD_I2CO
+                                                   : PI_CMD_SPIO);
+         if (d == null) return PI_BAD_HANDLE;
+         if (p3 < 1 || p3 > 256) return PI_BAD_PARAM;
+         System.arraycopy(ext, 0, d.mem, 0, p3);
+         return cmd == PI_CMD_SPIW ? p3 : 0;
+       }
+       case PI_CMD_I2CRI: {
+         final Dev d = dev(p1, PI_CMD_I2CO);
+         if (d == null) return PI_BAD_HANDLE;
+         if (p2 < 0 || p2 > 255) return PI_BAD_PARAM;
+         if (p3 != 4) return PI_BAD_PARAM;
+         final int cnt = ClientPigpiod.int32(ext, 0);
+         if (cnt < 1 || cnt > 32) return PI_BAD_I2C_RLEN;
+         for (int i = 0; i < cnt; ++i) data[i] = d.mem[(p2 + i) & 0xFF];
+         return cnt;
+       }
+       case PI_CMD_I2CWI: {
+         final Dev d = dev(p1, PI_CMD_I2CO);
+         if (d == null) return PI_BAD_HANDLE;
+         if (p2 < 0 || p2 > 255) return PI_BAD_PARAM;
+         if (p3 < 1 || p3 > 32) return PI_BAD_I2C_WLEN;
+         for (int i = 0; i < p3; ++i) d.mem[(p2 + i) & 0xFF] = ext[i];
+         return 0;
+       }
+       case PI_CMD_SPIX: {
+         if (dev(p1, PI_CMD_SPIO) == null) return PI_BAD_HANDLE;
+         if (p3 < 1 || p3 > 256) return PI_BAD_SPI_COUNT;
+         System.arraycopy(ext, 0, data, 0, p3); // loop back MOSI to MISO
+         return p3;
+       }
+       case PI_CMD_SERW: {
+         final Dev d = dev(p1, PI_CMD_SERO);
+         if (d == null) return PI_BAD_HANDLE;
+         if (p3 < 1) return PI_BAD_PARAM;
+         if (d.fill + p3 > 256) return PI_SER_WRITE_FAILED; // FIFO full
+         System.arraycopy(ext, 0, d.mem, d.fill, p3);
+         d.fill += p3;
+         return 0;
+       }
+       case PI_CMD_SERR: {
+         final Dev d = dev(p1, PI_CMD_SERO);
+         if (d == null) return PI_BAD_HANDLE;
+         if (p2 < 1) return PI_BAD_SERIAL_COUNT;
+         final int n = Math.min(p2, d.fill);
+         if (n == 0) return PI_SER_READ_NO_DATA;
+         System.arraycopy(d.mem, 0, data, 0, n);
+         System.arraycopy(d.mem, n, d.mem, 0, d.fill - n);
+         d.fill -= n;
+         return n;
+       }
+       case PI_CMD_PROC: {
+         if (p3 < 1) return PI_BAD_SCRIPT;
+         int id = scripts.indexOf(null);
+         if (id < 0) {
+           if (scripts.size() >= 32) return PI_NO_SCRIPT_ROOM;
+           id = scripts.size();
+           scripts.add(null);
+         }
+         final int[] sc = new int[1 + PI_MAX_SCRIPT_PARAMS];
+         sc[0] = PI_SCRIPT_HALTED;
+         scripts.set(id, sc);
+         return id;
+       }
+       case PI_CMD_PROCR:
+       case PI_CMD_PROCU:
+       case PI_CMD_PROCP: {
+         if (p1 < 0 || p1 >= scripts.size()
+                    || scripts.get(p1) == null) return PI_BAD_SCRIPT_ID;
+         final int[] sc = scripts.get(p1);
+         if (cmd == PI_CMD_PROCP) {
+           for (int i = 0; i < sc.length; ++i) {
+             ClientPigpiod.putInt(data, 4 * i, sc[i]);
+           }
+           return 4 * sc.length;
+         }
+         if (p3 % 4 != 0) return PI_BAD_PARAM;
+         if (p3 / 4 > PI_MAX_SCRIPT_PARAMS) return PI_TOO_MANY_PARAM;
+         for (int i = 0; i < p3 / 4; ++i) {
+           sc[1 + i] = ClientPigpiod.int32(ext, 4 * i);
+         }
+         sc[0] = PI_SCRIPT_HALTED; // ran (at once)
+         return 0;
+       }
+       case PI_CMD_WVAG: { // pulses are merged by time
+         if (p3 % 12 != 0) return PI_BAD_PARAM;
+         long t = 0;
+         for (int i = 0; i < p3; i += 12) {
+           final int on  = ClientPigpiod.int32(ext, i);
+           final int off = ClientPigpiod.int32(ext, i + 4);
+           wvOn = (wvOn | on & 0xFFFFFFFFL) & ~(off & 0xFFFFFFFFL);
+           wvOff = (wvOff | off & 0xFFFFFFFFL) & ~(on & 0xFFFFFFFFL);
+           t += ClientPigpiod.int32(ext, i + 8) & 0xFFFFFFFFL;
+         }
+         if (t > wvMicros) wvMicros = t;
+         wvPulses += p3 / 12;
+         if (wvPulses > PI_WAVE_MAX_PULSES) return PI_TOO_MANY_PULSES;
+         return wvPulses;
+       }
+       case PI_CMD_WVCHA: { // length by the chain; levels by all its waves
+         final long[] pos = {0, 0};
+         final long us = chain(ext, p3, pos, 0);
+         if (us < 0) return (int)us;
+         txWave = -1;
+         txUntil = us == Long.MAX_VALUE ? us : System.nanoTime() + us * 1000;
+         return 0;
+       }
+       default:
+         return PI_UNKNOWN_COMMAND;
+     } // switch
+   } // execExt(3*int, byte[], int, byte[])
+
+/** Execute (a loop of) a waveform chain. <br />
+ *  <br />
+ *  The waves' final levels are set; the length is returned.
+ *
+ *  @param pos [0]: the position in ch[0..len-1], advanced; [1]: set to
+ *         the loop's repeat count at its end, -1: forever
+ *  @param depth the loop depth (0: chain)
+ *  @return the length in us; Long.MAX_VALUE: forever; &lt; 0: error
+ */
+   private long chain(final byte[] ch, final int len, final long[] pos,
+                                                          final int depth){
+     long us = 0;
+     while (pos[0] < len) {
+       final int b = ch[(int)pos[0]++] & 0xFF;
+       if (b != 255) { // wave id
+         final long[] w = wave(b);
+         if (w == null) return PI_BAD_WAVE_ID;
+         setLatch((latch | w[1]) & ~w[2]);
+         us += w[0];
+         continue;
+       }
+       if (pos[0] >= len) return PI_BAD_CHAIN_CMD;
+       final int c = ch[(int)pos[0]++] & 0xFF;
+       if (c == 0) { // loop start
+         if (depth >= 20) return PI_CHAIN_NESTING;
+         final long loop = chain(ch, len, pos, depth + 1);
+         if (loop < 0) return loop;
+         if (pos[1] < 0) return Long.MAX_VALUE; // forever
+         us += loop * pos[1];
+       } else if (c == 1) { // loop end: repeat x y
+         if (depth == 0 || pos[0] + 2 > len) return PI_BAD_CHAIN_LOOP;
+         pos[1] = (ch[(int)pos[0]] & 0xFF) | (ch[(int)pos[0] + 1] & 0xFF) << 8;
+         pos[0] += 2;
+         return us;
+       } else if (c == 2) { // delay x y
+         if (pos[0] + 2 > len) return PI_BAD_CHAIN_DELAY;
+         us += (ch[(int)pos[0]] & 0xFF) | (ch[(int)pos[0] + 1] & 0xFF) << 8;
+         pos[0] += 2;
+       } else if (c == 3) { // loop forever
+         if (depth == 0) return PI_BAD_CHAIN_LOOP;
+         pos[1] = -1;
+         return us;
+       } else {
+         return PI_BAD_CHAIN_CMD;
+       }
+     } // while
+     return depth == 0 ? us : PI_BAD_CHAIN_LOOP;
+   } // chain(byte[], int, long[], int)
+
+/** Set a GPIO's mode. <br /> */
+   private void setMode(final int gpio, final int mode){
+     final long old = levels();
+     modes[gpio] = (byte)mode;
+     outMask = mode == PI_OUTPUT ? outMask | 1L << gpio
+                                 : outMask & ~(1L << gpio);
+     report(old);
+   } // setMode(2*int)
+
+/** Write a user GPIO making it an output. <br /> */
+   private int write(final int gpio, final boolean level){
+     final long old = levels();
+     modes[gpio] = PI_OUTPUT;
+     outMask |= 1L << gpio;
+     latch = level ? latch | 1L << gpio : latch & ~(1L << gpio);
+     report(old);
+     return 0;
+   } // write(int, boolean)
+
+/** Set the output latches. <br /> */
+   private int setLatch(final long newLatch){
+     final long old = levels();
+     latch = newLatch;
+     report(old);
+     return 0;
+   } // setLatch(long)
+
+/** The tick (&micro;s, 32 bit wrapping). <br /> */
+   final int tick(){
+     return tickStart
+            + (int)((long)((System.nanoTime() - nanoStart) * tickRate) / 1000);
+   } // tick()
+
+/** Report a level change to the notification channels. <br /> */
+   private void report(final long oldLevels){
+     final int lev = (int)levels();
+     final int changed = lev ^ (int)oldLevels;
+     if (changed == 0) return;
+     final int tick = tick();
+     for (int h = 0; h < 32; ++h) {
+       final Notif n = notifs[h];
+       if (n == null || (n.mask & changed) == 0) continue;
+       if (!n.send(0, tick, lev)) notifs[h] = null;
+     }
+   } // report(long)
+
+/** Open a notification channel. <br />
+ *  @return the handle or PI_NO_HANDLE
+ */
+   synchronized int openNotif(final OutputStream out){
+     cmdCnt.increment();
+     for (int h = 0; h < 32; ++h) {
+       if (notifs[h] == null) {
+         notifs[h] = new Notif(out);
+         return h;
+       }
+     }
+     return PI_NO_HANDLE;
+   } // openNotif(OutputStream)
+
+/** Wait some time. <br />
+ *  <br />
+ *  Longer times are parked, the last 50 &micro;s are spun to be exact.
+ */
+   static void pause(final long ns){
+     if (ns <= 0) return;
+     final long end = System.nanoTime() + ns;
+     if (ns > 100_000) LockSupport.parkNanos(ns - 50_000);
+     while (end - System.nanoTime() > 0) Thread.yield();
+   } // pause(long)
+
+//-----------------------------  connections  ------------------------------
+
+/** The acceptor thread's work. <br /> */
+   void accept(){
+     while (running) {
+       final Socket sock;
+       try {
+         sock = server.accept();
+         sock.setTcpNoDelay(true);
+       } catch (IOException e) {
+         if (running) continue;
+         return; // closed
+       }
+       socks.add(sock);
+       final Conn c = new Conn(sock);
+       final Thread t = new Thread(c, "pigpiod-sim-cl" + sock.getPort());
+       t.setDaemon(true);
+       t.start();
+     } // while
+   } // accept()
+
+/** A response waiting for its due time. <br /> */
+   static final class Pending {
+     final long due;
+     final byte[] resp;
+     Pending(final long due, final byte[] resp){
+       this.due = due;
+       this.resp = resp;
+     }
+   } // Pending
+
+/** A client connection. <br /> */
+   final class Conn implements Runnable {
+     final Socket sock;
+     OutputStream out;
+     LinkedBlockingQueue<Pending> delayed; // lazy
+     final AtomicInteger pending = new AtomicInteger();
+     long lastDue;
+
+     Conn(final Socket sock){ this.sock = sock; }
+
+/** The reader's (command executor's) work. <br /> */
+     @Override public void run(){
+       clients.incrementAndGet();
+       final byte[] buf = new byte[16];
+       byte[] ext = new byte[256];
+       final byte[] data = new byte[256];
+       try {
+         final InputStream in = sock.getInputStream();
+         out = sock.getOutputStream();
+         for (;;) {
+           PigpiodNotifier.readFully(in, buf, 16);
+           final int cmd = ClientPigpiod.int32(buf, 0);
+           final int p1  = ClientPigpiod.int32(buf, 4);
+           final int p2  = ClientPigpiod.int32(buf, 8);
+           final int p3  = ClientPigpiod.int32(buf, 12);
+           if (p3 > 0) { // command extension
+             if (p3 > 65536) break; // garbage: drop connection
+             if (p3 > ext.length) ext = new byte[p3];
+             PigpiodNotifier.readFully(in, ext, p3);
+           }
+           final int res;
+           if (cmd == PI_CMD_NOIB) { // this connection becomes notification
+             res = openNotif(out);
+             respond(cmd, p1, p2, res);
+             if (res >= 0) {
+               while (in.read(ext) >= 0); // wait for close
+               break;
+             }
+             continue;
+           }
+           if (cmd == PI_CMD_MICS || cmd == PI_CMD_MILS) {
+             cmdCnt.increment();
+             final long max = cmd == PI_CMD_MICS ? 1_000_000 : 60_000;
+             if (p1 < 0 || p1 > max) {
+               res = cmd == PI_CMD_MICS ? PI_BAD_MICS_DELAY
+                                        : PI_BAD_MILS_DELAY;
+             } else {
+               pause(cmd == PI_CMD_MICS ? p1 * 1000L : p1 * 1000_000L);
+               res = 0;
+             }
+           } else if (p3 > 0 || hasRespExt(cmd)
+                   || cmd == PI_CMD_PROCR || cmd == PI_CMD_PROCU) { // ext.
+             res = execExt(cmd, p1, p2, ext, p3, data);
+             if (res > 0 && hasRespExt(cmd)) {
+               respond(cmd, p1, p2, res, data);
+               continue;
+             }
+           } else {
+             res = exec(cmd, p1, p2);
+           }
+           respond(cmd, p1, p2, res);
+         } // for
+       } catch (IOException e) { // closed by client
+       } finally {
+         clients.decrementAndGet();
+         socks.remove(sock);
+         try {
+           sock.close();
+         } catch (IOException e) {} // ignore
+       }
+     } // run()
+
+/** Send a response now or delayed. <br /> */
+     void respond(final int cmd, final int p1, final int p2, final int res)
+                                                        throws IOException {
+       respond(cmd, p1, p2, res, null);
+     } // respond(4*int)
+
+/** Send a response with extension (data[0..res-1]) now or delayed. <br /> */
+     void respond(final int cmd, final int p1, final int p2, final int res,
+                                     final byte[] data) throws IOException {
+       final byte[] resp = new byte[data == null ? 16 : 16 + res];
+       ClientPigpiod.putCmd(resp, cmd, p1, p2, res);
+       if (data != null) System.arraycopy(data, 0, resp, 16, res);
+       final long lat = latencyNs, jit = jitterNs;
+       if (lat <= 0 && jit <= 0 && pending.get() == 0) {
+         out.write(resp);
+         return;
+       }
+       long due = System.nanoTime() + lat
+                 + (jit > 0 ? ThreadLocalRandom.current().nextLong(jit) : 0);
+       if (due - lastDue < 0) due = lastDue; // keep the order
+       lastDue = due;
+       if (delayed == null) {
+         delayed = new LinkedBlockingQueue<>();
+         final Thread w = new Thread(this::writeDelayed,
+                                "pigpiod-sim-wr" + sock.getPort());
+         w.setDaemon(true);
+         w.start();
+       }
+       pending.incrementAndGet();
+       delayed.add(new Pending(due, resp));
+     } // respond(4*int, byte[])
+
+/** The delayed responses' writer thread's work. <br /> */
+     void writeDelayed(){
+       try {
+         while (!sock.isClosed()) {
+           final Pending p = delayed.take();
+           pause(p.due - System.nanoTime());
+           out.write(p.resp);
+           pending.decrementAndGet();
+         }
+       } catch (InterruptedException | IOException e) { // closed
+       }
+     } // writeDelayed()
+   } // Conn
+
+/** A notification channel. <br /> */
+   static final class Notif {
+     final OutputStream out;
+     final byte[] rep = new byte[12];
+     int mask, seq;
+
+     Notif(final OutputStream out){ this.out = out; }
+
+/** Send a report. <br />
+ *  @return false if the channel is broken
+ */
+     boolean send(final int flags, final int tick, final int level){
+       rep[0] = (byte)seq;
+       rep[1] = (byte)(seq >> 8);
+       rep[2] = (byte)flags;
+       rep[3] = (byte)(flags >> 8);
+       ClientPigpiod.putInt(rep, 4, tick);
+       ClientPigpiod.putInt(rep, 8, level);
+       ++seq;
+       try {
+         out.write(rep);
+         return true;
+       } catch (IOException e) {
+         return false;
+       }
+     } // send(3*int)
+
+     void close(){
+       try {
+         out.close();
+       } catch (IOException e) {} // ignore
+     } // close()
+   } // Notif
+
+/** Run the simulator as process. <br />
+ *
+ *  @param args [port [latency [jitter [service]]]]; times in &micro;s
+ */
+   public static void main(final String[] args){
+     try {
+       final int port = args.length > 0 ? Integer.parseInt(args[0]) : 8888;
+       final PigpiodSim sim = new PigpiodSim(port, null);
+       sim.setLatency(args.length > 1 ? Integer.parseInt(args[1]) : 0,
+                      args.length > 2 ? Integer.parseInt(args[2]) : 0);
+       if (args.length > 3) sim.setServiceTime(Integer.parseInt(args[3]));
+       System.out.println("PigpiodSim listening on port " + sim.getPort());
+       sim.acceptor.join();
+     } catch (NumberFormatException | IOException | InterruptedException e) {
+       System.out.println("PigpiodSim error: " + e
+            + "\n  usage: java de.weAut.PigpiodSim [port [latency [jitter"
+            + " [service]]]]   (times in us)");
+     }
+   } // main(String[])
+
+} // PigpiodSim (16.10.2026)
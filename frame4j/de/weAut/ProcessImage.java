@@ -0,0 +1,169 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import static de.weAut.PiGpioDdefs.*; // pigpio library defines
+
+/** <b>Input process image for PLC like cycles</b>.<br />
+ *  <br />
+ *  An object of this class holds a snapshot of all bank 0 GPIO levels
+ *  (0..31) got by one {@link PiGpioDdefs#PI_CMD_BR1 BR1} command per
+ *  cycle. All input reads of the cycle are then served from that snapshot
+ *  by bit mask. An IO cycle with 12 inputs so costs one round trip instead
+ *  of 12 (by {@link ClientPigpiod#getInp(int)} or READ each). <br />
+ *  <br />
+ *  The snapshot carries the number of the cycle it was got in and a time
+ *  stamp. Hence, the application logic reads one consistent image of its
+ *  inputs. <br />
+ *  Usage scheme: <pre>
+ *  ProcessImage inputs = new ProcessImage(pigpio);
+ *  for (;;) {
+ *     inputs.read();  // one BR1 at cycle start
+ *     boolean start = inputs.isHi(startButton); ...
+ *     thrDelay(cycle);
+ *  }</pre>
+ *  If the image is {@linkplain ClientPigpiod#setInImage(ProcessImage) set
+ *  as input image} of the {@link ClientPigpiod}, its
+ *  {@link ClientPigpiod#getInp(int) getInp()} for GPIO 0..31 is also
+ *  served from the snapshot. <br />
+ *  <br />
+ *  A {@link ProcessImage} is to be read and used by one (cycle) thread.
+ *  For other threads the values got may be of different cycles. <br />
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see ClientPigpiod
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  65 (16.10.2026) : new
+//           V. 112 (17.10.2026) : error by BR1's return value only
+public class ProcessImage {
+
+/** The connection the inputs are read by. <br /> */
+   public final ClientPigpiod pigpio;
+
+/** The levels of GPIO 0..31 as bit mask. <br /> */
+   int levels;
+
+/** The cycle number. <br />
+ *  <br />
+ *  Incremented by every successful {@link #read()}; 0: no snapshot yet.
+ */
+   int cycle;
+
+/** Time stamp of the snapshot in ms (by System.currentTimeMillis()). */
+   long millis;
+
+/** Time stamp of the snapshot in ns (by System.nanoTime()). */
+   long nanos;
+
+/** The last read's error; 0: OK. <br /> */
+   int err;
+
+/** Make an input process image. <br />
+ *  <br />
+ *  The image is empty (cycle 0, all levels low) until the first
+ *  {@link #read()}.
+ *
+ *  @param pigpio the connection to the Pi; not null
+ */
+   public ProcessImage(final ClientPigpiod pigpio){
+     this.pigpio = pigpio;
+   } // ProcessImage(ClientPigpiod)
+
+/** Take a new snapshot. <br />
+ *  <br />
+ *  All bank 0 levels are read by one {@link PiGpioDdefs#PI_CMD_BR1 BR1}
+ *  command. On success the cycle number is incremented and the time stamps
+ *  are set. On error the previous snapshot is kept.
+ *
+ *  @return the new cycle number (&gt; 0) or error (&lt; 0)
+ */
+   public int read(){
+     final int lev = pigpio.stdCmd(PI_CMD_BR1, 0, 0);
+     if (ClientPigpiod.isTransportError(lev)) { // BR1: no other errors
+       return err = lev; // no response; keep the previous snapshot
+     }
+     levels = lev;
+     millis = System.currentTimeMillis();
+     nanos  = System.nanoTime();
+     err = 0;
+     return ++cycle;
+   } // read()
+
+/** Get an input from the snapshot. <br />
+ *
+ *  @param gpio a legal BCM IO number 0..31
+ *  @return 0 or 1: OK; &lt; 0: error
+ */
+   public final int getInp(final int gpio){
+     if (gpio < 0 || gpio > 31) return PI_BAD_USER_GPIO;
+     return levels >>> gpio & 1;
+   } // getInp(int)
+
+/** Input is high. <br />
+ *
+ *  @param gpio a legal BCM IO number 0..31
+ *  @return true if the input is high in the snapshot; false else or on
+ *          illegal gpio
+ */
+   public final boolean isHi(final int gpio){
+     return gpio >= 0 && gpio <= 31 && (levels & 1 << gpio) != 0;
+   } // isHi(int)
+
+/** The levels of all GPIOs (bank 0). <br />
+ *  @return the levels of GPIO 0..31 as bit mask
+ */
+   public final int levels(){ return levels; }
+
+/** Inputs by mask. <br />
+ *  @param mask the GPIOs of interest (bank 0)
+ *  @return the levels of the GPIOs in mask (others 0)
+ */
+   public final int levels(final int mask){ return levels & mask; }
+
+/** The cycle number. <br />
+ *  @return the number of snapshots taken so far, i.e. the current one's
+ */
+   public final int cycle(){ return cycle; }
+
+/** The snapshot's time stamp. <br />
+ *  @return the time in ms since 1.1.1970 the snapshot was taken
+ */
+   public final long millis(){ return millis; }
+
+/** The snapshot's high resolution time stamp. <br />
+ *  @return the System.nanoTime() when the snapshot was taken
+ */
+   public final long nanos(){ return nanos; }
+
+/** The last read's error. <br />
+ *  @return 0: OK; else error (&lt; 0) of the last {@link #read()}
+ */
+   public final int err(){ return err; }
+
+/** Valid snapshot. <br />
+ *  @return true if there is a snapshot and the last {@link #read()} did
+ *          not fail
+ */
+   public final boolean valid(){ return cycle > 0 && err == 0; }
+
+/** State as short text. <br /> */
+   @Override public String toString(){
+     return "inputs cycle " + cycle + " 0x" + Integer.toHexString(levels)
+                                      + (err != 0 ? " err " + err : "");
+   } // toString()
+
+} // ProcessImage (16.10.2026)
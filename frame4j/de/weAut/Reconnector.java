@@ -0,0 +1,181 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/** <b>Automatic reconnect for a ClientPigpiod</b>.<br />
+ *  <br />
+ *  An object of this class, switched on by
+ *  {@link ClientPigpiod#autoReconnect(int, int)}, is told by its
+ *  {@link ClientPigpiod} when the connection to pigpiod is lost (a write
+ *  or read failure, end of stream or a response timeout). It then
+ *  <ul><li>closes the connection, so all commands fail fast with
+ *      {@link PiGpioDdefs#PI_SOCK_WRIT_FAILED} instead of each waiting
+ *      for a timeout,</li>
+ *  <li>tries to connect in an own (daemon) thread: at once first, then
+ *      with exponential backoff from min to max ms, each try with a
+ *      short connect timeout ({@link #connTimeout}),</li>
+ *  <li>after reconnect replays the outputs' modes ({@link
+ *      ClientPigpiod#areOut()}) and pad strengths set by one
+ *      {@link CommandBatch} ({@link ClientPigpiod#replay()}) and
+ *      re-reads a {@link ClientPigpiod#shadow() shadow} if used.</li></ul>
+ *  So a control loop recovers in ms after a pigpiod restart or a short
+ *  network outage. <br />
+ *  <br />
+ *  An explicit {@link ClientPigpiod#disconnect()} stops reconnecting till
+ *  the next {@link ClientPigpiod#connect()}. <br />
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see ClientPigpiod#reconnector()
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  78 (16.10.2026) : new
+//           V. 108 (17.10.2026) : no reconnect over an explicit disconnect
+public class Reconnector implements Runnable {
+
+/** The connection to be kept. <br /> */
+   public final ClientPigpiod pI;
+
+/** Backoff limits in ms. <br /> */
+   public final int minMs, maxMs;
+
+/** Connect timeout of a try in ms. <br />
+ *  <br />
+ *  Default: maxMs, but at most 1000 and at least 100.
+ */
+   public volatile int connTimeout;
+
+/** Link down (lost and not yet reconnected). <br /> */
+   final AtomicBoolean down = new AtomicBoolean();
+
+/** Stopped by disconnect. <br /> */
+   volatile boolean halted;
+
+/** Stopped for ever (switched off). <br /> */
+   volatile boolean off;
+
+/** Losses, tries and reconnects. <br /> */
+   final LongAdder losses = new LongAdder(), tries = new LongAdder(),
+                   reconnects = new LongAdder();
+
+/** Start of the current or last outage and its length (ns). <br /> */
+   volatile long downSince, lastOutage;
+
+/** The last exception of losing or connecting. <br /> */
+   volatile Throwable lastException;
+
+/** Make the reconnect engine. <br />
+ *
+ *  @param pI the connection to pigpiod
+ *  @param minMs the first backoff in ms (1..)
+ *  @param maxMs the maximum backoff in ms (&gt;= minMs)
+ */
+   Reconnector(final ClientPigpiod pI, final int minMs, final int maxMs){
+     this.pI = pI;
+     this.minMs = minMs < 1 ? 1 : minMs;
+     this.maxMs = maxMs < this.minMs ? this.minMs : maxMs;
+     connTimeout = this.maxMs > 1000 ? 1000
+                                     : this.maxMs < 100 ? 100 : this.maxMs;
+   } // Reconnector(ClientPigpiod, 2*int)
+
+/** The connection was lost. <br />
+ *  <br />
+ *  This is called by {@link ClientPigpiod} on a transport failure. The
+ *  first call closes the connection and starts reconnecting; further ones
+ *  while down are ignored. The caller may hold the {@link ClientPigpiod}'s
+ *  lock.
+ *
+ *  @param e the exception (may be null)
+ */
+   void lost(final Throwable e){
+     if (halted || off || !down.compareAndSet(false, true)) return;
+     downSince = System.nanoTime();
+     lastException = e;
+     losses.increment();
+     pI.drop(); // commands fail fast now
+     Thread t = new Thread(this, "pigpiod-rc " + pI.thePi.host());
+     t.setDaemon(true);
+     t.start();
+   } // lost(Throwable)
+
+/** Reconnect. <br />
+ *  <br />
+ *  The reconnect thread's work: try, backoff, replay.
+ */
+   @Override public void run(){
+     int backoff = minMs;
+     for (;;) {
+       if (halted || off) {
+         down.set(false);
+         return;
+       }
+       tries.increment();
+       try {
+         if (pI.reopen(this, connTimeout)) break;
+         down.set(false); // stopped or connected meanwhile
+         return;
+       } catch (IOException e) {
+         lastException = e;
+       }
+       try {
+         Thread.sleep(backoff);
+       } catch (InterruptedException e) {
+         down.set(false);
+         return;
+       }
+       backoff = backoff > maxMs / 2 ? maxMs : backoff * 2;
+     } // for
+     lastOutage = System.nanoTime() - downSince;
+     reconnects.increment();
+     down.set(false); // a failing replay is a new loss
+     if (halted || off) return; // disconnected meanwhile: no replay
+     pI.replay();
+     final GpioShadow sh = pI.shadow;
+     if (sh != null) sh.resync(pI);
+   } // run()
+
+/** Is the link down. <br />
+ *  @return true while reconnecting
+ */
+   public boolean isDown(){ return down.get(); }
+
+/** The number of connection losses. <br /> */
+   public long losses(){ return losses.sum(); }
+
+/** The number of reconnects. <br /> */
+   public long reconnects(){ return reconnects.sum(); }
+
+/** The number of connect tries. <br /> */
+   public long tries(){ return tries.sum(); }
+
+/** The length of the last outage in ms. <br /> */
+   public long lastOutageMillis(){ return lastOutage / 1000000; }
+
+/** The last exception of losing or connecting; null if none. <br /> */
+   public Throwable lastException(){ return lastException; }
+
+/** State as short text. <br /> */
+   @Override public String toString(){
+     return "Reconnector " + minMs + ".." + maxMs + " ms: "
+         + (isDown() ? "down" : "up") + ", " + losses.sum() + " losses, "
+         + reconnects.sum() + " reconnects, " + tries.sum()
+         + " tries, last outage " + lastOutageMillis() + " ms";
+   } // toString()
+
+} // Reconnector (16.10.2026)
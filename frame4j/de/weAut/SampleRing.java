@@ -0,0 +1,231 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** <b>A ring buffer of time stamped samples</b>.<br />
+ *  <br />
+ *  An object of this class holds the last {@link #capacity} samples of a
+ *  channel as two primitive arrays of time ({@link System#nanoTime()}) and
+ *  value. Putting a sample neither boxes nor allocates; the memory is
+ *  bounded by the capacity (16 byte per sample). <br />
+ *  <br />
+ *  There must be one writer thread ({@link #put(long, long)}); any number
+ *  of readers may follow the samples by own {@link Cursor}s. A reader too
+ *  slow loses the samples overwritten (counted by its cursor), it never
+ *  gets a torn or out of order sample. <br />
+ *  This is a sequence lock: the writer publishes the slot it claims
+ *  before writing it (store fence), a reader re-checks the claim after
+ *  copying (load fence). The fences are VarHandle's (Java 9+) or, on
+ *  Java 8, sun.misc.Unsafe's. <br />
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see Sampler
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  82 (16.10.2026) : new
+//           V.  95 (16.10.2026) : claim and fences (sequence lock)
+public class SampleRing {
+
+/** The number of samples held (a power of 2). <br /> */
+   public final int capacity;
+
+   final int mask;
+   final long[] nanos, values;
+
+/** The number of samples put (the next sample's sequence number). <br />
+ *  <br />
+ *  Set (ordered) after the sample is written.
+ */
+   final AtomicLong written = new AtomicLong();
+
+/** The number of samples claimed; written + 1 while writing. <br />
+ *  <br />
+ *  Set before the sample is written and fenced against its stores. A
+ *  slot s is overwritten (or being so) if claimed &gt; s + capacity.
+ */
+   final AtomicLong claimed = new AtomicLong();
+
+/** Make a ring buffer. <br />
+ *
+ *  @param capacity the number of samples to hold; rounded up to a power
+ *         of 2, at least 16
+ */
+   public SampleRing(final int capacity){
+     int cap = 16;
+     while (cap < capacity && cap < 1 << 28) cap <<= 1;
+     this.capacity = cap;
+     mask = cap - 1;
+     nanos = new long[cap];
+     values = new long[cap];
+   } // SampleRing(int)
+
+/** Put a sample. <br />
+ *  <br />
+ *  For the one writer thread only.
+ *
+ *  @param t the sample's time (System.nanoTime())
+ *  @param value the value
+ */
+   public final void put(final long t, final long value){
+     final long n = written.get();
+     claimed.lazySet(n + 1);
+     storeFence(); // the claim before the slot's stores
+     final int i = (int)n & mask;
+     nanos[i] = t;
+     values[i] = value;
+     written.lazySet(n + 1); // publish after the arrays' writes
+   } // put(2*long)
+
+/** The number of samples put. <br /> */
+   public final long written(){ return written.get(); }
+
+/** The sequence number of the oldest sample held. <br /> */
+   public final long oldest(){
+     final long n = written.get() - capacity;
+     return n < 0 ? 0 : n;
+   } // oldest()
+
+/** The last value; 0 if none. <br /> */
+   public final long last(){
+     final long n = written.get();
+     return n == 0 ? 0 : values[(int)(n - 1) & mask];
+   } // last()
+
+/** The last sample's time; 0 if none. <br /> */
+   public final long lastNanos(){
+     final long n = written.get();
+     return n == 0 ? 0 : nanos[(int)(n - 1) & mask];
+   } // lastNanos()
+
+/** Make a reader starting with the next sample put. <br />
+ *  @return a new cursor
+ */
+   public Cursor cursor(){ return new Cursor(written.get()); }
+
+/** <b>A reader's position in a {@link SampleRing}</b>. <br />
+ *  <br />
+ *  A cursor is to be used by one thread.
+ */
+   public final class Cursor {
+     long next, lost;
+
+     Cursor(final long next){ this.next = next; }
+
+/** Get the samples put since the last call. <br />
+ *  <br />
+ *  Up to max samples are copied to the arrays at off. Samples
+ *  overwritten before being read are skipped and counted as
+ *  {@link #lost()}.
+ *
+ *  @param t the array for the times
+ *  @param v the array for the values
+ *  @param off the start index in t and v
+ *  @param max the maximum number to get
+ *  @return the number of samples got
+ */
+     public int read(final long[] t, final long[] v, final int off,
+                                                          final int max){
+       final long w = written.get();
+       long from = next;
+       if (w - from >= capacity) { // overtaken (the slot of w may be busy)
+         lost += w - capacity + 1 - from;
+         from = w - capacity + 1;
+       }
+       int n = (int)Math.min(w - from, max);
+       for (int k = 0; k < n; ++k) {
+         final int i = (int)(from + k) & mask;
+         t[off + k] = nanos[i];
+         v[off + k] = values[i];
+       }
+       loadFence(); // the slots' loads before the re-check
+       final long o = claimed.get() - capacity; // overwritten meanwhile?
+       if (o > from) {
+         final int drop = (int)Math.min(o - from, n);
+         System.arraycopy(t, off + drop, t, off, n - drop);
+         System.arraycopy(v, off + drop, v, off, n - drop);
+         lost += drop;
+         from += drop;
+         n -= drop;
+       }
+       next = from + n;
+       return n;
+     } // read(2*long[], 2*int)
+
+/** The number of samples not got yet. <br /> */
+     public long available(){
+       return Math.min(written.get() - next, capacity - 1);
+     } // available()
+
+/** The number of samples lost by being overwritten. <br /> */
+     public long lost(){ return lost; }
+   } // Cursor
+
+//--------------------------------  fences  --------------------------------
+
+/** Store fence: VarHandle.releaseFence() or Unsafe.storeFence(). <br /> */
+   static final MethodHandle STORE_FENCE;
+
+/** Load fence: VarHandle.acquireFence() or Unsafe.loadFence(). <br /> */
+   static final MethodHandle LOAD_FENCE;
+   static {
+     final MethodType vv = MethodType.methodType(void.class);
+     final MethodHandles.Lookup lu = MethodHandles.lookup();
+     MethodHandle st, ld;
+     try {
+       final Class<?> vh = Class.forName("java.lang.invoke.VarHandle");
+       st = lu.findStatic(vh, "releaseFence", vv);
+       ld = lu.findStatic(vh, "acquireFence", vv);
+     } catch (ReflectiveOperationException e) { // Java 8
+       try {
+         final Class<?> uc = Class.forName("sun.misc.Unsafe");
+         final Field f = uc.getDeclaredField("theUnsafe");
+         f.setAccessible(true);
+         final Object u = f.get(null);
+         st = lu.findVirtual(uc, "storeFence", vv).bindTo(u);
+         ld = lu.findVirtual(uc, "loadFence", vv).bindTo(u);
+       } catch (ReflectiveOperationException | RuntimeException e2) {
+         throw new ExceptionInInitializerError(e2); // no fences at all
+       }
+     }
+     STORE_FENCE = st;
+     LOAD_FENCE = ld;
+   } // static
+
+   static void storeFence(){
+     try {
+       STORE_FENCE.invokeExact();
+     } catch (Throwable e) {} // can't happen
+   } // storeFence()
+
+   static void loadFence(){
+     try {
+       LOAD_FENCE.invokeExact();
+     } catch (Throwable e) {} // can't happen
+   } // loadFence()
+
+/** State as short text. <br /> */
+   @Override public String toString(){
+     return "SampleRing " + capacity + ": " + written.get() + " put, last "
+                                                                  + last();
+   } // toString()
+
+} // SampleRing (16.10.2026)
@@ -0,0 +1,515 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/** <b>Append only store of a sampled value's history</b>.<br />
+ *  <br />
+ *  An object of this class appends time stamped values of one series
+ *  (like a GPIO bank's levels or an ADC channel) to memory mapped segment
+ *  files and answers time range queries and downsampled reads. <br />
+ *  <br />
+ *  Times are &micro;s since the epoch. The values are encoded in blocks of
+ *  up to {@link #BLOCK} entries: a block header holds the first entry's
+ *  time and value absolute, every further entry is the time's delta and
+ *  <ul><li>for {@link #DIGITAL} levels: the bits changed (XOR to the last
+ *      value); only changes are stored, a level holds till the next
+ *      one,</li>
+ *  <li>for {@link #ANALOG} values: the value's (zigzag) delta,</li></ul>
+ *  each as variable length integer. A 1 kHz sample so costs two or three
+ *  bytes and an unchanged level nothing &mdash; some 20 times less than
+ *  text logs. A query skips blocks by their headers' times. <br />
+ *  <br />
+ *  The segments ({@code name-000000.pts} ...) have a fixed length set when
+ *  made and are written sequentially, the data by the operating system's
+ *  paging. The file is synced ({@link MappedByteBuffer#force()}) only when
+ *  a segment is full, by {@link #flush()} and by {@link #close()} &mdash;
+ *  friendly to SD cards. The oldest segments beyond {@link #keep} are
+ *  deleted. A store made again starts a new segment. <br />
+ *  <br />
+ *  Appending is threadsafe; queries may run concurrently to appending,
+ *  also by another process (see {@link #query(File, String, long, long,
+ *  Visitor)}). Times going backwards are stored as the last time. <br />
+ *  <br />
+ *  Usage scheme (bank 0 levels sampled at 1 kHz, kept for days): <pre>
+ *  SampleStore st = new SampleStore(dir, "bank0", SampleStore.DIGITAL);
+ *  Sampler.Channel bk = sampler.add("bank0", 1000, 0, sampler.bank1());
+ *  sched.schedule("store", 100, 0, null, st.drain(bk.ring));
+ *  sched.schedule("sync", 60000, 0, null, st::flush);
+ *  ...
+ *  st.query(from, to, (t, v) -&gt; { ...; return true; });
+ *  </pre>
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see Sampler
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  83 (16.10.2026) : new
+public class SampleStore implements AutoCloseable {
+
+/** A segment's magic number ("PGTS"). <br /> */
+   public static final int MAGIC = 0x50475453;
+
+/** The format version. <br /> */
+   public static final int VERSION = 1;
+
+/** The length of a segment's header in bytes. <br />
+ *  <br />
+ *  magic, version, kind, segment number (int), first and last time,
+ *  number of entries (long), segment length (int).
+ */
+   public static final int HEAD = 64;
+
+/** The length of a block's header in bytes. <br />
+ *  <br />
+ *  first time, first value (long), entries, bytes of entries (int).
+ */
+   public static final int BLOCK_HEAD = 24;
+
+/** The maximum number of entries of a block. <br /> */
+   public static final int BLOCK = 256;
+
+/** The maximum length of an encoded entry. <br /> */
+   static final int MAX_ENTRY = 20;
+
+/** Kind of series: analog values. <br /> */
+   public static final int ANALOG = 0;
+
+/** Kind of series: digital levels (bit masks), changes stored. <br /> */
+   public static final int DIGITAL = 1;
+
+/** The segment file's extension. <br /> */
+   public static final String EXT = ".pts";
+
+/** The directory of the segments. <br /> */
+   public final File dir;
+
+/** The series' name (the segments' prefix). <br /> */
+   public final String name;
+
+/** The kind: {@link #ANALOG} or {@link #DIGITAL}. <br /> */
+   public final int kind;
+
+/** The length of a segment in bytes. <br /> */
+   public final int segBytes;
+
+/** The number of segments kept; 0: all. <br /> */
+   public final int keep;
+
+/** Lock for appending. <br /> */
+   final ReentrantLock lock = new ReentrantLock();
+
+   MappedByteBuffer seg;
+   int segNo, pos, blockPos, blockCount, blockBytes;
+   long lastT, lastV, seenT, count;
+
+/** Time base for {@link #appendNanos(long, long)}. <br /> */
+   final long nanoBase = System.nanoTime(),
+              microBase = System.currentTimeMillis() * 1000;
+
+/** Make a store. <br />
+ *  <br />
+ *  The first segment is made at once. Numbering continues after existing
+ *  segments of the same name in dir.
+ *
+ *  @param dir the directory (will be made if not existing)
+ *  @param name the series' name (prefix)
+ *  @param kind {@link #ANALOG} or {@link #DIGITAL}
+ *  @param segBytes the length of a segment (64K..1G)
+ *  @param keep the number of segments kept; 0: all
+ *  @throws IOException if the first segment can't be made
+ */
+   public SampleStore(final File dir, final String name, final int kind,
+              final int segBytes, final int keep) throws IOException {
+     this.dir = dir;
+     this.name = name;
+     this.kind = kind == DIGITAL ? DIGITAL : ANALOG;
+     this.segBytes = segBytes < 1 << 16 ? 1 << 16
+                   : segBytes > 1 << 30 ? 1 << 30 : segBytes;
+     this.keep = keep < 0 ? 0 : keep;
+     if (!dir.isDirectory() && !dir.mkdirs()) {
+       throw new IOException("can't make " + dir);
+     }
+     final File[] old = segments(dir, name);
+     if (old.length > 0) {
+       segNo = CommandRecorder.number(old[old.length - 1], name) + 1;
+     }
+     next();
+   } // SampleStore(File, String, 3*int)
+
+/** Make a store of 4 Mbyte segments keeping all. <br />
+ *
+ *  @param dir the directory
+ *  @param name the series' name (prefix)
+ *  @param kind {@link #ANALOG} or {@link #DIGITAL}
+ *  @throws IOException if the first segment can't be made
+ */
+   public SampleStore(final File dir, final String name, final int kind)
+                                                        throws IOException {
+     this(dir, name, kind, 4 << 20, 0);
+   } // SampleStore(File, String, int)
+
+//------------------------------  appending  -------------------------------
+
+/** Append a value. <br />
+ *
+ *  @param micros the time in &micro;s since the epoch (&gt; 0)
+ *  @param value the value
+ *  @throws IOException if a new segment can't be made
+ */
+   public void append(long micros, final long value) throws IOException {
+     lock.lock();
+     try {
+       if (seg == null) throw new IOException(name + " closed");
+       if (micros < seenT) micros = seenT;
+       seenT = micros;
+       seg.putLong(24, micros);
+       if (kind == DIGITAL && count > 0 && value == lastV) return; // held
+       if (blockPos < 0 || blockCount == BLOCK
+                                       || pos + MAX_ENTRY > segBytes) {
+         block(micros, value);
+       } else {
+         int p = varint(seg, pos, micros - lastT);
+         p = varint(seg, p, kind == DIGITAL ? value ^ lastV
+                           : zigzag(value - lastV));
+         blockBytes += p - pos;
+         pos = p;
+         seg.putInt(blockPos + 20, blockBytes); // bytes before count
+         seg.putInt(blockPos + 16, ++blockCount);
+       }
+       lastT = micros;
+       lastV = value;
+       seg.putLong(32, ++count);
+     } finally {
+       lock.unlock();
+     }
+   } // append(2*long)
+
+/** Append a value time stamped by System.nanoTime(). <br />
+ *
+ *  @param nanos the time (System.nanoTime())
+ *  @param value the value
+ *  @throws IOException if a new segment can't be made
+ */
+   public void appendNanos(final long nanos, final long value)
+                                                       throws IOException {
+     append(microBase + (nanos - nanoBase) / 1000, value);
+   } // appendNanos(2*long)
+
+/** Start a block with an entry; the caller holds the lock. <br /> */
+   final void block(final long micros, final long value) throws IOException {
+     if (pos + BLOCK_HEAD + MAX_ENTRY > segBytes) next();
+     blockPos = pos;
+     seg.putLong(pos + 8, value).putInt(pos + 16, 1).putInt(pos + 20, 0);
+     seg.putLong(pos, micros); // last: 0 is the end of the blocks
+     pos += BLOCK_HEAD;
+     blockCount = 1;
+     blockBytes = 0;
+     if (seg.getLong(16) == 0) seg.putLong(16, micros);
+   } // block(2*long)
+
+/** Make the next segment; the caller holds the lock. <br /> */
+   final void next() throws IOException {
+     if (seg != null) seg.force();
+     final int no = segNo++;
+     final File f = new File(dir, name + '-' + String.format("%06d", no)
+                                                                    + EXT);
+     try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+       raf.setLength(segBytes); // the segment's space at once
+       seg = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                                                                segBytes);
+     } // the mapping stays valid after closing
+     seg.order(ByteOrder.LITTLE_ENDIAN);
+     seg.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, kind).putInt(12, no)
+        .putLong(16, 0).putLong(24, seenT).putLong(32, count)
+        .putInt(40, segBytes);
+     pos = HEAD;
+     blockPos = -1;
+     if (keep > 0) {
+       final File[] all = segments(dir, name);
+       for (int i = 0; i < all.length - keep; ++i) all[i].delete();
+     }
+   } // next()
+
+/** A follower of a ring buffer. <br />
+ *  <br />
+ *  The runnable returned appends the samples put into ring since its
+ *  last run. It is to be run cyclically by one thread, like a
+ *  {@link CycleScheduler} task; a failing append is dropped.
+ *
+ *  @param ring the samples (time stamped by System.nanoTime())
+ *  @return the job
+ */
+   public Runnable drain(final SampleRing ring){
+     final SampleRing.Cursor c = ring.cursor();
+     final long[] t = new long[256], v = new long[256];
+     return () -> {
+       try {
+         for (int n; (n = c.read(t, v, 0, t.length)) > 0;) {
+           for (int k = 0; k < n; ++k) appendNanos(t[k], v[k]);
+         }
+       } catch (IOException e) { } // closed
+     };
+   } // drain(SampleRing)
+
+/** Write the current segment to the file. <br />
+ *  <br />
+ *  This is a file sync; it should be done seldom (minutes).
+ */
+   public void flush(){
+     lock.lock();
+     try {
+       if (seg != null) seg.force();
+     } finally {
+       lock.unlock();
+     }
+   } // flush()
+
+/** Stop appending. <br />
+ *  <br />
+ *  The current segment is written to the file.
+ */
+   @Override public void close(){
+     lock.lock();
+     try {
+       if (seg != null) seg.force();
+       seg = null;
+     } finally {
+       lock.unlock();
+     }
+   } // close()
+
+/** The number of entries stored by this store. <br /> */
+   public long count(){ return count; }
+
+/** The last time appended in &micro;s since the epoch; 0: none. <br /> */
+   public long lastMicros(){ return seenT; }
+
+//--------------------------------  encoding  ------------------------------
+
+/** Put a variable length unsigned integer. <br />
+ *  @return the position after
+ */
+   static int varint(final ByteBuffer b, int p, long x){
+     while ((x & ~0x7FL) != 0) {
+       b.put(p++, (byte)(x & 0x7F | 0x80));
+       x >>>= 7;
+     }
+     b.put(p++, (byte)x);
+     return p;
+   } // varint(ByteBuffer, int, long)
+
+/** Zigzag encoding: small negative deltas to small numbers. <br /> */
+   static long zigzag(final long x){ return x << 1 ^ x >> 63; }
+
+//--------------------------------  queries  -------------------------------
+
+/** <b>The receiver of stored values</b>. <br /> */
+   @FunctionalInterface public interface Visitor {
+
+/** Take a value. <br />
+ *
+ *  @param micros the time in &micro;s since the epoch
+ *  @param value the value
+ *  @return true: go on; false: stop
+ */
+     boolean sample(long micros, long value);
+   } // Visitor
+
+/** Query a time range of this store's series. <br />
+ *
+ *  @param from the range's start in &micro;s since the epoch (inclusive)
+ *  @param to the range's end (inclusive)
+ *  @param v the receiver of the values in time order
+ *  @return the number of values got
+ *  @throws IOException if a segment can't be read
+ */
+   public long query(final long from, final long to, final Visitor v)
+                                                       throws IOException {
+     return query(dir, name, from, to, v);
+   } // query(2*long, Visitor)
+
+/** Query a time range of a series. <br />
+ *  <br />
+ *  The segments are mapped read only, one at a time. Segments and blocks
+ *  outside the range are skipped by their headers. For a
+ *  {@link #DIGITAL} series the level valid at from is got first (with its
+ *  earlier time of change) if any.
+ *
+ *  @param dir the directory
+ *  @param name the series' name
+ *  @param from the range's start in &micro;s since the epoch (inclusive)
+ *  @param to the range's end (inclusive)
+ *  @param v the receiver of the values in time order
+ *  @return the number of values got
+ *  @throws IOException if a segment can't be read or is no store's
+ */
+   public static long query(final File dir, final String name,
+       final long from, final long to, final Visitor v) throws IOException {
+     long n = 0;
+     long heldT = 0, heldV = 0; // DIGITAL: level valid before from
+     boolean held = false;
+     for (File f : segments(dir, name)) {
+       final MappedByteBuffer b;
+       try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+         final FileChannel fc = raf.getChannel();
+         b = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+       }
+       b.order(ByteOrder.LITTLE_ENDIAN);
+       if (b.capacity() < HEAD || b.getInt(0) != MAGIC) {
+         throw new IOException(f + " is no sample store");
+       }
+       final boolean digital = b.getInt(8) == DIGITAL;
+       final long first = b.getLong(16);
+       if (first == 0) continue; // empty segment
+       if (first > to) break;
+       if (b.getLong(24) < from && !digital) continue; // before range
+       final int size = b.capacity();
+       for (int p = HEAD; p + BLOCK_HEAD <= size;) {
+         final long t0 = b.getLong(p);
+         if (t0 == 0) break; // end of blocks
+         if (t0 > to) break;
+         final int cnt = b.getInt(p + 16), bytes = b.getInt(p + 20);
+         final int next = p + BLOCK_HEAD + bytes;
+         final long nextT = next + 8 <= size ? b.getLong(next) : 0;
+         if (nextT != 0 && nextT < from) { // block before range; a later
+           p = next;                        // one has a later level
+           continue;
+         }
+         long t = t0, x = b.getLong(p + 8);
+         int q = p + BLOCK_HEAD;
+         for (int i = 0;;) {
+           if (t > to) return n;
+           if (t >= from) {
+             if (held) { // the level valid at from
+               held = false;
+               ++n;
+               if (!v.sample(heldT, heldV)) return n;
+             }
+             ++n;
+             if (!v.sample(t, x)) return n;
+           } else if (digital) {
+             held = true;
+             heldT = t;
+             heldV = x;
+           }
+           if (++i >= cnt || q >= next) break;
+           long d = 0, z = 0;
+           for (int s = 0;; s += 7) { // time delta
+             final byte c = b.get(q++);
+             d |= (long)(c & 0x7F) << s;
+             if (c >= 0) break;
+           }
+           for (int s = 0;; s += 7) { // value delta
+             final byte c = b.get(q++);
+             z |= (long)(c & 0x7F) << s;
+             if (c >= 0) break;
+           }
+           t += d;
+           x = digital ? x ^ z : x + (z >>> 1 ^ -(z & 1));
+         } // for entries
+         p = next;
+       } // for blocks
+     } // for segments
+     if (held) {
+       ++n;
+       v.sample(heldT, heldV);
+     }
+     return n;
+   } // query(File, String, 2*long, Visitor)
+
+/** Read a time range downsampled. <br />
+ *  <br />
+ *  The range is divided in steps; the values of each step having some
+ *  are aggregated (number, min, max, mean) and handed to sink with the
+ *  times of the step's first and last value. The sink's name is this
+ *  store's name. For a {@link #DIGITAL} series the level valid at from
+ *  counts for the first step.
+ *
+ *  @param from the range's start in &micro;s since the epoch
+ *  @param to the range's end (inclusive)
+ *  @param step the step in &micro;s (&gt; 0)
+ *  @param sink the receiver of the steps
+ *  @return the number of steps got
+ *  @throws IOException if a segment can't be read
+ */
+   public long downsample(final long from, final long to, final long step,
+                              final Sampler.Sink sink) throws IOException {
+     final long st = step < 1 ? 1 : step;
+     final long[] a = new long[6]; // bucket, t0, t1, n, min, max
+     final double[] sum = {0};
+     final long[] steps = {0};
+     a[0] = Long.MIN_VALUE;
+     query(from, to, (t, x) -> {
+       final long bucket = t < from ? 0 : (t - from) / st;
+       if (bucket != a[0]) {
+         if (a[3] > 0) {
+           sink.window(name, a[1], a[2], (int)a[3], a[4], a[5],
+                                                         sum[0] / a[3]);
+           ++steps[0];
+         }
+         a[0] = bucket;
+         a[1] = t;
+         a[3] = 0;
+         a[4] = a[5] = x;
+         sum[0] = 0;
+       }
+       a[2] = t;
+       ++a[3];
+       if (x < a[4]) a[4] = x;
+       if (x > a[5]) a[5] = x;
+       sum[0] += x;
+       return true;
+     });
+     if (a[3] > 0) {
+       sink.window(name, a[1], a[2], (int)a[3], a[4], a[5], sum[0] / a[3]);
+       ++steps[0];
+     }
+     return steps[0];
+   } // downsample(3*long, Sampler.Sink)
+
+/** The segments of a series in a directory. <br />
+ *
+ *  @param dir the directory
+ *  @param name the series' name (prefix)
+ *  @return the segment files, oldest first; empty if none
+ */
+   public static File[] segments(final File dir, final String name){
+     final File[] ret = dir.listFiles((d, n) -> n.startsWith(name + '-')
+                   && n.endsWith(EXT) && n.length() == name.length() + 11);
+     if (ret == null) return new File[0];
+     Arrays.sort(ret);
+     return ret;
+   } // segments(File, String)
+
+/** State as short text. <br /> */
+   @Override public String toString(){
+     return "SampleStore " + new File(dir, name)
+         + (kind == DIGITAL ? " (digital): " : " (analog): ") + count
+         + " entries, segment " + (segNo - 1) + " at " + pos
+         + (seg == null ? " (closed)" : "");
+   } // toString()
+
+} // SampleStore (16.10.2026)
@@ -0,0 +1,396 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import static de.weAut.PiGpioDdefs.*; // pigpio library defines
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/** <b>Sampled IO acquisition</b>.<br />
+ *  <br />
+ *  An object of this class polls sources &mdash; GPIOs, bank 0 levels,
+ *  I2C or SPI ADC channels or any {@link LongSupplier} &mdash; at fixed
+ *  rates as tasks of a {@link CycleScheduler}. Every {@link Channel} puts
+ *  its samples into its own {@link SampleRing}: no boxing, no allocation
+ *  per sample and bounded memory. <br />
+ *  <br />
+ *  Downstream {@link Stage}s, running at a lower rate, follow a ring,
+ *  decimate it by windows of a fixed number of samples, aggregate each
+ *  window (min, max, mean) and export it to a {@link Sink}, like a
+ *  {@linkplain #csv(Appendable) CSV} output. So printing is done some times
+ *  a second for thousands of samples instead of per sample. <br />
+ *  Usage scheme (GPIO 4 at 1 kHz, ADC at 500 Hz, means of 100 ms): <pre>
+ *  CycleScheduler sched = new CycleScheduler("acq", 1);
+ *  Sampler smp = new Sampler(pigpio, sched);
+ *  Sampler.Channel in4 = smp.add("in4", 1000, 0, smp.gpio(4));
+ *  Sampler.Channel adc = smp.add("adc0", 500, 0, smp.mcp3008(spiH, 0));
+ *  Sampler.Sink out = Sampler.csv(System.out);
+ *  smp.aggregate(in4, 100, 100, out);
+ *  smp.aggregate(adc, 50, 100, out);
+ *  </pre>
+ *  A source returns a value &gt;= 0 or an error (&lt; 0); errors are
+ *  counted by the channel, not put. Every command's round trip limits the
+ *  rate of a channel; for many channels use more scheduler threads and,
+ *  for GPIOs of bank 0, one {@link #bank1()} channel instead of many. <br />
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see SampleRing
+ *  @see CycleScheduler
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  82 (16.10.2026) : new
+//           V.  96 (16.10.2026) : mcp3008 without allocation per sample
+public class Sampler {
+
+/** The connection to pigpiod for the sources made here. <br /> */
+   public final ClientPigpiod pI;
+
+/** The scheduler running the channels and stages. <br /> */
+   public final CycleScheduler sched;
+
+/** The channels. <br /> */
+   final List<Channel> channels = new CopyOnWriteArrayList<>();
+
+/** The stages. <br /> */
+   final List<Stage> stages = new CopyOnWriteArrayList<>();
+
+/** Make a sampler. <br />
+ *
+ *  @param pI the connection to pigpiod (may be null if only foreign
+ *         sources are used)
+ *  @param sched the scheduler for sampling and stages
+ */
+   public Sampler(final ClientPigpiod pI, final CycleScheduler sched){
+     this.pI = pI;
+     this.sched = sched;
+   } // Sampler(ClientPigpiod, CycleScheduler)
+
+//--------------------------------  channels  ------------------------------
+
+/** <b>A sampled channel</b>. <br /> */
+   public final class Channel implements Runnable {
+
+/** The channel's name. <br /> */
+     public final String name;
+
+/** The samples. <br /> */
+     public final SampleRing ring;
+
+     final LongSupplier source;
+     CycleScheduler.Task task;
+     volatile long errors;
+     volatile int lastErr;
+
+     Channel(final String name, final int capacity,
+                                              final LongSupplier source){
+       this.name = name;
+       this.ring = new SampleRing(capacity);
+       this.source = source;
+     } // Channel(String, int, LongSupplier)
+
+/** Take a sample. <br />
+ *  <br />
+ *  This is the scheduler's job; it is never run concurrently.
+ */
+     @Override public void run(){
+       final long t = System.nanoTime();
+       final long v = source.getAsLong();
+       if (v < 0) {
+         lastErr = (int)v;
+         ++errors; // one writer
+         return;
+       }
+       ring.put(t, v);
+     } // run()
+
+/** The scheduler task; null if not scheduled. <br /> */
+     public CycleScheduler.Task task(){ return task; }
+
+/** The number of samples got. <br /> */
+     public long samples(){ return ring.written(); }
+
+/** The number of failed samples. <br /> */
+     public long errors(){ return errors; }
+
+/** The last failed sample's error; 0: none. <br /> */
+     public int lastErr(){ return lastErr; }
+
+/** State as short text. <br /> */
+     @Override public String toString(){
+       return "Channel " + name + ": " + ring.written() + " samples, "
+             + errors + " errors, last " + ring.last();
+     } // toString()
+   } // Channel
+
+/** Add a channel. <br />
+ *
+ *  @param name the channel's name
+ *  @param period the sampling period
+ *  @param unit the unit of period
+ *  @param capacity the number of samples to hold (see {@link SampleRing})
+ *  @param source the source of the samples
+ *  @return the channel (sampling)
+ */
+   public Channel add(final String name, final long period,
+        final TimeUnit unit, final int capacity, final LongSupplier source){
+     final Channel ch = new Channel(name, capacity, source);
+     channels.add(ch);
+     ch.task = sched.schedule(name, period, 0, unit,
+                                       CycleScheduler.Overrun.SKIP, ch);
+     return ch;
+   } // add(String, long, TimeUnit, int, LongSupplier)
+
+/** Add a channel by rate. <br />
+ *
+ *  @param name the channel's name
+ *  @param hz the sampling rate in Hz (1..100000)
+ *  @param capacity the number of samples to hold; 0: 10 s, at least 1024
+ *  @param source the source of the samples
+ *  @return the channel (sampling)
+ */
+   public Channel add(final String name, final int hz, final int capacity,
+                                              final LongSupplier source){
+     final int rate = hz < 1 ? 1 : hz > 100000 ? 100000 : hz;
+     final int cap = capacity > 0 ? capacity : Math.max(1024, rate * 10);
+     return add(name, 1000000000L / rate, TimeUnit.NANOSECONDS, cap, source);
+   } // add(String, 2*int, LongSupplier)
+
+/** The channels. <br /> */
+   public List<Channel> channels(){ return channels; }
+
+//--------------------------------  sources  -------------------------------
+
+/** A GPIO's level as source. <br />
+ *  @param gpio the GPIO 0..53
+ *  @return a source of 0 or 1
+ */
+   public LongSupplier gpio(final int gpio){
+     return () -> pI.getInp(gpio);
+   } // gpio(int)
+
+/** The bank 0 levels (GPIO 0..31) as source. <br />
+ *  <br />
+ *  One command (BR1) samples all inputs; the value is the unsigned
+ *  32 bit mask.
+ *  @return a source of the levels
+ */
+   public LongSupplier bank1(){
+     final ProcessImage img = new ProcessImage(pI);
+     return () -> img.read() < 0 ? img.err() : img.levels() & 0xFFFFFFFFL;
+   } // bank1()
+
+/** An I2C device's 16 bit register as source. <br />
+ *  <br />
+ *  This is SMBus read word data (I2CRW), as for many ADCs.
+ *  @param handle as got by {@link ClientPigpiod#i2cOpen(int, int, int)}
+ *  @param reg the register
+ *  @return a source of the word
+ */
+   public LongSupplier i2cWord(final int handle, final int reg){
+     return () -> pI.stdCmd(PI_CMD_I2CRW, handle, reg);
+   } // i2cWord(2*int)
+
+/** A MCP3008 / MCP3004 ADC channel (10 bit, SPI) as source. <br />
+ *  <br />
+ *  The three byte transfer's buffers are made (and wrapped) once; a
+ *  sample allocates nothing.
+ *  @param handle as got by {@link ClientPigpiod#spiOpen(int, int, int)}
+ *  @param ch the ADC's (single ended) channel 0..7
+ *  @return a source of the value 0..1023
+ */
+   public LongSupplier mcp3008(final int handle, final int ch){
+     final byte[] rx = new byte[3];
+     final ByteBuffer txB = ByteBuffer.wrap(new byte[]{
+                                      1, (byte)(0x80 | (ch & 7) << 4), 0});
+     final ByteBuffer rxB = ByteBuffer.wrap(rx);
+     return () -> {
+       txB.clear(); // the positions moved by the last transfer
+       rxB.clear();
+       final int ret = pI.spiXfer(handle, txB, rxB);
+       if (ret < 0) return ret;
+       if (ret < 3) return PI_SPI_XFER_FAILED;
+       return (rx[1] & 3) << 8 | rx[2] & 0xFF;
+     };
+   } // mcp3008(2*int)
+
+//---------------------------  decimation stages  --------------------------
+
+/** <b>The receiver of aggregated windows</b>. <br /> */
+   @FunctionalInterface public interface Sink {
+
+/** Take a window. <br />
+ *
+ *  @param name the stage's name
+ *  @param t0 the first sample's time (System.nanoTime())
+ *  @param t1 the last sample's time
+ *  @param n the number of samples
+ *  @param min the minimum
+ *  @param max the maximum
+ *  @param mean the mean
+ */
+     void window(String name, long t0, long t1, int n, long min, long max,
+                                                             double mean);
+   } // Sink
+
+/** <b>A decimation and aggregation stage</b>. <br />
+ *  <br />
+ *  A stage follows a {@link SampleRing} by a {@link SampleRing.Cursor}
+ *  and hands every window of {@link #decimation} samples, aggregated, to
+ *  its {@link Sink}. It runs as scheduler task of its own; its buffers are
+ *  made once.
+ */
+   public final class Stage implements Runnable {
+
+/** The stage's name. <br /> */
+     public final String name;
+
+/** The number of samples per window. <br /> */
+     public final int decimation;
+
+     final SampleRing.Cursor cursor;
+     final Sink sink;
+     final long[] t = new long[256], v = new long[256];
+     CycleScheduler.Task task;
+     int n;
+     long t0, min, max, sum;
+     volatile long windows;
+
+     Stage(final String name, final SampleRing ring, final int decimation,
+                                                          final Sink sink){
+       this.name = name;
+       this.cursor = ring.cursor();
+       this.decimation = decimation < 1 ? 1 : decimation;
+       this.sink = sink;
+     } // Stage(String, SampleRing, int, Sink)
+
+/** Aggregate the samples got since the last run. <br /> */
+     @Override public void run(){
+       for (int got; (got = cursor.read(t, v, 0, t.length)) > 0;) {
+         for (int k = 0; k < got; ++k) {
+           final long x = v[k];
+           if (n == 0) {
+             t0 = t[k];
+             min = max = sum = x;
+           } else {
+             if (x < min) min = x;
+             if (x > max) max = x;
+             sum += x;
+           }
+           if (++n == decimation) {
+             sink.window(name, t0, t[k], n, min, max, (double)sum / n);
+             ++windows; // one writer
+             n = 0;
+           }
+         } // for samples
+       } // for reads
+     } // run()
+
+/** The scheduler task; null if not scheduled. <br /> */
+     public CycleScheduler.Task task(){ return task; }
+
+/** The number of windows exported. <br /> */
+     public long windows(){ return windows; }
+
+/** The number of samples lost (not read in time). <br /> */
+     public long lost(){ return cursor.lost(); }
+
+/** State as short text. <br /> */
+     @Override public String toString(){
+       return "Stage " + name + " /" + decimation + ": " + windows
+             + " windows, " + cursor.lost() + " lost";
+     } // toString()
+   } // Stage
+
+/** Add a decimation and aggregation stage for a channel. <br />
+ *
+ *  @param ch the channel
+ *  @param decimation the number of samples per window
+ *  @param periodMs the stage's period in ms; it should be short enough
+ *         for the ring not to be overrun
+ *  @param sink the receiver of the windows
+ *  @return the stage (running)
+ */
+   public Stage aggregate(final Channel ch, final int decimation,
+                                    final int periodMs, final Sink sink){
+     return aggregate(ch.name, ch.ring, decimation, periodMs, sink);
+   } // aggregate(Channel, 2*int, Sink)
+
+/** Add a decimation and aggregation stage for a ring. <br />
+ *
+ *  @param name the stage's name
+ *  @param ring the samples
+ *  @param decimation the number of samples per window
+ *  @param periodMs the stage's period in ms
+ *  @param sink the receiver of the windows
+ *  @return the stage (running)
+ */
+   public Stage aggregate(final String name, final SampleRing ring,
+              final int decimation, final int periodMs, final Sink sink){
+     final Stage st = new Stage(name, ring, decimation, sink);
+     stages.add(st);
+     st.task = sched.schedule(name + "/" + st.decimation, periodMs, 0,
+                                       CycleScheduler.Overrun.SKIP, st);
+     return st;
+   } // aggregate(String, SampleRing, 2*int, Sink)
+
+/** The stages. <br /> */
+   public List<Stage> stages(){ return stages; }
+
+/** A sink writing CSV lines. <br />
+ *  <br />
+ *  A line is {@code name,t0,t1,n,min,max,mean} with the times in ns;
+ *  its text buffer is made once.
+ *
+ *  @param out the output; IO errors are ignored
+ *  @return the sink
+ */
+   public static Sink csv(final Appendable out){
+     final StringBuilder sb = new StringBuilder(96);
+     return (name, t0, t1, n, min, max, mean) -> {
+       sb.setLength(0);
+       sb.append(name).append(',').append(t0).append(',').append(t1)
+         .append(',').append(n).append(',').append(min).append(',')
+         .append(max).append(',').append(mean).append('\n');
+       try {
+         out.append(sb);
+       } catch (IOException e) { } // ignored
+     };
+   } // csv(Appendable)
+
+/** Stop sampling and all stages. <br />
+ *  <br />
+ *  The scheduler is not shut down.
+ */
+   public void stop(){
+     for (Channel ch : channels) if (ch.task != null) ch.task.cancel();
+     for (Stage st : stages) if (st.task != null) st.task.cancel();
+   } // stop()
+
+/** State as short text. <br /> */
+   @Override public String toString(){
+     final StringBuilder sb = new StringBuilder("Sampler ");
+     sb.append(channels.size()).append(" channels, ")
+       .append(stages.size()).append(" stages");
+     for (Channel ch : channels) sb.append("\n  ").append(ch);
+     for (Stage st : stages) sb.append("\n  ").append(st);
+     return sb.toString();
+   } // toString()
+
+} // Sampler (16.10.2026)
@@ -0,0 +1,390 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import static de.weAut.PiGpioDdefs.*; // pigpio library defines
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/** <b>pigpiod scripts stored, run and observed from Java</b>.<br />
+ *  <br />
+ *  pigpiod executes scripts (pigpio's script language) on the Pi. A
+ *  reaction loop there (like wait for an input, set an output) needs no
+ *  LAN round trips. An object of this class (one per connection, see
+ *  {@link ClientPigpiod#scripts()}) manages such scripts: <ul>
+ *  <li>{@link #store(String)} stores a script's text on pigpiod once; the
+ *      id is cached by the text's content hash (SHA-256). So the same
+ *      script is not stored again, be it as text or {@link Script}.</li>
+ *  <li>{@link #run(String, int...)} stores (if needed) and runs with
+ *      parameters p0..p9. An id unknown to pigpiod (deleted or daemon
+ *      restarted) is dropped from the cache and the script is stored
+ *      anew.</li>
+ *  <li>{@link #status(int, int[])} polls the state and parameters (a
+ *      script's results); {@link #awaitEnd(int, int, int[])} waits for
+ *      its end; {@link #watch(int, int, Consumer)} streams them to a
+ *      consumer on change.</li></ul>
+ *  {@link Script} is a small builder for script text. <br />
+ *  <br />
+ *  Example (run a reaction loop, see {@link Script}, and stop it): <pre>
+ *  ScriptManager sm = pigpio.scripts();
+ *  int id = sm.run(followScript, 1);   // p0 = 1: keep running
+ *  ...
+ *  sm.update(id, 0);                   // p0 = 0: end
+ *  sm.awaitEnd(id, 100, null);</pre>
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see ClientPigpiod#storeScript(String)
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  76 (16.10.2026) : new
+public class ScriptManager {
+
+/** The connection. <br /> */
+   public final ClientPigpiod pI;
+
+/** Script ids by content hash. <br /> */
+   final Map<String, Integer> byHash = new HashMap<>();
+
+/** Guards {@link #byHash} (also while storing; no pinning of virtual
+ *  threads as by {@code synchronized}). <br />
+ */
+   final ReentrantLock lock = new ReentrantLock();
+
+/** Make the script manager for a connection. <br />
+ *  <br />
+ *  Hint: Use {@link ClientPigpiod#scripts()} to have just one.
+ */
+   public ScriptManager(final ClientPigpiod pI){ this.pI = pI; }
+
+/** Content hash of a script. <br />
+ *  @return the SHA-256 of the (trimmed) text as hex
+ */
+   public static String hash(final String text){
+     try {
+       final byte[] d = MessageDigest.getInstance("SHA-256")
+                   .digest(text.trim().getBytes(StandardCharsets.UTF_8));
+       final StringBuilder sb = new StringBuilder(64);
+       for (byte b : d) {
+         sb.append(Character.forDigit(b >> 4 & 0xF, 16))
+           .append(Character.forDigit(b & 0xF, 16));
+       }
+       return sb.toString();
+     } catch (NoSuchAlgorithmException e) { // every JRE has SHA-256
+       return Integer.toHexString(text.trim().hashCode());
+     }
+   } // hash(String)
+
+/** Store a script (if not cached). <br />
+ *
+ *  @param text the script
+ *  @return the script id (&gt;= 0); or error
+ */
+   public int store(final String text){
+     if (text == null || text.trim().isEmpty()) return PI_BAD_SCRIPT;
+     final String h = hash(text);
+     lock.lock();
+     try {
+       final Integer id = byHash.get(h);
+       if (id != null) return id;
+       final int ret = pI.storeScript(text.trim());
+       if (ret >= 0) byHash.put(h, ret);
+       return ret;
+     } finally {
+       lock.unlock();
+     }
+   } // store(String)
+
+/** Store a script (if not cached). <br />
+ *  @return the script id (&gt;= 0); or error
+ */
+   public int store(final Script script){ return store(script.toString()); }
+
+/** Store (if needed) and run a script. <br />
+ *
+ *  @param text the script
+ *  @param params the parameters p0.. (up to 10)
+ *  @return the script id (&gt;= 0); or error
+ */
+   public int run(final String text, final int... params){
+     int id = store(text);
+     if (id < 0) return id;
+     int ret = pI.runScript(id, params);
+     if (ret == PI_BAD_SCRIPT_ID) { // deleted or pigpiod restarted
+       forget(id);
+       id = store(text);
+       if (id < 0) return id;
+       ret = pI.runScript(id, params);
+     }
+     return ret < 0 ? ret : id;
+   } // run(String, int...)
+
+/** Store (if needed) and run a script. <br />
+ *  @return the script id (&gt;= 0); or error
+ */
+   public int run(final Script script, final int... params){
+     return run(script.toString(), params);
+   } // run(Script, int...)
+
+/** Update a running script's parameters. <br />
+ *  @return 0: OK; &lt; 0: error
+ */
+   public int update(final int id, final int... params){
+     return pI.updateScript(id, params);
+   } // update(int, int...)
+
+/** Get a script's status and parameters. <br />
+ *
+ *  @param params null or the destination for (up to 10) parameters
+ *  @return the status {@link PiGpioDdefs#PI_SCRIPT_HALTED} etc.; or error
+ */
+   public int status(final int id, final int[] params){
+     return pI.scriptStatus(id, params);
+   } // status(int, int[])
+
+/** Wait for a script's end. <br />
+ *  <br />
+ *  The status is polled every ms.
+ *
+ *  @param timeout the maximum wait in ms
+ *  @param params null or the destination for (up to 10) parameters
+ *  @return the last status: {@link PiGpioDdefs#PI_SCRIPT_HALTED} or
+ *          {@link PiGpioDdefs#PI_SCRIPT_FAILED} if ended; else running
+ *          (timeout); or error
+ */
+   public int awaitEnd(final int id, final int timeout, final int[] params){
+     final long end = System.currentTimeMillis() + timeout;
+     for (;;) {
+       final int st = status(id, params);
+       if (st < 0 || st == PI_SCRIPT_HALTED || st == PI_SCRIPT_FAILED
+                    || System.currentTimeMillis() >= end) return st;
+       try {
+         Thread.sleep(1);
+       } catch (InterruptedException e) {
+         return st;
+       }
+     }
+   } // awaitEnd(2*int, int[])
+
+/** Stop a script. <br />
+ *  @return 0: OK; &lt; 0: error
+ */
+   public int stop(final int id){ return pI.stopScript(id); }
+
+/** Delete a script (and drop it from the cache). <br />
+ *  @return 0: OK; &lt; 0: error
+ */
+   public int delete(final int id){
+     forget(id);
+     return pI.deleteScript(id);
+   } // delete(int)
+
+/** Drop a script from the cache. <br /> */
+   final void forget(final int id){
+     lock.lock();
+     try {
+       byHash.values().remove(id);
+     } finally {
+       lock.unlock();
+     }
+   } // forget(int)
+
+/** Delete all cached scripts. <br />
+ *  @return the number of failed deletions
+ */
+   public int deleteAll(){
+     lock.lock();
+     try {
+       int bad = 0;
+       for (Integer id : byHash.values()) {
+         pI.stopScript(id);
+         if (pI.deleteScript(id) < 0) ++bad;
+       }
+       byHash.clear();
+       return bad;
+     } finally {
+       lock.unlock();
+     }
+   } // deleteAll()
+
+/** The number of cached scripts. <br /> */
+   public int size(){
+     lock.lock();
+     try {
+       return byHash.size();
+     } finally {
+       lock.unlock();
+     }
+   } // size()
+
+/** Watch a script's status and parameters. <br />
+ *  <br />
+ *  A (daemon) thread polls the status every period and hands it (as
+ *  array status, p0..p9) to the consumer when changed. It ends after
+ *  the script ended (halted or failed) or an error, or by
+ *  {@link Watch#close()}.
+ *
+ *  @param period the poll period in ms (&gt;= 1)
+ *  @param sink the consumer; it gets a new array each time
+ *  @return the watch
+ */
+   public Watch watch(final int id, final int period,
+                                              final Consumer<int[]> sink){
+     return new Watch(id, period < 1 ? 1 : period, sink);
+   } // watch(2*int, Consumer)
+
+/** <b>A script's status stream</b>. <br />
+ *  @see ScriptManager#watch(int, int, Consumer)
+ */
+   public final class Watch implements Runnable, AutoCloseable, PiUtil {
+     final int id, period;
+     final Consumer<int[]> sink;
+     final Thread thread;
+     volatile boolean running = true;
+
+     Watch(final int id, final int period, final Consumer<int[]> sink){
+       this.id = id;
+       this.period = period;
+       this.sink = sink;
+       thread = new Thread(this, "script-watch " + id);
+       thread.setDaemon(true);
+       thread.start();
+     } // Watch(2*int, Consumer)
+
+     @Override public void run(){
+       int[] last = null;
+       final int[] params = new int[PI_MAX_SCRIPT_PARAMS];
+       while (running) {
+         final int st = status(id, params);
+         final int[] now = new int[1 + PI_MAX_SCRIPT_PARAMS];
+         now[0] = st;
+         System.arraycopy(params, 0, now, 1, params.length);
+         if (!Arrays.equals(now, last)) {
+           sink.accept(now);
+           last = now;
+         }
+         if (st < 0 || st == PI_SCRIPT_HALTED
+                                        || st == PI_SCRIPT_FAILED) break;
+         thrDelay(period);
+       }
+       running = false;
+     } // run()
+
+/** Is still watching. <br /> */
+     public boolean isRunning(){ return running; }
+
+/** End the watching. <br /> */
+     @Override public void close(){
+       running = false;
+       thread.interrupt();
+     } // close()
+   } // Watch
+
+/** <b>A pigpiod script builder</b>. <br />
+ *  <br />
+ *  It just makes the script's text; the commands (like {@code r w mils
+ *  tag jmp jz ld add sta}) and operands (numbers, variables v0..v149,
+ *  parameters p0..p9) are pigpio's script language. Every method appends
+ *  one command. Example (reaction loop: output 17 follows input 4 till
+ *  p0 is set to 0 by {@link ScriptManager#update(int, int...)}): <pre>
+ *  new Script().tag(1).read(4).sta("v0").write(17, "v0")
+ *              .lda("p0").jz(2).mils(1).jmp(1).tag(2).halt();</pre>
+ */
+   public static final class Script {
+     final StringBuilder sb = new StringBuilder(128);
+
+/** Append a command. <br />
+ *  @param cmd the command (like "mils")
+ *  @param args the operands (numbers or names)
+ *  @return this script
+ */
+     public Script op(final String cmd, final Object... args){
+       if (sb.length() > 0) sb.append(' ');
+       sb.append(cmd);
+       for (Object a : args) sb.append(' ').append(a);
+       return this;
+     } // op(String, Object...)
+
+/** Label L. <br /> */
+     public Script tag(final int l){ return op("tag", l); }
+
+/** Jump to L. <br /> */
+     public Script jmp(final int l){ return op("jmp", l); }
+
+/** Jump to L if A is zero. <br /> */
+     public Script jz(final int l){ return op("jz", l); }
+
+/** Jump to L if A is not zero. <br /> */
+     public Script jnz(final int l){ return op("jnz", l); }
+
+/** Jump to L if A is &gt;= 0. <br /> */
+     public Script jp(final int l){ return op("jp", l); }
+
+/** Jump to L if A is &lt; 0. <br /> */
+     public Script jm(final int l){ return op("jm", l); }
+
+/** A = x. <br /> */
+     public Script lda(final Object x){ return op("lda", x); }
+
+/** y = A. <br /> */
+     public Script sta(final Object y){ return op("sta", y); }
+
+/** y = x. <br /> */
+     public Script ld(final Object y, final Object x){
+       return op("ld", y, x);
+     } // ld(2*Object)
+
+/** A = A + x. <br /> */
+     public Script add(final Object x){ return op("add", x); }
+
+/** A = A - x. <br /> */
+     public Script sub(final Object x){ return op("sub", x); }
+
+/** Compare: A = A - x (flags only). <br /> */
+     public Script cmp(final Object x){ return op("cmp", x); }
+
+/** A = level of a GPIO. <br /> */
+     public Script read(final Object gpio){ return op("r", gpio); }
+
+/** Write a GPIO. <br /> */
+     public Script write(final Object gpio, final Object level){
+       return op("w", gpio, level);
+     } // write(2*Object)
+
+/** Set a GPIO's mode (like "w" for output). <br /> */
+     public Script mode(final Object gpio, final String mode){
+       return op("m", gpio, mode);
+     } // mode(Object, String)
+
+/** Delay in ms. <br /> */
+     public Script mils(final Object ms){ return op("mils", ms); }
+
+/** Delay in &micro;s. <br /> */
+     public Script mics(final Object us){ return op("mics", us); }
+
+/** End the script. <br /> */
+     public Script halt(){ return op("halt"); }
+
+/** The script's text. <br /> */
+     @Override public String toString(){ return sb.toString(); }
+   } // Script
+
+} // ScriptManager (16.10.2026)
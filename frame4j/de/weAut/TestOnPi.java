@@ -65,7 +65,7 @@ like e.g. <pre><code>
  *  stopped by signal, cntl-C or JMX/JConsole command. <pre><code>
  *    java TestOnPi -outPort 3 -winkServo -de -cycLim 89012 </code></pre>
  *  Test a RC servo attached to Pin 3 (and 5V and Gnd) by winking over almost
- *  the whole (180) range in many small steps.<br />   
+ *  the whole (180°) range in many small steps.<br />   
  *  <br /> 
  *  <br /> 
    Copyright  &copy;  2021  Albrecht Weinert <pre><code>
@@ -90,6 +90,7 @@ like e.g. <pre><code>
  //          V.  26  (31.05.2019) : three LEDs, IO lock 
  //          V.  35  (01.04.2021) : MBean for JConsole
  //          V.  54  (22.06.2021) : beta 10
+ //          V.  73  (16.10.2026) : cycle lateness in state string, MBean
 @MinDoc(
   copyright = "Copyright 2021  A. Weinert",
   version   = "V.$Revision: 56 $",
@@ -559,6 +560,7 @@ like e.g. <pre><code>
     try {
       oName = regAsStdMBean(); // registration as MBean 
       out.println("  MBean: " + oName + " (JConsole)"); // success
+      out.println("  MBean: " + CycleStats.get().regAsMBean());
     } catch (JMException ex) { repExc(out, ex, false); } // report fail
     
     if (getUseLock()) {
@@ -700,4 +702,13 @@ like e.g. <pre><code>
     log.println( threeLineEndMsg());
     return 0; // normal end
   } // doIt()
+
+/** State as text. <br />
+ *  <br />
+ *  The state of App is appended by the cycles' lateness telemetry.
+ *  @see PiUtil#cycleReport()
+ */
+  @Override public String getStateString(){
+    return super.getStateString() + cycleReport();
+  } // getStateString()
 } // TestOnPi (April 2021)
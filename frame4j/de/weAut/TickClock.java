@@ -0,0 +1,344 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import static de.weAut.PiGpioDdefs.*; // pigpio library defines
+
+/** <b>pigpiod's tick related to JVM time</b>.<br />
+ *  <br />
+ *  pigpiod time stamps notifications ({@link PigpiodNotifier}) and
+ *  waveform events by its &micro;s tick ({@link PiGpioDdefs#PI_CMD_TICK
+ *  TICK}, uint32, wrapping after 71.6 minutes). An object of this class
+ *  relates this tick to the JVM's {@link System#nanoTime()}. So edges on
+ *  several Pis (several {@link ClientPigpiod}s with own {@link TickClock}s)
+ *  can be correlated at sub ms resolution. <br />
+ *  <br />
+ *  A {@link #sample()} does a few ({@link #burst}) TICK round trips; the
+ *  one of least round trip time is taken, its tick relating to the round
+ *  trip's midpoint (as NTP does). The last 16 samples' line of best fit
+ *  (least squares) gives offset and drift, the remaining deviations and
+ *  the round trip time give an {@linkplain #errorNanos(long) error bound}.
+ *  A tick not fitting by more than 1 s (a daemon restart e.g.) discards
+ *  the samples before. <br />
+ *  <br />
+ *  Sampling is done periodically by {@link #start(int)} in an own
+ *  (daemon) thread or by the application calling {@link #sample()}.
+ *  The conversions are lock free and threadsafe. <br />
+ *  Example: <pre>
+ *  TickClock clock = new TickClock(pigpio).start(1000);
+ *  notifier.addListener(1 &lt;&lt; 17, (gpio, level, tick) -&gt;
+ *         events.add(clock.toNanoTime(tick), gpio, level));
+ *  </pre>
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see PigpiodNotifier.EdgeListener
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  79 (16.10.2026) : new
+//           V. 124 (17.10.2026) : isTransportError
+public class TickClock implements Runnable, AutoCloseable {
+
+/** Result of conversions if not synchronised yet. <br /> */
+   public static final long NOT_SYNC = Long.MIN_VALUE;
+
+/** The connection to pigpiod. <br /> */
+   public final ClientPigpiod pI;
+
+/** Round trips per sample (1..); default 5. <br /> */
+   public volatile int burst = 5;
+
+/** Samples in the fit. <br /> */
+   static final int WIN = 16;
+
+/** The samples: ticks (unwrapped), midpoints and round trip times
+ *  (ns); guarded by this. <br />
+ */
+   final long[] sTick = new long[WIN], sNano = new long[WIN],
+                sRtt = new long[WIN];
+
+/** Number of samples and next index; guarded by this. <br /> */
+   int n, next;
+
+/** The last raw tick and its unwrapped value; guarded by this. <br /> */
+   int lastRaw;
+   long lastExt;
+
+/** Samples taken and restarts seen. <br /> */
+   volatile long samples, restarts;
+
+/** <b>A fit</b>: tick to nanoTime. <br />
+ *  <br />
+ *  nano = nanoRef + ns * (tick - rawRef) with the tick difference as
+ *  signed int (so up to &plusmn;35 min from the reference).
+ */
+   static final class Fit {
+     final int rawRef;
+     final long nanoRef;     // nanoTime at rawRef
+     final double ns;        // ns per tick (&micro;s)
+     final long baseErr;     // half rtt plus deviations, ns
+     final double slopeErr;  // relative uncertainty of ns
+     final long epochOff;    // epoch ns - nanoTime
+
+     Fit(final int rawRef, final long nanoRef, final double ns,
+           final long baseErr, final double slopeErr, final long epochOff){
+       this.rawRef = rawRef;
+       this.nanoRef = nanoRef;
+       this.ns = ns;
+       this.baseErr = baseErr;
+       this.slopeErr = slopeErr;
+       this.epochOff = epochOff;
+     } // Fit(int, long, double, long, double, long)
+   } // Fit
+
+/** The current fit; null: not synchronised. <br /> */
+   volatile Fit fit;
+
+/** The sampling thread; null if not started. <br /> */
+   volatile Thread thread;
+
+/** Sampling period in ms. <br /> */
+   volatile int periodMs;
+
+/** Make a tick clock. <br />
+ *  <br />
+ *  It is not synchronised till the first {@link #sample()}.
+ *
+ *  @param pI the connection to pigpiod
+ */
+   public TickClock(final ClientPigpiod pI){ this.pI = pI; }
+
+/** Take a sample. <br />
+ *  <br />
+ *  {@link #burst} TICK round trips are made; the fastest is added to the
+ *  fit.
+ *
+ *  @return 0: OK; &lt; 0: error (no round trip succeeded)
+ */
+   public int sample(){
+     long best = Long.MAX_VALUE, mid = 0;
+     int tick = 0, err = PI_SOCK_READ_FAILED;
+     final int b = burst < 1 ? 1 : burst;
+     for (int i = 0; i < b; ++i) {
+       final long t0 = System.nanoTime();
+       final int t = pI.stdCmd(PI_CMD_TICK, 0, 0);
+       final long rtt = System.nanoTime() - t0;
+       if (ClientPigpiod.isTransportError(t)) { // uint32 can't fail, IO can
+         err = t;
+         continue;
+       }
+       if (rtt < best) {
+         best = rtt;
+         mid = t0 + rtt / 2;
+         tick = t;
+       }
+     } // for
+     if (best == Long.MAX_VALUE) return err;
+     add(tick, mid, best);
+     return 0;
+   } // sample()
+
+/** Add a sample and fit. <br />
+ *
+ *  @param raw the tick got
+ *  @param mid the nanoTime of the round trip's midpoint
+ *  @param rtt the round trip time in ns
+ */
+   synchronized void add(final int raw, final long mid, final long rtt){
+     final Fit f = fit;
+     if (f != null) { // unwrap and check against the fit
+       final long expected = (long)((mid - f.nanoRef) / f.ns);
+       final long got = raw - f.rawRef; // signed int difference
+       if (Math.abs(got - expected) > 1_000_000) { // > 1 s: restart
+         n = next = 0;
+         ++restarts;
+       }
+     }
+     final long ext = n == 0 ? raw & 0xFFFFFFFFL
+                             : lastExt + (raw - lastRaw & 0xFFFFFFFFL);
+     lastRaw = raw;
+     lastExt = ext;
+     sTick[next] = ext;
+     sNano[next] = mid;
+     sRtt[next] = rtt;
+     next = (next + 1) % WIN;
+     if (n < WIN) ++n;
+     ++samples;
+
+     // least squares nano over tick, relative to this sample
+     double ns = 1000.0; // ns per tick without drift
+     long minRtt = rtt;
+     long tMin = ext, tMax = ext;
+     if (n >= 2) {
+       double sx = 0, sy = 0, sxx = 0, sxy = 0;
+       for (int i = 0; i < n; ++i) {
+         final double x = sTick[i] - ext, y = sNano[i] - mid;
+         sx += x; sy += y; sxx += x * x; sxy += x * y;
+         if (sRtt[i] < minRtt) minRtt = sRtt[i];
+         if (sTick[i] < tMin) tMin = sTick[i];
+         if (sTick[i] > tMax) tMax = sTick[i];
+       }
+       final double d = n * sxx - sx * sx;
+       if (tMax - tMin >= 1000 && d > 0) { // at least 1 ms span
+         ns = (n * sxy - sx * sy) / d;
+       }
+     }
+     // reference: the line at this tick
+     double sy0 = 0;
+     for (int i = 0; i < n; ++i) {
+       sy0 += (sNano[i] - mid) - ns * (sTick[i] - ext);
+     }
+     final long nanoRef = mid + (long)(sy0 / n);
+     double dev = 0;
+     for (int i = 0; i < n; ++i) {
+       final double r = sNano[i] - nanoRef - ns * (sTick[i] - ext);
+       dev = Math.max(dev, Math.abs(r));
+     }
+     final long baseErr = minRtt / 2 + (long)dev;
+     final double span = (tMax - tMin) * 1000.0;
+     final double slopeErr = n >= 2 && span > 0
+                    ? Math.max(1e-6, 2.0 * baseErr / span) : 1e-4;
+     fit = new Fit(raw, nanoRef, ns, baseErr, slopeErr,
+              System.currentTimeMillis() * 1000000L - System.nanoTime());
+   } // add(int, 2*long)
+
+/** Convert a pigpiod tick to JVM time. <br />
+ *
+ *  @param tick pigpiod's &micro;s tick (uint32), within about 35 min of
+ *         the last sample
+ *  @return the corresponding {@link System#nanoTime()};
+ *          {@link #NOT_SYNC} if not synchronised yet
+ */
+   public long toNanoTime(final int tick){
+     final Fit f = fit;
+     if (f == null) return NOT_SYNC;
+     return f.nanoRef + (long)(f.ns * (tick - f.rawRef));
+   } // toNanoTime(int)
+
+/** Convert a pigpiod tick to wall clock time. <br />
+ *  <br />
+ *  The offset of wall clock to {@link System#nanoTime()} is taken at the
+ *  last sample with ms resolution. Differences of ticks converted (also
+ *  of several Pis) are as precise as by {@link #toNanoTime(int)}.
+ *
+ *  @param tick pigpiod's &micro;s tick (uint32)
+ *  @return &micro;s since 1970-01-01 UTC; {@link #NOT_SYNC} if not
+ *          synchronised yet
+ */
+   public long toEpochMicros(final int tick){
+     final Fit f = fit;
+     if (f == null) return NOT_SYNC;
+     return (f.nanoRef + (long)(f.ns * (tick - f.rawRef)) + f.epochOff)
+                                                                    / 1000;
+   } // toEpochMicros(int)
+
+/** Convert JVM time to a pigpiod tick. <br />
+ *
+ *  @param nanoTime a {@link System#nanoTime()} value
+ *  @return pigpiod's &micro;s tick (uint32) at that time; 0 if not
+ *          synchronised yet
+ */
+   public int toTick(final long nanoTime){
+     final Fit f = fit;
+     if (f == null) return 0;
+     return f.rawRef + (int)Math.round((nanoTime - f.nanoRef) / f.ns);
+   } // toTick(long)
+
+/** The error bound of a conversion. <br />
+ *  <br />
+ *  This is half the least round trip time plus the fit's largest
+ *  deviation plus the drift's uncertainty extrapolated to the time
+ *  given.
+ *
+ *  @param nanoTime the time converted (to or from)
+ *  @return the error bound in ns; {@link Long#MAX_VALUE} if not
+ *          synchronised yet
+ */
+   public long errorNanos(final long nanoTime){
+     final Fit f = fit;
+     if (f == null) return Long.MAX_VALUE;
+     return f.baseErr + (long)(Math.abs(nanoTime - f.nanoRef) * f.slopeErr);
+   } // errorNanos(long)
+
+/** Is synchronised. <br />
+ *  @return true after a successful {@link #sample()}
+ */
+   public boolean isSync(){ return fit != null; }
+
+/** The daemon's clock drift. <br />
+ *  @return the tick's deviation from JVM time in ppm (&gt; 0: the tick
+ *          runs slow); 0 if not known
+ */
+   public double driftPpm(){
+     final Fit f = fit;
+     return f == null ? 0 : (f.ns / 1000.0 - 1.0) * 1e6;
+   } // driftPpm()
+
+/** The number of samples taken. <br /> */
+   public long samples(){ return samples; }
+
+/** The number of daemon restarts (tick jumps) seen. <br /> */
+   public long restarts(){ return restarts; }
+
+/** Start periodic sampling. <br />
+ *  <br />
+ *  A (daemon) thread samples at once and then every period. Failing
+ *  samples (connection lost) are just skipped.
+ *
+ *  @param periodMs the sampling period in ms (&gt;= 10)
+ *  @return this
+ */
+   public synchronized TickClock start(final int periodMs){
+     this.periodMs = periodMs < 10 ? 10 : periodMs;
+     if (thread == null) {
+       final Thread t = new Thread(this, "tick-clock " + pI.thePi.host());
+       t.setDaemon(true);
+       thread = t;
+       t.start();
+     }
+     return this;
+   } // start(int)
+
+/** The sampling thread's work. <br /> */
+   @Override public void run(){
+     final Thread me = Thread.currentThread();
+     while (thread == me) {
+       sample();
+       try {
+         Thread.sleep(periodMs);
+       } catch (InterruptedException e) {
+         return;
+       }
+     } // while
+   } // run()
+
+/** Stop periodic sampling. <br /> */
+   @Override public synchronized void close(){
+     final Thread t = thread;
+     thread = null;
+     if (t != null) t.interrupt();
+   } // close()
+
+/** State as short text. <br /> */
+   @Override public String toString(){
+     final Fit f = fit;
+     if (f == null) return "TickClock: not synchronised";
+     return "TickClock: " + samples + " samples, drift "
+         + Math.round(driftPpm() * 10) / 10.0 + " ppm, error "
+         + errorNanos(System.nanoTime()) / 1000 + " us, restarts "
+         + restarts;
+   } // toString()
+
+} // TickClock (16.10.2026)
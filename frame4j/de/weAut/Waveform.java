@@ -0,0 +1,340 @@
+/*  Copyright 2026 Frame4J contributors
+ *  All rights reserved.
+ *
+ *  This file is part of Frame4J
+ *  ( frame4j.de  https://weinert-automation.de/software/frame4j/ )
+ *
+ *  Frame4J is made available under the terms of the
+ *  Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/  or as text in
+ https://weinert-automation.de/java/docs/frame4j/de/frame4j/doc-files/epl.txt
+ *  within the source distribution
+ */
+package de.weAut;
+
+import static de.weAut.PiGpioDdefs.*; // pigpio library defines
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/** <b>A waveform (pulse train) to be timed by pigpiod</b>.<br />
+ *  <br />
+ *  An object of this class collects pulses in Java. Each pulse switches
+ *  some GPIOs (0..31) on and some off and then lasts a delay in &micro;s.
+ *  {@link #create(ClientPigpiod)} uploads them to pigpiod (by a few
+ *  commands, see {@link ClientPigpiod#waveAddGeneric(ByteBuffer)}) and
+ *  creates a waveform there. This waveform may be sent (once or repeated,
+ *  {@link ClientPigpiod#waveSend(int, int)}) or {@linkplain Chain chained}
+ *  with others. pigpiod times the edges by DMA at &micro;s accuracy. <br />
+ *  <br />
+ *  Compared to {@link ClientPigpiod#setOutput(int, boolean)} plus
+ *  {@link PiUtil#thrDelay(int)} per edge, a sequence costs a handful of
+ *  commands instead of one round trip (and its network jitter) per
+ *  edge. <br />
+ *  <br />
+ *  The GPIOs used ({@link #outMask()}) must be set as outputs before
+ *  sending. Errors of the building methods (like a GPIO &gt; 31) are
+ *  returned by {@link #create(ClientPigpiod)}, as with
+ *  {@link CommandBatch}. <br />
+ *  A {@link Waveform} may be {@linkplain #clear() cleared} and re-used; it
+ *  is not threadsafe. <br />
+ *  Example (10 pulses 100 &micro;s on GPIO 18, then 1 ms pause): <pre>
+ *  Waveform w = new Waveform().square(18, 100, 100, 10).delay(1000);
+ *  int id = w.create(pigpio);
+ *  if (id &gt;= 0) pigpio.waveSend(id, PI_WAVE_MODE_REPEAT);
+ *  </pre>
+ *  <br />
+ *  <a href=package-summary.html#co>&copy;</a>
+ *  Copyright 2026  &nbsp; Frame4J contributors<br />
+ *  @see ClientPigpiod#waveSend(int, int)
+ *  @author   $Author$
+ *  @version  $Revision$ ($Date$)
+ */
+// so far:   V.  75 (16.10.2026) : new
+public class Waveform {
+
+/** Number of pulses. <br /> */
+   int n;
+
+/** The pulses' GPIO on and off masks and delays. <br /> */
+   int[] on, off, us;
+
+/** GPIOs used. <br /> */
+   int outMask;
+
+/** First error of the building methods; 0: none. <br /> */
+   int bad;
+
+/** Upload buffer; lazy. <br /> */
+   ByteBuffer buf;
+
+/** Pulses per upload command. <br />
+ *  <br />
+ *  pigpiod limits a command extension to 64 Kbyte (12 bytes per pulse).
+ */
+   static final int CHUNK = 4000;
+
+/** Make a waveform. <br />
+ *
+ *  @param capacity the expected number of pulses (will grow if needed)
+ */
+   public Waveform(final int capacity){
+     final int cap = capacity < 8 ? 8 : capacity;
+     on  = new int[cap];
+     off = new int[cap];
+     us  = new int[cap];
+   } // Waveform(int)
+
+/** Make a waveform for up to 64 pulses. <br /> */
+   public Waveform(){ this(64); }
+
+/** Add a pulse. <br />
+ *  <br />
+ *  This is pigpio's generic pulse.
+ *
+ *  @param onMask the GPIOs to be set
+ *  @param offMask the GPIOs to be cleared
+ *  @param delay the time till the next pulse in &micro;s (&gt;= 0)
+ *  @return this waveform
+ */
+   public Waveform pulse(final int onMask, final int offMask,
+                                                          final int delay){
+     if (delay < 0 && bad == 0) bad = PI_BAD_PARAM;
+     if (n == on.length) {
+       final int cap = n * 2;
+       on  = Arrays.copyOf(on, cap);
+       off = Arrays.copyOf(off, cap);
+       us  = Arrays.copyOf(us, cap);
+     }
+     on[n] = onMask;
+     off[n] = offMask;
+     us[n] = delay;
+     ++n;
+     outMask |= onMask | offMask;
+     return this;
+   } // pulse(3*int)
+
+/** Set a GPIO high for some time. <br />
+ *
+ *  @param gpio the GPIO 0..31
+ *  @param delay the time till the next pulse in &micro;s
+ *  @return this waveform
+ */
+   public Waveform high(final int gpio, final int delay){
+     return pulse(bit(gpio), 0, delay);
+   } // high(2*int)
+
+/** Set a GPIO low for some time. <br />
+ *
+ *  @param gpio the GPIO 0..31
+ *  @param delay the time till the next pulse in &micro;s
+ *  @return this waveform
+ */
+   public Waveform low(final int gpio, final int delay){
+     return pulse(0, bit(gpio), delay);
+   } // low(2*int)
+
+/** Add a pause. <br />
+ *
+ *  @param delay the time till the next pulse in &micro;s
+ *  @return this waveform
+ */
+   public Waveform delay(final int delay){ return pulse(0, 0, delay); }
+
+/** Add a square wave. <br />
+ *
+ *  @param gpio the GPIO 0..31
+ *  @param highUs the high time in &micro;s
+ *  @param lowUs the low time in &micro;s
+ *  @param cycles the number of periods
+ *  @return this waveform
+ */
+   public Waveform square(final int gpio, final int highUs,
+                                        final int lowUs, final int cycles){
+     final int b = bit(gpio);
+     for (int i = 0; i < cycles; ++i) {
+       pulse(b, 0, highUs);
+       pulse(0, b, lowUs);
+     }
+     return this;
+   } // square(4*int)
+
+/** GPIO's bit; records an error if not 0..31. <br /> */
+   final int bit(final int gpio){
+     if (gpio < 0 || gpio > 31) {
+       if (bad == 0) bad = PI_BAD_USER_GPIO;
+       return 0;
+     }
+     return 1 << gpio;
+   } // bit(int)
+
+/** The number of pulses. <br /> */
+   public int size(){ return n; }
+
+/** The waveform's length in &micro;s. <br /> */
+   public long micros(){
+     long t = 0;
+     for (int i = 0; i < n; ++i) t += us[i];
+     return t;
+   } // micros()
+
+/** The GPIOs used. <br />
+ *  @return a mask of all GPIOs switched by the pulses
+ */
+   public int outMask(){ return outMask; }
+
+/** Clear for re-use. <br />
+ *  @return this waveform
+ */
+   public Waveform clear(){
+     n = 0;
+     outMask = 0;
+     bad = 0;
+     return this;
+   } // clear()
+
+/** Upload and create the waveform on pigpiod. <br />
+ *  <br />
+ *  A new waveform is started there, the pulses are added in parts of
+ *  up to {@link #CHUNK} (as pigpiod merges added pulses by time, every
+ *  part after the first starts with a pause of the time before) and the
+ *  waveform is created.
+ *
+ *  @param pI the connection to pigpiod
+ *  @return the wave id (&gt;= 0); or error, also from building
+ */
+   public int create(final ClientPigpiod pI){
+     if (bad != 0) return bad;
+     if (n == 0) return PI_EMPTY_WAVEFORM;
+     if (n > PI_WAVE_MAX_PULSES) return PI_TOO_MANY_PULSES;
+     int ret = pI.waveAddNew();
+     if (ret < 0) return ret;
+     ByteBuffer b = buf;
+     if (b == null) {
+       final int pulses = Math.min(n, CHUNK) + 1;
+       buf = b = ByteBuffer.allocate(pulses * 12)
+                                          .order(ByteOrder.LITTLE_ENDIAN);
+     }
+     long t = 0; // start of the part
+     for (int i = 0; i < n;) {
+       final int k = Math.min(CHUNK, n - i);
+       if (b.capacity() < (k + 1) * 12) {
+         buf = b = ByteBuffer.allocate((k + 1) * 12)
+                                          .order(ByteOrder.LITTLE_ENDIAN);
+       }
+       b.clear();
+       if (t > 0) b.putInt(0).putInt(0).putInt((int)t); // pause before
+       for (final int e = i + k; i < e; ++i) {
+         b.putInt(on[i]).putInt(off[i]).putInt(us[i]);
+         t += us[i];
+       }
+       b.flip();
+       ret = pI.waveAddGeneric(b);
+       if (ret < 0) return ret;
+     }
+     return pI.waveCreate();
+   } // create(ClientPigpiod)
+
+/** <b>A chain of waveforms</b>. <br />
+ *  <br />
+ *  The chain of wave ids, (nested) loops and delays is executed by
+ *  pigpiod ({@link ClientPigpiod#waveChain(byte[], int, int)}). <br />
+ *  Example (wave a, then b three times, then a again): <pre>
+ *  new Waveform.Chain().wave(a).loop().wave(b).repeat(3).wave(a)
+ *                     .send(pigpio);
+ *  </pre>
+ */
+   public static final class Chain {
+     byte[] buf = new byte[32];
+     int len, depth, bad;
+
+/** Add a waveform. <br />
+ *  @param waveId as got by {@link Waveform#create(ClientPigpiod)}
+ *  @return this chain
+ */
+     public Chain wave(final int waveId){
+       if ((waveId < 0 || waveId > 250) && bad == 0) bad = PI_BAD_WAVE_ID;
+       return put(waveId, -1, -1);
+     } // wave(int)
+
+/** Start a loop. <br />
+ *  @return this chain
+ *  @see #repeat(int)
+ *  @see #forever()
+ */
+     public Chain loop(){
+       ++depth;
+       return put(255, 0, -1);
+     } // loop()
+
+/** End a loop by repeating it. <br />
+ *  @param count the number of repetitions 0..65535
+ *  @return this chain
+ */
+     public Chain repeat(final int count){
+       if ((count < 0 || count > 0xFFFF || depth < 1) && bad == 0) {
+         bad = PI_BAD_PARAM;
+       }
+       --depth;
+       put(255, 1, -1);
+       return put(count & 0xFF, count >> 8 & 0xFF, -1);
+     } // repeat(int)
+
+/** End a loop by repeating it till {@link ClientPigpiod#waveTxStop()}.
+ *  <br />
+ *  @return this chain
+ */
+     public Chain forever(){
+       if (depth < 1 && bad == 0) bad = PI_BAD_PARAM;
+       --depth;
+       return put(255, 3, -1);
+     } // forever()
+
+/** Add a delay. <br />
+ *  @param micros the delay in &micro;s (longer ones than 65535 are split)
+ *  @return this chain
+ */
+     public Chain delay(int micros){
+       if (micros < 0 && bad == 0) bad = PI_BAD_PARAM;
+       while (micros > 0) {
+         final int d = Math.min(micros, 0xFFFF);
+         put(255, 2, d & 0xFF);
+         put(d >> 8, -1, -1);
+         micros -= d;
+       }
+       return this;
+     } // delay(int)
+
+/** Append up to three bytes (-1: none). <br /> */
+     Chain put(final int b0, final int b1, final int b2){
+       if (len + 3 > buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+       buf[len++] = (byte)b0;
+       if (b1 >= 0) buf[len++] = (byte)b1;
+       if (b2 >= 0) buf[len++] = (byte)b2;
+       return this;
+     } // put(3*int)
+
+/** The chain's length in bytes. <br /> */
+     public int size(){ return len; }
+
+/** Clear for re-use. <br />
+ *  @return this chain
+ */
+     public Chain clear(){
+       len = depth = bad = 0;
+       return this;
+     } // clear()
+
+/** Send the chain. <br />
+ *  @param pI the connection to pigpiod
+ *  @return 0: OK; &lt; 0: error, also from building
+ */
+     public int send(final ClientPigpiod pI){
+       if (bad != 0) return bad;
+       if (depth != 0) return PI_BAD_PARAM; // unclosed loop
+       return pI.waveChain(buf, 0, len);
+     } // send(ClientPigpiod)
+   } // Chain
+
+} // Waveform (16.10.2026)
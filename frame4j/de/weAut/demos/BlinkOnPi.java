@@ -19,6 +19,7 @@ import de.frame4j.util.App;
 import de.frame4j.util.AppBase;
 import de.frame4j.util.MinDoc;
 import de.weAut.ClientPigpiod;
+import de.weAut.CycleStats;
 import java.io.IOException;
 import javax.management.JMException;
 
@@ -73,6 +74,7 @@ import javax.management.JMException;
 //           V.  26  (31.05.2019) : three LEDs, IO lock 
 //           V.  35  (01.04.2021) : MBean for JConsole
 //           V.  45  (08.05.2021) : piTraffic buzzer and button
+//           V.  73  (16.10.2026) : cycle lateness in state string, MBean
 @MinDoc(
   copyright = "Copyright 2021  A. Weinert",
   version   = "V.$Revision: 56 $",
@@ -193,6 +195,7 @@ import javax.management.JMException;
     try {
       String oName = regAsStdMBean();
       out.println("\n  " + PROG_SHORT + " MBean: " + oName);
+      CycleStats.get().regAsMBean();
     } catch (JMException ex) { } // registration as MBean failed
     if (getUseLock()) {
       final int oL = openLock(null, false);
@@ -257,4 +260,13 @@ import javax.management.JMException;
     closeLock();
     return 0; // normal end
   } // doIt()
+
+/** State as text. <br />
+ *  <br />
+ *  The state of App is appended by the cycles' lateness telemetry.
+ *  @see PiUtil#cycleReport()
+ */
+  @Override public String getStateString(){
+    return super.getStateString() + cycleReport();
+  } // getStateString()
 } // BlinkOnPi (April 2021)
@@ -29,6 +29,7 @@ import de.weAut.PiUtil;  // Raspberry Pi handling utilities (IO lock, watchdog)
  *  work also when run on another machine.<br />
  *  <br />
  *  Copyright  &copy;  2019   Albrecht Weinert <br />
+ *  @see de.weAut.OneWireTherm
  *  @author   Albrecht Weinert a-weinert.de
  *  @version  $Revision: 52 $ ($Date: 2021-06-12 13:01:58 +0200 (Sa, 12 Jun 2021) $)
  */
@@ -101,7 +102,7 @@ public class Pi1WireThDemo implements PiUtil {
         } else { // good else bad
            System.out.println(line2);
            erg.setLength(0);// 0123456789x    // clear
-           erg.append(        "   0.000C"); // position 
+           erg.append(        "   0.000°C"); // position 
       //   erg.setCharAt(8, (char)0x00B0);  // work around for IS889-1 source
            for (int li2i = line2.length() -1, 
                                        ergI = 7; ergI > 0; --ergI,--li2i) {